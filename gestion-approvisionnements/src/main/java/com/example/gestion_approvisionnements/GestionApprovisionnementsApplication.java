@@ -1,9 +1,14 @@
 package com.example.gestion_approvisionnements;
 
+import com.example.gestion_approvisionnements.repository.CacheSecondNiveauRepository;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
+@EnableJpaRepositories(repositoryBaseClass = CacheSecondNiveauRepository.class)
 public class GestionApprovisionnementsApplication {
 
 	public static void main(String[] args) {
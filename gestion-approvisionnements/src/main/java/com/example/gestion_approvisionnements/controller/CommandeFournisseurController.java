@@ -1,19 +1,31 @@
 package com.example.gestion_approvisionnements.controller;
 
 import com.example.gestion_approvisionnements.dto.CommandeFournisseurDTO;
+import com.example.gestion_approvisionnements.dto.CommandeSummaryDTO;
+import com.example.gestion_approvisionnements.dto.LotCommandesResultatDTO;
+import com.example.gestion_approvisionnements.dto.OperationStatutDTO;
+import com.example.gestion_approvisionnements.dto.RechercheCommandeDTO;
+import com.example.gestion_approvisionnements.dto.ReconstructionSummaryDTO;
 import com.example.gestion_approvisionnements.enums.StatutCommande;
 import com.example.gestion_approvisionnements.service.CommandeFournisseurService;
+import com.example.gestion_approvisionnements.service.CommandeSummaryService;
+import com.example.gestion_approvisionnements.service.OperationStatutService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/commandes")
@@ -21,15 +33,31 @@ import java.util.List;
 public class CommandeFournisseurController {
 
     private final CommandeFournisseurService commandeFournisseurService;
+    private final CommandeSummaryService commandeSummaryService;
+    private final OperationStatutService operationStatutService;
 
     @GetMapping
-    public Page<CommandeFournisseurDTO> getCommandes(Pageable pageable) {
-        return commandeFournisseurService.getAllCommandes(pageable);
+    public ResponseEntity<Page<CommandeFournisseurDTO>> getCommandes(Pageable pageable, WebRequest requete) {
+        Pageable page = ReponseConditionnelle.triStable(pageable);
+        return ReponseConditionnelle.repondre(requete,
+                () -> Optional.of(commandeFournisseurService.getVersionCommandes(page)),
+                () -> commandeFournisseurService.getCommandesVersionnees(page));
+    }
+
+    // Recherche combinée (statut, fournisseur, période, montant, produit), paginée sans comptage :
+    // remplace les listes non bornées /statut, /fournisseur et /periode
+    @GetMapping("/search")
+    public Slice<CommandeFournisseurDTO> rechercherCommandes(
+            @ModelAttribute RechercheCommandeDTO recherche,
+            @PageableDefault(size = 50, sort = "dateCommande", direction = Sort.Direction.DESC) Pageable pageable) {
+        return commandeFournisseurService.rechercherCommandes(recherche, pageable);
     }
 
     @GetMapping("/{id}")
-    public CommandeFournisseurDTO getCommande(@PathVariable Long id) {
-        return commandeFournisseurService.getCommandeById(id);
+    public ResponseEntity<CommandeFournisseurDTO> getCommande(@PathVariable Long id, WebRequest requete) {
+        return ReponseConditionnelle.repondre(requete,
+                () -> commandeFournisseurService.getVersionCommande(id),
+                () -> commandeFournisseurService.getCommandeVersionnee(id));
     }
 
     @PostMapping
@@ -38,32 +66,77 @@ public class CommandeFournisseurController {
         return ResponseEntity.status(HttpStatus.CREATED).body(created);
     }
 
+    @PostMapping("/bulk")
+    public LotCommandesResultatDTO createCommandesEnLot(@RequestBody List<CommandeFournisseurDTO> commandesDTO) {
+        return commandeFournisseurService.createCommandesEnLot(commandesDTO);
+    }
+
     @PatchMapping("/{id}/statut")
     public CommandeFournisseurDTO updateStatut(@PathVariable Long id,
                                                @RequestParam StatutCommande statut) {
         return commandeFournisseurService.updateStatut(id, statut);
     }
 
+    // Mode asynchrone : 202 avec l'opération, appliquée ensuite par les workers (suivi via /api/commandes/operations/{id})
+    @PatchMapping(value = "/{id}/statut", params = "asynchrone=true")
+    public ResponseEntity<OperationStatutDTO> updateStatutAsynchrone(@PathVariable Long id,
+                                                                     @RequestParam StatutCommande statut) {
+        return ResponseEntity.accepted().body(operationStatutService.soumettre(id, statut));
+    }
+
     @DeleteMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void deleteCommande(@PathVariable Long id) {
         commandeFournisseurService.deleteCommande(id);
     }
 
+    // Listes non bornées, conservées pour les clients existants : préférer /search
+    @Deprecated
     @GetMapping("/statut/{statut}")
     public List<CommandeFournisseurDTO> getCommandesParStatut(@PathVariable StatutCommande statut) {
         return commandeFournisseurService.getCommandesParStatut(statut);
     }
 
+    @Deprecated
     @GetMapping("/fournisseur/{fournisseurId}")
     public List<CommandeFournisseurDTO> getCommandesParFournisseur(@PathVariable Long fournisseurId) {
         return commandeFournisseurService.getCommandesParFournisseur(fournisseurId);
     }
 
+    @Deprecated
     @GetMapping("/periode")
     public List<CommandeFournisseurDTO> getCommandesParPeriode(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate debut,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fin) {
         return commandeFournisseurService.getCommandesParPeriode(debut, fin);
     }
-}
\ No newline at end of file
+
+    // Listes servies par le modèle de lecture commande_summary : une requête indexée, sans lignes ni jointure
+    @GetMapping("/summary")
+    public Page<CommandeSummaryDTO> getSummaries(Pageable pageable) {
+        return commandeSummaryService.getSummaries(pageable);
+    }
+
+    @GetMapping("/summary/statut/{statut}")
+    public Page<CommandeSummaryDTO> getSummariesParStatut(@PathVariable StatutCommande statut, Pageable pageable) {
+        return commandeSummaryService.getSummariesParStatut(statut, pageable);
+    }
+
+    @GetMapping("/summary/fournisseur/{fournisseurId}")
+    public Page<CommandeSummaryDTO> getSummariesParFournisseur(@PathVariable Long fournisseurId, Pageable pageable) {
+        return commandeSummaryService.getSummariesParFournisseur(fournisseurId, pageable);
+    }
+
+    @GetMapping("/summary/periode")
+    public Page<CommandeSummaryDTO> getSummariesParPeriode(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate debut,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fin,
+            Pageable pageable) {
+        return commandeSummaryService.getSummariesParPeriode(debut, fin, pageable);
+    }
+
+    @PostMapping("/summary/reconstruction")
+    public ReconstructionSummaryDTO reconstruireSummaries() {
+        return new ReconstructionSummaryDTO(commandeSummaryService.reconstruire());
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.gestion_approvisionnements.controller;
+
+import com.example.gestion_approvisionnements.dto.DepenseCategorieDTO;
+import com.example.gestion_approvisionnements.dto.DepenseFournisseurDTO;
+import com.example.gestion_approvisionnements.dto.ReconstructionDepensesDTO;
+import com.example.gestion_approvisionnements.enums.StatutCommande;
+import com.example.gestion_approvisionnements.service.DepenseService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.YearMonth;
+import java.util.List;
+
+// Analyses des dépenses servies par les agrégats mensuels : mois au format yyyy-MM, bornes incluses
+@RestController
+@RequestMapping("/api/depenses")
+@RequiredArgsConstructor
+public class DepenseController {
+
+    private final DepenseService depenseService;
+
+    @GetMapping("/fournisseurs")
+    public List<DepenseFournisseurDTO> getDepensesParFournisseur(
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth debut,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth fin,
+            @RequestParam(required = false) StatutCommande statut,
+            @RequestParam(required = false) Long fournisseurId) {
+        return depenseService.getDepensesParFournisseur(debut, fin, statut, fournisseurId);
+    }
+
+    @GetMapping("/fournisseurs/totaux")
+    public List<DepenseFournisseurDTO> getTotauxParFournisseur(
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth debut,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth fin,
+            @RequestParam(required = false) StatutCommande statut) {
+        return depenseService.getTotauxParFournisseur(debut, fin, statut);
+    }
+
+    @GetMapping("/categories")
+    public List<DepenseCategorieDTO> getDepensesParCategorie(
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth debut,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth fin,
+            @RequestParam(required = false) StatutCommande statut) {
+        return depenseService.getDepensesParCategorie(debut, fin, statut);
+    }
+
+    @PostMapping("/reconstruction")
+    public ReconstructionDepensesDTO reconstruire() {
+        return depenseService.reconstruire();
+    }
+}
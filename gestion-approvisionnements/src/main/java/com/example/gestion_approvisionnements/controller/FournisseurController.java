@@ -9,6 +9,9 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/fournisseurs")
@@ -18,13 +21,18 @@ public class FournisseurController {
     private final FournisseurService fournisseurService;
 
     @GetMapping
-    public Page<FournisseurDTO> getFournisseurs(Pageable pageable) {
-        return fournisseurService.getAllFournisseurs(pageable);
+    public ResponseEntity<Page<FournisseurDTO>> getFournisseurs(Pageable pageable, WebRequest requete) {
+        Pageable page = ReponseConditionnelle.triStable(pageable);
+        return ReponseConditionnelle.repondre(requete,
+                () -> Optional.of(fournisseurService.getVersionFournisseurs(page)),
+                () -> fournisseurService.getFournisseursVersionnes(page));
     }
 
     @GetMapping("/{id}")
-    public FournisseurDTO getFournisseur(@PathVariable Long id) {
-        return fournisseurService.getFournisseurById(id);
+    public ResponseEntity<FournisseurDTO> getFournisseur(@PathVariable Long id, WebRequest requete) {
+        return ReponseConditionnelle.repondre(requete,
+                () -> fournisseurService.getVersionFournisseur(id),
+                () -> fournisseurService.getFournisseurVersionne(id));
     }
 
     @GetMapping("/ice/{ice}")
@@ -0,0 +1,198 @@
+package com.example.gestion_approvisionnements.controller;
+
+import com.example.gestion_approvisionnements.exception.ApiError;
+import com.example.gestion_approvisionnements.exception.BusinessException;
+import com.example.gestion_approvisionnements.service.IdempotenceService;
+import com.example.gestion_approvisionnements.service.ReponseIdempotente;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// En-tête Idempotency-Key sur les écritures rejouées par les clients après un délai dépassé :
+// une requête répétée reçoit la réponse de la première, marquée Idempotent-Replayed
+@Component
+@RequiredArgsConstructor
+public class IdempotenceFilter extends OncePerRequestFilter {
+
+    public static final String EN_TETE_CLE = "Idempotency-Key";
+    public static final String EN_TETE_REJOUEE = "Idempotent-Replayed";
+    private static final int CLE_MAX = 255;
+
+    private static final List<Route> ROUTES = List.of(
+            new Route(HttpMethod.POST, "/api/commandes"),
+            new Route(HttpMethod.POST, "/api/mouvements"),
+            new Route(HttpMethod.PATCH, "/api/produits/*/stock"));
+
+    private final AntPathMatcher matcher = new AntPathMatcher();
+    private final IdempotenceService idempotenceService;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (request.getHeader(EN_TETE_CLE) == null) {
+            return true;
+        }
+        String chemin = request.getRequestURI().substring(request.getContextPath().length());
+        return ROUTES.stream().noneMatch(route ->
+                route.methode().matches(request.getMethod()) && matcher.match(route.motif(), chemin));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String cle = request.getHeader(EN_TETE_CLE);
+        if (cle.isBlank() || cle.length() > CLE_MAX) {
+            ecrireErreur(request, response, HttpStatus.BAD_REQUEST, "Bad Request",
+                    "L'en-tête Idempotency-Key doit contenir entre 1 et " + CLE_MAX + " caractères");
+            return;
+        }
+
+        RequeteRelue requete = new RequeteRelue(request);
+        AtomicBoolean executee = new AtomicBoolean();
+        ReponseIdempotente reponse;
+        try {
+            reponse = idempotenceService.executer(cle, empreinte(request, requete.corps), () -> {
+                ContentCachingResponseWrapper capture = new ContentCachingResponseWrapper(response);
+                chain.doFilter(requete, capture);
+                executee.set(true);
+                ReponseIdempotente resultat = new ReponseIdempotente(capture.getStatus(), capture.getContentType(),
+                        capture.getContentAsByteArray());
+                capture.copyBodyToResponse();
+                return resultat;
+            });
+        } catch (BusinessException ex) {
+            ecrireErreur(request, response, HttpStatus.CONFLICT, "Business Error", ex.getMessage());
+            return;
+        } catch (IOException | ServletException | RuntimeException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new ServletException(ex);
+        }
+
+        if (!executee.get()) {
+            response.setStatus(reponse.statut());
+            response.setHeader(EN_TETE_REJOUEE, "true");
+            if (reponse.contentType() != null) {
+                response.setContentType(reponse.contentType());
+            }
+            response.setContentLength(reponse.corps().length);
+            response.getOutputStream().write(reponse.corps());
+        }
+    }
+
+    // Méthode, URI, paramètres et corps : une même clé réutilisée pour une autre requête est refusée
+    private String empreinte(HttpServletRequest request, byte[] corps) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            sha256.update((request.getMethod() + ' ' + request.getRequestURI() + '?'
+                    + (request.getQueryString() != null ? request.getQueryString() : "") + '\n')
+                    .getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(sha256.digest(corps));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private void ecrireErreur(HttpServletRequest request, HttpServletResponse response, HttpStatus statut,
+                              String erreur, String message) throws IOException {
+        response.setStatus(statut.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(), new ApiError(LocalDateTime.now(), statut.value(),
+                erreur, message, request.getRequestURI(), Collections.emptyList()));
+    }
+
+    private record Route(HttpMethod methode, String motif) {
+    }
+
+    // Corps lu une fois pour l'empreinte, relu ensuite par le contrôleur
+    private static class RequeteRelue extends HttpServletRequestWrapper {
+
+        private final byte[] corps;
+
+        RequeteRelue(HttpServletRequest request) throws IOException {
+            super(request);
+            this.corps = request.getInputStream().readAllBytes();
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream flux = new ByteArrayInputStream(corps);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return flux.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // Corps déjà en mémoire : tout est disponible d'emblée, puis lu
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    try {
+                        listener.onDataAvailable();
+                        listener.onAllDataRead();
+                    } catch (IOException ex) {
+                        listener.onError(ex);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return flux.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return flux.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encodage = getCharacterEncoding() != null ? getCharacterEncoding() : StandardCharsets.UTF_8.name();
+            return new BufferedReader(new InputStreamReader(getInputStream(), Charset.forName(encodage)));
+        }
+
+        @Override
+        public int getContentLength() {
+            return corps.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return corps.length;
+        }
+    }
+}
@@ -1,11 +1,24 @@
 package com.example.gestion_approvisionnements.controller;
 
+import com.example.gestion_approvisionnements.dto.LotMouvementsResultatDTO;
 import com.example.gestion_approvisionnements.dto.MouvementStockDTO;
+import com.example.gestion_approvisionnements.dto.PageMouvementsDTO;
+import com.example.gestion_approvisionnements.enums.FormatExport;
 import com.example.gestion_approvisionnements.enums.TypeMouvement;
+import com.example.gestion_approvisionnements.service.CommitGroupeMouvementService;
+import com.example.gestion_approvisionnements.service.ExportMouvementStockService;
 import com.example.gestion_approvisionnements.service.MouvementStockService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -14,19 +27,53 @@ import java.util.List;
 public class MouvementStockController {
 
     private final MouvementStockService mouvementStockService;
+    private final ExportMouvementStockService exportMouvementStockService;
+    private final CommitGroupeMouvementService commitGroupeMouvementService;
 
     @PostMapping
     public MouvementStockDTO createMouvement(@RequestBody MouvementStockDTO dto) {
-        return mouvementStockService.enregistrerMouvement(dto);
+        return commitGroupeMouvementService.enregistrer(dto);
+    }
+
+    @PostMapping("/batch")
+    public LotMouvementsResultatDTO createMouvementsEnLot(@RequestBody List<MouvementStockDTO> dtos) {
+        return mouvementStockService.enregistrerLot(dtos);
     }
 
     @GetMapping("/produit/{produitId}")
-    public List<MouvementStockDTO> getByProduit(@PathVariable Long produitId) {
-        return mouvementStockService.getMouvementsParProduit(produitId);
+    public PageMouvementsDTO getByProduit(@PathVariable Long produitId,
+                                          @RequestParam(required = false) String curseur,
+                                          @RequestParam(required = false) Integer taille,
+                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate debut,
+                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fin) {
+        return mouvementStockService.getMouvementsParProduit(produitId, curseur, taille, debut, fin);
     }
 
     @GetMapping("/type/{type}")
-    public List<MouvementStockDTO> getByType(@PathVariable TypeMouvement type) {
-        return mouvementStockService.getMouvementsParType(type);
+    public PageMouvementsDTO getByType(@PathVariable TypeMouvement type,
+                                       @RequestParam(required = false) String curseur,
+                                       @RequestParam(required = false) Integer taille) {
+        return mouvementStockService.getMouvementsParType(type, curseur, taille);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exporter(
+            @RequestParam(defaultValue = "NDJSON") FormatExport format,
+            @RequestParam(required = false) Long produitId,
+            @RequestParam(required = false) TypeMouvement type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate debut,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fin) {
+        // Filtres vérifiés avant d'envoyer les en-têtes : une erreur en cours d'écriture ne peut plus changer le statut
+        exportMouvementStockService.verifierPeriode(debut, fin);
+
+        StreamingResponseBody corps = sortie ->
+                exportMouvementStockService.exporter(format, produitId, type, debut, fin, sortie);
+        boolean csv = format == FormatExport.CSV;
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8) : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(csv ? "mouvements.csv" : "mouvements.ndjson")
+                        .build().toString())
+                .body(corps);
     }
-}
\ No newline at end of file
+}
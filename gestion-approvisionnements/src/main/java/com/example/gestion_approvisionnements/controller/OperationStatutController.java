@@ -0,0 +1,33 @@
+package com.example.gestion_approvisionnements.controller;
+
+import com.example.gestion_approvisionnements.dto.OperationStatutDTO;
+import com.example.gestion_approvisionnements.dto.RejetOperationStatutDTO;
+import com.example.gestion_approvisionnements.service.OperationStatutService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/commandes/operations")
+@RequiredArgsConstructor
+public class OperationStatutController {
+
+    private final OperationStatutService operationStatutService;
+
+    @GetMapping("/{id}")
+    public OperationStatutDTO getOperation(@PathVariable Long id) {
+        return operationStatutService.getOperation(id);
+    }
+
+    @GetMapping("/rejets")
+    public Page<RejetOperationStatutDTO> getRejets(Pageable pageable) {
+        return operationStatutService.getRejets(pageable);
+    }
+
+    @PostMapping("/rejets/{id}/rejeu")
+    public ResponseEntity<OperationStatutDTO> rejouer(@PathVariable Long id) {
+        return ResponseEntity.accepted().body(operationStatutService.rejouer(id));
+    }
+}
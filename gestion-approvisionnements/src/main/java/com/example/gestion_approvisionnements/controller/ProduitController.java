@@ -1,17 +1,23 @@
 package com.example.gestion_approvisionnements.controller;
 
 import com.example.gestion_approvisionnements.dto.ProduitDTO;
+import com.example.gestion_approvisionnements.dto.StockALaDateDTO;
+import com.example.gestion_approvisionnements.service.InstantaneStockService;
 import com.example.gestion_approvisionnements.service.ProduitService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/produits")
@@ -19,15 +25,21 @@ import java.util.List;
 public class ProduitController {
 
     private final ProduitService produitService;
+    private final InstantaneStockService instantaneStockService;
 
     @GetMapping
-    public Page<ProduitDTO> getProduits(Pageable pageable) {
-        return produitService.getAllProduits(pageable);
+    public ResponseEntity<Page<ProduitDTO>> getProduits(Pageable pageable, WebRequest requete) {
+        Pageable page = ReponseConditionnelle.triStable(pageable);
+        return ReponseConditionnelle.repondre(requete,
+                () -> Optional.of(produitService.getVersionProduits(page)),
+                () -> produitService.getProduitsVersionnes(page));
     }
 
     @GetMapping("/{id}")
-    public ProduitDTO getProduit(@PathVariable Long id) {
-        return produitService.getProduitById(id);
+    public ResponseEntity<ProduitDTO> getProduit(@PathVariable Long id, WebRequest requete) {
+        return ReponseConditionnelle.repondre(requete,
+                () -> produitService.getVersionProduit(id),
+                () -> produitService.getProduitVersionne(id));
     }
 
     @GetMapping("/categorie/{categorie}")
@@ -40,6 +52,19 @@ public class ProduitController {
         return produitService.getProduitsStockFaible(seuil);
     }
 
+    // Stock et CUMP en fin de journée, reconstitués depuis le dernier instantané
+    @GetMapping("/{id}/stock")
+    public StockALaDateDTO getStockALaDate(@PathVariable Long id,
+                                           @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return instantaneStockService.getStockALaDate(id, date);
+    }
+
+    @GetMapping("/stock")
+    public List<StockALaDateDTO> getStocksALaDate(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return instantaneStockService.getStocksALaDate(date);
+    }
+
     @PostMapping
     public ResponseEntity<ProduitDTO> createProduit(@Valid @RequestBody ProduitDTO produitDTO) {
         ProduitDTO created = produitService.createProduit(produitDTO);
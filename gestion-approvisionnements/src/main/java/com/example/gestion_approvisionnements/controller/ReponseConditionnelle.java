@@ -0,0 +1,62 @@
+package com.example.gestion_approvisionnements.controller;
+
+import com.example.gestion_approvisionnements.service.RessourceVersionnee;
+import com.example.gestion_approvisionnements.service.VersionRessource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.ZoneId;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+// GET conditionnels (If-None-Match, If-Modified-Since) : seule la version est lue en base, 304 sans charger ni
+// sérialiser la ressource si elle n'a pas changé ; sinon réponse complète, avec l'ETag et la date de son contenu.
+// Sans en-tête conditionnel, la version n'est pas lue : aucune requête de plus pour un premier appel.
+final class ReponseConditionnelle {
+
+    private ReponseConditionnelle() {
+    }
+
+    static <T> ResponseEntity<T> repondre(WebRequest requete, Supplier<Optional<VersionRessource>> version,
+                                          Supplier<RessourceVersionnee<T>> chargement) {
+        if (conditionnelle(requete)) {
+            Optional<VersionRessource> actuelle = version.get();
+            if (actuelle.isPresent() && requete.checkNotModified(actuelle.get().etag(), epochMillis(actuelle.get()))) {
+                return entete(ResponseEntity.status(HttpStatus.NOT_MODIFIED), actuelle.get()).build();
+            }
+        }
+        RessourceVersionnee<T> ressource = chargement.get();
+        return entete(ResponseEntity.ok(), ressource.version()).body(ressource.contenu());
+    }
+
+    // Ordre total pour qu'une même page contienne les mêmes lignes d'un appel à l'autre : id en dernier critère
+    static Pageable triStable(Pageable pageable) {
+        if (pageable.isUnpaged() || pageable.getSort().getOrderFor("id") != null) {
+            return pageable;
+        }
+        return PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), pageable.getSort().and(Sort.by("id")));
+    }
+
+    private static boolean conditionnelle(WebRequest requete) {
+        return requete.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                || requete.getHeader(HttpHeaders.IF_MODIFIED_SINCE) != null;
+    }
+
+    private static ResponseEntity.BodyBuilder entete(ResponseEntity.BodyBuilder reponse, VersionRessource version) {
+        reponse.eTag(version.etag());
+        if (version.derniereModification() != null) {
+            reponse.lastModified(epochMillis(version));
+        }
+        return reponse;
+    }
+
+    private static long epochMillis(VersionRessource version) {
+        return version.derniereModification() == null ? -1
+                : version.derniereModification().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
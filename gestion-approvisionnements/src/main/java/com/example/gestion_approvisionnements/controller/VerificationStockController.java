@@ -0,0 +1,26 @@
+package com.example.gestion_approvisionnements.controller;
+
+import com.example.gestion_approvisionnements.dto.VerificationStockDTO;
+import com.example.gestion_approvisionnements.service.VerificationStockService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/stock/verifications")
+@RequiredArgsConstructor
+public class VerificationStockController {
+
+    private final VerificationStockService verificationStockService;
+
+    // Rejeu du journal en arrière-plan ; avec reparation=true, les valeurs divergentes sont réécrites
+    @PostMapping
+    public ResponseEntity<VerificationStockDTO> lancerVerification(@RequestParam(defaultValue = "false") boolean reparation) {
+        return ResponseEntity.accepted().body(verificationStockService.lancer(reparation));
+    }
+
+    @GetMapping("/{id}")
+    public VerificationStockDTO getVerification(@PathVariable Long id) {
+        return verificationStockService.getVerification(id);
+    }
+}
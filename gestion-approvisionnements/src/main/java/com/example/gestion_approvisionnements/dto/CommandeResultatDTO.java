@@ -0,0 +1,16 @@
+package com.example.gestion_approvisionnements.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommandeResultatDTO {
+
+    private int index;
+    private boolean succes;
+    private CommandeFournisseurDTO commande;
+    private String erreur;
+}
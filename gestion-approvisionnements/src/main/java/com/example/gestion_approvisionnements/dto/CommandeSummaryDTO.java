@@ -0,0 +1,23 @@
+package com.example.gestion_approvisionnements.dto;
+
+import com.example.gestion_approvisionnements.enums.StatutCommande;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommandeSummaryDTO {
+
+    private Long id;
+    private LocalDate dateCommande;
+    private StatutCommande statut;
+    private Long fournisseurId;
+    private String fournisseurSociete;
+    private BigDecimal montantTotal;
+    private Integer nombreLignes;
+}
@@ -0,0 +1,20 @@
+package com.example.gestion_approvisionnements.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DepenseCategorieDTO {
+
+    private String categorie;
+    private LocalDate mois;
+    private Long nombreCommandes;
+    private BigDecimal montantTotal;
+    private BigDecimal panierMoyen;
+}
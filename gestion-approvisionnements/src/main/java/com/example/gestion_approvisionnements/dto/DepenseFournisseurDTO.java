@@ -0,0 +1,22 @@
+package com.example.gestion_approvisionnements.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DepenseFournisseurDTO {
+
+    private Long fournisseurId;
+    private String fournisseurSociete;
+    // Premier jour du mois ; absent pour les totaux de la période
+    private LocalDate mois;
+    private Long nombreCommandes;
+    private BigDecimal montantTotal;
+    private BigDecimal panierMoyen;
+}
@@ -0,0 +1,23 @@
+package com.example.gestion_approvisionnements.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EcartStockDTO {
+
+    private Long produitId;
+    private String produitNom;
+    private Integer stockEnregistre;
+    private Integer stockJournal;
+    private BigDecimal coutMoyenPondereEnregistre;
+    private BigDecimal coutMoyenPondereJournal;
+    private int mouvementsRejoues;
+    // false : stock initial non journalisé, l'écart n'est jamais réparé
+    private boolean ouvertureConnue;
+}
@@ -0,0 +1,18 @@
+package com.example.gestion_approvisionnements.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LotMouvementsResultatDTO {
+
+    private int nombreTotal;
+    private int nombreReussis;
+    private int nombreEchecs;
+    private List<MouvementResultatDTO> resultats;
+}
@@ -0,0 +1,22 @@
+package com.example.gestion_approvisionnements.dto;
+
+import com.example.gestion_approvisionnements.enums.StatutCommande;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Montant d'une commande pour une catégorie de produit : incrément de l'agrégat depense_categorie
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MontantCategorieDTO {
+
+    private Long commandeId;
+    private LocalDate dateCommande;
+    private StatutCommande statut;
+    private String categorie;
+    private BigDecimal montant;
+}
@@ -0,0 +1,26 @@
+package com.example.gestion_approvisionnements.dto;
+
+import com.example.gestion_approvisionnements.enums.TypeMouvement;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Projection d'un mouvement à archiver : tout ce que le fichier conserve, plus sa date de création pour le solde
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MouvementArchiveDTO {
+
+    private Long id;
+    private LocalDateTime dateMouvement;
+    private Integer quantite;
+    private TypeMouvement typeMouvement;
+    private BigDecimal prixUnitaire;
+    private Integer stockApresMouvement;
+    private Long produitId;
+    private Long commandeFournisseurId;
+    private LocalDateTime createdAt;
+}
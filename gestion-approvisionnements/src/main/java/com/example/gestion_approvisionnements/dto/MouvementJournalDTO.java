@@ -0,0 +1,20 @@
+package com.example.gestion_approvisionnements.dto;
+
+import com.example.gestion_approvisionnements.enums.TypeMouvement;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+// Projection du journal pour son rejeu : ni entité à hydrater, ni contexte de persistance à vider
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MouvementJournalDTO {
+
+    private Long produitId;
+    private TypeMouvement typeMouvement;
+    private Integer quantite;
+    private BigDecimal prixUnitaire;
+}
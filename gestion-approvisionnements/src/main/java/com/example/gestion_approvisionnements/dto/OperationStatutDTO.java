@@ -0,0 +1,24 @@
+package com.example.gestion_approvisionnements.dto;
+
+import com.example.gestion_approvisionnements.enums.EtatOperation;
+import com.example.gestion_approvisionnements.enums.StatutCommande;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OperationStatutDTO {
+
+    private Long id;
+    private Long commandeId;
+    private StatutCommande statutCible;
+    private EtatOperation etat;
+    private int tentatives;
+    private String erreur;
+    private LocalDateTime dateCreation;
+    private LocalDateTime dateFin;
+}
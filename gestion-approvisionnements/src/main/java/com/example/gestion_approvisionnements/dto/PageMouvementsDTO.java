@@ -0,0 +1,17 @@
+package com.example.gestion_approvisionnements.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PageMouvementsDTO {
+
+    private List<MouvementStockDTO> mouvements;
+    // null sur la dernière page
+    private String curseurSuivant;
+}
@@ -0,0 +1,30 @@
+package com.example.gestion_approvisionnements.dto;
+
+import com.example.gestion_approvisionnements.enums.StatutCommande;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Critères de GET /api/commandes/search, tous optionnels et combinés entre eux (bornes incluses)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RechercheCommandeDTO {
+
+    private StatutCommande statut;
+    private Long fournisseurId;
+    private Long produitId;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate debut;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate fin;
+
+    private BigDecimal montantMin;
+    private BigDecimal montantMax;
+}
@@ -0,0 +1,14 @@
+package com.example.gestion_approvisionnements.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconstructionDepensesDTO {
+
+    private int lignesFournisseurs;
+    private int lignesCategories;
+}
@@ -0,0 +1,21 @@
+package com.example.gestion_approvisionnements.dto;
+
+import com.example.gestion_approvisionnements.enums.StatutCommande;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RejetOperationStatutDTO {
+
+    private Long id;
+    private Long commandeId;
+    private StatutCommande statutCible;
+    private int tentatives;
+    private String erreur;
+    private LocalDateTime dateRejet;
+}
@@ -0,0 +1,25 @@
+package com.example.gestion_approvisionnements.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockALaDateDTO {
+
+    private Long produitId;
+    private String produitNom;
+    // Stock en fin de journée
+    private LocalDate date;
+    private Integer stock;
+    private BigDecimal coutMoyenPondere;
+    // Instantané de départ du rejeu, null si aucun
+    private LocalDateTime dateInstantane;
+    private int mouvementsRejoues;
+}
@@ -0,0 +1,28 @@
+package com.example.gestion_approvisionnements.dto;
+
+import com.example.gestion_approvisionnements.enums.EtatVerification;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VerificationStockDTO {
+
+    private Long id;
+    private boolean reparation;
+    private EtatVerification etat;
+    private LocalDateTime debut;
+    private LocalDateTime fin;
+    private int produitsTotal;
+    private long produitsVerifies;
+    private long mouvementsRejoues;
+    private long nombreEcarts;
+    // Tronquée à stock.verification.ecarts-max, nombreEcarts reste exact
+    private List<EcartStockDTO> ecarts;
+    private String erreur;
+}
@@ -0,0 +1,39 @@
+package com.example.gestion_approvisionnements.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Dates de modification d'une entité, lues sans la charger (ETag des GET conditionnels). Pour une commande,
+// aussi celles des entités affichées avec elle : son fournisseur et, au plus récent, les produits de ses lignes.
+// Pour un produit, aussi son numéro de version (@Version) : il avance à chaque écriture, même sans que la date avance.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VersionEntiteDTO {
+
+    private Long id;
+    private LocalDateTime modification;
+    private LocalDateTime modificationFournisseur;
+    private LocalDateTime modificationProduits;
+    private Long numeroVersion;
+
+    public VersionEntiteDTO(Long id, LocalDateTime modification) {
+        this(id, modification, null, null, null);
+    }
+
+    public VersionEntiteDTO(Long id, Long numeroVersion, LocalDateTime modification) {
+        this(id, modification, null, null, numeroVersion);
+    }
+
+    public VersionEntiteDTO(Long id, LocalDateTime modification, LocalDateTime modificationFournisseur) {
+        this(id, modification, modificationFournisseur, null, null);
+    }
+
+    public VersionEntiteDTO(Long id, LocalDateTime modification, LocalDateTime modificationFournisseur,
+                            LocalDateTime modificationProduits) {
+        this(id, modification, modificationFournisseur, modificationProduits, null);
+    }
+}
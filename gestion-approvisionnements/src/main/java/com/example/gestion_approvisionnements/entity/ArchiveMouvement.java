@@ -0,0 +1,32 @@
+package com.example.gestion_approvisionnements.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Mois de mouvements sortis de la base : partition détachée, écrite dans un fichier compressé avec son index par produit
+@Entity
+@Table(name = "archive_mouvement")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchiveMouvement {
+
+    // Premier jour du mois archivé
+    @Id
+    @Column(name = "mois")
+    private LocalDate mois;
+
+    @Column(nullable = false)
+    private String fichier;
+
+    @Column(name = "nombre_mouvements", nullable = false)
+    private Long nombreMouvements;
+
+    @Column(name = "date_archivage", nullable = false)
+    private LocalDateTime dateArchivage;
+}
@@ -0,0 +1,54 @@
+package com.example.gestion_approvisionnements.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+// Réponse enregistrée pour une clé Idempotency-Key ; sans réponse, la requête est encore en cours
+@Entity
+@Table(name = "cle_idempotence")
+@Data
+@NoArgsConstructor
+public class CleIdempotence implements Persistable<String> {
+
+    @Id
+    @Column(name = "cle", length = 255)
+    private String id;
+
+    // SHA-256 de la méthode, de l'URI et du corps : une même clé ne vaut que pour une même requête
+    @Column(nullable = false, length = 64)
+    private String empreinte;
+
+    @Column(name = "statut_http")
+    private Integer statutHttp;
+
+    @Column(name = "content_type", length = 100)
+    private String contentType;
+
+    @Column(name = "corps", length = 1_048_576)
+    private byte[] corps;
+
+    @Column(name = "date_creation", nullable = false)
+    private LocalDateTime dateCreation;
+
+    @Column(name = "date_expiration", nullable = false)
+    private LocalDateTime dateExpiration;
+
+    // Insertion directe : un doublon concurrent échoue sur la clé primaire au lieu d'être fusionné
+    @Transient
+    private boolean nouveau;
+
+    @Override
+    public boolean isNew() {
+        return nouveau;
+    }
+
+    @PostLoad
+    @PostPersist
+    void marquerEnregistre() {
+        nouveau = false;
+    }
+}
@@ -22,7 +22,8 @@ import java.util.List;
 public class CommandeFournisseur {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "commande_fournisseur_seq")
+    @SequenceGenerator(name = "commande_fournisseur_seq", sequenceName = "commande_fournisseur_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "date_commande", nullable = false)
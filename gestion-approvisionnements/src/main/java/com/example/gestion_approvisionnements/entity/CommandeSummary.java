@@ -0,0 +1,57 @@
+package com.example.gestion_approvisionnements.entity;
+
+import com.example.gestion_approvisionnements.enums.StatutCommande;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Modèle de lecture des listes de commandes, maintenu dans la transaction de chaque écriture de commande
+@Entity
+@Table(name = "commande_summary")
+@Data
+@NoArgsConstructor
+public class CommandeSummary implements Persistable<Long> {
+
+    // Identifiant de la commande résumée
+    @Id
+    @Column(name = "commande_id")
+    private Long id;
+
+    @Column(name = "date_commande", nullable = false)
+    private LocalDate dateCommande;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private StatutCommande statut;
+
+    @Column(name = "fournisseur_id", nullable = false)
+    private Long fournisseurId;
+
+    @Column(name = "fournisseur_societe", nullable = false, length = 200)
+    private String fournisseurSociete;
+
+    @Column(name = "montant_total", precision = 12, scale = 2)
+    private BigDecimal montantTotal;
+
+    @Column(name = "nombre_lignes", nullable = false)
+    private Integer nombreLignes;
+
+    // Identifiant fourni : sans ce drapeau, save() ferait un SELECT avant chaque insertion
+    @Transient
+    private boolean nouveau;
+
+    @Override
+    public boolean isNew() {
+        return nouveau;
+    }
+
+    @PostLoad
+    @PostPersist
+    void marquerEnregistre() {
+        nouveau = false;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.gestion_approvisionnements.entity;
+
+import com.example.gestion_approvisionnements.enums.StatutCommande;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Agrégat des dépenses par catégorie de produit, mois et statut : une commande compte une fois par catégorie commandée
+@Entity
+@Table(name = "depense_categorie")
+@IdClass(DepenseCategorieId.class)
+@Data
+@NoArgsConstructor
+public class DepenseCategorie {
+
+    // Catégorie des produits sans catégorie
+    public static final String SANS_CATEGORIE = "(sans catégorie)";
+
+    @Id
+    @Column(name = "categorie", length = 100)
+    private String categorie;
+
+    @Id
+    @Column(name = "mois")
+    private LocalDate mois;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "statut", length = 20)
+    private StatutCommande statut;
+
+    @Column(name = "nombre_commandes", nullable = false)
+    private Long nombreCommandes;
+
+    @Column(name = "montant_total", nullable = false, precision = 14, scale = 2)
+    private BigDecimal montantTotal;
+}
@@ -0,0 +1,19 @@
+package com.example.gestion_approvisionnements.entity;
+
+import com.example.gestion_approvisionnements.enums.StatutCommande;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DepenseCategorieId implements Serializable {
+
+    private String categorie;
+    private LocalDate mois;
+    private StatutCommande statut;
+}
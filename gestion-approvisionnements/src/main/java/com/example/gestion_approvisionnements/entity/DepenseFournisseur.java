@@ -0,0 +1,37 @@
+package com.example.gestion_approvisionnements.entity;
+
+import com.example.gestion_approvisionnements.enums.StatutCommande;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Agrégat des dépenses par fournisseur, mois (premier jour) et statut, incrémenté à chaque écriture de commande
+@Entity
+@Table(name = "depense_fournisseur")
+@IdClass(DepenseFournisseurId.class)
+@Data
+@NoArgsConstructor
+public class DepenseFournisseur {
+
+    @Id
+    @Column(name = "fournisseur_id")
+    private Long fournisseurId;
+
+    @Id
+    @Column(name = "mois")
+    private LocalDate mois;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "statut", length = 20)
+    private StatutCommande statut;
+
+    @Column(name = "nombre_commandes", nullable = false)
+    private Long nombreCommandes;
+
+    @Column(name = "montant_total", nullable = false, precision = 14, scale = 2)
+    private BigDecimal montantTotal;
+}
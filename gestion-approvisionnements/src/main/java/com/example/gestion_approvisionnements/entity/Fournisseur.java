@@ -4,6 +4,8 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -13,13 +15,16 @@ import java.util.List;
 
 @Entity
 @Table(name = "fournisseur")
+// Référentiel lu à chaque commande et rarement modifié : cache de second niveau en lecture-écriture
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "fournisseur")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Fournisseur {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "fournisseur_seq")
+    @SequenceGenerator(name = "fournisseur_seq", sequenceName = "fournisseur_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, length = 200)
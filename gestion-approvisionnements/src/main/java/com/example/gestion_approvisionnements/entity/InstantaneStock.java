@@ -0,0 +1,39 @@
+package com.example.gestion_approvisionnements.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "instantane_stock")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InstantaneStock {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "instantane_stock_seq")
+    @SequenceGenerator(name = "instantane_stock_seq", sequenceName = "instantane_stock_id_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "produit_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Produit produit;
+
+    // Pris sous verrou du produit : couvre exactement les mouvements créés avant cet instant
+    @Column(name = "date_instantane", nullable = false)
+    private LocalDateTime dateInstantane;
+
+    @Column(nullable = false)
+    private Integer stock;
+
+    @Column(name = "cout_moyen_pondere", precision = 10, scale = 2)
+    private BigDecimal coutMoyenPondere;
+}
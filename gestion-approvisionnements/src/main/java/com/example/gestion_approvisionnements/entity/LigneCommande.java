@@ -6,6 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 
 @Entity
 @Table(name = "ligne_commande")
@@ -15,17 +16,27 @@ import java.math.BigDecimal;
 public class LigneCommande {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ligne_commande_seq")
+    @SequenceGenerator(name = "ligne_commande_seq", sequenceName = "ligne_commande_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "commande_fournisseur_id", nullable = false)
     private CommandeFournisseur commandeFournisseur;
 
+    // Clé de partitionnement de ligne_commande, recopiée de la commande à l'insertion
+    @Column(name = "date_commande", nullable = false, updatable = false)
+    private LocalDate dateCommande;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "produit_id", nullable = false)
     private Produit produit;
 
+    // Catégorie du produit à la création de la ligne : clé des agrégats de dépenses, indépendante
+    // des changements de catégorie ultérieurs du produit
+    @Column(length = 100, updatable = false)
+    private String categorie;
+
     @Column(nullable = false)
     private Integer quantite;
 
@@ -36,10 +47,17 @@ public class LigneCommande {
     private BigDecimal sousTotal;
 
     @PrePersist
+    void avantInsertion() {
+        if (commandeFournisseur != null) {
+            dateCommande = commandeFournisseur.getDateCommande();
+        }
+        calculerSousTotal();
+    }
+
     @PreUpdate
     public void calculerSousTotal() {
         if (quantite != null && prixUnitaire != null) {
-            this.sousTotal = prixUnitaire.multiply(new BigDecimal(quantite));
+            this.sousTotal = Montant.produit(prixUnitaire, quantite);
         }
     }
 }
\ No newline at end of file
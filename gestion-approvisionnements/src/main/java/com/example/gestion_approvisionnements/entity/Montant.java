@@ -0,0 +1,146 @@
+package com.example.gestion_approvisionnements.entity;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.function.Function;
+
+// Montant décimal porté par un long mis à l'échelle (valeur × 10^-echelle) : sous-totaux, montants des commandes
+// et CUMP sont calculés sans BigDecimal intermédiaire. Les entités et DTO gardent des BigDecimal, convertis
+// exactement à l'entrée (de) et à la sortie (enBigDecimal), avec la même échelle que le calcul BigDecimal.
+// Toute opération qui ne tient pas exactement dans un long lève ArithmeticException : le calcul est alors refait
+// en BigDecimal, le résultat reste celui d'avant. Les boucles (somme, rejeu du CUMP) cumulent sur des long nus,
+// chaque BigDecimal n'étant converti qu'une fois.
+public record Montant(long valeur, int echelle) {
+
+    // Échelles prises en charge : les colonnes sont à 2 décimales, les prix saisis peuvent en avoir un peu plus
+    private static final long[] PUISSANCES_DE_DIX = {1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L};
+    private static final int CHIFFRES_LONG = 18;
+
+    public static final Montant ZERO = new Montant(0, 0);
+
+    public Montant {
+        if (echelle < 0 || echelle >= PUISSANCES_DE_DIX.length) {
+            throw new IllegalArgumentException("Échelle non prise en charge : " + echelle);
+        }
+    }
+
+    public static Montant de(BigDecimal montant) {
+        return new Montant(valeurEntiere(montant), montant.scale());
+    }
+
+    // Valeur entière d'un montant à sa propre échelle (montant × 10^échelle), extraite une fois à la frontière.
+    // movePointRight plutôt qu'unscaledValue : un BigDecimal compact, là où unscaledValue alloue un BigInteger
+    public static long valeurEntiere(BigDecimal montant) {
+        int echelle = montant.scale();
+        if (echelle < 0 || echelle >= PUISSANCES_DE_DIX.length || montant.precision() > CHIFFRES_LONG) {
+            throw new ArithmeticException("Montant non représentable sur un long : " + montant);
+        }
+        return montant.movePointRight(echelle).longValueExact();
+    }
+
+    // Valeur entière à une échelle au moins égale à celle du montant : setScale(echelle) exact, sans BigDecimal
+    public static long valeurEntiere(BigDecimal montant, int echelle) {
+        return aEchelle(valeurEntiere(montant), montant.scale(), echelle);
+    }
+
+    public BigDecimal enBigDecimal() {
+        return BigDecimal.valueOf(valeur, echelle);
+    }
+
+    public Montant fois(long facteur) {
+        return new Montant(Math.multiplyExact(valeur, facteur), echelle);
+    }
+
+    public Montant plus(Montant autre) {
+        int echelleCommune = Math.max(echelle, autre.echelle);
+        return new Montant(Math.addExact(aEchelle(echelleCommune), autre.aEchelle(echelleCommune)), echelleCommune);
+    }
+
+    public Montant diviser(long diviseur, int echelleResultat) {
+        return new Montant(diviser(valeur, echelle, diviseur, echelleResultat), echelleResultat);
+    }
+
+    // Arrondi HALF_UP (moitié loin de zéro), comme BigDecimal.divide(diviseur, echelleResultat, HALF_UP)
+    public static long diviser(long dividende, int echelle, long diviseur, int echelleResultat) {
+        if (echelleResultat >= echelle) {
+            dividende = Math.multiplyExact(dividende, puissanceDeDix(echelleResultat - echelle));
+        } else {
+            diviseur = Math.multiplyExact(diviseur, puissanceDeDix(echelle - echelleResultat));
+        }
+        long quotient = dividende / diviseur;
+        long reste = Math.absExact(dividende % diviseur);
+        if (reste != 0 && reste >= Math.absExact(diviseur) - reste) {
+            quotient += (dividende < 0) == (diviseur < 0) ? 1 : -1;
+        }
+        return quotient;
+    }
+
+    // prix × quantité, même valeur et même échelle que prix.multiply(new BigDecimal(quantite))
+    public static BigDecimal produit(BigDecimal prix, int quantite) {
+        try {
+            return BigDecimal.valueOf(Math.multiplyExact(valeurEntiere(prix), quantite), prix.scale());
+        } catch (ArithmeticException horsLong) {
+            return prix.multiply(BigDecimal.valueOf(quantite));
+        }
+    }
+
+    // Somme des montants, même résultat que reduce(BigDecimal.ZERO, BigDecimal::add) : total cumulé sur un long,
+    // à la plus grande échelle rencontrée
+    public static <T> BigDecimal somme(List<T> elements, Function<T, BigDecimal> montant) {
+        try {
+            long total = 0;
+            int echelleTotal = 0;
+            for (T element : elements) {
+                BigDecimal terme = montant.apply(element);
+                if (terme.scale() > echelleTotal) {
+                    total = aEchelle(total, echelleTotal, terme.scale());
+                    echelleTotal = terme.scale();
+                }
+                total = Math.addExact(total, valeurEntiere(terme, echelleTotal));
+            }
+            return BigDecimal.valueOf(total, echelleTotal);
+        } catch (ArithmeticException horsLong) {
+            return elements.stream().map(montant).reduce(BigDecimal.ZERO, BigDecimal::add);
+        }
+    }
+
+    // (valeurA × poidsA + valeurB × poidsB) / (poidsA + poidsB), même résultat que le calcul BigDecimal avec
+    // divide(..., echelle, HALF_UP) ; la somme des poids est supposée strictement positive
+    public static BigDecimal moyennePonderee(BigDecimal valeurA, int poidsA, BigDecimal valeurB, int poidsB, int echelle) {
+        try {
+            int echelleCommune = Math.max(valeurA.scale(), valeurB.scale());
+            return BigDecimal.valueOf(moyennePonderee(valeurEntiere(valeurA, echelleCommune), poidsA,
+                    valeurEntiere(valeurB, echelleCommune), poidsB, echelleCommune, echelle), echelle);
+        } catch (ArithmeticException horsLong) {
+            return valeurA.multiply(BigDecimal.valueOf(poidsA))
+                    .add(valeurB.multiply(BigDecimal.valueOf(poidsB)))
+                    .divide(BigDecimal.valueOf(poidsA + poidsB), echelle, RoundingMode.HALF_UP);
+        }
+    }
+
+    // Même calcul sur des valeurs entières déjà à l'échelle echelleSource, sans aucun objet intermédiaire
+    public static long moyennePonderee(long valeurA, int poidsA, long valeurB, int poidsB,
+                                       int echelleSource, int echelleResultat) {
+        long total = Math.addExact(Math.multiplyExact(valeurA, poidsA), Math.multiplyExact(valeurB, poidsB));
+        return diviser(total, echelleSource, poidsA + poidsB, echelleResultat);
+    }
+
+    public static long aEchelle(long valeur, int echelle, int echelleCible) {
+        if (echelleCible < echelle) {
+            throw new ArithmeticException("Réduction d'échelle non exacte : " + echelle + " vers " + echelleCible);
+        }
+        return echelleCible == echelle ? valeur : Math.multiplyExact(valeur, puissanceDeDix(echelleCible - echelle));
+    }
+
+    private long aEchelle(int echelleCible) {
+        return aEchelle(valeur, echelle, echelleCible);
+    }
+
+    private static long puissanceDeDix(int exposant) {
+        if (exposant >= PUISSANCES_DE_DIX.length) {
+            throw new ArithmeticException("Échelle hors limites : " + exposant);
+        }
+        return PUISSANCES_DE_DIX[exposant];
+    }
+}
@@ -18,7 +18,8 @@ import java.time.LocalDateTime;
 public class MouvementStock {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "mouvement_stock_seq")
+    @SequenceGenerator(name = "mouvement_stock_seq", sequenceName = "mouvement_stock_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "date_mouvement", nullable = false)
@@ -0,0 +1,55 @@
+package com.example.gestion_approvisionnements.entity;
+
+import com.example.gestion_approvisionnements.enums.EtatOperation;
+import com.example.gestion_approvisionnements.enums.StatutCommande;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Changement de statut demandé en mode asynchrone, appliqué par le pool de workers
+@Entity
+@Table(name = "operation_statut")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OperationStatut {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "operation_statut_seq")
+    @SequenceGenerator(name = "operation_statut_seq", sequenceName = "operation_statut_id_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "commande_id", nullable = false)
+    private Long commandeId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "statut_cible", nullable = false, length = 20)
+    private StatutCommande statutCible;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private EtatOperation etat;
+
+    @Column(nullable = false)
+    private int tentatives;
+
+    @Column(length = 500)
+    private String erreur;
+
+    @Column(name = "date_creation", nullable = false)
+    private LocalDateTime dateCreation;
+
+    @Column(name = "date_fin")
+    private LocalDateTime dateFin;
+
+    // Instance qui traite l'opération EN_COURS et dernier renouvellement de son bail : seule une opération
+    // dont le bail a expiré (instance arrêtée) est remise en attente par les autres
+    @Column(length = 36)
+    private String instance;
+
+    @Column(name = "date_prise")
+    private LocalDateTime datePrise;
+}
@@ -4,7 +4,11 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.CacheLayout;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.QueryCacheLayout;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
@@ -14,13 +18,19 @@ import java.util.List;
 
 @Entity
 @Table(name = "produit")
+// Cache de second niveau en lecture-écriture. Les mises à jour du stock par requête native (ProduitRepository)
+// laissent la région en place : MutationStockService relit le produit en base et n'en retire que lui.
+// Le cache de requêtes ne garde que les id : le stock et le prix sont relus par cette région, jamais figés.
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "produit")
+@QueryCacheLayout(layout = CacheLayout.SHALLOW)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Produit {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "produit_seq")
+    @SequenceGenerator(name = "produit_seq", sequenceName = "produit_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, length = 200)
@@ -41,6 +51,18 @@ public class Produit {
     @Column(name = "cout_moyen_pondere", precision = 10, scale = 2)
     private BigDecimal coutMoyenPondere = BigDecimal.ZERO;
 
+    // Solde d'ouverture : stock et CUMP à la création, point de départ des rejeux du journal.
+    // Null pour un produit déjà mouvementé avant leur enregistrement (changelog 018) : état initial inconnu.
+    @Column(name = "stock_ouverture", updatable = false)
+    private Integer stockOuverture;
+
+    @Column(name = "cout_moyen_pondere_ouverture", precision = 10, scale = 2, updatable = false)
+    private BigDecimal coutMoyenPondereOuverture;
+
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @OneToMany(mappedBy = "produit", cascade = CascadeType.ALL)
     private List<LigneCommande> lignesCommande = new ArrayList<>();
 
@@ -54,4 +76,16 @@ public class Produit {
     @UpdateTimestamp
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
+
+    @PrePersist
+    void avantInsertion() {
+        if (stockOuverture == null) {
+            stockOuverture = stockActuel;
+            coutMoyenPondereOuverture = coutMoyenPondere != null ? coutMoyenPondere : BigDecimal.ZERO;
+        }
+    }
+
+    public boolean ouvertureConnue() {
+        return stockOuverture != null;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,38 @@
+package com.example.gestion_approvisionnements.entity;
+
+import com.example.gestion_approvisionnements.enums.StatutCommande;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// File des opérations abandonnées (échec métier ou tentatives épuisées), conservées jusqu'à leur rejeu
+@Entity
+@Table(name = "operation_statut_rejet")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RejetOperationStatut {
+
+    @Id
+    @Column(name = "operation_id")
+    private Long id;
+
+    @Column(name = "commande_id", nullable = false)
+    private Long commandeId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "statut_cible", nullable = false, length = 20)
+    private StatutCommande statutCible;
+
+    @Column(nullable = false)
+    private int tentatives;
+
+    @Column(length = 500)
+    private String erreur;
+
+    @Column(name = "date_rejet", nullable = false)
+    private LocalDateTime dateRejet;
+}
@@ -0,0 +1,41 @@
+package com.example.gestion_approvisionnements.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// État d'un produit après ses mouvements archivés, qui sont toujours le début de son journal :
+// les rejeux partent de ce solde au lieu de zéro
+@Entity
+@Table(name = "solde_archive_mouvement")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SoldeArchiveMouvement {
+
+    @Id
+    @Column(name = "produit_id")
+    private Long produitId;
+
+    @Column(nullable = false)
+    private Integer stock;
+
+    @Column(name = "cout_moyen_pondere", precision = 10, scale = 2)
+    private BigDecimal coutMoyenPondere;
+
+    // Création du dernier mouvement archivé : les mouvements restés en base sont tous créés après
+    @Column(name = "dernier_created_at")
+    private LocalDateTime dernierCreatedAt;
+
+    // Dernier mois archivé contenant des mouvements du produit
+    @Column(name = "mois_archive", nullable = false)
+    private LocalDate moisArchive;
+
+    @Column(name = "mouvements_archives", nullable = false)
+    private Long mouvementsArchives;
+}
@@ -0,0 +1,8 @@
+package com.example.gestion_approvisionnements.enums;
+
+public enum EtatOperation {
+    EN_ATTENTE,
+    EN_COURS,
+    TERMINEE,
+    ECHOUEE
+}
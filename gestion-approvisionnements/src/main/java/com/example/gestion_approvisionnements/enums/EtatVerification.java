@@ -0,0 +1,7 @@
+package com.example.gestion_approvisionnements.enums;
+
+public enum EtatVerification {
+    EN_COURS,
+    TERMINEE,
+    ECHOUEE
+}
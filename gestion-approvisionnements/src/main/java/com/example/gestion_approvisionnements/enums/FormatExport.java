@@ -0,0 +1,6 @@
+package com.example.gestion_approvisionnements.enums;
+
+public enum FormatExport {
+    NDJSON,
+    CSV
+}
@@ -0,0 +1,11 @@
+package com.example.gestion_approvisionnements.mapper;
+
+import com.example.gestion_approvisionnements.dto.CommandeSummaryDTO;
+import com.example.gestion_approvisionnements.entity.CommandeSummary;
+import org.mapstruct.Mapper;
+
+@Mapper(componentModel = "spring")
+public interface CommandeSummaryMapper {
+
+    CommandeSummaryDTO toDTO(CommandeSummary summary);
+}
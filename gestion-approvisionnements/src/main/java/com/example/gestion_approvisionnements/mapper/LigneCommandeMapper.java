@@ -18,6 +18,8 @@ public interface LigneCommandeMapper {
 
     @Mapping(target = "commandeFournisseur", ignore = true)
     @Mapping(target = "produit", ignore = true)
+    @Mapping(target = "categorie", ignore = true)
+    @Mapping(target = "dateCommande", ignore = true)
     LigneCommande toEntity(LigneCommandeDTO dto);
 
     List<LigneCommandeDTO> toDTOList(List<LigneCommande> lignes);
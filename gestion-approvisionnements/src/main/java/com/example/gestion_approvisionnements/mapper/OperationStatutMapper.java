@@ -0,0 +1,15 @@
+package com.example.gestion_approvisionnements.mapper;
+
+import com.example.gestion_approvisionnements.dto.OperationStatutDTO;
+import com.example.gestion_approvisionnements.dto.RejetOperationStatutDTO;
+import com.example.gestion_approvisionnements.entity.OperationStatut;
+import com.example.gestion_approvisionnements.entity.RejetOperationStatut;
+import org.mapstruct.Mapper;
+
+@Mapper(componentModel = "spring")
+public interface OperationStatutMapper {
+
+    OperationStatutDTO toDTO(OperationStatut operation);
+
+    RejetOperationStatutDTO toDTO(RejetOperationStatut rejet);
+}
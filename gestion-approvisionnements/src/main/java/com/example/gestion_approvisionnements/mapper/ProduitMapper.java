@@ -3,6 +3,7 @@ package com.example.gestion_approvisionnements.mapper;
 import com.example.gestion_approvisionnements.dto.ProduitDTO;
 import com.example.gestion_approvisionnements.entity.Produit;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import org.mapstruct.MappingTarget;
 import org.mapstruct.NullValuePropertyMappingStrategy;
 
@@ -13,9 +14,15 @@ public interface ProduitMapper {
 
     ProduitDTO toDTO(Produit produit);
 
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "stockOuverture", ignore = true)
+    @Mapping(target = "coutMoyenPondereOuverture", ignore = true)
     Produit toEntity(ProduitDTO dto);
 
     List<ProduitDTO> toDTOList(List<Produit> produits);
 
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "stockOuverture", ignore = true)
+    @Mapping(target = "coutMoyenPondereOuverture", ignore = true)
     void updateEntityFromDTO(ProduitDTO dto, @MappingTarget Produit produit);
 }
\ No newline at end of file
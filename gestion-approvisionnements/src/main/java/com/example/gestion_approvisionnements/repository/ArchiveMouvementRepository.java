@@ -0,0 +1,12 @@
+package com.example.gestion_approvisionnements.repository;
+
+import com.example.gestion_approvisionnements.entity.ArchiveMouvement;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface ArchiveMouvementRepository extends JpaRepository<ArchiveMouvement, LocalDate> {
+
+    List<ArchiveMouvement> findAllByOrderByMoisAsc();
+}
@@ -0,0 +1,46 @@
+package com.example.gestion_approvisionnements.repository;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.hibernate.annotations.Cache;
+import org.springframework.data.jpa.repository.support.JpaEntityInformation;
+import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+// Classe de base des repositories : pour une entité du cache de second niveau (Produit, Fournisseur),
+// findAllById ne passe plus par un SELECT ... WHERE id IN (...), qui ignore ce cache, mais par un chargement
+// multiple Hibernate : contexte de persistance, puis cache, puis un seul SELECT pour les id restants.
+public class CacheSecondNiveauRepository<T, ID> extends SimpleJpaRepository<T, ID> {
+
+    private final Class<T> type;
+    private final boolean enCache;
+    private final EntityManager entityManager;
+
+    public CacheSecondNiveauRepository(JpaEntityInformation<T, ?> entityInformation, EntityManager entityManager) {
+        super(entityInformation, entityManager);
+        this.type = entityInformation.getJavaType();
+        this.enCache = type.isAnnotationPresent(Cache.class);
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<T> findAllById(Iterable<ID> ids) {
+        if (!enCache) {
+            return super.findAllById(ids);
+        }
+        List<ID> liste = new ArrayList<>();
+        ids.forEach(liste::add);
+        if (liste.isEmpty()) {
+            return List.of();
+        }
+        // Sans mode de cache explicite, le chargement multiple ne consulte pas le cache de second niveau.
+        // Les id inconnus ressortent à null : même résultat que la requête, qui les ignore.
+        Session session = entityManager.unwrap(Session.class);
+        return session.byMultipleIds(type).with(session.getCacheMode()).multiLoad(liste).stream()
+                .filter(Objects::nonNull)
+                .toList();
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.gestion_approvisionnements.repository;
+
+import com.example.gestion_approvisionnements.entity.CleIdempotence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+
+public interface CleIdempotenceRepository extends JpaRepository<CleIdempotence, String> {
+
+    @Modifying(flushAutomatically = true)
+    @Query("""
+            UPDATE CleIdempotence c SET c.statutHttp = :statut, c.contentType = :contentType, c.corps = :corps
+            WHERE c.id = :cle
+            """)
+    int enregistrerReponse(@Param("cle") String cle,
+                           @Param("statut") int statut,
+                           @Param("contentType") String contentType,
+                           @Param("corps") byte[] corps);
+
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM CleIdempotence c WHERE c.dateExpiration < :maintenant")
+    int supprimerExpirees(@Param("maintenant") LocalDateTime maintenant);
+
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM CleIdempotence c WHERE c.id = :cle AND c.dateExpiration <= :maintenant")
+    int supprimerSiExpiree(@Param("cle") String cle, @Param("maintenant") LocalDateTime maintenant);
+
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM CleIdempotence c WHERE c.id = :cle")
+    int supprimer(@Param("cle") String cle);
+}
@@ -1,17 +1,103 @@
 package com.example.gestion_approvisionnements.repository;
 
+import com.example.gestion_approvisionnements.dto.VersionEntiteDTO;
 import com.example.gestion_approvisionnements.entity.CommandeFournisseur;
 import com.example.gestion_approvisionnements.enums.StatutCommande;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
-public interface CommandeFournisseurRepository extends JpaRepository<CommandeFournisseur, Long> {
+// Lectures pour l'API : fournisseur, lignes et produits des lignes chargés avec les commandes (pas de N+1 au mapping)
+public interface CommandeFournisseurRepository extends JpaRepository<CommandeFournisseur, Long>,
+        JpaSpecificationExecutor<CommandeFournisseur> {
 
+    @EntityGraph(attributePaths = {"fournisseur", "lignesCommande", "lignesCommande.produit"})
     List<CommandeFournisseur> findByStatut(StatutCommande statut);
 
+    @EntityGraph(attributePaths = {"fournisseur", "lignesCommande", "lignesCommande.produit"})
     List<CommandeFournisseur> findByFournisseurId(Long fournisseurId);
 
-    List<CommandeFournisseur> findByDateCommandeBetween(LocalDate debut, LocalDate fin);
-}
\ No newline at end of file
+    // Plage répétée sur les lignes : ligne_commande est partitionnée par date_commande et la jointure
+    // par identifiant seul ne permet pas à PostgreSQL d'écarter ses partitions hors période.
+    // Jointure interne : une commande a toujours au moins une ligne, qui porte sa date.
+    @Query("""
+            SELECT DISTINCT c FROM CommandeFournisseur c
+            JOIN FETCH c.fournisseur
+            JOIN FETCH c.lignesCommande l
+            JOIN FETCH l.produit
+            WHERE c.dateCommande BETWEEN :debut AND :fin
+              AND l.dateCommande BETWEEN :debut AND :fin
+            """)
+    List<CommandeFournisseur> findByDateCommandeBetween(@Param("debut") LocalDate debut, @Param("fin") LocalDate fin);
+
+    @EntityGraph(attributePaths = {"fournisseur", "lignesCommande", "lignesCommande.produit"})
+    Optional<CommandeFournisseur> findDetailById(Long id);
+
+    // Changement de statut : deux transitions concurrentes sur une commande s'exécutent l'une après l'autre,
+    // la seconde lit le statut écrit par la première (une livraison n'est jamais appliquée deux fois)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM CommandeFournisseur c WHERE c.id = :id")
+    Optional<CommandeFournisseur> findByIdForUpdate(@Param("id") Long id);
+
+    // Page : seule la relation simple est jointe, la pagination reste en SQL.
+    // Les lignes sont chargées ensuite par chargerLignes, en une requête pour toute la page.
+    @EntityGraph(attributePaths = "fournisseur")
+    Page<CommandeFournisseur> findAll(Pageable pageable);
+
+    // Recherche combinée : tranche sans requête de comptage (taille + 1 lignes lues pour savoir s'il en reste),
+    // fournisseur joint, lignes chargées ensuite par chargerLignes comme pour findAll
+    default Slice<CommandeFournisseur> rechercher(Specification<CommandeFournisseur> criteres, Pageable pageable) {
+        return findBy(criteres, requete -> requete.project("fournisseur").slice(pageable));
+    }
+
+    // Initialise les lignes (et leurs produits) des commandes déjà présentes dans le contexte de persistance
+    @Query("""
+            SELECT DISTINCT c FROM CommandeFournisseur c
+            LEFT JOIN FETCH c.lignesCommande l
+            LEFT JOIN FETCH l.produit
+            WHERE c.id IN :ids
+            """)
+    List<CommandeFournisseur> chargerLignes(@Param("ids") Collection<Long> ids);
+
+    // Versions seules pour les GET conditionnels : commande et fournisseur, puis produits des lignes par modificationProduits
+    @Query("SELECT new com.example.gestion_approvisionnements.dto.VersionEntiteDTO(c.id, c.updatedAt, f.updatedAt) FROM CommandeFournisseur c JOIN c.fournisseur f WHERE c.id = :id")
+    Optional<VersionEntiteDTO> findVersionById(@Param("id") Long id);
+
+    @Query(value = "SELECT new com.example.gestion_approvisionnements.dto.VersionEntiteDTO(c.id, c.updatedAt, f.updatedAt) FROM CommandeFournisseur c JOIN c.fournisseur f",
+            countQuery = "SELECT COUNT(c) FROM CommandeFournisseur c")
+    Page<VersionEntiteDTO> findVersions(Pageable pageable);
+
+    // Par commande : id de la commande et modification la plus récente des produits de ses lignes
+    @Query("""
+            SELECT new com.example.gestion_approvisionnements.dto.VersionEntiteDTO(l.commandeFournisseur.id, MAX(p.updatedAt))
+            FROM LigneCommande l JOIN l.produit p
+            WHERE l.commandeFournisseur.id IN :ids
+            GROUP BY l.commandeFournisseur.id
+            """)
+    List<VersionEntiteDTO> findModificationsProduits(@Param("ids") Collection<Long> ids);
+
+    // SHARE ROW EXCLUSIVE : exclut toute écriture concurrente sur ces tables, pas les lectures (PostgreSQL).
+    // Ordre des tables celui des écritures (commande avant fournisseur à la suppression d'un fournisseur)
+    @Modifying
+    @Query(value = "LOCK TABLE commande_fournisseur, ligne_commande, fournisseur IN SHARE ROW EXCLUSIVE MODE",
+            nativeQuery = true)
+    void verrouillerEcritures();
+
+    // Partitions annuelles des années demandées, créées si absentes (PostgreSQL, changelog 015)
+    @Query(value = "SELECT creer_partitions_commande(:premiereAnnee, :derniereAnnee)", nativeQuery = true)
+    int creerPartitions(@Param("premiereAnnee") int premiereAnnee, @Param("derniereAnnee") int derniereAnnee);
+}
@@ -0,0 +1,62 @@
+package com.example.gestion_approvisionnements.repository;
+
+import com.example.gestion_approvisionnements.dto.RechercheCommandeDTO;
+import com.example.gestion_approvisionnements.entity.CommandeFournisseur;
+import com.example.gestion_approvisionnements.entity.LigneCommande;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Recherche combinée des commandes : un prédicat par critère renseigné, servis par les index du changelog 017
+public final class CommandeFournisseurSpecifications {
+
+    private CommandeFournisseurSpecifications() {
+    }
+
+    public static Specification<CommandeFournisseur> criteres(RechercheCommandeDTO recherche) {
+        return (commande, query, cb) -> {
+            List<Predicate> predicats = new ArrayList<>();
+            if (recherche.getStatut() != null) {
+                predicats.add(cb.equal(commande.get("statut"), recherche.getStatut()));
+            }
+            if (recherche.getFournisseurId() != null) {
+                predicats.add(cb.equal(commande.get("fournisseur").get("id"), recherche.getFournisseurId()));
+            }
+            if (recherche.getDebut() != null) {
+                predicats.add(cb.greaterThanOrEqualTo(commande.get("dateCommande"), recherche.getDebut()));
+            }
+            if (recherche.getFin() != null) {
+                predicats.add(cb.lessThanOrEqualTo(commande.get("dateCommande"), recherche.getFin()));
+            }
+            if (recherche.getMontantMin() != null) {
+                predicats.add(cb.greaterThanOrEqualTo(commande.get("montantTotal"), recherche.getMontantMin()));
+            }
+            if (recherche.getMontantMax() != null) {
+                predicats.add(cb.lessThanOrEqualTo(commande.get("montantTotal"), recherche.getMontantMax()));
+            }
+
+            // Produit : au moins une ligne le contient. La période est répétée sur les lignes pour que
+            // PostgreSQL écarte les partitions de ligne_commande hors période (voir findByDateCommandeBetween)
+            if (recherche.getProduitId() != null) {
+                Subquery<Long> lignes = query.subquery(Long.class);
+                Root<LigneCommande> ligne = lignes.from(LigneCommande.class);
+                List<Predicate> predicatsLigne = new ArrayList<>();
+                predicatsLigne.add(cb.equal(ligne.get("produit").get("id"), recherche.getProduitId()));
+                predicatsLigne.add(cb.equal(ligne.get("commandeFournisseur").get("id"), commande.get("id")));
+                if (recherche.getDebut() != null) {
+                    predicatsLigne.add(cb.greaterThanOrEqualTo(ligne.get("dateCommande"), recherche.getDebut()));
+                }
+                if (recherche.getFin() != null) {
+                    predicatsLigne.add(cb.lessThanOrEqualTo(ligne.get("dateCommande"), recherche.getFin()));
+                }
+                lignes.select(ligne.get("id")).where(predicatsLigne.toArray(Predicate[]::new));
+                predicats.add(cb.exists(lignes));
+            }
+            return cb.and(predicats.toArray(Predicate[]::new));
+        };
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.gestion_approvisionnements.repository;
+
+import com.example.gestion_approvisionnements.entity.CommandeSummary;
+import com.example.gestion_approvisionnements.enums.StatutCommande;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+
+public interface CommandeSummaryRepository extends JpaRepository<CommandeSummary, Long> {
+
+    Page<CommandeSummary> findByStatut(StatutCommande statut, Pageable pageable);
+
+    Page<CommandeSummary> findByFournisseurId(Long fournisseurId, Pageable pageable);
+
+    Page<CommandeSummary> findByDateCommandeBetween(LocalDate debut, LocalDate fin, Pageable pageable);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE CommandeSummary s SET s.statut = :statut WHERE s.id = :id")
+    int changerStatut(@Param("id") Long id, @Param("statut") StatutCommande statut);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE CommandeSummary s SET s.fournisseurSociete = :societe WHERE s.fournisseurId = :fournisseurId")
+    int renommerFournisseur(@Param("fournisseurId") Long fournisseurId, @Param("societe") String societe);
+
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM CommandeSummary s WHERE s.id = :id")
+    int supprimer(@Param("id") Long id);
+
+    // Régénération complète depuis les tables sources, en une requête
+    @Modifying(flushAutomatically = true)
+    @Query("""
+            INSERT INTO CommandeSummary (id, dateCommande, statut, fournisseurId, fournisseurSociete,
+                                         montantTotal, nombreLignes)
+            SELECT c.id, c.dateCommande, c.statut, f.id, f.societe, c.montantTotal, CAST(COUNT(l) AS Integer)
+            FROM CommandeFournisseur c
+            JOIN c.fournisseur f
+            LEFT JOIN c.lignesCommande l
+            GROUP BY c.id, c.dateCommande, c.statut, f.id, f.societe, c.montantTotal
+            """)
+    int reconstruire();
+}
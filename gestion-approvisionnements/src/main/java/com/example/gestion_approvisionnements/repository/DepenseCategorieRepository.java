@@ -0,0 +1,78 @@
+package com.example.gestion_approvisionnements.repository;
+
+import com.example.gestion_approvisionnements.dto.DepenseCategorieDTO;
+import com.example.gestion_approvisionnements.dto.MontantCategorieDTO;
+import com.example.gestion_approvisionnements.entity.DepenseCategorie;
+import com.example.gestion_approvisionnements.entity.DepenseCategorieId;
+import com.example.gestion_approvisionnements.enums.StatutCommande;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface DepenseCategorieRepository extends JpaRepository<DepenseCategorie, DepenseCategorieId> {
+
+    @Modifying(flushAutomatically = true)
+    @Query("""
+            INSERT INTO DepenseCategorie (categorie, mois, statut, nombreCommandes, montantTotal)
+            VALUES (:categorie, :mois, :statut, :nombre, :montant)
+            ON CONFLICT (categorie, mois, statut) DO UPDATE
+            SET nombreCommandes = nombreCommandes + excluded.nombreCommandes,
+                montantTotal = montantTotal + excluded.montantTotal
+            """)
+    int ajouter(@Param("categorie") String categorie, @Param("mois") LocalDate mois,
+                @Param("statut") StatutCommande statut, @Param("nombre") long nombre,
+                @Param("montant") BigDecimal montant);
+
+    // Montants par commande et catégorie, relus depuis les lignes pour les changements de statut et suppressions.
+    // Catégorie enregistrée sur la ligne : celle qui a été incrémentée à la création, même si le produit a changé depuis
+    @Query("""
+            SELECT new com.example.gestion_approvisionnements.dto.MontantCategorieDTO(
+                c.id, c.dateCommande, c.statut, l.categorie, SUM(l.sousTotal))
+            FROM LigneCommande l
+            JOIN l.commandeFournisseur c
+            WHERE c.id = :commandeId
+            GROUP BY c.id, c.dateCommande, c.statut, l.categorie
+            """)
+    List<MontantCategorieDTO> findMontantsParCommande(@Param("commandeId") Long commandeId);
+
+    @Query("""
+            SELECT new com.example.gestion_approvisionnements.dto.MontantCategorieDTO(
+                c.id, c.dateCommande, c.statut, l.categorie, SUM(l.sousTotal))
+            FROM LigneCommande l
+            JOIN l.commandeFournisseur c
+            WHERE c.fournisseur.id = :fournisseurId
+            GROUP BY c.id, c.dateCommande, c.statut, l.categorie
+            """)
+    List<MontantCategorieDTO> findMontantsParFournisseur(@Param("fournisseurId") Long fournisseurId);
+
+    @Query("""
+            SELECT new com.example.gestion_approvisionnements.dto.DepenseCategorieDTO(
+                d.categorie, d.mois, SUM(d.nombreCommandes), SUM(d.montantTotal),
+                ROUND(SUM(d.montantTotal) / NULLIF(SUM(d.nombreCommandes), 0), 2))
+            FROM DepenseCategorie d
+            WHERE d.mois BETWEEN :debut AND :fin
+              AND d.statut IN :statuts
+            GROUP BY d.categorie, d.mois
+            HAVING SUM(d.nombreCommandes) > 0
+            ORDER BY d.mois, d.categorie
+            """)
+    List<DepenseCategorieDTO> findParMois(@Param("debut") LocalDate debut, @Param("fin") LocalDate fin,
+                                          @Param("statuts") Collection<StatutCommande> statuts);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            INSERT INTO depense_categorie (categorie, mois, statut, nombre_commandes, montant_total)
+            SELECT COALESCE(l.categorie, :sansCategorie), CAST(DATE_TRUNC('month', c.date_commande) AS DATE), c.statut,
+                   COUNT(DISTINCT c.id), COALESCE(SUM(l.sous_total), 0)
+            FROM ligne_commande l
+            JOIN commande_fournisseur c ON c.id = l.commande_fournisseur_id
+            GROUP BY l.categorie, CAST(DATE_TRUNC('month', c.date_commande) AS DATE), c.statut
+            """, nativeQuery = true)
+    int reconstruire(@Param("sansCategorie") String sansCategorie);
+}
@@ -0,0 +1,78 @@
+package com.example.gestion_approvisionnements.repository;
+
+import com.example.gestion_approvisionnements.dto.DepenseFournisseurDTO;
+import com.example.gestion_approvisionnements.entity.DepenseFournisseur;
+import com.example.gestion_approvisionnements.entity.DepenseFournisseurId;
+import com.example.gestion_approvisionnements.enums.StatutCommande;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface DepenseFournisseurRepository extends JpaRepository<DepenseFournisseur, DepenseFournisseurId> {
+
+    // Incrément (ou décrément) atomique : ligne créée au premier passage, cumulée ensuite sans lecture préalable
+    @Modifying(flushAutomatically = true)
+    @Query("""
+            INSERT INTO DepenseFournisseur (fournisseurId, mois, statut, nombreCommandes, montantTotal)
+            VALUES (:fournisseurId, :mois, :statut, :nombre, :montant)
+            ON CONFLICT (fournisseurId, mois, statut) DO UPDATE
+            SET nombreCommandes = nombreCommandes + excluded.nombreCommandes,
+                montantTotal = montantTotal + excluded.montantTotal
+            """)
+    int ajouter(@Param("fournisseurId") Long fournisseurId, @Param("mois") LocalDate mois,
+                @Param("statut") StatutCommande statut, @Param("nombre") long nombre,
+                @Param("montant") BigDecimal montant);
+
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM DepenseFournisseur d WHERE d.fournisseurId = :fournisseurId")
+    int supprimerFournisseur(@Param("fournisseurId") Long fournisseurId);
+
+    @Query("""
+            SELECT new com.example.gestion_approvisionnements.dto.DepenseFournisseurDTO(
+                d.fournisseurId, f.societe, d.mois, SUM(d.nombreCommandes), SUM(d.montantTotal),
+                ROUND(SUM(d.montantTotal) / NULLIF(SUM(d.nombreCommandes), 0), 2))
+            FROM DepenseFournisseur d
+            JOIN Fournisseur f ON f.id = d.fournisseurId
+            WHERE d.mois BETWEEN :debut AND :fin
+              AND d.statut IN :statuts
+              AND (:fournisseurId IS NULL OR d.fournisseurId = :fournisseurId)
+            GROUP BY d.fournisseurId, f.societe, d.mois
+            HAVING SUM(d.nombreCommandes) > 0
+            ORDER BY d.mois, d.fournisseurId
+            """)
+    List<DepenseFournisseurDTO> findParMois(@Param("debut") LocalDate debut, @Param("fin") LocalDate fin,
+                                            @Param("statuts") Collection<StatutCommande> statuts,
+                                            @Param("fournisseurId") Long fournisseurId);
+
+    @Query("""
+            SELECT new com.example.gestion_approvisionnements.dto.DepenseFournisseurDTO(
+                d.fournisseurId, f.societe, CAST(NULL AS LocalDate), SUM(d.nombreCommandes), SUM(d.montantTotal),
+                ROUND(SUM(d.montantTotal) / NULLIF(SUM(d.nombreCommandes), 0), 2))
+            FROM DepenseFournisseur d
+            JOIN Fournisseur f ON f.id = d.fournisseurId
+            WHERE d.mois BETWEEN :debut AND :fin
+              AND d.statut IN :statuts
+            GROUP BY d.fournisseurId, f.societe
+            HAVING SUM(d.nombreCommandes) > 0
+            ORDER BY SUM(d.montantTotal) DESC, d.fournisseurId
+            """)
+    List<DepenseFournisseurDTO> findTotaux(@Param("debut") LocalDate debut, @Param("fin") LocalDate fin,
+                                           @Param("statuts") Collection<StatutCommande> statuts);
+
+    // Régénération complète depuis les commandes, en une requête (troncature au mois en SQL)
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            INSERT INTO depense_fournisseur (fournisseur_id, mois, statut, nombre_commandes, montant_total)
+            SELECT c.fournisseur_id, CAST(DATE_TRUNC('month', c.date_commande) AS DATE), c.statut,
+                   COUNT(*), COALESCE(SUM(c.montant_total), 0)
+            FROM commande_fournisseur c
+            GROUP BY c.fournisseur_id, CAST(DATE_TRUNC('month', c.date_commande) AS DATE), c.statut
+            """, nativeQuery = true)
+    int reconstruire();
+}
@@ -1,13 +1,33 @@
 package com.example.gestion_approvisionnements.repository;
 
+import com.example.gestion_approvisionnements.dto.VersionEntiteDTO;
 import com.example.gestion_approvisionnements.entity.Fournisseur;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface FournisseurRepository extends JpaRepository<Fournisseur, Long> {
 
     Optional<Fournisseur> findByIce(String ice);
 
-    boolean existsByIce(String ice);
+    // Index des ICE (IndexIceService) : ICE seuls, sans entité chargée
+    @Query("SELECT f.ice FROM Fournisseur f WHERE f.ice IS NOT NULL")
+    List<String> findAllIces();
+
+    @Query("SELECT f.ice FROM Fournisseur f WHERE f.id IN :ids AND f.ice IS NOT NULL")
+    List<String> findIcesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Versions seules pour les GET conditionnels : ni entité chargée, ni cache consulté
+    @Query("SELECT new com.example.gestion_approvisionnements.dto.VersionEntiteDTO(f.id, f.updatedAt) FROM Fournisseur f WHERE f.id = :id")
+    Optional<VersionEntiteDTO> findVersionById(@Param("id") Long id);
+
+    @Query(value = "SELECT new com.example.gestion_approvisionnements.dto.VersionEntiteDTO(f.id, f.updatedAt) FROM Fournisseur f",
+            countQuery = "SELECT COUNT(f) FROM Fournisseur f")
+    Page<VersionEntiteDTO> findVersions(Pageable pageable);
 }
\ No newline at end of file
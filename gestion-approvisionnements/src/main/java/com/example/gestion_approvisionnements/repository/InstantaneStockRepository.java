@@ -0,0 +1,35 @@
+package com.example.gestion_approvisionnements.repository;
+
+import com.example.gestion_approvisionnements.entity.InstantaneStock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface InstantaneStockRepository extends JpaRepository<InstantaneStock, Long> {
+
+    Optional<InstantaneStock> findFirstByProduitIdAndDateInstantaneLessThanOrderByDateInstantaneDesc(Long produitId,
+                                                                                                   LocalDateTime fin);
+
+    // Dernier instantané de chaque produit antérieur à la borne
+    @Query("""
+            SELECT i FROM InstantaneStock i
+            WHERE i.dateInstantane = (SELECT MAX(i2.dateInstantane) FROM InstantaneStock i2
+                                      WHERE i2.produit = i.produit AND i2.dateInstantane < :fin)
+            """)
+    List<InstantaneStock> findDerniersAvant(@Param("fin") LocalDateTime fin);
+
+    // Produits jamais instantanés, ou ayant reçu des mouvements depuis leur dernier instantané
+    @Query("""
+            SELECT p.id FROM Produit p
+            WHERE NOT EXISTS (SELECT i FROM InstantaneStock i WHERE i.produit = p)
+               OR EXISTS (SELECT m FROM MouvementStock m
+                          WHERE m.produit = p
+                            AND m.createdAt > (SELECT MAX(i.dateInstantane) FROM InstantaneStock i WHERE i.produit = p))
+            ORDER BY p.id
+            """)
+    List<Long> findIdsProduitsAInstantaner();
+}
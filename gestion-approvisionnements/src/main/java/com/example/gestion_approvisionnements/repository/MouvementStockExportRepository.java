@@ -0,0 +1,13 @@
+package com.example.gestion_approvisionnements.repository;
+
+import com.example.gestion_approvisionnements.entity.MouvementStock;
+import com.example.gestion_approvisionnements.enums.TypeMouvement;
+
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+public interface MouvementStockExportRepository {
+
+    // Export en flux, filtres facultatifs : seuls les filtres renseignés figurent dans le SQL
+    Stream<MouvementStock> streamPourExport(Long produitId, TypeMouvement type, LocalDateTime debut, LocalDateTime fin);
+}
@@ -0,0 +1,57 @@
+package com.example.gestion_approvisionnements.repository;
+
+import com.example.gestion_approvisionnements.entity.MouvementStock;
+import com.example.gestion_approvisionnements.enums.TypeMouvement;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.HibernateHints;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Un prédicat par filtre renseigné, sans forme (:param IS NULL OR ...) : PostgreSQL peut ainsi utiliser l'index
+// (produit_id, date_mouvement) et écarter les partitions hors période, le plan ne dépendant plus des valeurs nulles
+@RequiredArgsConstructor
+public class MouvementStockExportRepositoryImpl implements MouvementStockExportRepository {
+
+    private final EntityManager entityManager;
+
+    @Override
+    public Stream<MouvementStock> streamPourExport(Long produitId, TypeMouvement type,
+                                                   LocalDateTime debut, LocalDateTime fin) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<MouvementStock> query = cb.createQuery(MouvementStock.class);
+        Root<MouvementStock> mouvement = query.from(MouvementStock.class);
+        mouvement.fetch("produit", JoinType.INNER);
+
+        List<Predicate> predicats = new ArrayList<>();
+        if (produitId != null) {
+            predicats.add(cb.equal(mouvement.get("produit").get("id"), produitId));
+        }
+        if (type != null) {
+            predicats.add(cb.equal(mouvement.get("typeMouvement"), type));
+        }
+        if (debut != null) {
+            predicats.add(cb.greaterThanOrEqualTo(mouvement.get("dateMouvement"), debut));
+        }
+        if (fin != null) {
+            predicats.add(cb.lessThan(mouvement.get("dateMouvement"), fin));
+        }
+        query.select(mouvement)
+                .where(predicats.toArray(Predicate[]::new))
+                .orderBy(cb.asc(mouvement.get("dateMouvement")), cb.asc(mouvement.get("id")));
+
+        // Curseur JDBC en avant seulement, lu par blocs, sans instantané de dirty checking
+        return entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, 1000)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+}
@@ -1,16 +1,147 @@
 package com.example.gestion_approvisionnements.repository;
 
+import com.example.gestion_approvisionnements.dto.MouvementArchiveDTO;
+import com.example.gestion_approvisionnements.dto.MouvementJournalDTO;
 import com.example.gestion_approvisionnements.entity.MouvementStock;
 import com.example.gestion_approvisionnements.enums.TypeMouvement;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
-public interface MouvementStockRepository extends JpaRepository<MouvementStock, Long> {
+public interface MouvementStockRepository extends JpaRepository<MouvementStock, Long>,
+        MouvementStockExportRepository {
 
     List<MouvementStock> findByProduitIdOrderByDateMouvementAsc(Long produitId);
 
     List<MouvementStock> findByTypeMouvement(TypeMouvement type);
 
-    List<MouvementStock> findByCommandeFournisseurId(Long commandeId);
-}
\ No newline at end of file
+    // Pagination par curseur sur (date_mouvement, id) : comparaison de ligne servie par l'index, sans OFFSET
+    @EntityGraph(attributePaths = "produit")
+    List<MouvementStock> findByProduitIdOrderByDateMouvementAscIdAsc(Long produitId, Limit limit);
+
+    // La borne simple sur date_mouvement, redondante avec la comparaison de ligne, écarte les partitions antérieures
+    @EntityGraph(attributePaths = "produit")
+    @Query("""
+            SELECT m FROM MouvementStock m
+            WHERE m.produit.id = :produitId
+              AND m.dateMouvement >= :date
+              AND (m.dateMouvement, m.id) > (:date, :id)
+            ORDER BY m.dateMouvement, m.id
+            """)
+    List<MouvementStock> findByProduitIdApres(@Param("produitId") Long produitId,
+                                              @Param("date") LocalDateTime date,
+                                              @Param("id") Long id,
+                                              Limit limit);
+
+    // Historique d'un produit borné à une période : seules les partitions de la période sont lues
+    @EntityGraph(attributePaths = "produit")
+    List<MouvementStock> findByProduitIdAndDateMouvementLessThanOrderByDateMouvementAscIdAsc(Long produitId,
+                                                                                           LocalDateTime fin,
+                                                                                           Limit limit);
+
+    @EntityGraph(attributePaths = "produit")
+    @Query("""
+            SELECT m FROM MouvementStock m
+            WHERE m.produit.id = :produitId
+              AND m.dateMouvement >= :date AND m.dateMouvement < :fin
+              AND (m.dateMouvement, m.id) > (:date, :id)
+            ORDER BY m.dateMouvement, m.id
+            """)
+    List<MouvementStock> findByProduitIdEntre(@Param("produitId") Long produitId,
+                                              @Param("date") LocalDateTime date,
+                                              @Param("id") Long id,
+                                              @Param("fin") LocalDateTime fin,
+                                              Limit limit);
+
+    @EntityGraph(attributePaths = "produit")
+    List<MouvementStock> findByTypeMouvementOrderByDateMouvementAscIdAsc(TypeMouvement type, Limit limit);
+
+    @EntityGraph(attributePaths = "produit")
+    @Query("""
+            SELECT m FROM MouvementStock m
+            WHERE m.typeMouvement = :type
+              AND (m.dateMouvement, m.id) > (:date, :id)
+            ORDER BY m.dateMouvement, m.id
+            """)
+    List<MouvementStock> findByTypeMouvementApres(@Param("type") TypeMouvement type,
+                                                  @Param("date") LocalDateTime date,
+                                                  @Param("id") Long id,
+                                                  Limit limit);
+
+    // Mouvements à rejouer pour un stock à date : créés après le dernier instantané antérieur à la borne
+    // (tous si le produit n'en a pas) et datés avant elle, groupés par produit dans l'ordre du journal
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            SELECT m FROM MouvementStock m
+            WHERE (:produitId IS NULL OR m.produit.id = :produitId)
+              AND m.dateMouvement < :fin
+              AND (m.createdAt > (SELECT MAX(i.dateInstantane) FROM InstantaneStock i
+                                  WHERE i.produit = m.produit AND i.dateInstantane < :fin)
+                   OR NOT EXISTS (SELECT i FROM InstantaneStock i
+                                  WHERE i.produit = m.produit AND i.dateInstantane < :fin))
+            ORDER BY m.produit.id, m.dateMouvement, m.id
+            """)
+    Stream<MouvementStock> streamARejouer(@Param("produitId") Long produitId, @Param("fin") LocalDateTime fin);
+
+    // Journal d'une plage de produits dans l'ordre d'application (création puis id), pour sa vérification
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            SELECT new com.example.gestion_approvisionnements.dto.MouvementJournalDTO(
+                       m.produit.id, m.typeMouvement, m.quantite, m.prixUnitaire)
+            FROM MouvementStock m
+            WHERE m.produit.id BETWEEN :idMin AND :idMax
+            ORDER BY m.produit.id, m.createdAt, m.id
+            """)
+    Stream<MouvementJournalDTO> streamJournalPlage(@Param("idMin") Long idMin, @Param("idMax") Long idMax);
+
+    // Mouvements archivables d'un mois : ceux qu'aucun mouvement d'un autre mois du même produit ne précède dans
+    // l'ordre du journal (même règle que archiver_partition_mouvement), groupés par produit dans cet ordre
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            SELECT new com.example.gestion_approvisionnements.dto.MouvementArchiveDTO(
+                       m.id, m.dateMouvement, m.quantite, m.typeMouvement, m.prixUnitaire, m.stockApresMouvement,
+                       m.produit.id, c.id, m.createdAt)
+            FROM MouvementStock m LEFT JOIN m.commandeFournisseur c
+            WHERE m.dateMouvement >= :debut AND m.dateMouvement < :fin
+              AND NOT EXISTS (SELECT a FROM MouvementStock a
+                              WHERE a.produit = m.produit
+                                AND (a.dateMouvement < :debut OR a.dateMouvement >= :fin)
+                                AND (a.createdAt < m.createdAt OR (a.createdAt = m.createdAt AND a.id < m.id)))
+            ORDER BY m.produit.id, m.createdAt, m.id
+            """)
+    Stream<MouvementArchiveDTO> streamArchivables(@Param("debut") LocalDateTime debut,
+                                                  @Param("fin") LocalDateTime fin);
+
+    // Partitions mensuelles (PostgreSQL, changelog 016)
+    @Query(value = "SELECT creer_partitions_mouvement(:premierMois, :dernierMois)", nativeQuery = true)
+    int creerPartitions(@Param("premierMois") LocalDate premierMois, @Param("dernierMois") LocalDate dernierMois);
+
+    @Query(value = """
+            SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+            WHERE i.inhparent = CAST('mouvement_stock' AS regclass)
+            ORDER BY c.relname
+            """, nativeQuery = true)
+    List<String> findPartitions();
+
+    @Query(value = "SELECT archiver_partition_mouvement(:mois)", nativeQuery = true)
+    Long archiverPartition(@Param("mois") LocalDate mois);
+}
@@ -0,0 +1,65 @@
+package com.example.gestion_approvisionnements.repository;
+
+import com.example.gestion_approvisionnements.entity.OperationStatut;
+import com.example.gestion_approvisionnements.enums.EtatOperation;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface OperationStatutRepository extends JpaRepository<OperationStatut, Long> {
+
+    boolean existsByCommandeIdAndEtatIn(Long commandeId, Collection<EtatOperation> etats);
+
+    // Prise d'une opération par un worker : un seul gagnant, même si elle a été mise en file deux fois
+    @Modifying(flushAutomatically = true)
+    @Query("""
+            UPDATE OperationStatut o
+            SET o.etat = com.example.gestion_approvisionnements.enums.EtatOperation.EN_COURS,
+                o.instance = :instance, o.datePrise = :maintenant
+            WHERE o.id = :id AND o.etat = com.example.gestion_approvisionnements.enums.EtatOperation.EN_ATTENTE
+            """)
+    int prendre(@Param("id") Long id, @Param("instance") String instance, @Param("maintenant") LocalDateTime maintenant);
+
+    // Application ou rejet : la ligne verrouillée, l'opération ne peut plus être reprise pendant la transaction
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM OperationStatut o WHERE o.id = :id")
+    Optional<OperationStatut> findByIdForUpdate(@Param("id") Long id);
+
+    // Renouvellement du bail des opérations en cours sur cette instance
+    @Modifying(flushAutomatically = true)
+    @Query("""
+            UPDATE OperationStatut o SET o.datePrise = :maintenant
+            WHERE o.etat = com.example.gestion_approvisionnements.enums.EtatOperation.EN_COURS
+              AND o.instance = :instance
+            """)
+    int prolonger(@Param("instance") String instance, @Param("maintenant") LocalDateTime maintenant);
+
+    @Query("""
+            SELECT o.id FROM OperationStatut o
+            WHERE o.etat = com.example.gestion_approvisionnements.enums.EtatOperation.EN_ATTENTE
+              AND o.dateCreation < :avant
+            ORDER BY o.dateCreation
+            """)
+    List<Long> findIdsEnAttente(@Param("avant") LocalDateTime avant, Limit limit);
+
+    // Bail expiré : instance arrêtée sans avoir rien validé (sinon l'opération serait terminée), l'opération
+    // repart en attente. Les opérations des instances vivantes, au bail renouvelé, ne sont pas touchées.
+    @Modifying(flushAutomatically = true)
+    @Query("""
+            UPDATE OperationStatut o
+            SET o.etat = com.example.gestion_approvisionnements.enums.EtatOperation.EN_ATTENTE,
+                o.instance = NULL, o.datePrise = NULL
+            WHERE o.etat = com.example.gestion_approvisionnements.enums.EtatOperation.EN_COURS
+              AND o.datePrise < :avant
+            """)
+    int remettreEnAttente(@Param("avant") LocalDateTime avant);
+}
@@ -1,13 +1,141 @@
 package com.example.gestion_approvisionnements.repository;
 
+import com.example.gestion_approvisionnements.dto.VersionEntiteDTO;
 import com.example.gestion_approvisionnements.entity.Produit;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface ProduitRepository extends JpaRepository<Produit, Long> {
 
+    // Cache de requêtes : id du résultat, entités relues dans le cache de second niveau.
+    // Toute écriture sur la table produit rend les résultats en cache obsolètes.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<Produit> findByCategorieIgnoreCase(String categorie);
 
     List<Produit> findByStockActuelLessThanEqual(Integer seuil);
-}
\ No newline at end of file
+
+    // Versions seules pour les GET conditionnels : ni entité chargée, ni cache consulté
+    @Query("SELECT new com.example.gestion_approvisionnements.dto.VersionEntiteDTO(p.id, p.version, p.updatedAt) FROM Produit p WHERE p.id = :id")
+    Optional<VersionEntiteDTO> findVersionById(@Param("id") Long id);
+
+    @Query(value = "SELECT new com.example.gestion_approvisionnements.dto.VersionEntiteDTO(p.id, p.version, p.updatedAt) FROM Produit p",
+            countQuery = "SELECT COUNT(p) FROM Produit p")
+    Page<VersionEntiteDTO> findVersions(Pageable pageable);
+
+    // Verrouillage dans l'ordre des id pour éviter les interblocages entre traitements par lot
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Produit p WHERE p.id IN :ids ORDER BY p.id")
+    List<Produit> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+            SELECT p FROM Produit p
+            WHERE p.id IN (SELECT l.produit.id FROM LigneCommande l WHERE l.commandeFournisseur.id = :commandeId)
+            ORDER BY p.id
+            """)
+    List<Produit> findAllByCommandeIdForUpdate(@Param("commandeId") Long commandeId);
+
+    // Vérification du journal : découpage du catalogue en plages d'id
+    @Query("SELECT p.id FROM Produit p ORDER BY p.id")
+    List<Long> findAllIds();
+
+    List<Produit> findByIdBetweenOrderById(Long idMin, Long idMax);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Produit p WHERE p.id BETWEEN :idMin AND :idMax ORDER BY p.id")
+    List<Produit> findByIdBetweenForUpdate(@Param("idMin") Long idMin, @Param("idMax") Long idMax);
+
+    // Mises à jour conditionnelles du stock : une seule requête, calcul du CUMP côté base.
+    // Requêtes natives rattachées à un espace sans entité : Hibernate ne vide ni la région produit du cache
+    // de second niveau ni les résultats en cache des requêtes sur produit (des id seuls, voir Produit).
+    // L'appelant retire lui-même le produit modifié du cache (MutationStockService).
+    // Date de l'instruction et non du début de transaction (CURRENT_TIMESTAMP sur PostgreSQL) : une transaction
+    // longue commitée après une plus courte ne ferait pas reculer la date de modification.
+    String ESPACE_STOCK = "produit_stock";
+
+    // Sans prix d'entrée, le CUMP est calculé avec le prix catalogue du produit
+    default int appliquerEntree(Long id, int quantite, BigDecimal prixUnitaire) {
+        // Un null lié sans type part en bytea sur PostgreSQL : le prix absent passe par un indicateur
+        boolean prixFourni = prixUnitaire != null;
+        return appliquerEntree(id, quantite, prixFourni, prixFourni ? prixUnitaire : BigDecimal.ZERO);
+    }
+
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = ESPACE_STOCK))
+    @Query(value = """
+            UPDATE produit p SET
+                cout_moyen_pondere = CASE WHEN p.stock_actuel + :quantite <= 0 THEN 0
+                    ELSE ROUND((COALESCE(p.cout_moyen_pondere, 0) * p.stock_actuel
+                                + CASE WHEN :prixFourni THEN CAST(:prixUnitaire AS NUMERIC(10, 2))
+                                       ELSE p.prix_unitaire END * CAST(:quantite AS NUMERIC(38, 2)))
+                               / (p.stock_actuel + :quantite), 2) END,
+                stock_actuel = CASE WHEN p.stock_actuel + :quantite <= 0 THEN 0
+                    ELSE p.stock_actuel + :quantite END,
+                version = p.version + 1,
+                updated_at = CLOCK_TIMESTAMP()
+            WHERE p.id = :id
+            """, nativeQuery = true)
+    int appliquerEntree(@Param("id") Long id,
+                        @Param("quantite") int quantite,
+                        @Param("prixFourni") boolean prixFourni,
+                        @Param("prixUnitaire") BigDecimal prixUnitaire);
+
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = ESPACE_STOCK))
+    @Query(value = """
+            UPDATE produit p SET
+                stock_actuel = p.stock_actuel - :quantite,
+                version = p.version + 1,
+                updated_at = CLOCK_TIMESTAMP()
+            WHERE p.id = :id AND p.stock_actuel >= :quantite
+            """, nativeQuery = true)
+    int appliquerSortie(@Param("id") Long id, @Param("quantite") int quantite);
+
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = ESPACE_STOCK))
+    @Query(value = """
+            UPDATE produit p SET
+                stock_actuel = :quantite,
+                version = p.version + 1,
+                updated_at = CLOCK_TIMESTAMP()
+            WHERE p.id = :id
+            """, nativeQuery = true)
+    int definirStock(@Param("id") Long id, @Param("quantite") int quantite);
+
+    // Ajustement relatif : la variation est appliquée au stock courant, jamais en dessous de zéro
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = ESPACE_STOCK))
+    @Query(value = """
+            UPDATE produit p SET
+                stock_actuel = p.stock_actuel + :variation,
+                version = p.version + 1,
+                updated_at = CLOCK_TIMESTAMP()
+            WHERE p.id = :id AND p.stock_actuel + :variation >= 0
+            """, nativeQuery = true)
+    int appliquerAjustement(@Param("id") Long id, @Param("variation") int variation);
+
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = ESPACE_STOCK))
+    @Query(value = """
+            UPDATE produit p SET
+                prix_unitaire = :prixUnitaire,
+                version = p.version + 1,
+                updated_at = CLOCK_TIMESTAMP()
+            WHERE p.id = :id
+            """, nativeQuery = true)
+    int changerPrixUnitaire(@Param("id") Long id, @Param("prixUnitaire") BigDecimal prixUnitaire);
+}
@@ -0,0 +1,7 @@
+package com.example.gestion_approvisionnements.repository;
+
+import com.example.gestion_approvisionnements.entity.RejetOperationStatut;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface RejetOperationStatutRepository extends JpaRepository<RejetOperationStatut, Long> {
+}
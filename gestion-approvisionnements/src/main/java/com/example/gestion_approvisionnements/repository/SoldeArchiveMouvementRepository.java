@@ -0,0 +1,11 @@
+package com.example.gestion_approvisionnements.repository;
+
+import com.example.gestion_approvisionnements.entity.SoldeArchiveMouvement;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface SoldeArchiveMouvementRepository extends JpaRepository<SoldeArchiveMouvement, Long> {
+
+    List<SoldeArchiveMouvement> findByProduitIdBetween(Long idMin, Long idMax);
+}
@@ -0,0 +1,143 @@
+package com.example.gestion_approvisionnements.service;
+
+import com.example.gestion_approvisionnements.dto.FournisseurDTO;
+import com.example.gestion_approvisionnements.dto.ProduitDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+// Cache en mémoire (Caffeine) des lectures unitaires les plus fréquentes : produit et fournisseur par id
+// (la lecture par ICE y mène par IndexIceService). Taille bornée et expiration après écriture. Chaque écriture invalide l'entrée tout de suite
+// puis à la fin de sa transaction : une lecture concurrente ne peut pas y remettre l'état d'avant le commit.
+// Métriques Micrometer cache.* (tag cache) et referentiel.cache.taux.succes ; referentiel.cache.actif=false
+// pour lire directement en base. Les id modifiés sont aussi diffusés aux autres instances (DiffusionInvalidationService),
+// même sans cache local : leur cache de second niveau est concerné. Les mouvements (stock et CUMP seuls) passent par
+// invaliderStocks : retrait local identique, diffusion regroupée plutôt qu'un NOTIFY par mouvement.
+@Service
+@RequiredArgsConstructor
+public class CacheReferentielService {
+
+    private final MeterRegistry meterRegistry;
+    private final DiffusionInvalidationService diffusionInvalidationService;
+
+    @Value("${referentiel.cache.actif:true}")
+    private boolean actif;
+
+    @Value("${referentiel.cache.taille-max:10000}")
+    private long tailleMax;
+
+    @Value("${referentiel.cache.ttl-secondes:300}")
+    private long ttlSecondes;
+
+    private Cache<Long, RessourceVersionnee<ProduitDTO>> produits;
+    private Cache<Long, RessourceVersionnee<FournisseurDTO>> fournisseurs;
+
+    @PostConstruct
+    void initialiser() {
+        produits = creer("produits");
+        fournisseurs = creer("fournisseurs");
+    }
+
+    // Une seule lecture en base par clé absente, même pour des appels simultanés ; une exception n'est pas mise en cache.
+    // Par id, le contenu est gardé avec sa version : l'ETag d'une réponse servie par le cache reste le sien.
+    public RessourceVersionnee<ProduitDTO> produit(Long id, Function<Long, RessourceVersionnee<ProduitDTO>> chargement) {
+        return actif ? produits.get(id, chargement) : chargement.apply(id);
+    }
+
+    public RessourceVersionnee<FournisseurDTO> fournisseur(Long id,
+                                                           Function<Long, RessourceVersionnee<FournisseurDTO>> chargement) {
+        return actif ? fournisseurs.get(id, chargement) : chargement.apply(id);
+    }
+
+    public void invaliderProduit(Long id) {
+        invaliderProduits(List.of(id));
+    }
+
+    public void invaliderProduits(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        diffusionInvalidationService.publierProduits(ids);
+        if (actif) {
+            invalider(() -> produits.invalidateAll(ids));
+        }
+    }
+
+    public void invaliderStock(Long id) {
+        invaliderStocks(List.of(id));
+    }
+
+    public void invaliderStocks(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        diffusionInvalidationService.publierStocks(ids);
+        if (actif) {
+            invalider(() -> produits.invalidateAll(ids));
+        }
+    }
+
+    public void invaliderFournisseur(Long id) {
+        diffusionInvalidationService.publierFournisseurs(List.of(id));
+        if (actif) {
+            invalider(() -> fournisseurs.invalidate(id));
+        }
+    }
+
+    // Invalidations reçues d'une autre instance, déjà commitées : retrait local seulement, sans nouvelle diffusion
+    public void evincerProduits(Collection<Long> ids) {
+        if (actif) {
+            produits.invalidateAll(ids);
+        }
+    }
+
+    public void evincerFournisseurs(Collection<Long> ids) {
+        if (actif) {
+            fournisseurs.invalidateAll(ids);
+        }
+    }
+
+    public void vider() {
+        if (!actif) {
+            return;
+        }
+        produits.invalidateAll();
+        fournisseurs.invalidateAll();
+    }
+
+    private void invalider(Runnable invalidation) {
+        invalidation.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidation.run();
+                }
+            });
+        }
+    }
+
+    private <K, V> Cache<K, V> creer(String nom) {
+        Cache<K, V> cache = Caffeine.newBuilder()
+                .maximumSize(tailleMax)
+                .expireAfterWrite(Duration.ofSeconds(ttlSecondes))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, nom);
+        meterRegistry.gauge("referentiel.cache.taux.succes", Tags.of("cache", nom), cache, c -> c.stats().hitRate());
+        return cache;
+    }
+}
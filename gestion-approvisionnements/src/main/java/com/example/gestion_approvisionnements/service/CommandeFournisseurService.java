@@ -1,10 +1,15 @@
 package com.example.gestion_approvisionnements.service;
 
 import com.example.gestion_approvisionnements.dto.CommandeFournisseurDTO;
+import com.example.gestion_approvisionnements.dto.CommandeResultatDTO;
 import com.example.gestion_approvisionnements.dto.LigneCommandeDTO;
+import com.example.gestion_approvisionnements.dto.LotCommandesResultatDTO;
+import com.example.gestion_approvisionnements.dto.RechercheCommandeDTO;
+import com.example.gestion_approvisionnements.dto.VersionEntiteDTO;
 import com.example.gestion_approvisionnements.entity.CommandeFournisseur;
 import com.example.gestion_approvisionnements.entity.Fournisseur;
 import com.example.gestion_approvisionnements.entity.LigneCommande;
+import com.example.gestion_approvisionnements.entity.Montant;
 import com.example.gestion_approvisionnements.entity.Produit;
 import com.example.gestion_approvisionnements.enums.StatutCommande;
 import com.example.gestion_approvisionnements.exception.BusinessException;
@@ -12,87 +17,182 @@ import com.example.gestion_approvisionnements.exception.ResourceNotFoundExceptio
 import com.example.gestion_approvisionnements.mapper.CommandeFournisseurMapper;
 import com.example.gestion_approvisionnements.mapper.LigneCommandeMapper;
 import com.example.gestion_approvisionnements.repository.CommandeFournisseurRepository;
+import com.example.gestion_approvisionnements.repository.CommandeFournisseurSpecifications;
 import com.example.gestion_approvisionnements.repository.FournisseurRepository;
 import com.example.gestion_approvisionnements.repository.ProduitRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import com.example.gestion_approvisionnements.dto.MouvementStockDTO;
-import com.example.gestion_approvisionnements.enums.TypeMouvement;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Transactional
 public class CommandeFournisseurService {
 
+    private static final Set<String> TRIS_RECHERCHE = Set.of("dateCommande", "id");
+
     private final CommandeFournisseurRepository commandeFournisseurRepository;
     private final FournisseurRepository fournisseurRepository;
     private final ProduitRepository produitRepository;
     private final CommandeFournisseurMapper commandeFournisseurMapper;
     private final LigneCommandeMapper ligneCommandeMapper;
     private final MouvementStockService mouvementStockService;
+    private final CommandeSummaryService commandeSummaryService;
+    private final DepenseService depenseService;
+
+    @Value("${commandes.lot.taille-max:1000}")
+    private int tailleMaxLot;
 
     @Transactional(readOnly = true)
     public Page<CommandeFournisseurDTO> getAllCommandes(Pageable pageable) {
-        return commandeFournisseurRepository.findAll(pageable)
-                .map(commandeFournisseurMapper::toDTO);
+        return getCommandesVersionnees(pageable).contenu();
     }
 
     @Transactional(readOnly = true)
-    public CommandeFournisseurDTO getCommandeById(Long id) {
-        CommandeFournisseur commande = commandeFournisseurRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Commande fournisseur introuvable avec l'id " + id));
-        return commandeFournisseurMapper.toDTO(commande);
+    public RessourceVersionnee<Page<CommandeFournisseurDTO>> getCommandesVersionnees(Pageable pageable) {
+        Page<CommandeFournisseur> page = commandeFournisseurRepository.findAll(pageable);
+        if (page.hasContent()) {
+            commandeFournisseurRepository.chargerLignes(page.map(CommandeFournisseur::getId).getContent());
+        }
+        return new RessourceVersionnee<>(page.map(commandeFournisseurMapper::toDTO),
+                VersionRessource.page(page.map(this::version).getContent(), page.getTotalElements()));
     }
 
-    public CommandeFournisseurDTO createCommande(CommandeFournisseurDTO commandeDTO) {
-        Fournisseur fournisseur = fournisseurRepository.findById(commandeDTO.getFournisseurId())
-                .orElseThrow(() -> new ResourceNotFoundException("Fournisseur introuvable avec l'id " + commandeDTO.getFournisseurId()));
+    // Tri imposé (date de commande puis id, dans le sens demandé) : servi par les index, et stable d'une page à l'autre
+    @Transactional(readOnly = true)
+    public Slice<CommandeFournisseurDTO> rechercherCommandes(RechercheCommandeDTO recherche, Pageable pageable) {
+        if (recherche.getDebut() != null && recherche.getFin() != null && recherche.getFin().isBefore(recherche.getDebut())) {
+            throw new BusinessException("La date de fin doit être postérieure ou égale à la date de début");
+        }
+        if (recherche.getMontantMin() != null && recherche.getMontantMax() != null
+                && recherche.getMontantMax().compareTo(recherche.getMontantMin()) < 0) {
+            throw new BusinessException("Le montant maximum doit être supérieur ou égal au montant minimum");
+        }
 
-        CommandeFournisseur commande = commandeFournisseurMapper.toEntity(commandeDTO);
-        commande.setFournisseur(fournisseur);
+        Sort.Direction direction = Sort.Direction.DESC;
+        for (Sort.Order ordre : pageable.getSort()) {
+            if (!TRIS_RECHERCHE.contains(ordre.getProperty())) {
+                throw new BusinessException("Tri non supporté : " + ordre.getProperty() + " (dateCommande ou id)");
+            }
+        }
+        if (pageable.getSort().isSorted()) {
+            direction = pageable.getSort().iterator().next().getDirection();
+        }
+        Pageable page = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(),
+                Sort.by(direction, "dateCommande", "id"));
 
-        List<LigneCommande> lignes = buildLignesCommande(commandeDTO.getLignesCommande(), commande);
-        commande.setLignesCommande(lignes);
+        Slice<CommandeFournisseur> tranche = commandeFournisseurRepository.rechercher(
+                CommandeFournisseurSpecifications.criteres(recherche), page);
+        if (tranche.hasContent()) {
+            commandeFournisseurRepository.chargerLignes(tranche.map(CommandeFournisseur::getId).getContent());
+        }
+        return tranche.map(commandeFournisseurMapper::toDTO);
+    }
 
-        commande.setMontantTotal(calculerMontantTotal(lignes));
+    @Transactional(readOnly = true)
+    public CommandeFournisseurDTO getCommandeById(Long id) {
+        return getCommandeVersionnee(id).contenu();
+    }
 
+    @Transactional(readOnly = true)
+    public RessourceVersionnee<CommandeFournisseurDTO> getCommandeVersionnee(Long id) {
+        CommandeFournisseur commande = commandeFournisseurRepository.findDetailById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Commande fournisseur introuvable avec l'id " + id));
+        return new RessourceVersionnee<>(commandeFournisseurMapper.toDTO(commande),
+                VersionRessource.entite(version(commande)));
+    }
+
+    // GET conditionnels : versions de la commande et de son fournisseur, puis des produits de ses lignes,
+    // sans charger ni mapper les commandes
+    @Transactional(readOnly = true)
+    public Optional<VersionRessource> getVersionCommande(Long id) {
+        return commandeFournisseurRepository.findVersionById(id)
+                .map(version -> VersionRessource.entite(completerProduits(List.of(version)).get(0)));
+    }
+
+    @Transactional(readOnly = true)
+    public VersionRessource getVersionCommandes(Pageable pageable) {
+        Page<VersionEntiteDTO> versions = commandeFournisseurRepository.findVersions(pageable);
+        return VersionRessource.page(completerProduits(versions.getContent()), versions.getTotalElements());
+    }
+
+    public CommandeFournisseurDTO createCommande(CommandeFournisseurDTO commandeDTO) {
+        CommandeFournisseur commande = construireCommande(commandeDTO, chargerCatalogue(List.of(commandeDTO)));
         CommandeFournisseur saved = commandeFournisseurRepository.save(commande);
+        commandeSummaryService.enregistrer(saved);
+        depenseService.enregistrer(saved);
         return commandeFournisseurMapper.toDTO(saved);
     }
 
+    // Création en lot : fournisseurs et produits de tout le lot chargés en deux requêtes,
+    // commandes valides insérées ensemble (batch JDBC), commandes invalides signalées une à une
+    public LotCommandesResultatDTO createCommandesEnLot(List<CommandeFournisseurDTO> commandesDTO) {
+        if (commandesDTO == null || commandesDTO.isEmpty()) {
+            throw new BusinessException("Le lot doit contenir au moins une commande");
+        }
+        if (commandesDTO.size() > tailleMaxLot) {
+            throw new BusinessException("Le lot ne peut pas dépasser " + tailleMaxLot + " commandes");
+        }
+
+        Catalogue catalogue = chargerCatalogue(commandesDTO);
+        List<CommandeFournisseur> valides = new ArrayList<>();
+        List<String> erreurs = new ArrayList<>(commandesDTO.size());
+        for (CommandeFournisseurDTO commandeDTO : commandesDTO) {
+            try {
+                valides.add(construireCommande(commandeDTO, catalogue));
+                erreurs.add(null);
+            } catch (BusinessException | ResourceNotFoundException ex) {
+                erreurs.add(ex.getMessage());
+            }
+        }
+
+        List<CommandeFournisseur> enregistrees = commandeFournisseurRepository.saveAll(valides);
+        commandeSummaryService.enregistrerTous(enregistrees);
+        depenseService.enregistrerTous(enregistrees);
+        Iterator<CommandeFournisseur> suivante = enregistrees.iterator();
+        List<CommandeResultatDTO> rapport = new ArrayList<>(commandesDTO.size());
+        for (int index = 0; index < erreurs.size(); index++) {
+            rapport.add(erreurs.get(index) == null
+                    ? new CommandeResultatDTO(index, true, commandeFournisseurMapper.toDTO(suivante.next()), null)
+                    : new CommandeResultatDTO(index, false, null, erreurs.get(index)));
+        }
+        return new LotCommandesResultatDTO(rapport.size(), valides.size(), rapport.size() - valides.size(), rapport);
+    }
+
     public CommandeFournisseurDTO updateStatut(Long commandeId, StatutCommande nouveauStatut) {
-        CommandeFournisseur commande = commandeFournisseurRepository.findById(commandeId)
+        CommandeFournisseur commande = commandeFournisseurRepository.findByIdForUpdate(commandeId)
                 .orElseThrow(() -> new ResourceNotFoundException("Commande fournisseur introuvable avec l'id " + commandeId));
 
         // ancien statut
         StatutCommande ancienStatut = commande.getStatut();
         commande.setStatut(nouveauStatut);
         CommandeFournisseur updated = commandeFournisseurRepository.save(commande);
+        commandeSummaryService.changerStatut(commandeId, nouveauStatut);
+        depenseService.changerStatut(updated, ancienStatut);
 
-        // Si la commande vient de passer à LIVREE: les mouvements de SORTIE
+        // Si la commande vient de passer à LIVREE: les mouvements de SORTIE, en une seule passe
         if (!StatutCommande.LIVREE.equals(ancienStatut) && StatutCommande.LIVREE.equals(nouveauStatut)) {
             if (commande.getLignesCommande() != null) {
-                commande.getLignesCommande().forEach(ligne -> {
-                    MouvementStockDTO mouvement = new MouvementStockDTO();
-                    mouvement.setProduitId(ligne.getProduit().getId());
-                    mouvement.setCommandeFournisseurId(commande.getId());
-                    //  SORTIE car on vend au fournisseur
-                    mouvement.setTypeMouvement(TypeMouvement.SORTIE);
-                    mouvement.setQuantite(ligne.getQuantite());
-
-                    mouvement.setPrixUnitaire(ligne.getPrixUnitaire());
-                    // mouvement.setReference("CMD-VENTE-" + commande.getId());
-
-                    mouvementStockService.enregistrerMouvement(mouvement);
-                });
+                mouvementStockService.enregistrerLivraison(updated);
             }
         }
 
@@ -100,10 +200,11 @@ public class CommandeFournisseurService {
     }
 
     public void deleteCommande(Long id) {
-        if (!commandeFournisseurRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Commande fournisseur introuvable avec l'id " + id);
-        }
-        commandeFournisseurRepository.deleteById(id);
+        CommandeFournisseur commande = commandeFournisseurRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Commande fournisseur introuvable avec l'id " + id));
+        commandeSummaryService.supprimer(id);
+        depenseService.supprimer(commande);
+        commandeFournisseurRepository.delete(commande);
     }
 
     @Transactional(readOnly = true)
@@ -127,34 +228,113 @@ public class CommandeFournisseurService {
         );
     }
 
-    private List<LigneCommande> buildLignesCommande(List<LigneCommandeDTO> lignesDTO, CommandeFournisseur commande) {
+    private Catalogue chargerCatalogue(List<CommandeFournisseurDTO> commandesDTO) {
+        Set<Long> fournisseurIds = commandesDTO.stream()
+                .map(CommandeFournisseurDTO::getFournisseurId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Set<Long> produitIds = commandesDTO.stream()
+                .filter(commandeDTO -> commandeDTO.getLignesCommande() != null)
+                .flatMap(commandeDTO -> commandeDTO.getLignesCommande().stream())
+                .map(LigneCommandeDTO::getProduitId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+
+        Map<Long, Fournisseur> fournisseurs = fournisseurIds.isEmpty()
+                ? Map.of()
+                : fournisseurRepository.findAllById(fournisseurIds).stream()
+                        .collect(Collectors.toMap(Fournisseur::getId, Function.identity()));
+        Map<Long, Produit> produits = produitIds.isEmpty()
+                ? Map.of()
+                : produitRepository.findAllById(produitIds).stream()
+                        .collect(Collectors.toMap(Produit::getId, Function.identity()));
+        return new Catalogue(fournisseurs, produits);
+    }
+
+    // Construction en mémoire, sans requête : prix par défaut du catalogue, sous-totaux et montant total
+    private CommandeFournisseur construireCommande(CommandeFournisseurDTO commandeDTO, Catalogue catalogue) {
+        if (commandeDTO.getFournisseurId() == null) {
+            throw new BusinessException("Le fournisseur est obligatoire");
+        }
+        Fournisseur fournisseur = catalogue.fournisseurs().get(commandeDTO.getFournisseurId());
+        if (fournisseur == null) {
+            throw new ResourceNotFoundException("Fournisseur introuvable avec l'id " + commandeDTO.getFournisseurId());
+        }
+        if (commandeDTO.getDateCommande() == null) {
+            throw new BusinessException("La date de commande est obligatoire");
+        }
+
+        CommandeFournisseur commande = commandeFournisseurMapper.toEntity(commandeDTO);
+        commande.setFournisseur(fournisseur);
+
+        List<LigneCommande> lignes = buildLignesCommande(commandeDTO.getLignesCommande(), commande, catalogue.produits());
+        commande.setLignesCommande(lignes);
+
+        commande.setMontantTotal(calculerMontantTotal(lignes));
+        return commande;
+    }
+
+    private List<LigneCommande> buildLignesCommande(List<LigneCommandeDTO> lignesDTO, CommandeFournisseur commande,
+                                                    Map<Long, Produit> produits) {
         if (lignesDTO == null || lignesDTO.isEmpty()) {
             throw new BusinessException("La commande doit contenir au moins une ligne");
         }
 
         List<LigneCommande> lignes = new ArrayList<>();
         for (LigneCommandeDTO ligneDTO : lignesDTO) {
-            Produit produit = produitRepository.findById(ligneDTO.getProduitId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Produit introuvable avec l'id " + ligneDTO.getProduitId()));
+            if (ligneDTO.getProduitId() == null) {
+                throw new BusinessException("Le produit est obligatoire");
+            }
+            if (ligneDTO.getQuantite() == null || ligneDTO.getQuantite() < 1) {
+                throw new BusinessException("La quantité doit être au moins 1");
+            }
+            Produit produit = produits.get(ligneDTO.getProduitId());
+            if (produit == null) {
+                throw new ResourceNotFoundException("Produit introuvable avec l'id " + ligneDTO.getProduitId());
+            }
 
             LigneCommande ligne = ligneCommandeMapper.toEntity(ligneDTO);
             ligne.setCommandeFournisseur(commande);
             ligne.setProduit(produit);
+            ligne.setCategorie(produit.getCategorie());
 
             BigDecimal prixUnitaire = ligneDTO.getPrixUnitaire() != null
                     ? ligneDTO.getPrixUnitaire()
                     : produit.getPrixUnitaire();
             ligne.setPrixUnitaire(prixUnitaire);
 
-            ligne.calculerSousTotal();  
+            ligne.calculerSousTotal();
             lignes.add(ligne);
         }
         return lignes;
     }
 
     private BigDecimal calculerMontantTotal(List<LigneCommande> lignes) {
-        return lignes.stream()
-                .map(LigneCommande::getSousTotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return Montant.somme(lignes, LigneCommande::getSousTotal);
+    }
+
+    private List<VersionEntiteDTO> completerProduits(List<VersionEntiteDTO> versions) {
+        if (versions.isEmpty()) {
+            return versions;
+        }
+        Map<Long, VersionEntiteDTO> parCommande = versions.stream()
+                .collect(Collectors.toMap(VersionEntiteDTO::getId, Function.identity()));
+        commandeFournisseurRepository.findModificationsProduits(parCommande.keySet())
+                .forEach(produits -> parCommande.get(produits.getId()).setModificationProduits(produits.getModification()));
+        return versions;
+    }
+
+    // Mêmes valeurs que les requêtes de versions : commande, fournisseur, produit des lignes modifié en dernier
+    private VersionEntiteDTO version(CommandeFournisseur commande) {
+        LocalDateTime modificationProduits = commande.getLignesCommande().stream()
+                .map(ligne -> ligne.getProduit().getUpdatedAt())
+                .filter(Objects::nonNull)
+                .max(LocalDateTime::compareTo)
+                .orElse(null);
+        return new VersionEntiteDTO(commande.getId(), commande.getUpdatedAt(),
+                commande.getFournisseur().getUpdatedAt(), modificationProduits);
+    }
+
+    private record Catalogue(Map<Long, Fournisseur> fournisseurs, Map<Long, Produit> produits) {
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,90 @@
+package com.example.gestion_approvisionnements.service;
+
+import com.example.gestion_approvisionnements.dto.CommandeSummaryDTO;
+import com.example.gestion_approvisionnements.entity.CommandeFournisseur;
+import com.example.gestion_approvisionnements.entity.CommandeSummary;
+import com.example.gestion_approvisionnements.enums.StatutCommande;
+import com.example.gestion_approvisionnements.mapper.CommandeSummaryMapper;
+import com.example.gestion_approvisionnements.repository.CommandeSummaryRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Mises à jour obligatoirement dans la transaction de l'écriture source : le résumé ne peut pas diverger
+@Service
+@RequiredArgsConstructor
+@Transactional(propagation = Propagation.MANDATORY)
+public class CommandeSummaryService {
+
+    private final CommandeSummaryRepository commandeSummaryRepository;
+    private final CommandeSummaryMapper commandeSummaryMapper;
+    private final VerrouCommandesService verrouCommandesService;
+
+    public void enregistrer(CommandeFournisseur commande) {
+        commandeSummaryRepository.save(resumer(commande));
+    }
+
+    public void enregistrerTous(List<CommandeFournisseur> commandes) {
+        commandeSummaryRepository.saveAll(commandes.stream().map(this::resumer).toList());
+    }
+
+    public void changerStatut(Long commandeId, StatutCommande statut) {
+        commandeSummaryRepository.changerStatut(commandeId, statut);
+    }
+
+    public void supprimer(Long commandeId) {
+        commandeSummaryRepository.supprimer(commandeId);
+    }
+
+    public void renommerFournisseur(Long fournisseurId, String societe) {
+        commandeSummaryRepository.renommerFournisseur(fournisseurId, societe);
+    }
+
+    @Transactional(readOnly = true)
+    public Page<CommandeSummaryDTO> getSummaries(Pageable pageable) {
+        return commandeSummaryRepository.findAll(pageable).map(commandeSummaryMapper::toDTO);
+    }
+
+    @Transactional(readOnly = true)
+    public Page<CommandeSummaryDTO> getSummariesParStatut(StatutCommande statut, Pageable pageable) {
+        return commandeSummaryRepository.findByStatut(statut, pageable).map(commandeSummaryMapper::toDTO);
+    }
+
+    @Transactional(readOnly = true)
+    public Page<CommandeSummaryDTO> getSummariesParFournisseur(Long fournisseurId, Pageable pageable) {
+        return commandeSummaryRepository.findByFournisseurId(fournisseurId, pageable).map(commandeSummaryMapper::toDTO);
+    }
+
+    @Transactional(readOnly = true)
+    public Page<CommandeSummaryDTO> getSummariesParPeriode(LocalDate debut, LocalDate fin, Pageable pageable) {
+        return commandeSummaryRepository.findByDateCommandeBetween(debut, fin, pageable).map(commandeSummaryMapper::toDTO);
+    }
+
+    // Régénère tout le modèle de lecture depuis les commandes, en une transaction. Écritures de commandes et de
+    // fournisseurs suspendues jusqu'au commit : une création concurrente n'est ni perdue ni insérée en double.
+    @Transactional
+    public int reconstruire() {
+        verrouCommandesService.verrouillerEcritures();
+        commandeSummaryRepository.deleteAllInBatch();
+        return commandeSummaryRepository.reconstruire();
+    }
+
+    private CommandeSummary resumer(CommandeFournisseur commande) {
+        CommandeSummary summary = new CommandeSummary();
+        summary.setId(commande.getId());
+        summary.setDateCommande(commande.getDateCommande());
+        summary.setStatut(commande.getStatut());
+        summary.setFournisseurId(commande.getFournisseur().getId());
+        summary.setFournisseurSociete(commande.getFournisseur().getSociete());
+        summary.setMontantTotal(commande.getMontantTotal());
+        summary.setNombreLignes(commande.getLignesCommande() != null ? commande.getLignesCommande().size() : 0);
+        summary.setNouveau(true);
+        return summary;
+    }
+}
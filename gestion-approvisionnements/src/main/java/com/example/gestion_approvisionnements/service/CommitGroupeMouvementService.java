@@ -0,0 +1,215 @@
+package com.example.gestion_approvisionnements.service;
+
+import com.example.gestion_approvisionnements.dto.MouvementStockDTO;
+import com.example.gestion_approvisionnements.exception.BusinessException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Commit groupé des mouvements unitaires : les demandes arrivées pendant une fenêtre courte sont
+// appliquées par un seul thread dans une seule transaction, et chaque appelant n'est acquitté
+// qu'après le commit de son groupe. Désactivé par défaut (stock.commit-groupe.actif).
+@Service
+@RequiredArgsConstructor
+public class CommitGroupeMouvementService {
+
+    private final MouvementStockService mouvementStockService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${stock.commit-groupe.actif:false}")
+    private boolean actif;
+
+    @Value("${stock.commit-groupe.fenetre-ms:2}")
+    private long fenetreMs;
+
+    @Value("${stock.commit-groupe.taille-max:200}")
+    private int tailleMax;
+
+    @Value("${stock.commit-groupe.capacite-file:10000}")
+    private int capaciteFile;
+
+    @Value("${stock.commit-groupe.attente-file-max-ms:1000}")
+    private long attenteFileMaxMs;
+
+    @Value("${stock.commit-groupe.attente-resultat-max-ms:10000}")
+    private long attenteResultatMaxMs;
+
+    private BlockingQueue<Demande> file;
+    private Thread committeur;
+    private volatile boolean enService;
+
+    private DistributionSummary tailleGroupes;
+    private Timer attenteFile;
+    private Timer dureeCommit;
+
+    @PostConstruct
+    void demarrer() {
+        if (!actif) {
+            return;
+        }
+        file = new ArrayBlockingQueue<>(capaciteFile);
+        tailleGroupes = DistributionSummary.builder("stock.commit_groupe.taille")
+                .description("Nombre de mouvements validés par transaction")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        attenteFile = Timer.builder("stock.commit_groupe.attente_file")
+                .description("Attente d'un mouvement dans la file avant le début de son groupe")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        dureeCommit = Timer.builder("stock.commit_groupe.duree")
+                .description("Application et commit d'un groupe")
+                .register(meterRegistry);
+        meterRegistry.gauge("stock.commit_groupe.file", file, BlockingQueue::size);
+
+        enService = true;
+        committeur = new Thread(this::boucler, "commit-groupe-mouvements");
+        committeur.setDaemon(true);
+        committeur.start();
+    }
+
+    @PreDestroy
+    void arreter() throws InterruptedException {
+        if (committeur == null) {
+            return;
+        }
+        enService = false;
+        committeur.join(TimeUnit.SECONDS.toMillis(5));
+        // Demandes déposées pendant l'arrêt, ou laissées par un committeur encore bloqué : jamais appliquées
+        List<Demande> restantes = new ArrayList<>();
+        file.drainTo(restantes);
+        BusinessException arret = new BusinessException("Service en cours d'arrêt, mouvement non enregistré");
+        restantes.forEach(demande -> demande.resultat().completeExceptionally(arret));
+    }
+
+    public MouvementStockDTO enregistrer(MouvementStockDTO mouvementDTO) {
+        // Hors mode groupé, ou dans la transaction d'un appelant, on reste sur le chemin unitaire
+        if (!actif || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return mouvementStockService.enregistrerMouvement(mouvementDTO);
+        }
+
+        if (!enService) {
+            throw new BusinessException("Service en cours d'arrêt, mouvement non enregistré");
+        }
+        Demande demande = new Demande(mouvementDTO, new CompletableFuture<>(), System.nanoTime());
+        try {
+            if (!file.offer(demande, attenteFileMaxMs, TimeUnit.MILLISECONDS)) {
+                throw new BusinessException("File des mouvements saturée, veuillez réessayer");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("Enregistrement du mouvement interrompu");
+        }
+
+        try {
+            return demande.resultat().get(attenteResultatMaxMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (ex.getCause() instanceof Error erreur) {
+                throw erreur;
+            }
+            throw new IllegalStateException(ex.getCause());
+        } catch (TimeoutException ex) {
+            meterRegistry.counter("stock.commit_groupe.delais_depasses").increment();
+            // Encore en file : retirée, elle ne sera jamais appliquée. Sinon son groupe est en cours de commit.
+            if (file.remove(demande)) {
+                throw new BusinessException("Mouvement non enregistré dans le délai, veuillez réessayer");
+            }
+            throw new BusinessException("Enregistrement du mouvement non confirmé dans le délai : "
+                    + "vérifier l'historique du produit avant de réessayer");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("Enregistrement du mouvement interrompu");
+        }
+    }
+
+    private void boucler() {
+        // Vidage de la file à l'arrêt : aucun appelant ne reste sans réponse
+        while (enService || !file.isEmpty()) {
+            List<Demande> groupe = List.of();
+            try {
+                groupe = collecterGroupe();
+                if (!groupe.isEmpty()) {
+                    valider(groupe);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Throwable ex) {
+                // Le committeur survit à un groupe en échec ; ses appelants encore en attente le reçoivent
+                for (Demande demande : groupe) {
+                    demande.resultat().completeExceptionally(ex);
+                }
+            }
+        }
+    }
+
+    // Le groupe part dès qu'il est plein, ou quand la fenêtre ouverte par sa première demande se referme
+    private List<Demande> collecterGroupe() throws InterruptedException {
+        List<Demande> groupe = new ArrayList<>();
+        Demande premiere = file.poll(100, TimeUnit.MILLISECONDS);
+        if (premiere == null) {
+            return groupe;
+        }
+        groupe.add(premiere);
+
+        long echeance = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(fenetreMs);
+        while (groupe.size() < tailleMax) {
+            long reste = echeance - System.nanoTime();
+            Demande suivante = reste > 0 ? file.poll(reste, TimeUnit.NANOSECONDS) : null;
+            if (suivante == null) {
+                file.drainTo(groupe, tailleMax - groupe.size());
+                break;
+            }
+            groupe.add(suivante);
+        }
+        return groupe;
+    }
+
+    private void valider(List<Demande> groupe) {
+        long debut = System.nanoTime();
+        tailleGroupes.record(groupe.size());
+        for (Demande demande : groupe) {
+            attenteFile.record(debut - demande.soumiseA(), TimeUnit.NANOSECONDS);
+        }
+
+        List<ResultatMouvement> resultats;
+        try {
+            resultats = mouvementStockService.enregistrerGroupe(groupe.stream().map(Demande::mouvement).toList());
+        } catch (RuntimeException ex) {
+            // Échec du commit lui-même : aucune demande du groupe n'est enregistrée
+            groupe.forEach(demande -> demande.resultat().completeExceptionally(ex));
+            return;
+        } finally {
+            dureeCommit.record(System.nanoTime() - debut, TimeUnit.NANOSECONDS);
+        }
+
+        for (int i = 0; i < groupe.size(); i++) {
+            ResultatMouvement resultat = resultats.get(i);
+            if (resultat.erreur() == null) {
+                groupe.get(i).resultat().complete(resultat.mouvement());
+            } else {
+                groupe.get(i).resultat().completeExceptionally(resultat.erreur());
+            }
+        }
+    }
+
+    private record Demande(MouvementStockDTO mouvement, CompletableFuture<MouvementStockDTO> resultat, long soumiseA) {
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.gestion_approvisionnements.service;
+
+import com.example.gestion_approvisionnements.dto.MouvementStockDTO;
+import com.example.gestion_approvisionnements.exception.BusinessException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Comparator;
+
+// Position dans l'historique des mouvements : dernier (date_mouvement, id) renvoyé, encodé pour le client
+record CurseurMouvement(LocalDateTime dateMouvement, Long id) {
+
+    private static final String SEPARATEUR = "|";
+
+    static final Comparator<MouvementStockDTO> ORDRE =
+            Comparator.comparing(MouvementStockDTO::getDateMouvement).thenComparing(MouvementStockDTO::getId);
+
+    static CurseurMouvement apres(MouvementStockDTO mouvement) {
+        return new CurseurMouvement(mouvement.getDateMouvement(), mouvement.getId());
+    }
+
+    // Position juste avant le premier mouvement du jour
+    static CurseurMouvement avant(LocalDate date) {
+        return new CurseurMouvement(date.atStartOfDay(), Long.MIN_VALUE);
+    }
+
+    boolean precede(MouvementStockDTO mouvement) {
+        int comparaison = dateMouvement.compareTo(mouvement.getDateMouvement());
+        return comparaison < 0 || comparaison == 0 && id < mouvement.getId();
+    }
+
+    static CurseurMouvement decoder(String valeur) {
+        try {
+            String brut = new String(Base64.getUrlDecoder().decode(valeur), StandardCharsets.UTF_8);
+            int position = brut.lastIndexOf(SEPARATEUR);
+            return new CurseurMouvement(LocalDateTime.parse(brut.substring(0, position)),
+                    Long.valueOf(brut.substring(position + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException ex) {
+            throw new BusinessException("Curseur de pagination invalide");
+        }
+    }
+
+    String encoder() {
+        String brut = dateMouvement + SEPARATEUR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(brut.getBytes(StandardCharsets.UTF_8));
+    }
+}
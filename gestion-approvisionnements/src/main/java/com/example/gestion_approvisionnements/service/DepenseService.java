@@ -0,0 +1,187 @@
+package com.example.gestion_approvisionnements.service;
+
+import com.example.gestion_approvisionnements.dto.DepenseCategorieDTO;
+import com.example.gestion_approvisionnements.dto.DepenseFournisseurDTO;
+import com.example.gestion_approvisionnements.dto.MontantCategorieDTO;
+import com.example.gestion_approvisionnements.dto.ReconstructionDepensesDTO;
+import com.example.gestion_approvisionnements.entity.CommandeFournisseur;
+import com.example.gestion_approvisionnements.entity.DepenseCategorie;
+import com.example.gestion_approvisionnements.entity.DepenseCategorieId;
+import com.example.gestion_approvisionnements.entity.DepenseFournisseurId;
+import com.example.gestion_approvisionnements.entity.LigneCommande;
+import com.example.gestion_approvisionnements.enums.StatutCommande;
+import com.example.gestion_approvisionnements.exception.BusinessException;
+import com.example.gestion_approvisionnements.repository.DepenseCategorieRepository;
+import com.example.gestion_approvisionnements.repository.DepenseFournisseurRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Agrégats de dépenses (depense_fournisseur, depense_categorie) incrémentés dans la transaction de l'écriture
+// de commande : les analyses lisent quelques lignes par mois au lieu de parcourir l'historique des commandes
+@Service
+@RequiredArgsConstructor
+@Transactional(propagation = Propagation.MANDATORY)
+public class DepenseService {
+
+    // Sans statut demandé, les commandes annulées ne comptent pas dans la dépense
+    private static final Set<StatutCommande> STATUTS_ENGAGES = EnumSet.complementOf(EnumSet.of(StatutCommande.ANNULEE));
+
+    private final DepenseFournisseurRepository depenseFournisseurRepository;
+    private final DepenseCategorieRepository depenseCategorieRepository;
+    private final VerrouCommandesService verrouCommandesService;
+
+    public void enregistrer(CommandeFournisseur commande) {
+        enregistrerTous(List.of(commande));
+    }
+
+    // Lignes et produits déjà en mémoire à la création : incréments cumulés par clé, une mise à jour par clé du lot
+    public void enregistrerTous(List<CommandeFournisseur> commandes) {
+        Map<DepenseFournisseurId, Increment> fournisseurs = new HashMap<>();
+        Map<DepenseCategorieId, Increment> categories = new HashMap<>();
+        for (CommandeFournisseur commande : commandes) {
+            LocalDate mois = mois(commande.getDateCommande());
+            fournisseurs.merge(new DepenseFournisseurId(commande.getFournisseur().getId(), mois, commande.getStatut()),
+                    new Increment(1, montant(commande.getMontantTotal())), Increment::plus);
+
+            Map<String, BigDecimal> parCategorie = new HashMap<>();
+            for (LigneCommande ligne : commande.getLignesCommande()) {
+                parCategorie.merge(categorie(ligne.getCategorie()), montant(ligne.getSousTotal()), BigDecimal::add);
+            }
+            parCategorie.forEach((categorie, montant) -> categories.merge(
+                    new DepenseCategorieId(categorie, mois, commande.getStatut()), new Increment(1, montant),
+                    Increment::plus));
+        }
+        appliquer(fournisseurs, categories);
+    }
+
+    // La commande passe d'un statut à l'autre : ses montants quittent l'ancienne ligne pour la nouvelle
+    public void changerStatut(CommandeFournisseur commande, StatutCommande ancienStatut) {
+        StatutCommande nouveauStatut = commande.getStatut();
+        if (ancienStatut == nouveauStatut) {
+            return;
+        }
+        LocalDate mois = mois(commande.getDateCommande());
+        Long fournisseurId = commande.getFournisseur().getId();
+        Increment increment = new Increment(1, montant(commande.getMontantTotal()));
+
+        Map<DepenseFournisseurId, Increment> fournisseurs = new HashMap<>();
+        fournisseurs.put(new DepenseFournisseurId(fournisseurId, mois, ancienStatut), increment.oppose());
+        fournisseurs.put(new DepenseFournisseurId(fournisseurId, mois, nouveauStatut), increment);
+
+        Map<DepenseCategorieId, Increment> categories = new HashMap<>();
+        for (MontantCategorieDTO montant : depenseCategorieRepository.findMontantsParCommande(commande.getId())) {
+            Increment parCategorie = new Increment(1, montant(montant.getMontant()));
+            String categorie = categorie(montant.getCategorie());
+            categories.put(new DepenseCategorieId(categorie, mois, ancienStatut), parCategorie.oppose());
+            categories.put(new DepenseCategorieId(categorie, mois, nouveauStatut), parCategorie);
+        }
+        appliquer(fournisseurs, categories);
+    }
+
+    // À appeler avant la suppression : les montants retirés sont relus depuis les lignes de la commande
+    public void supprimer(CommandeFournisseur commande) {
+        Map<DepenseFournisseurId, Increment> fournisseurs = Map.of(
+                new DepenseFournisseurId(commande.getFournisseur().getId(), mois(commande.getDateCommande()),
+                        commande.getStatut()),
+                new Increment(-1, montant(commande.getMontantTotal()).negate()));
+        appliquer(fournisseurs, retraits(depenseCategorieRepository.findMontantsParCommande(commande.getId())));
+    }
+
+    // Suppression d'un fournisseur et, en cascade, de ses commandes
+    public void supprimerFournisseur(Long fournisseurId) {
+        depenseFournisseurRepository.supprimerFournisseur(fournisseurId);
+        appliquer(Map.of(), retraits(depenseCategorieRepository.findMontantsParFournisseur(fournisseurId)));
+    }
+
+    @Transactional(readOnly = true)
+    public List<DepenseFournisseurDTO> getDepensesParFournisseur(YearMonth debut, YearMonth fin, StatutCommande statut,
+                                                                 Long fournisseurId) {
+        verifierPeriode(debut, fin);
+        return depenseFournisseurRepository.findParMois(debut.atDay(1), fin.atDay(1), statuts(statut), fournisseurId);
+    }
+
+    @Transactional(readOnly = true)
+    public List<DepenseFournisseurDTO> getTotauxParFournisseur(YearMonth debut, YearMonth fin, StatutCommande statut) {
+        verifierPeriode(debut, fin);
+        return depenseFournisseurRepository.findTotaux(debut.atDay(1), fin.atDay(1), statuts(statut));
+    }
+
+    @Transactional(readOnly = true)
+    public List<DepenseCategorieDTO> getDepensesParCategorie(YearMonth debut, YearMonth fin, StatutCommande statut) {
+        verifierPeriode(debut, fin);
+        return depenseCategorieRepository.findParMois(debut.atDay(1), fin.atDay(1), statuts(statut));
+    }
+
+    // Régénère les deux agrégats depuis les commandes, en une transaction.
+    // Écritures de commandes suspendues jusqu'au commit : une commande créée pendant la reconstruction n'est pas
+    // comptée deux fois, une commande modifiée n'est pas décomptée d'un agrégat qui ne la contient pas encore.
+    @Transactional
+    public ReconstructionDepensesDTO reconstruire() {
+        verrouCommandesService.verrouillerEcritures();
+        depenseFournisseurRepository.deleteAllInBatch();
+        depenseCategorieRepository.deleteAllInBatch();
+        return new ReconstructionDepensesDTO(depenseFournisseurRepository.reconstruire(),
+                depenseCategorieRepository.reconstruire(DepenseCategorie.SANS_CATEGORIE));
+    }
+
+    private Map<DepenseCategorieId, Increment> retraits(List<MontantCategorieDTO> montants) {
+        Map<DepenseCategorieId, Increment> categories = new HashMap<>();
+        for (MontantCategorieDTO montant : montants) {
+            categories.merge(new DepenseCategorieId(categorie(montant.getCategorie()), mois(montant.getDateCommande()),
+                    montant.getStatut()), new Increment(-1, montant(montant.getMontant()).negate()), Increment::plus);
+        }
+        return categories;
+    }
+
+    private void appliquer(Map<DepenseFournisseurId, Increment> fournisseurs,
+                           Map<DepenseCategorieId, Increment> categories) {
+        fournisseurs.forEach((cle, increment) -> depenseFournisseurRepository.ajouter(
+                cle.getFournisseurId(), cle.getMois(), cle.getStatut(), increment.nombre(), increment.montant()));
+        categories.forEach((cle, increment) -> depenseCategorieRepository.ajouter(
+                cle.getCategorie(), cle.getMois(), cle.getStatut(), increment.nombre(), increment.montant()));
+    }
+
+    private void verifierPeriode(YearMonth debut, YearMonth fin) {
+        if (debut.isAfter(fin)) {
+            throw new BusinessException("Le mois de début doit précéder le mois de fin");
+        }
+    }
+
+    private Set<StatutCommande> statuts(StatutCommande statut) {
+        return statut != null ? EnumSet.of(statut) : STATUTS_ENGAGES;
+    }
+
+    private static LocalDate mois(LocalDate date) {
+        return date.withDayOfMonth(1);
+    }
+
+    private static String categorie(String categorie) {
+        return categorie != null ? categorie : DepenseCategorie.SANS_CATEGORIE;
+    }
+
+    private static BigDecimal montant(BigDecimal montant) {
+        return montant != null ? montant : BigDecimal.ZERO;
+    }
+
+    private record Increment(long nombre, BigDecimal montant) {
+
+        Increment plus(Increment autre) {
+            return new Increment(nombre + autre.nombre, montant.add(autre.montant));
+        }
+
+        Increment oppose() {
+            return new Increment(-nombre, montant.negate());
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.gestion_approvisionnements.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Diffusion aux autres instances des produits et fournisseurs modifiés, par NOTIFY PostgreSQL (PostgreSQL
+// uniquement, referentiel.invalidation.actif). Un seul envoi par transaction, juste avant son commit et sur sa
+// connexion : PostgreSQL ne délivre les notifications qu'au commit et les abandonne au rollback.
+// Message : "<instance>;<P|F|S>;<id>,<id>,...", découpé sous la limite de 8 000 octets de NOTIFY.
+// Stock et CUMP seuls (S, mouvements) : pas d'envoi par transaction, les id commités sont regroupés et diffusés
+// en un message par intervalle (referentiel.invalidation.stocks.intervalle-ms), délai de propagation borné d'autant.
+@Service
+@RequiredArgsConstructor
+public class DiffusionInvalidationService {
+
+    static final String PRODUITS = "P";
+    static final String FOURNISSEURS = "F";
+    static final String STOCKS = "S";
+    static final String SEPARATEUR = ";";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+
+    // Identifiant de cette instance : ses propres messages lui reviennent et sont ignorés
+    private final String instance = UUID.randomUUID().toString();
+
+    @Value("${referentiel.invalidation.actif:false}")
+    private boolean actif;
+
+    @Value("${referentiel.invalidation.canal:referentiel_invalidation}")
+    private String canal;
+
+    @Value("${referentiel.invalidation.taille-message-max:7000}")
+    private int tailleMessageMax;
+
+    private final Set<Long> stocksEnAttente = ConcurrentHashMap.newKeySet();
+
+    public String getInstance() {
+        return instance;
+    }
+
+    public void publierProduits(Collection<Long> ids) {
+        publier(PRODUITS, ids);
+    }
+
+    public void publierFournisseurs(Collection<Long> ids) {
+        publier(FOURNISSEURS, ids);
+    }
+
+    // Retenus jusqu'au commit : un id diffusé avant serait relu à l'état d'avant par les autres instances
+    public void publierStocks(Collection<Long> ids) {
+        if (!actif || ids.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            stocksEnAttente.addAll(ids);
+            return;
+        }
+        List<Long> copie = List.copyOf(ids);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                stocksEnAttente.addAll(copie);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${referentiel.invalidation.stocks.intervalle-ms:200}")
+    public void diffuserStocks() {
+        if (stocksEnAttente.isEmpty()) {
+            return;
+        }
+        // Un id ajouté pendant le parcours part ici ou au tour suivant, jamais perdu
+        Set<Long> ids = new LinkedHashSet<>();
+        for (Iterator<Long> iterateur = stocksEnAttente.iterator(); iterateur.hasNext(); ) {
+            ids.add(iterateur.next());
+            iterateur.remove();
+        }
+        try {
+            envoyer(Map.of(STOCKS, ids));
+        } catch (RuntimeException ex) {
+            stocksEnAttente.addAll(ids);
+            throw ex;
+        }
+    }
+
+    private void publier(String type, Collection<Long> ids) {
+        if (!actif || ids.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            envoyer(Map.of(type, new LinkedHashSet<>(ids)));
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<String, Set<Long>> lot = (Map<String, Set<Long>>) TransactionSynchronizationManager.getResource(this);
+        if (lot == null) {
+            Map<String, Set<Long>> nouveauLot = new LinkedHashMap<>();
+            lot = nouveauLot;
+            TransactionSynchronizationManager.bindResource(this, nouveauLot);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    envoyer(nouveauLot);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(DiffusionInvalidationService.this);
+                }
+            });
+        }
+        lot.computeIfAbsent(type, cle -> new LinkedHashSet<>()).addAll(ids);
+    }
+
+    private void envoyer(Map<String, Set<Long>> lot) {
+        lot.forEach((type, ids) -> {
+            for (String message : messages(type, ids)) {
+                jdbcTemplate.queryForObject("SELECT pg_notify(?, ?)", Object.class, canal, message);
+                meterRegistry.counter("referentiel.invalidation.publiees", "type", type).increment();
+            }
+        });
+    }
+
+    List<String> messages(String type, Collection<Long> ids) {
+        String entete = instance + SEPARATEUR + type + SEPARATEUR;
+        List<String> messages = new ArrayList<>();
+        StringBuilder message = new StringBuilder(entete);
+        for (Long id : ids) {
+            String valeur = id.toString();
+            if (message.length() > entete.length() && message.length() + 1 + valeur.length() > tailleMessageMax) {
+                messages.add(message.toString());
+                message = new StringBuilder(entete);
+            }
+            if (message.length() > entete.length()) {
+                message.append(',');
+            }
+            message.append(valeur);
+        }
+        messages.add(message.toString());
+        return messages;
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.gestion_approvisionnements.service;
+
+import com.example.gestion_approvisionnements.entity.Fournisseur;
+import com.example.gestion_approvisionnements.entity.Produit;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Cache;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+// Écoute des invalidations diffusées par les autres instances (DiffusionInvalidationService) sur une connexion
+// dédiée, hors pool : LISTEN la garde ouverte en permanence. Les produits et fournisseurs reçus sont retirés du
+// cache local et du cache de second niveau ; les ICE des fournisseurs sont relus pour l'index des ICE.
+// Les notifications émises pendant une coupure sont perdues : à chaque (re)connexion, les caches et l'index
+// sont vidés entièrement avant de reprendre l'écoute.
+@Service
+@RequiredArgsConstructor
+public class EcouteInvalidationService {
+
+    private final DiffusionInvalidationService diffusionInvalidationService;
+    private final CacheReferentielService cacheReferentielService;
+    private final IndexIceService indexIceService;
+    private final EntityManagerFactory entityManagerFactory;
+    private final DataSourceProperties dataSourceProperties;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${referentiel.invalidation.actif:false}")
+    private boolean actif;
+
+    @Value("${referentiel.invalidation.canal:referentiel_invalidation}")
+    private String canal;
+
+    @Value("${referentiel.invalidation.attente-ms:500}")
+    private int attenteMs;
+
+    @Value("${referentiel.invalidation.delai-reconnexion-ms:2000}")
+    private long delaiReconnexionMs;
+
+    private Thread ecouteur;
+    private volatile boolean enService;
+
+    @PostConstruct
+    void demarrer() {
+        if (!actif) {
+            return;
+        }
+        // LISTEN n'accepte pas de paramètre : le nom du canal est concaténé, il doit être un identifiant simple
+        if (!canal.matches("[a-z_][a-z0-9_]*")) {
+            throw new IllegalStateException("Canal d'invalidation invalide : " + canal);
+        }
+        enService = true;
+        ecouteur = new Thread(this::boucler, "ecoute-invalidation-referentiel");
+        ecouteur.setDaemon(true);
+        ecouteur.start();
+    }
+
+    @PreDestroy
+    void arreter() throws InterruptedException {
+        if (ecouteur == null) {
+            return;
+        }
+        enService = false;
+        ecouteur.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    private void boucler() {
+        boolean premiereConnexion = true;
+        while (enService) {
+            try (Connection nouvelle = ouvrirConnexion()) {
+                try (Statement statement = nouvelle.createStatement()) {
+                    statement.execute("LISTEN " + canal);
+                }
+                if (!premiereConnexion) {
+                    meterRegistry.counter("referentiel.invalidation.reconnexions").increment();
+                }
+                premiereConnexion = false;
+                // Écoute en place : tout ce qui a pu être manqué avant est écarté d'un coup
+                vider();
+
+                PGConnection pgConnection = nouvelle.unwrap(PGConnection.class);
+                while (enService) {
+                    PGNotification[] notifications = pgConnection.getNotifications(attenteMs);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            recevoir(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException | RuntimeException ex) {
+                // Connexion perdue ou vidage en échec : nouvelle connexion, qui vide à nouveau les caches
+                if (enService) {
+                    attendreReconnexion();
+                }
+            }
+        }
+    }
+
+    private Connection ouvrirConnexion() throws SQLException {
+        Properties proprietes = new Properties();
+        if (dataSourceProperties.determineUsername() != null) {
+            proprietes.setProperty("user", dataSourceProperties.determineUsername());
+        }
+        if (dataSourceProperties.determinePassword() != null) {
+            proprietes.setProperty("password", dataSourceProperties.determinePassword());
+        }
+        proprietes.setProperty("ApplicationName", "invalidation-referentiel");
+        return DriverManager.getConnection(dataSourceProperties.determineUrl(), proprietes);
+    }
+
+    private void attendreReconnexion() {
+        try {
+            Thread.sleep(delaiReconnexionMs);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            enService = false;
+        }
+    }
+
+    // Une invalidation en échec ne doit ni arrêter l'écoute ni laisser d'entrée périmée : tout est écarté
+    void recevoir(String message) {
+        try {
+            traiter(message);
+        } catch (RuntimeException ex) {
+            meterRegistry.counter("referentiel.invalidation.echecs").increment();
+            vider();
+        }
+    }
+
+    void traiter(String message) {
+        String[] parties = message.split(DiffusionInvalidationService.SEPARATEUR, 3);
+        if (parties.length != 3) {
+            vider();
+            return;
+        }
+        if (parties[0].equals(diffusionInvalidationService.getInstance())) {
+            return;
+        }
+
+        List<Long> ids = new ArrayList<>();
+        try {
+            for (String id : parties[2].split(",")) {
+                ids.add(Long.valueOf(id));
+            }
+        } catch (NumberFormatException ex) {
+            vider();
+            return;
+        }
+
+        Cache cache = entityManagerFactory.getCache().unwrap(Cache.class);
+        switch (parties[1]) {
+            case DiffusionInvalidationService.PRODUITS -> {
+                cacheReferentielService.evincerProduits(ids);
+                ids.forEach(id -> cache.evictEntityData(Produit.class, id));
+                // Résultats de la recherche par catégorie : l'horodatage des tables n'est tenu qu'en local
+                cache.evictDefaultQueryRegion();
+            }
+            // Stock et CUMP seuls : ni la catégorie ni les id des résultats de recherche ne changent
+            case DiffusionInvalidationService.STOCKS -> {
+                cacheReferentielService.evincerProduits(ids);
+                ids.forEach(id -> cache.evictEntityData(Produit.class, id));
+            }
+            case DiffusionInvalidationService.FOURNISSEURS -> {
+                cacheReferentielService.evincerFournisseurs(ids);
+                ids.forEach(id -> cache.evictEntityData(Fournisseur.class, id));
+                indexIceService.rafraichir(ids);
+            }
+            default -> {
+                vider();
+                return;
+            }
+        }
+        meterRegistry.counter("referentiel.invalidation.recues", "type", parties[1]).increment();
+    }
+
+    private void vider() {
+        cacheReferentielService.vider();
+        indexIceService.vider();
+        entityManagerFactory.getCache().evictAll();
+        meterRegistry.counter("referentiel.invalidation.vidages").increment();
+    }
+}
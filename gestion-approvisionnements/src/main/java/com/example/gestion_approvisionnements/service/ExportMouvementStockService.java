@@ -0,0 +1,103 @@
+package com.example.gestion_approvisionnements.service;
+
+import com.example.gestion_approvisionnements.dto.MouvementStockDTO;
+import com.example.gestion_approvisionnements.entity.MouvementStock;
+import com.example.gestion_approvisionnements.enums.FormatExport;
+import com.example.gestion_approvisionnements.enums.TypeMouvement;
+import com.example.gestion_approvisionnements.exception.BusinessException;
+import com.example.gestion_approvisionnements.mapper.MouvementStockMapper;
+import com.example.gestion_approvisionnements.repository.MouvementStockRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@Service
+@RequiredArgsConstructor
+public class ExportMouvementStockService {
+
+    private static final String ENTETE_CSV =
+            "id,date_mouvement,type_mouvement,quantite,prix_unitaire,stock_apres_mouvement,produit_id,produit_nom,commande_fournisseur_id";
+
+    private final MouvementStockRepository mouvementStockRepository;
+    private final MouvementStockMapper mouvementStockMapper;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+
+    public void verifierPeriode(LocalDate debut, LocalDate fin) {
+        if (debut != null && fin != null && fin.isBefore(debut)) {
+            throw new BusinessException("La date de fin doit être postérieure ou égale à la date de début");
+        }
+    }
+
+    // Écrit au fil de la lecture : aucune liste intermédiaire, chaque entité est détachée une fois écrite
+    @Transactional(readOnly = true)
+    public long exporter(FormatExport format, Long produitId, TypeMouvement type,
+                         LocalDate debut, LocalDate fin, OutputStream sortie) throws IOException {
+        LocalDateTime debutInclus = debut != null ? debut.atStartOfDay() : null;
+        LocalDateTime finExclue = fin != null ? fin.plusDays(1).atStartOfDay() : null;
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(sortie, StandardCharsets.UTF_8));
+        if (format == FormatExport.CSV) {
+            writer.write(ENTETE_CSV);
+            writer.write('\n');
+        }
+
+        long lignes = 0;
+        try (Stream<MouvementStock> mouvements =
+                     mouvementStockRepository.streamPourExport(produitId, type, debutInclus, finExclue)) {
+            Iterator<MouvementStock> iterateur = mouvements.iterator();
+            while (iterateur.hasNext()) {
+                MouvementStock mouvement = iterateur.next();
+                MouvementStockDTO dto = mouvementStockMapper.toDTO(mouvement);
+                entityManager.detach(mouvement);
+
+                writer.write(format == FormatExport.CSV ? ligneCsv(dto) : objectMapper.writeValueAsString(dto));
+                writer.write('\n');
+                lignes++;
+            }
+        }
+        writer.flush();
+        return lignes;
+    }
+
+    private String ligneCsv(MouvementStockDTO dto) {
+        return String.join(",",
+                valeur(dto.getId()),
+                valeur(dto.getDateMouvement()),
+                valeur(dto.getTypeMouvement()),
+                valeur(dto.getQuantite()),
+                valeur(dto.getPrixUnitaire()),
+                valeur(dto.getStockApresMouvement()),
+                valeur(dto.getProduitId()),
+                texteCsv(dto.getProduitNom()),
+                valeur(dto.getCommandeFournisseurId()));
+    }
+
+    private String valeur(Object valeur) {
+        return valeur != null ? valeur.toString() : "";
+    }
+
+    // RFC 4180 : guillemets doublés, champ entre guillemets s'il contient un séparateur
+    private String texteCsv(String texte) {
+        if (texte == null) {
+            return "";
+        }
+        if (texte.contains(",") || texte.contains("\"") || texte.contains("\n") || texte.contains("\r")) {
+            return "\"" + texte.replace("\"", "\"\"") + "\"";
+        }
+        return texte;
+    }
+}
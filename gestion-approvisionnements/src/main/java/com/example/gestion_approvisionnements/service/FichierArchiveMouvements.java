@@ -0,0 +1,213 @@
+package com.example.gestion_approvisionnements.service;
+
+import com.example.gestion_approvisionnements.dto.MouvementStockDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Fichiers d'un mois archivé. Données : un membre gzip par produit, chacun du NDJSON trié par (date, id) ; le fichier
+// entier reste lisible par zcat. Index : une entrée (produit, position, longueur, nombre) par produit, triée par
+// produit, lue par dichotomie pour ne décompresser que le membre demandé.
+final class FichierArchiveMouvements {
+
+    private static final String EXTENSION_DONNEES = ".ndjson.gz";
+    private static final String EXTENSION_INDEX = ".idx";
+    private static final String TEMPORAIRE = ".tmp";
+
+    private final Path repertoire;
+    private final ObjectMapper objectMapper;
+    private final Map<YearMonth, Index> index = new ConcurrentHashMap<>();
+
+    FichierArchiveMouvements(Path repertoire, ObjectMapper objectMapper) {
+        this.repertoire = repertoire;
+        this.objectMapper = objectMapper;
+    }
+
+    static String nom(YearMonth mois) {
+        return String.format("mouvement_stock_%d_%02d", mois.getYear(), mois.getMonthValue());
+    }
+
+    Path donnees(YearMonth mois) {
+        return repertoire.resolve(nom(mois) + EXTENSION_DONNEES);
+    }
+
+    Ecriture ouvrir(YearMonth mois) throws IOException {
+        Files.createDirectories(repertoire);
+        return new Ecriture(mois);
+    }
+
+    List<MouvementStockDTO> lire(YearMonth mois, Long produitId) {
+        try {
+            Index entrees = index.computeIfAbsent(mois, this::chargerIndex);
+            int position = Arrays.binarySearch(entrees.produits(), produitId);
+            if (position < 0) {
+                return List.of();
+            }
+
+            ByteBuffer membre = ByteBuffer.allocate(Math.toIntExact(entrees.longueurs()[position]));
+            try (FileChannel canal = FileChannel.open(donnees(mois), StandardOpenOption.READ)) {
+                long debut = entrees.positions()[position];
+                while (membre.hasRemaining()) {
+                    if (canal.read(membre, debut + membre.position()) < 0) {
+                        throw new EOFException("Archive tronquée : " + donnees(mois));
+                    }
+                }
+            }
+
+            List<MouvementStockDTO> mouvements = new ArrayList<>(entrees.nombres()[position]);
+            try (BufferedReader lecteur = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(new ByteArrayInputStream(membre.array())), StandardCharsets.UTF_8))) {
+                String ligne;
+                while ((ligne = lecteur.readLine()) != null) {
+                    mouvements.add(objectMapper.readValue(ligne, MouvementStockDTO.class));
+                }
+            }
+            return mouvements;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Archive des mouvements illisible : " + nom(mois), ex);
+        }
+    }
+
+    void supprimer(YearMonth mois) {
+        index.remove(mois);
+        try {
+            Files.deleteIfExists(donnees(mois));
+            Files.deleteIfExists(fichierIndex(mois));
+            Files.deleteIfExists(temporaire(donnees(mois)));
+            Files.deleteIfExists(temporaire(fichierIndex(mois)));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private Path fichierIndex(YearMonth mois) {
+        return repertoire.resolve(nom(mois) + EXTENSION_INDEX);
+    }
+
+    private static Path temporaire(Path fichier) {
+        return fichier.resolveSibling(fichier.getFileName() + TEMPORAIRE);
+    }
+
+    private Index chargerIndex(YearMonth mois) {
+        try {
+            ByteBuffer contenu = ByteBuffer.wrap(Files.readAllBytes(fichierIndex(mois)));
+            int entrees = contenu.getInt();
+            Index chargement = new Index(new long[entrees], new long[entrees], new long[entrees], new int[entrees]);
+            for (int i = 0; i < entrees; i++) {
+                chargement.produits()[i] = contenu.getLong();
+                chargement.positions()[i] = contenu.getLong();
+                chargement.longueurs()[i] = contenu.getLong();
+                chargement.nombres()[i] = contenu.getInt();
+            }
+            return chargement;
+        } catch (NoSuchFileException ex) {
+            throw new UncheckedIOException("Index d'archive absent : " + fichierIndex(mois), ex);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private record Index(long[] produits, long[] positions, long[] longueurs, int[] nombres) {
+    }
+
+    // Écrit dans des fichiers temporaires, rendus visibles ensemble par terminer() ; abandonnés sinon
+    final class Ecriture implements Closeable {
+
+        private final YearMonth mois;
+        private final FileChannel canal;
+        private final ByteArrayOutputStream entrees = new ByteArrayOutputStream();
+        private final DataOutputStream sortieIndex = new DataOutputStream(entrees);
+        private int nombreProduits;
+        private long dernierProduit = Long.MIN_VALUE;
+        private boolean terminee;
+
+        private Ecriture(YearMonth mois) throws IOException {
+            this.mois = mois;
+            this.canal = FileChannel.open(temporaire(donnees(mois)), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        }
+
+        // Produits dans l'ordre croissant, mouvements déjà triés par (date, id)
+        void ajouter(Long produitId, List<MouvementStockDTO> mouvements) throws IOException {
+            if (produitId <= dernierProduit) {
+                throw new IllegalStateException("Produits non triés dans l'archive " + nom(mois));
+            }
+            ByteArrayOutputStream membre = new ByteArrayOutputStream();
+            try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(membre), StandardCharsets.UTF_8)) {
+                for (MouvementStockDTO mouvement : mouvements) {
+                    writer.write(objectMapper.writeValueAsString(mouvement));
+                    writer.write('\n');
+                }
+            }
+
+            long position = canal.position();
+            ByteBuffer contenu = ByteBuffer.wrap(membre.toByteArray());
+            while (contenu.hasRemaining()) {
+                canal.write(contenu);
+            }
+            sortieIndex.writeLong(produitId);
+            sortieIndex.writeLong(position);
+            sortieIndex.writeLong(canal.position() - position);
+            sortieIndex.writeInt(mouvements.size());
+            dernierProduit = produitId;
+            nombreProduits++;
+        }
+
+        void terminer() throws IOException {
+            canal.force(true);
+            canal.close();
+
+            ByteBuffer contenu = ByteBuffer.allocate(Integer.BYTES + entrees.size());
+            contenu.putInt(nombreProduits).put(entrees.toByteArray()).flip();
+            try (FileChannel canalIndex = FileChannel.open(temporaire(fichierIndex(mois)), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                while (contenu.hasRemaining()) {
+                    canalIndex.write(contenu);
+                }
+                canalIndex.force(true);
+            }
+
+            Files.move(temporaire(donnees(mois)), donnees(mois),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temporaire(fichierIndex(mois)), fichierIndex(mois),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            index.remove(mois);
+            terminee = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!terminee) {
+                canal.close();
+                Files.deleteIfExists(temporaire(donnees(mois)));
+                Files.deleteIfExists(temporaire(fichierIndex(mois)));
+            }
+        }
+    }
+}
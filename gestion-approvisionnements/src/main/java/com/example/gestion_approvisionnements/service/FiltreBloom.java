@@ -0,0 +1,71 @@
+package com.example.gestion_approvisionnements.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Filtre de Bloom sur des chaînes : jamais de faux négatif, faux positifs au taux demandé tant que la capacité
+// n'est pas dépassée. Bits dans un AtomicLongArray : ajouts et lectures concurrents sans verrou.
+final class FiltreBloom {
+
+    private final AtomicLongArray mots;
+    private final long nombreBits;
+    private final int nombreHachages;
+    private final int capacite;
+    private final AtomicInteger ajouts = new AtomicInteger();
+
+    FiltreBloom(int capacite, double tauxFauxPositifs) {
+        this.capacite = capacite;
+        // m = -n ln p / (ln 2)², k = m / n ln 2
+        long bits = (long) Math.ceil(-capacite * Math.log(tauxFauxPositifs) / (Math.log(2) * Math.log(2)));
+        mots = new AtomicLongArray((int) Math.max(1, (bits + 63) / 64));
+        nombreBits = mots.length() * 64L;
+        nombreHachages = Math.max(1, (int) Math.round((double) nombreBits / capacite * Math.log(2)));
+    }
+
+    void ajouter(String valeur) {
+        long h1 = hacher(valeur);
+        long h2 = melanger(h1 ^ 0x9E3779B97F4A7C15L);
+        for (int i = 0; i < nombreHachages; i++) {
+            long bit = Math.floorMod(h1 + i * h2, nombreBits);
+            long masque = 1L << bit;
+            mots.getAndAccumulate((int) (bit >>> 6), masque, (mot, m) -> mot | m);
+        }
+        ajouts.incrementAndGet();
+    }
+
+    boolean peutContenir(String valeur) {
+        long h1 = hacher(valeur);
+        long h2 = melanger(h1 ^ 0x9E3779B97F4A7C15L);
+        for (int i = 0; i < nombreHachages; i++) {
+            long bit = Math.floorMod(h1 + i * h2, nombreBits);
+            if ((mots.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Au-delà de la capacité, le taux de faux positifs dérive : à reconstruire plus grand
+    boolean estSature() {
+        return ajouts.get() > capacite;
+    }
+
+    // FNV-1a 64 bits sur les caractères, puis mélange final de MurmurHash3
+    private static long hacher(String valeur) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < valeur.length(); i++) {
+            h ^= valeur.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return melanger(h);
+    }
+
+    private static long melanger(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
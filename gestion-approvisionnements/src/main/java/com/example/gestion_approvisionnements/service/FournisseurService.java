@@ -1,43 +1,76 @@
 package com.example.gestion_approvisionnements.service;
 
 import com.example.gestion_approvisionnements.dto.FournisseurDTO;
+import com.example.gestion_approvisionnements.dto.VersionEntiteDTO;
 import com.example.gestion_approvisionnements.entity.Fournisseur;
 import com.example.gestion_approvisionnements.exception.BusinessException;
 import com.example.gestion_approvisionnements.exception.ResourceNotFoundException;
 import com.example.gestion_approvisionnements.mapper.FournisseurMapper;
 import com.example.gestion_approvisionnements.repository.FournisseurRepository;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Objects;
+import java.util.Optional;
+
 @Service
 @RequiredArgsConstructor
 @Transactional
 public class FournisseurService {
 
+    private static final String VIOLATION_UNICITE = "23505";
+
     private final FournisseurRepository fournisseurRepository;
     private final FournisseurMapper fournisseurMapper;
+    private final CommandeSummaryService commandeSummaryService;
+    private final DepenseService depenseService;
+    private final CacheReferentielService cacheReferentielService;
+    private final IndexIceService indexIceService;
 
     @Transactional(readOnly = true)
     public Page<FournisseurDTO> getAllFournisseurs(Pageable pageable) {
-        return fournisseurRepository.findAll(pageable)
-                .map(fournisseurMapper::toDTO);
+        return getFournisseursVersionnes(pageable).contenu();
+    }
+
+    @Transactional(readOnly = true)
+    public RessourceVersionnee<Page<FournisseurDTO>> getFournisseursVersionnes(Pageable pageable) {
+        Page<Fournisseur> page = fournisseurRepository.findAll(pageable);
+        return new RessourceVersionnee<>(page.map(fournisseurMapper::toDTO),
+                VersionRessource.page(page.map(this::version).getContent(), page.getTotalElements()));
     }
 
     @Transactional(readOnly = true)
     public FournisseurDTO getFournisseurById(Long id) {
-        Fournisseur fournisseur = fournisseurRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Fournisseur introuvable avec l'id " + id));
-        return fournisseurMapper.toDTO(fournisseur);
+        return getFournisseurVersionne(id).contenu();
     }
 
-    public FournisseurDTO createFournisseur(FournisseurDTO fournisseurDTO) {
-        validateIceAvailability(fournisseurDTO.getIce(), null);
+    @Transactional(readOnly = true)
+    public RessourceVersionnee<FournisseurDTO> getFournisseurVersionne(Long id) {
+        return cacheReferentielService.fournisseur(id, this::chargerFournisseur);
+    }
 
-        Fournisseur fournisseur = fournisseurMapper.toEntity(fournisseurDTO);
-        Fournisseur saved = fournisseurRepository.save(fournisseur);
+    // GET conditionnels : versions lues seules, sans charger ni mapper les fournisseurs
+    @Transactional(readOnly = true)
+    public Optional<VersionRessource> getVersionFournisseur(Long id) {
+        return fournisseurRepository.findVersionById(id).map(VersionRessource::entite);
+    }
+
+    @Transactional(readOnly = true)
+    public VersionRessource getVersionFournisseurs(Pageable pageable) {
+        Page<VersionEntiteDTO> versions = fournisseurRepository.findVersions(pageable);
+        return VersionRessource.page(versions.getContent(), versions.getTotalElements());
+    }
+
+    public FournisseurDTO createFournisseur(FournisseurDTO fournisseurDTO) {
+        Fournisseur saved = enregistrer(fournisseurMapper.toEntity(fournisseurDTO));
+        // Diffusé aux autres instances : leur filtre d'ICE relit le nouveau fournisseur après le commit
+        cacheReferentielService.invaliderFournisseur(saved.getId());
+        indexIceService.invaliderFournisseur(saved.getId(), saved.getIce());
         return fournisseurMapper.toDTO(saved);
     }
 
@@ -45,10 +78,15 @@ public class FournisseurService {
         Fournisseur existing = fournisseurRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Fournisseur introuvable avec l'id " + id));
 
-        validateIceAvailability(fournisseurDTO.getIce(), existing.getId());
-
+        String ancienneSociete = existing.getSociete();
         fournisseurMapper.updateEntityFromDTO(fournisseurDTO, existing);
-        Fournisseur updated = fournisseurRepository.save(existing);
+        Fournisseur updated = enregistrer(existing);
+        cacheReferentielService.invaliderFournisseur(id);
+        indexIceService.invaliderFournisseur(id, updated.getIce());
+        // Raison sociale dénormalisée dans les résumés de commandes
+        if (!Objects.equals(ancienneSociete, updated.getSociete())) {
+            commandeSummaryService.renommerFournisseur(id, updated.getSociete());
+        }
         return fournisseurMapper.toDTO(updated);
     }
 
@@ -56,29 +94,74 @@ public class FournisseurService {
         if (!fournisseurRepository.existsById(id)) {
             throw new ResourceNotFoundException("Fournisseur introuvable avec l'id " + id);
         }
+        depenseService.supprimerFournisseur(id);
         fournisseurRepository.deleteById(id);
+        cacheReferentielService.invaliderFournisseur(id);
+        indexIceService.invaliderFournisseur(id, null);
     }
 
+    // Intégration facturation : les ICE inconnus sont écartés par le filtre de l'index, sans requête
     @Transactional(readOnly = true)
     public FournisseurDTO getFournisseurByIce(String ice) {
-        Fournisseur fournisseur = fournisseurRepository.findByIce(ice)
-                .orElseThrow(() -> new ResourceNotFoundException("Fournisseur introuvable avec l'ICE " + ice));
-        return fournisseurMapper.toDTO(fournisseur);
-    }
-
-    private void validateIceAvailability(String ice, Long currentId) {
-        if (ice == null || ice.isBlank()) {
-            return;
+        if (!indexIceService.peutExister(ice)) {
+            throw introuvableParIce(ice);
         }
-        boolean iceAlreadyExists = fournisseurRepository.existsByIce(ice);
-        if (!iceAlreadyExists) {
-            return;
+        Optional<Long> id = indexIceService.id(ice);
+        if (id.isPresent()) {
+            try {
+                FournisseurDTO fournisseur = getFournisseurById(id.get());
+                if (ice.equals(fournisseur.getIce())) {
+                    return fournisseur;
+                }
+            } catch (ResourceNotFoundException ex) {
+                // Supprimé depuis l'association : relu par ICE ci-dessous
+            }
+            // Association en retard sur un changement d'ICE
+            indexIceService.oublier(ice);
         }
-        if (currentId == null) {
-            throw new BusinessException("Un fournisseur existe déjà avec l'ICE " + ice);
+        return chargerFournisseurParIce(ice);
+    }
+
+    private RessourceVersionnee<FournisseurDTO> chargerFournisseur(Long id) {
+        Fournisseur fournisseur = fournisseurRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Fournisseur introuvable avec l'id " + id));
+        return versionne(fournisseur);
+    }
+
+    private RessourceVersionnee<FournisseurDTO> versionne(Fournisseur fournisseur) {
+        return new RessourceVersionnee<>(fournisseurMapper.toDTO(fournisseur), VersionRessource.entite(version(fournisseur)));
+    }
+
+    private VersionEntiteDTO version(Fournisseur fournisseur) {
+        return new VersionEntiteDTO(fournisseur.getId(), fournisseur.getUpdatedAt());
+    }
+
+    // Le fournisseur lu sert aussi le cache par id : les lectures suivantes passent par l'association ICE → id
+    private FournisseurDTO chargerFournisseurParIce(String ice) {
+        Fournisseur fournisseur = fournisseurRepository.findByIce(ice).orElseThrow(() -> {
+            indexIceService.signalerFauxPositif();
+            return introuvableParIce(ice);
+        });
+        indexIceService.associer(ice, fournisseur.getId());
+        return cacheReferentielService.fournisseur(fournisseur.getId(), cle -> versionne(fournisseur)).contenu();
+    }
+
+    private ResourceNotFoundException introuvableParIce(String ice) {
+        return new ResourceNotFoundException("Fournisseur introuvable avec l'ICE " + ice);
+    }
+
+    // Unicité de l'ICE tenue par la contrainte unique, sans lecture préalable : le flush révèle le doublon
+    // et l'écriture réussie coûte une seule instruction
+    private Fournisseur enregistrer(Fournisseur fournisseur) {
+        try {
+            return fournisseurRepository.saveAndFlush(fournisseur);
+        } catch (DataIntegrityViolationException ex) {
+            // SQLSTATE 23505 : violation d'unicité (PostgreSQL comme H2), seule l'ICE est unique hors clé primaire
+            if (ex.getCause() instanceof ConstraintViolationException violation
+                    && VIOLATION_UNICITE.equals(violation.getSQLState())) {
+                throw new BusinessException("Un fournisseur existe déjà avec l'ICE " + fournisseur.getIce());
+            }
+            throw ex;
         }
-        fournisseurRepository.findByIce(ice)
-                .filter(f -> f.getId().equals(currentId))
-                .orElseThrow(() -> new BusinessException("Un fournisseur existe déjà avec l'ICE " + ice));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,232 @@
+package com.example.gestion_approvisionnements.service;
+
+import com.example.gestion_approvisionnements.entity.CleIdempotence;
+import com.example.gestion_approvisionnements.exception.BusinessException;
+import com.example.gestion_approvisionnements.repository.CleIdempotenceRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Idempotency-Key : la première requête d'une clé est exécutée et sa réponse réussie conservée, les suivantes
+// la reçoivent sans toucher aux tables métier. Cache LRU en mémoire devant la table cle_idempotence,
+// qui réserve la clé (clé primaire) avant l'exécution ; les doublons simultanés attendent la première.
+// Une réservation sans réponse n'est jamais reprise avant son expiration : sa requête peut encore s'exécuter, ou
+// avoir commité sans que sa réponse soit enregistrée (arrêt, crash) ; la rejouer écrirait deux fois.
+@Service
+@RequiredArgsConstructor
+public class IdempotenceService {
+
+    private final CleIdempotenceRepository cleIdempotenceRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${idempotence.ttl-heures:24}")
+    private long ttlHeures;
+
+    @Value("${idempotence.cache.taille-max:10000}")
+    private int tailleMaxCache;
+
+    @Value("${idempotence.attente-max-ms:30000}")
+    private long attenteMaxMs;
+
+    @Value("${idempotence.corps-max-octets:1048576}")
+    private int corpsMaxOctets;
+
+    private Map<String, Entree> cache;
+    private final ConcurrentMap<String, EnCours> enCours = new ConcurrentHashMap<>();
+
+    private Counter trouveesEnMemoire;
+    private Counter trouveesEnTable;
+    private Counter attendues;
+    private Counter nouvelles;
+    private Counter reservationsSansReponse;
+
+    @PostConstruct
+    void initialiser() {
+        cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entree> plusAncienne) {
+                return size() > tailleMaxCache;
+            }
+        });
+        trouveesEnMemoire = compteur("memoire");
+        trouveesEnTable = compteur("table");
+        attendues = compteur("attente");
+        nouvelles = compteur("nouvelle");
+        reservationsSansReponse = meterRegistry.counter("idempotence.reservations_sans_reponse");
+        meterRegistry.gauge("idempotence.cache.taille", cache, Map::size);
+    }
+
+    public ReponseIdempotente executer(String cle, String empreinte, Callable<ReponseIdempotente> requete) throws Exception {
+        Entree entree = cache.get(cle);
+        if (entree != null && entree.expiration().isAfter(LocalDateTime.now())) {
+            verifierEmpreinte(entree.empreinte(), empreinte);
+            trouveesEnMemoire.increment();
+            return entree.reponse();
+        }
+
+        EnCours courante = new EnCours(empreinte, new CompletableFuture<>());
+        EnCours premiere = enCours.putIfAbsent(cle, courante);
+        if (premiere != null) {
+            verifierEmpreinte(premiere.empreinte(), empreinte);
+            attendues.increment();
+            return attendre(premiere);
+        }
+
+        try {
+            ReponseIdempotente enregistree = rechercherOuReserver(cle, empreinte);
+            if (enregistree != null) {
+                courante.reponse().complete(enregistree);
+                return enregistree;
+            }
+
+            nouvelles.increment();
+            ReponseIdempotente reponse = requete.call();
+            if (reponse.corps().length > corpsMaxOctets && reponse.reussie()) {
+                // Écriture faite : la clé reste prise, seul le statut est rejoué
+                conserver(cle, empreinte, reponse.sansCorps());
+            } else if (reponse.reussie()) {
+                conserver(cle, empreinte, reponse);
+            } else {
+                // Échec : la clé est libérée, le client peut réessayer
+                liberer(cle);
+            }
+            courante.reponse().complete(reponse);
+            return reponse;
+        } catch (Exception ex) {
+            // Issue inconnue (écriture peut-être commitée) : réservation gardée jusqu'à son expiration
+            courante.reponse().completeExceptionally(ex);
+            throw ex;
+        } finally {
+            enCours.remove(cle, courante);
+        }
+    }
+
+    @Scheduled(cron = "${idempotence.purge.cron:0 30 * * * *}")
+    public void purger() {
+        LocalDateTime maintenant = LocalDateTime.now();
+        transactionTemplate.executeWithoutResult(status -> cleIdempotenceRepository.supprimerExpirees(maintenant));
+        cache.values().removeIf(entree -> !entree.expiration().isAfter(maintenant));
+    }
+
+    private ReponseIdempotente rechercherOuReserver(String cle, String empreinte) {
+        ReponseIdempotente enregistree = rechercher(cle, empreinte);
+        if (enregistree != null) {
+            return enregistree;
+        }
+
+        LocalDateTime maintenant = LocalDateTime.now();
+        CleIdempotence reservation = new CleIdempotence();
+        reservation.setId(cle);
+        reservation.setEmpreinte(empreinte);
+        reservation.setDateCreation(maintenant);
+        reservation.setDateExpiration(maintenant.plusHours(ttlHeures));
+        reservation.setNouveau(true);
+        try {
+            transactionTemplate.executeWithoutResult(status -> cleIdempotenceRepository.saveAndFlush(reservation));
+            return null;
+        } catch (DataIntegrityViolationException ex) {
+            // Réservée entre-temps : terminée (réponse rejouée) ou encore en cours sur une autre instance
+            enregistree = rechercher(cle, empreinte);
+            if (enregistree != null) {
+                return enregistree;
+            }
+            throw new BusinessException("Une requête avec cette clé d'idempotence est déjà en cours");
+        }
+    }
+
+    private ReponseIdempotente rechercher(String cle, String empreinte) {
+        Optional<CleIdempotence> ligne = cleIdempotenceRepository.findById(cle);
+        if (ligne.isEmpty()) {
+            return null;
+        }
+
+        CleIdempotence existante = ligne.get();
+        LocalDateTime maintenant = LocalDateTime.now();
+        if (!existante.getDateExpiration().isAfter(maintenant)) {
+            // Suppression conditionnée à l'expiration : jamais la réservation qu'une autre instance vient de poser
+            cache.remove(cle);
+            transactionTemplate.executeWithoutResult(status -> cleIdempotenceRepository.supprimerSiExpiree(cle, maintenant));
+            return null;
+        }
+
+        verifierEmpreinte(existante.getEmpreinte(), empreinte);
+        if (existante.getStatutHttp() == null) {
+            boolean sansReponse = existante.getDateCreation()
+                    .plusNanos(TimeUnit.MILLISECONDS.toNanos(attenteMaxMs)).isBefore(maintenant);
+            if (sansReponse) {
+                reservationsSansReponse.increment();
+                throw new BusinessException("La requête portant cette clé d'idempotence est toujours en cours ou "
+                        + "s'est interrompue sans réponse : vérifier son effet avant de réessayer avec une nouvelle clé");
+            }
+            throw new BusinessException("Une requête avec cette clé d'idempotence est déjà en cours");
+        }
+        ReponseIdempotente reponse = new ReponseIdempotente(existante.getStatutHttp(), existante.getContentType(),
+                existante.getCorps() != null ? existante.getCorps() : new byte[0]);
+        cache.put(cle, new Entree(existante.getEmpreinte(), reponse, existante.getDateExpiration()));
+        trouveesEnTable.increment();
+        return reponse;
+    }
+
+    private void conserver(String cle, String empreinte, ReponseIdempotente reponse) {
+        transactionTemplate.executeWithoutResult(status -> cleIdempotenceRepository.enregistrerReponse(
+                cle, reponse.statut(), reponse.contentType(), reponse.corps()));
+        cache.put(cle, new Entree(empreinte, reponse, LocalDateTime.now().plusHours(ttlHeures)));
+    }
+
+    private void liberer(String cle) {
+        cache.remove(cle);
+        transactionTemplate.executeWithoutResult(status -> cleIdempotenceRepository.supprimer(cle));
+    }
+
+    private ReponseIdempotente attendre(EnCours premiere) throws Exception {
+        try {
+            return premiere.reponse().get(attenteMaxMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            throw new BusinessException("Une requête avec cette clé d'idempotence est déjà en cours");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    private void verifierEmpreinte(String attendue, String recue) {
+        if (!attendue.equals(recue)) {
+            throw new BusinessException("La clé d'idempotence a déjà été utilisée pour une autre requête");
+        }
+    }
+
+    private Counter compteur(String resultat) {
+        return Counter.builder("idempotence.requetes")
+                .description("Requêtes portant une clé d'idempotence, par origine de la réponse")
+                .tag("resultat", resultat)
+                .register(meterRegistry);
+    }
+
+    private record Entree(String empreinte, ReponseIdempotente reponse, LocalDateTime expiration) {
+    }
+
+    private record EnCours(String empreinte, CompletableFuture<ReponseIdempotente> reponse) {
+    }
+}
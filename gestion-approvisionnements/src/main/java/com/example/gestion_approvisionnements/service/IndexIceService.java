@@ -0,0 +1,191 @@
+package com.example.gestion_approvisionnements.service;
+
+import com.example.gestion_approvisionnements.repository.FournisseurRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+// Index des ICE fournisseurs devant la lecture par ICE (intégration facturation : la plupart des ICE sondés nous
+// sont inconnus). Un filtre de Bloom contient tous les ICE en base : une réponse négative est sûre et évite la requête.
+// Un cache borné ICE → id mène ensuite au fournisseur par son cache par id.
+// Le filtre ne sait pas retirer : un ICE supprimé ou remplacé y reste en faux positif (une requête) jusqu'à la
+// prochaine reconstruction, à saturation ou au vidage. Un ICE n'y entre qu'une fois son écriture commitée, ou à
+// réception de la notification d'une autre instance : sans diffusion (referentiel.invalidation.actif=false),
+// une seule instance doit écrire les fournisseurs. referentiel.index-ice.actif=false pour lire directement en base.
+@Service
+@RequiredArgsConstructor
+public class IndexIceService {
+
+    private final FournisseurRepository fournisseurRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${referentiel.index-ice.actif:true}")
+    private boolean actif;
+
+    @Value("${referentiel.index-ice.taille-max:10000}")
+    private long tailleMax;
+
+    @Value("${referentiel.index-ice.capacite-min:10000}")
+    private int capaciteMin;
+
+    @Value("${referentiel.index-ice.taux-faux-positifs:0.01}")
+    private double tauxFauxPositifs;
+
+    private Cache<String, Long> idsParIce;
+    private volatile FiltreBloom filtre;
+
+    // ICE commités pendant une reconstruction, rejoués sur le nouveau filtre ; null hors reconstruction
+    private final Object verrou = new Object();
+    private List<String> ajoutsPendantReconstruction;
+
+    @PostConstruct
+    void initialiser() {
+        idsParIce = Caffeine.newBuilder()
+                .maximumSize(tailleMax)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, idsParIce, "fournisseurs-ice");
+    }
+
+    // false : ICE certainement absent de la base. Filtre construit à la première lecture.
+    public boolean peutExister(String ice) {
+        if (!actif) {
+            return true;
+        }
+        FiltreBloom courant = filtre;
+        if (courant == null || courant.estSature()) {
+            courant = reconstruireSiNecessaire();
+        }
+        if (courant.peutContenir(ice)) {
+            return true;
+        }
+        meterRegistry.counter("referentiel.index_ice.rejets").increment();
+        return false;
+    }
+
+    public Optional<Long> id(String ice) {
+        return actif ? Optional.ofNullable(idsParIce.getIfPresent(ice)) : Optional.empty();
+    }
+
+    public void associer(String ice, Long id) {
+        if (actif) {
+            idsParIce.put(ice, id);
+        }
+    }
+
+    public void oublier(String ice) {
+        if (actif) {
+            idsParIce.invalidate(ice);
+        }
+    }
+
+    // ICE accepté par le filtre mais absent de la base
+    public void signalerFauxPositif() {
+        meterRegistry.counter("referentiel.index_ice.faux_positifs").increment();
+    }
+
+    // Écriture d'un fournisseur (ice null pour une suppression) : ses associations sont retirées tout de suite
+    // et à la fin de la transaction ; le nouvel ICE n'entre dans le filtre qu'après le commit, une reconstruction
+    // concurrente qui ne l'a pas encore lu en base le rejoue alors.
+    public void invaliderFournisseur(Long id, String ice) {
+        if (!actif) {
+            return;
+        }
+        retirer(id);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            ajouter(ice);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                retirer(id);
+                if (status == STATUS_COMMITTED) {
+                    ajouter(ice);
+                }
+            }
+        });
+    }
+
+    // Fournisseurs écrits par une autre instance, déjà commités : leurs ICE actuels sont relus en base
+    public void rafraichir(Collection<Long> ids) {
+        if (!actif) {
+            return;
+        }
+        ids.forEach(this::retirer);
+        try {
+            fournisseurRepository.findIcesByIdIn(ids).forEach(this::ajouter);
+        } catch (DataAccessException ex) {
+            // ICE non relus : le filtre repart de la base plutôt que de les refuser
+            vider();
+        }
+    }
+
+    // Filtre abandonné, reconstruit depuis la base à la prochaine lecture
+    public synchronized void vider() {
+        if (!actif) {
+            return;
+        }
+        idsParIce.invalidateAll();
+        filtre = null;
+    }
+
+    private synchronized FiltreBloom reconstruireSiNecessaire() {
+        FiltreBloom courant = filtre;
+        if (courant != null && !courant.estSature()) {
+            return courant;
+        }
+        synchronized (verrou) {
+            ajoutsPendantReconstruction = new ArrayList<>();
+        }
+        try {
+            List<String> ices = fournisseurRepository.findAllIces();
+            // Double du nombre actuel : de la marge pour les créations avant la prochaine reconstruction
+            FiltreBloom nouveau = new FiltreBloom(Math.max(capaciteMin, 2 * ices.size()), tauxFauxPositifs);
+            ices.forEach(nouveau::ajouter);
+            synchronized (verrou) {
+                ajoutsPendantReconstruction.forEach(nouveau::ajouter);
+                filtre = nouveau;
+            }
+            meterRegistry.counter("referentiel.index_ice.reconstructions").increment();
+            return nouveau;
+        } finally {
+            synchronized (verrou) {
+                ajoutsPendantReconstruction = null;
+            }
+        }
+    }
+
+    private void ajouter(String ice) {
+        if (ice == null) {
+            return;
+        }
+        synchronized (verrou) {
+            FiltreBloom courant = filtre;
+            if (courant != null) {
+                courant.ajouter(ice);
+            }
+            if (ajoutsPendantReconstruction != null) {
+                ajoutsPendantReconstruction.add(ice);
+            }
+        }
+    }
+
+    private void retirer(Long id) {
+        // L'ICE a pu changer : associations retrouvées par l'id du fournisseur (écritures rares, cache borné)
+        idsParIce.asMap().values().removeIf(id::equals);
+    }
+}
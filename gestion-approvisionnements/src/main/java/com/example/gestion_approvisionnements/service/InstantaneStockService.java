@@ -0,0 +1,143 @@
+package com.example.gestion_approvisionnements.service;
+
+import com.example.gestion_approvisionnements.dto.StockALaDateDTO;
+import com.example.gestion_approvisionnements.entity.InstantaneStock;
+import com.example.gestion_approvisionnements.entity.MouvementStock;
+import com.example.gestion_approvisionnements.entity.Produit;
+import com.example.gestion_approvisionnements.entity.SoldeArchiveMouvement;
+import com.example.gestion_approvisionnements.exception.BusinessException;
+import com.example.gestion_approvisionnements.exception.ResourceNotFoundException;
+import com.example.gestion_approvisionnements.repository.InstantaneStockRepository;
+import com.example.gestion_approvisionnements.repository.MouvementStockRepository;
+import com.example.gestion_approvisionnements.repository.ProduitRepository;
+import com.example.gestion_approvisionnements.repository.SoldeArchiveMouvementRepository;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Service
+@RequiredArgsConstructor
+public class InstantaneStockService {
+
+    private final InstantaneStockRepository instantaneStockRepository;
+    private final MouvementStockRepository mouvementStockRepository;
+    private final ProduitRepository produitRepository;
+    private final SoldeArchiveMouvementRepository soldeArchiveMouvementRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+
+    @Value("${stock.instantanes.taille-bloc:500}")
+    private int tailleBloc;
+
+    // Incrémental : seuls les produits sans instantané ou mouvementés depuis le dernier sont repris.
+    // Une transaction courte par bloc pour ne pas garder tout le catalogue verrouillé.
+    @Scheduled(cron = "${stock.instantanes.cron:0 0 2 * * *}")
+    public int creerInstantanes() {
+        List<Long> produitIds = instantaneStockRepository.findIdsProduitsAInstantaner();
+
+        int crees = 0;
+        for (int debut = 0; debut < produitIds.size(); debut += tailleBloc) {
+            List<Long> bloc = produitIds.subList(debut, Math.min(debut + tailleBloc, produitIds.size()));
+            crees += transactionTemplate.execute(status -> instantaner(bloc));
+        }
+        return crees;
+    }
+
+    private int instantaner(List<Long> produitIds) {
+        // Sous verrou, aucun mouvement de ces produits n'est en cours : tous ceux créés avant
+        // la date de l'instantané sont déjà reflétés dans le stock lu
+        List<Produit> produits = produitRepository.findAllByIdForUpdate(produitIds);
+        LocalDateTime maintenant = LocalDateTime.now();
+
+        List<InstantaneStock> instantanes = new ArrayList<>(produits.size());
+        for (Produit produit : produits) {
+            instantanes.add(new InstantaneStock(null, produit, maintenant,
+                    produit.getStockActuel(), produit.getCoutMoyenPondere()));
+        }
+        instantaneStockRepository.saveAll(instantanes);
+        return instantanes.size();
+    }
+
+    @Transactional(readOnly = true)
+    public StockALaDateDTO getStockALaDate(Long produitId, LocalDate date) {
+        Produit produit = produitRepository.findById(produitId)
+                .orElseThrow(() -> new ResourceNotFoundException("Produit introuvable avec l'id " + produitId));
+        LocalDateTime fin = date.plusDays(1).atStartOfDay();
+
+        RejeuStock rejeu = pointDeDepart(produit, instantaneStockRepository
+                .findFirstByProduitIdAndDateInstantaneLessThanOrderByDateInstantaneDesc(produitId, fin)
+                .orElse(null), soldeArchiveMouvementRepository.findById(produitId).orElse(null), fin);
+        try (Stream<MouvementStock> mouvements = mouvementStockRepository.streamARejouer(produitId, fin)) {
+            Iterator<MouvementStock> iterateur = mouvements.iterator();
+            while (iterateur.hasNext()) {
+                MouvementStock mouvement = iterateur.next();
+                rejeu.appliquer(mouvement);
+                entityManager.detach(mouvement);
+            }
+        }
+        return rejeu.resultat(date);
+    }
+
+    @Transactional(readOnly = true)
+    public List<StockALaDateDTO> getStocksALaDate(LocalDate date) {
+        LocalDateTime fin = date.plusDays(1).atStartOfDay();
+        Map<Long, InstantaneStock> instantanes = instantaneStockRepository.findDerniersAvant(fin).stream()
+                .collect(Collectors.toMap(i -> i.getProduit().getId(), Function.identity()));
+
+        Map<Long, SoldeArchiveMouvement> soldes = soldeArchiveMouvementRepository.findAll().stream()
+                .collect(Collectors.toMap(SoldeArchiveMouvement::getProduitId, Function.identity()));
+
+        Map<Long, RejeuStock> rejeux = new LinkedHashMap<>();
+        for (Produit produit : produitRepository.findAll(Sort.by("id"))) {
+            rejeux.put(produit.getId(), pointDeDepart(produit, instantanes.get(produit.getId()),
+                    soldes.get(produit.getId()), fin));
+        }
+
+        try (Stream<MouvementStock> mouvements = mouvementStockRepository.streamARejouer(null, fin)) {
+            Iterator<MouvementStock> iterateur = mouvements.iterator();
+            while (iterateur.hasNext()) {
+                MouvementStock mouvement = iterateur.next();
+                rejeux.get(mouvement.getProduit().getId()).appliquer(mouvement);
+                entityManager.detach(mouvement);
+            }
+        }
+        return rejeux.values().stream().map(rejeu -> rejeu.resultat(date)).toList();
+    }
+
+    // Les mouvements archivés sont le début du journal : un instantané pris après le dernier d'entre eux les couvre.
+    // Sinon le rejeu part de leur solde, qui n'est le stock à date qu'à partir de la fin du dernier mois archivé.
+    // Sans l'un ni l'autre, il part du solde d'ouverture du produit, ou de zéro avant sa création.
+    private RejeuStock pointDeDepart(Produit produit, InstantaneStock instantane, SoldeArchiveMouvement solde,
+                                     LocalDateTime fin) {
+        if (solde == null && instantane == null && produit.getCreatedAt() != null
+                && !fin.isAfter(produit.getCreatedAt())) {
+            return RejeuStock.depuisZero(produit);
+        }
+        if (solde == null || instantane != null && (solde.getDernierCreatedAt() == null
+                || !instantane.getDateInstantane().isBefore(solde.getDernierCreatedAt()))) {
+            return new RejeuStock(produit, instantane);
+        }
+        LocalDate finArchives = solde.getMoisArchive().plusMonths(1);
+        if (fin.isBefore(finArchives.atStartOfDay())) {
+            throw new BusinessException("Les mouvements du produit " + produit.getId()
+                    + " sont archivés jusqu'au " + finArchives.minusDays(1) + " : stock à date indisponible avant");
+        }
+        return RejeuStock.depuisSolde(produit, solde);
+    }
+}
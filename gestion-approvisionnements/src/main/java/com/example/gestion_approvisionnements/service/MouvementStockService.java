@@ -1,7 +1,11 @@
 package com.example.gestion_approvisionnements.service;
 
+import com.example.gestion_approvisionnements.dto.LotMouvementsResultatDTO;
+import com.example.gestion_approvisionnements.dto.MouvementResultatDTO;
 import com.example.gestion_approvisionnements.dto.MouvementStockDTO;
+import com.example.gestion_approvisionnements.dto.PageMouvementsDTO;
 import com.example.gestion_approvisionnements.entity.CommandeFournisseur;
+import com.example.gestion_approvisionnements.entity.LigneCommande;
 import com.example.gestion_approvisionnements.entity.MouvementStock;
 import com.example.gestion_approvisionnements.entity.Produit;
 import com.example.gestion_approvisionnements.enums.TypeMouvement;
@@ -12,13 +16,24 @@ import com.example.gestion_approvisionnements.repository.CommandeFournisseurRepo
 import com.example.gestion_approvisionnements.repository.MouvementStockRepository;
 import com.example.gestion_approvisionnements.repository.ProduitRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
-import java.math.RoundingMode;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -29,26 +44,128 @@ public class MouvementStockService {
     private final ProduitRepository produitRepository;
     private final CommandeFournisseurRepository commandeFournisseurRepository;
     private final MouvementStockMapper mouvementStockMapper;
+    private final MutationStockService mutationStockService;
+    private final PartitionMouvementService partitionMouvementService;
+    private final CacheReferentielService cacheReferentielService;
 
+    @Value("${stock.lot.taille-max:5000}")
+    private int tailleMaxLot;
+
+    @Value("${mouvements.page.taille-defaut:100}")
+    private int taillePageDefaut;
+
+    @Value("${mouvements.page.taille-max:1000}")
+    private int taillePageMax;
+
+    // Historique d'un produit, éventuellement borné à une période (dates incluses) : les mois archivés concernés
+    // sont lus dans leurs fichiers et fusionnés avec les mouvements restés en base
     @Transactional(readOnly = true)
-    public List<MouvementStockDTO> getMouvementsParProduit(Long produitId) {
-        return mouvementStockMapper.toDTOList(
-                mouvementStockRepository.findByProduitIdOrderByDateMouvementAsc(produitId)
-        );
+    public PageMouvementsDTO getMouvementsParProduit(Long produitId, String curseur, Integer taille,
+                                                     LocalDate debut, LocalDate fin) {
+        Limit limite = limiteAvecSuivant(taille);
+        if (debut != null && fin != null && fin.isBefore(debut)) {
+            throw new BusinessException("La date de fin doit être postérieure ou égale à la date de début");
+        }
+        CurseurMouvement position = curseur != null ? CurseurMouvement.decoder(curseur)
+                : debut != null ? CurseurMouvement.avant(debut) : null;
+        LocalDateTime finExclue = fin != null ? fin.plusDays(1).atStartOfDay() : null;
+
+        List<MouvementStock> mouvements;
+        if (position == null) {
+            mouvements = finExclue == null
+                    ? mouvementStockRepository.findByProduitIdOrderByDateMouvementAscIdAsc(produitId, limite)
+                    : mouvementStockRepository.findByProduitIdAndDateMouvementLessThanOrderByDateMouvementAscIdAsc(
+                            produitId, finExclue, limite);
+        } else {
+            mouvements = finExclue == null
+                    ? mouvementStockRepository.findByProduitIdApres(
+                            produitId, position.dateMouvement(), position.id(), limite)
+                    : mouvementStockRepository.findByProduitIdEntre(
+                            produitId, position.dateMouvement(), position.id(), finExclue, limite);
+        }
+
+        List<MouvementStockDTO> archives = partitionMouvementService.lireArchives(produitId, position, finExclue,
+                limite.max());
+        if (archives.isEmpty()) {
+            return construirePage(mouvementStockMapper.toDTOList(mouvements), limite);
+        }
+        String produitNom = produitRepository.findById(produitId).map(Produit::getNom).orElse(null);
+        archives.forEach(mouvement -> mouvement.setProduitNom(produitNom));
+        return construirePage(Stream.concat(archives.stream(), mouvementStockMapper.toDTOList(mouvements).stream())
+                .sorted(CurseurMouvement.ORDRE)
+                .limit(limite.max())
+                .toList(), limite);
     }
 
     @Transactional(readOnly = true)
-    public List<MouvementStockDTO> getMouvementsParType(TypeMouvement typeMouvement) {
-        return mouvementStockMapper.toDTOList(
-                mouvementStockRepository.findByTypeMouvement(typeMouvement)
-        );
+    public PageMouvementsDTO getMouvementsParType(TypeMouvement typeMouvement, String curseur, Integer taille) {
+        Limit limite = limiteAvecSuivant(taille);
+        if (curseur == null) {
+            return construirePage(mouvementStockMapper.toDTOList(
+                    mouvementStockRepository.findByTypeMouvementOrderByDateMouvementAscIdAsc(typeMouvement, limite)), limite);
+        }
+        CurseurMouvement position = CurseurMouvement.decoder(curseur);
+        return construirePage(mouvementStockMapper.toDTOList(mouvementStockRepository.findByTypeMouvementApres(
+                typeMouvement, position.dateMouvement(), position.id(), limite)), limite);
     }
 
+    // Une ligne de plus que la page demandée : sa présence indique qu'une page suivante existe
+    private Limit limiteAvecSuivant(Integer taille) {
+        int tailleEffective = taille != null ? taille : taillePageDefaut;
+        if (tailleEffective < 1 || tailleEffective > taillePageMax) {
+            throw new BusinessException("La taille de page doit être comprise entre 1 et " + taillePageMax);
+        }
+        return Limit.of(tailleEffective + 1);
+    }
+
+    private PageMouvementsDTO construirePage(List<MouvementStockDTO> mouvements, Limit limite) {
+        int taille = limite.max() - 1;
+        if (mouvements.size() <= taille) {
+            return new PageMouvementsDTO(mouvements, null);
+        }
+        List<MouvementStockDTO> page = mouvements.subList(0, taille);
+        return new PageMouvementsDTO(page, CurseurMouvement.apres(page.get(taille - 1)).encoder());
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
     public MouvementStockDTO enregistrerMouvement(MouvementStockDTO mouvementDTO) {
-        // Vérification du produit
-        Produit produit = produitRepository.findById(mouvementDTO.getProduitId())
-                .orElseThrow(() -> new ResourceNotFoundException("Produit introuvable avec l'id " + mouvementDTO.getProduitId()));
+        return mutationStockService.executerAvecReessais(() -> appliquerMouvement(mouvementDTO));
+    }
+
+    // Ajustement relatif du stock : la variation est appliquée en base sans lecture préalable.
+    // Le journal garde la convention des ajustements (stock obtenu), que le rejeu réapplique tel quel
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public MouvementStockDTO enregistrerAjustement(Long produitId, int variation) {
+        return mutationStockService.executerAvecReessais(() -> {
+            Produit produit = mutationStockService.ajuster(produitId, variation);
 
+            MouvementStock mouvement = new MouvementStock();
+            mouvement.setProduit(produit);
+            mouvement.setTypeMouvement(TypeMouvement.AJUSTEMENT);
+            mouvement.setQuantite(produit.getStockActuel());
+            mouvement.setPrixUnitaire(produit.getPrixUnitaire());
+            mouvement.setDateMouvement(LocalDateTime.now());
+            mouvement.setStockApresMouvement(produit.getStockActuel());
+            return mouvementStockMapper.toDTO(mouvementStockRepository.save(mouvement));
+        });
+    }
+
+    // Nouvel arrivage : entrée valorisée au nouveau prix, qui devient aussi le prix catalogue
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public MouvementStockDTO enregistrerArrivage(Long produitId, int quantite, BigDecimal prixUnitaire) {
+        MouvementStockDTO entree = new MouvementStockDTO();
+        entree.setProduitId(produitId);
+        entree.setTypeMouvement(TypeMouvement.ENTREE);
+        entree.setQuantite(quantite);
+        entree.setPrixUnitaire(prixUnitaire);
+        return mutationStockService.executerAvecReessais(() -> {
+            MouvementStockDTO enregistre = appliquerMouvement(entree);
+            mutationStockService.changerPrixUnitaire(produitId, prixUnitaire);
+            return enregistre;
+        });
+    }
+
+    private MouvementStockDTO appliquerMouvement(MouvementStockDTO mouvementDTO) {
         // Vérification de la commande fournisseur si fournie
         CommandeFournisseur commande = null;
         if (mouvementDTO.getCommandeFournisseurId() != null) {
@@ -58,106 +175,199 @@ public class MouvementStockService {
 
         // Création de l'entité à partir du DTO
         MouvementStock mouvement = mouvementStockMapper.toEntity(mouvementDTO);
-        mouvement.setProduit(produit);
         mouvement.setCommandeFournisseur(commande);
         mouvement.setDateMouvement(
                 mouvementDTO.getDateMouvement() != null ? mouvementDTO.getDateMouvement() : LocalDateTime.now()
         );
 
-        // Gestion du type de mouvement
-        TypeMouvement type = mouvement.getTypeMouvement();
-        int quantite = mouvement.getQuantite();
-
-        switch (type) {
-            case ENTREE:
-                BigDecimal prixUnitaire = mouvement.getPrixUnitaire() != null
-                        ? mouvement.getPrixUnitaire()
-                        : produit.getPrixUnitaire();
-                recalculerCump(produit, quantite, prixUnitaire);
-                break;
-
-            case SORTIE:
-                int stockApresSortie = produit.getStockActuel() - quantite;
-                if (stockApresSortie < 0) {
-                    throw new BusinessException("Stock insuffisant pour effectuer cette sortie");
-                }
-                produit.setStockActuel(stockApresSortie);
-                break;
-
-            case AJUSTEMENT:
-                // Pour un ajustement, on définit directement la nouvelle valeur du stock
-                if (quantite < 0) {
-                    throw new BusinessException("La quantité d'ajustement ne peut pas être négative");
-                }
-                produit.setStockActuel(quantite);
-                break;
+        // Le stock et le CUMP sont modifiés par une seule mise à jour conditionnelle en base,
+        // qui vérifie aussi l'existence du produit
+        Produit produit = mutationStockService.appliquer(mouvementDTO.getProduitId(),
+                mouvement.getTypeMouvement(), mouvement.getQuantite(), mouvement.getPrixUnitaire());
+        mouvement.setProduit(produit);
+        // Prix effectivement retenu conservé au journal : le rejeu ne dépend pas du prix catalogue courant
+        if (mouvement.getTypeMouvement() == TypeMouvement.ENTREE && mouvement.getPrixUnitaire() == null) {
+            mouvement.setPrixUnitaire(produit.getPrixUnitaire());
         }
 
         // Mise à jour du stock après mouvement
         mouvement.setStockApresMouvement(produit.getStockActuel());
 
-        // Sauvegarde des modifications
-        produitRepository.save(produit);
         MouvementStock saved = mouvementStockRepository.save(mouvement);
 
         return mouvementStockMapper.toDTO(saved);
     }
 
-    private int calculerNouveauStock(int stockActuel, TypeMouvement type, int quantite) {
-        return switch (type) {
-            case ENTREE -> stockActuel + quantite;
-            case SORTIE -> stockActuel - quantite;
-            default -> throw new IllegalStateException("Type de mouvement non géré: " + type);
-        };
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public LotMouvementsResultatDTO enregistrerLot(List<MouvementStockDTO> mouvementsDTO) {
+        if (mouvementsDTO == null || mouvementsDTO.isEmpty()) {
+            throw new BusinessException("Le lot doit contenir au moins un mouvement");
+        }
+        if (mouvementsDTO.size() > tailleMaxLot) {
+            throw new BusinessException("Le lot ne peut pas dépasser " + tailleMaxLot + " mouvements");
+        }
+        return mutationStockService.executerAvecReessais(() -> appliquerLot(mouvementsDTO));
     }
 
-    private void mettreAJourCoutMoyen(Produit produit, int quantiteEntree, BigDecimal prixEntree) {
-        BigDecimal stockActuel = BigDecimal.valueOf(produit.getStockActuel());
-        BigDecimal quantiteEntreeBig = BigDecimal.valueOf(quantiteEntree);
+    // Commit groupé : des demandes indépendantes appliquées et validées dans une seule transaction,
+    // chacune gardant son propre résultat (mouvement enregistré ou exception métier)
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<ResultatMouvement> enregistrerGroupe(List<MouvementStockDTO> mouvementsDTO) {
+        return mutationStockService.executerAvecReessais(() -> appliquerEnUnePasse(mouvementsDTO));
+    }
 
-        if (stockActuel.subtract(quantiteEntreeBig).compareTo(BigDecimal.ZERO) <= 0) {
-            produit.setCoutMoyenPondere(prixEntree);
-            return;
+    private LotMouvementsResultatDTO appliquerLot(List<MouvementStockDTO> mouvementsDTO) {
+        List<ResultatMouvement> resultats = appliquerEnUnePasse(mouvementsDTO);
+
+        List<MouvementResultatDTO> rapport = new ArrayList<>(resultats.size());
+        int reussis = 0;
+        for (int index = 0; index < resultats.size(); index++) {
+            ResultatMouvement resultat = resultats.get(index);
+            if (resultat.erreur() == null) {
+                rapport.add(new MouvementResultatDTO(index, true, resultat.mouvement(), null));
+                reussis++;
+            } else {
+                rapport.add(new MouvementResultatDTO(index, false, null, resultat.erreur().getMessage()));
+            }
         }
+        return new LotMouvementsResultatDTO(rapport.size(), reussis, rapport.size() - reussis, rapport);
+    }
 
-        BigDecimal stockAvantEntree = stockActuel.subtract(quantiteEntreeBig);
-        BigDecimal valeurAvant = produit.getCoutMoyenPondere() != null
-                ? produit.getCoutMoyenPondere().multiply(stockAvantEntree)
-                : BigDecimal.ZERO;
+    private List<ResultatMouvement> appliquerEnUnePasse(List<MouvementStockDTO> mouvementsDTO) {
+        // Un seul chargement des produits (verrouillés) et des commandes référencés par le lot
+        Set<Long> produitIds = collecterIds(mouvementsDTO, MouvementStockDTO::getProduitId);
+        Map<Long, Produit> produits = produitIds.isEmpty()
+                ? Map.of()
+                : produitRepository.findAllByIdForUpdate(produitIds).stream()
+                        .collect(Collectors.toMap(Produit::getId, Function.identity()));
 
-        BigDecimal valeurEntree = prixEntree.multiply(quantiteEntreeBig);
-        BigDecimal nouvelleValeurTotale = valeurAvant.add(valeurEntree);
-        BigDecimal nouvelleQuantiteTotale = stockAvantEntree.add(quantiteEntreeBig);
+        Set<Long> commandeIds = collecterIds(mouvementsDTO, MouvementStockDTO::getCommandeFournisseurId);
+        Map<Long, CommandeFournisseur> commandes = commandeIds.isEmpty()
+                ? Map.of()
+                : commandeFournisseurRepository.findAllById(commandeIds).stream()
+                        .collect(Collectors.toMap(CommandeFournisseur::getId, Function.identity()));
+
+        // Application dans l'ordre du lot : chaque produit voit ses mouvements dans l'ordre reçu
+        List<RuntimeException> erreurs = new ArrayList<>();
+        List<MouvementStock> mouvements = new ArrayList<>();
+        for (MouvementStockDTO mouvementDTO : mouvementsDTO) {
+            try {
+                mouvements.add(preparerMouvement(mouvementDTO, produits, commandes));
+                erreurs.add(null);
+            } catch (BusinessException | ResourceNotFoundException ex) {
+                erreurs.add(ex);
+            }
+        }
 
-        BigDecimal nouveauCump = nouvelleQuantiteTotale.compareTo(BigDecimal.ZERO) > 0
-                ? nouvelleValeurTotale.divide(nouvelleQuantiteTotale, 2, BigDecimal.ROUND_HALF_UP)
-                : prixEntree;
+        // Identifiants pris dans le bloc de séquence en mémoire : les INSERT partent en batch JDBC au flush
+        List<MouvementStock> inseres = mouvementStockRepository.saveAll(mouvements);
+        cacheReferentielService.invaliderStocks(produits.keySet());
 
-        produit.setCoutMoyenPondere(nouveauCump);
+        List<ResultatMouvement> resultats = new ArrayList<>(erreurs.size());
+        Iterator<MouvementStock> iterateur = inseres.iterator();
+        for (RuntimeException erreur : erreurs) {
+            resultats.add(erreur == null
+                    ? new ResultatMouvement(mouvementStockMapper.toDTO(iterateur.next()), null)
+                    : new ResultatMouvement(null, erreur));
+        }
+        return resultats;
     }
 
-    private void recalculerCump(Produit produit, int quantiteEntree, BigDecimal prixUnitaire) {
-        int ancienStock = produit.getStockActuel();
-        BigDecimal ancienCump = produit.getCoutMoyenPondere();
-        if (ancienCump == null) {
-            ancienCump = BigDecimal.ZERO;
+    // Livraison d'une commande : toutes les lignes en une passe, tout ou rien
+    public List<MouvementStock> enregistrerLivraison(CommandeFournisseur commande) {
+        // Produits verrouillés dans l'ordre des id avant la lecture des lignes, qui les retrouvent en contexte
+        produitRepository.findAllByCommandeIdForUpdate(commande.getId());
+
+        LocalDateTime dateLivraison = LocalDateTime.now();
+        List<MouvementStock> mouvements = new ArrayList<>();
+        for (LigneCommande ligne : commande.getLignesCommande()) {
+            Produit produit = ligne.getProduit();
+
+            MouvementStock mouvement = new MouvementStock();
+            mouvement.setProduit(produit);
+            mouvement.setCommandeFournisseur(commande);
+            //  SORTIE car on vend au fournisseur
+            mouvement.setTypeMouvement(TypeMouvement.SORTIE);
+            mouvement.setQuantite(ligne.getQuantite());
+            mouvement.setPrixUnitaire(ligne.getPrixUnitaire());
+            mouvement.setDateMouvement(dateLivraison);
+
+            appliquerEnMemoire(produit, mouvement);
+            mouvement.setStockApresMouvement(produit.getStockActuel());
+            mouvements.add(mouvement);
         }
 
-        BigDecimal valeurAncienStock = ancienCump.multiply(BigDecimal.valueOf(ancienStock));
-        BigDecimal valeurNouvelleEntree = prixUnitaire.multiply(BigDecimal.valueOf(quantiteEntree));
-        int nouveauStock = ancienStock + quantiteEntree;
+        cacheReferentielService.invaliderStocks(mouvements.stream().map(mouvement -> mouvement.getProduit().getId()).toList());
+        return mouvementStockRepository.saveAll(mouvements);
+    }
+
+    private MouvementStock preparerMouvement(MouvementStockDTO mouvementDTO,
+                                             Map<Long, Produit> produits,
+                                             Map<Long, CommandeFournisseur> commandes) {
+        if (mouvementDTO.getProduitId() == null || mouvementDTO.getTypeMouvement() == null
+                || mouvementDTO.getQuantite() == null) {
+            throw new BusinessException("Le produit, le type et la quantité du mouvement sont obligatoires");
+        }
 
-        if (nouveauStock <= 0) {
-            produit.setCoutMoyenPondere(BigDecimal.ZERO);
-            produit.setStockActuel(0);
-            return;
+        Produit produit = produits.get(mouvementDTO.getProduitId());
+        if (produit == null) {
+            throw new ResourceNotFoundException("Produit introuvable avec l'id " + mouvementDTO.getProduitId());
         }
 
-        BigDecimal nouveauCump = valeurAncienStock
-                .add(valeurNouvelleEntree)
-                .divide(BigDecimal.valueOf(nouveauStock), 2, RoundingMode.HALF_UP);
+        CommandeFournisseur commande = null;
+        if (mouvementDTO.getCommandeFournisseurId() != null) {
+            commande = commandes.get(mouvementDTO.getCommandeFournisseurId());
+            if (commande == null) {
+                throw new ResourceNotFoundException("Commande fournisseur introuvable avec l'id " + mouvementDTO.getCommandeFournisseurId());
+            }
+        }
+
+        MouvementStock mouvement = mouvementStockMapper.toEntity(mouvementDTO);
+        mouvement.setProduit(produit);
+        mouvement.setCommandeFournisseur(commande);
+        mouvement.setDateMouvement(
+                mouvementDTO.getDateMouvement() != null ? mouvementDTO.getDateMouvement() : LocalDateTime.now()
+        );
+
+        appliquerEnMemoire(produit, mouvement);
+        mouvement.setStockApresMouvement(produit.getStockActuel());
+        return mouvement;
+    }
+
+    // Le produit est verrouillé : on peut appliquer le mouvement sur l'entité, écrite au commit
+    private void appliquerEnMemoire(Produit produit, MouvementStock mouvement) {
+        int quantite = mouvement.getQuantite();
+
+        switch (mouvement.getTypeMouvement()) {
+            case ENTREE:
+                BigDecimal prixUnitaire = mouvement.getPrixUnitaire() != null
+                        ? mouvement.getPrixUnitaire()
+                        : produit.getPrixUnitaire();
+                mouvement.setPrixUnitaire(prixUnitaire);
+                ValorisationStock.appliquerEntree(produit, quantite, prixUnitaire);
+                break;
+
+            case SORTIE:
+                int stockApresSortie = produit.getStockActuel() - quantite;
+                if (stockApresSortie < 0) {
+                    throw new BusinessException("Stock insuffisant pour effectuer cette sortie");
+                }
+                produit.setStockActuel(stockApresSortie);
+                break;
+
+            case AJUSTEMENT:
+                if (quantite < 0) {
+                    throw new BusinessException("La quantité d'ajustement ne peut pas être négative");
+                }
+                produit.setStockActuel(quantite);
+                break;
+        }
+    }
 
-        produit.setCoutMoyenPondere(nouveauCump);
-        produit.setStockActuel(nouveauStock);
+    private Set<Long> collecterIds(List<MouvementStockDTO> mouvementsDTO, Function<MouvementStockDTO, Long> extracteur) {
+        return mouvementsDTO.stream()
+                .map(extracteur)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
     }
-}
\ No newline at end of file
+}
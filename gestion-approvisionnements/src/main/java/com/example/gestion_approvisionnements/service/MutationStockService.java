@@ -0,0 +1,141 @@
+package com.example.gestion_approvisionnements.service;
+
+import com.example.gestion_approvisionnements.entity.Produit;
+import com.example.gestion_approvisionnements.enums.TypeMouvement;
+import com.example.gestion_approvisionnements.exception.BusinessException;
+import com.example.gestion_approvisionnements.exception.ResourceNotFoundException;
+import com.example.gestion_approvisionnements.repository.ProduitRepository;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.CacheMode;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.function.Supplier;
+
+@Service
+@RequiredArgsConstructor
+public class MutationStockService {
+
+    private final ProduitRepository produitRepository;
+    private final EntityManager entityManager;
+    private final EntityManagerFactory entityManagerFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final CacheReferentielService cacheReferentielService;
+
+    @Value("${stock.mutation.max-tentatives:3}")
+    private int maxTentatives;
+
+    @Value("${stock.mutation.delai-reessai-ms:20}")
+    private long delaiReessaiMs;
+
+    public <T> T executerAvecReessais(Supplier<T> operation) {
+        // Déjà dans une transaction : c'est l'appelant qui porte le rejeu éventuel
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return operation.get();
+        }
+
+        int tentative = 1;
+        while (true) {
+            try {
+                return transactionTemplate.execute(status -> operation.get());
+            } catch (TransientDataAccessException ex) {
+                if (tentative >= maxTentatives) {
+                    throw new BusinessException("Conflit d'accès concurrent sur le stock, veuillez réessayer");
+                }
+                attendreAvantReessai(tentative);
+                tentative++;
+            }
+        }
+    }
+
+    public Produit appliquer(Long produitId, TypeMouvement type, int quantite, BigDecimal prixUnitaire) {
+        int lignesModifiees = switch (type) {
+            case ENTREE -> produitRepository.appliquerEntree(produitId, quantite, prixUnitaire);
+            case SORTIE -> produitRepository.appliquerSortie(produitId, quantite);
+            case AJUSTEMENT -> {
+                // Pour un ajustement, on définit directement la nouvelle valeur du stock
+                if (quantite < 0) {
+                    throw new BusinessException("La quantité d'ajustement ne peut pas être négative");
+                }
+                yield produitRepository.definirStock(produitId, quantite);
+            }
+        };
+
+        if (lignesModifiees == 0) {
+            if (!produitRepository.existsById(produitId)) {
+                throw new ResourceNotFoundException("Produit introuvable avec l'id " + produitId);
+            }
+            throw new BusinessException("Stock insuffisant pour effectuer cette sortie");
+        }
+
+        invalider(produitId);
+        return relire(produitId);
+    }
+
+    // Variation relative appliquée en une seule mise à jour conditionnelle : aucune lecture préalable du stock
+    public Produit ajuster(Long produitId, int variation) {
+        if (produitRepository.appliquerAjustement(produitId, variation) == 0) {
+            if (!produitRepository.existsById(produitId)) {
+                throw new ResourceNotFoundException("Produit introuvable avec l'id " + produitId);
+            }
+            throw new BusinessException("Le stock ne peut pas devenir négatif");
+        }
+
+        invalider(produitId);
+        return relire(produitId);
+    }
+
+    public void changerPrixUnitaire(Long produitId, BigDecimal prixUnitaire) {
+        if (produitRepository.changerPrixUnitaire(produitId, prixUnitaire) == 0) {
+            throw new ResourceNotFoundException("Produit introuvable avec l'id " + produitId);
+        }
+        invalider(produitId);
+    }
+
+    // Les mises à jour natives ne touchent pas au cache de second niveau : seul le produit modifié en est retiré,
+    // tout de suite puis à la fin de la transaction, comme pour le cache du référentiel
+    private void invalider(Long produitId) {
+        Cache cache = entityManagerFactory.getCache();
+        cache.evict(Produit.class, produitId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.evict(Produit.class, produitId);
+                }
+            });
+        }
+        cacheReferentielService.invaliderStock(produitId);
+    }
+
+    // La ligne reste verrouillée jusqu'au commit : la relecture renvoie notre propre état.
+    // Un seul SELECT, qu'il s'agisse d'un chargement ou du rafraîchissement d'une entité déjà gérée.
+    // Le chargement contourne le cache de second niveau, qui garde l'état d'avant la mise à jour jusqu'au commit.
+    private Produit relire(Long produitId) {
+        Produit produit = entityManager.getReference(Produit.class, produitId);
+        if (Hibernate.isInitialized(produit)) {
+            entityManager.refresh(produit);
+            return produit;
+        }
+        return entityManager.unwrap(Session.class).byId(Produit.class).with(CacheMode.IGNORE).load(produitId);
+    }
+
+    private void attendreAvantReessai(int tentative) {
+        try {
+            Thread.sleep(delaiReessaiMs * tentative);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("Mise à jour du stock interrompue");
+        }
+    }
+}
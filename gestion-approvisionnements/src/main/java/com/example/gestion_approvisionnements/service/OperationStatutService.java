@@ -0,0 +1,298 @@
+package com.example.gestion_approvisionnements.service;
+
+import com.example.gestion_approvisionnements.dto.OperationStatutDTO;
+import com.example.gestion_approvisionnements.dto.RejetOperationStatutDTO;
+import com.example.gestion_approvisionnements.entity.OperationStatut;
+import com.example.gestion_approvisionnements.entity.RejetOperationStatut;
+import com.example.gestion_approvisionnements.enums.EtatOperation;
+import com.example.gestion_approvisionnements.enums.StatutCommande;
+import com.example.gestion_approvisionnements.exception.BusinessException;
+import com.example.gestion_approvisionnements.exception.ResourceNotFoundException;
+import com.example.gestion_approvisionnements.mapper.OperationStatutMapper;
+import com.example.gestion_approvisionnements.repository.CommandeFournisseurRepository;
+import com.example.gestion_approvisionnements.repository.OperationStatutRepository;
+import com.example.gestion_approvisionnements.repository.RejetOperationStatutRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+// Changements de statut asynchrones : la demande est validée et enregistrée (operation_statut), puis
+// appliquée par un pool borné de workers (threads virtuels à partir de Java 21). Les échecs transitoires
+// sont rejoués, les opérations abandonnées vont dans operation_statut_rejet. La table fait foi :
+// une file pleine ou un redémarrage ne perdent rien, la reprise périodique remet les opérations en file.
+// Plusieurs instances : une opération EN_COURS appartient à l'instance qui l'a prise tant que celle-ci renouvelle
+// son bail ; seules les opérations au bail expiré sont reprises par les autres.
+@Service
+@RequiredArgsConstructor
+public class OperationStatutService {
+
+    private static final Set<EtatOperation> NON_TERMINEES = Set.of(EtatOperation.EN_ATTENTE, EtatOperation.EN_COURS);
+    private static final int ERREUR_MAX = 500;
+    private static final String VIOLATION_UNICITE = "23505";
+
+    private final OperationStatutRepository operationStatutRepository;
+    private final RejetOperationStatutRepository rejetOperationStatutRepository;
+    private final CommandeFournisseurRepository commandeFournisseurRepository;
+    private final CommandeFournisseurService commandeFournisseurService;
+    private final OperationStatutMapper operationStatutMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${commandes.operations.workers:4}")
+    private int workers;
+
+    @Value("${commandes.operations.threads-virtuels:true}")
+    private boolean threadsVirtuels;
+
+    @Value("${commandes.operations.capacite-file:1000}")
+    private int capaciteFile;
+
+    @Value("${commandes.operations.max-tentatives:5}")
+    private int maxTentatives;
+
+    @Value("${commandes.operations.delai-reessai-ms:200}")
+    private long delaiReessaiMs;
+
+    @Value("${commandes.operations.reprise-ms:10000}")
+    private long repriseMs;
+
+    @Value("${commandes.operations.bail-ms:60000}")
+    private long bailMs;
+
+    private final String instance = UUID.randomUUID().toString();
+
+    private BlockingQueue<Long> file;
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean enService;
+
+    @PostConstruct
+    void demarrer() {
+        file = new ArrayBlockingQueue<>(capaciteFile);
+        meterRegistry.gauge("commandes.operations.file", file, BlockingQueue::size);
+        transactionTemplate.executeWithoutResult(status -> operationStatutRepository.remettreEnAttente(finDeBail()));
+
+        enService = true;
+        ThreadFactory fabrique = threadsVirtuels && Runtime.version().feature() >= 21
+                ? new VirtualThreadTaskExecutor("operation-statut-").getVirtualThreadFactory()
+                : new CustomizableThreadFactory("operation-statut-");
+        for (int i = 0; i < workers; i++) {
+            Thread thread = fabrique.newThread(this::boucler);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+    }
+
+    // Les opérations encore en file restent EN_ATTENTE en base et seront reprises au redémarrage
+    @PreDestroy
+    void arreter() throws InterruptedException {
+        enService = false;
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        threads.clear();
+    }
+
+    @Transactional
+    public OperationStatutDTO soumettre(Long commandeId, StatutCommande statut) {
+        if (statut == null) {
+            throw new BusinessException("Le statut cible est obligatoire");
+        }
+        if (!commandeFournisseurRepository.existsById(commandeId)) {
+            throw new ResourceNotFoundException("Commande fournisseur introuvable avec l'id " + commandeId);
+        }
+        if (operationStatutRepository.existsByCommandeIdAndEtatIn(commandeId, NON_TERMINEES)) {
+            throw dejaEnCours(commandeId);
+        }
+
+        OperationStatut operation = new OperationStatut();
+        operation.setCommandeId(commandeId);
+        operation.setStatutCible(statut);
+        operation.setEtat(EtatOperation.EN_ATTENTE);
+        operation.setDateCreation(LocalDateTime.now());
+        OperationStatut saved = enregistrer(operation);
+
+        // Mise en file après le commit : un worker ne peut pas prendre une opération encore invisible
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                planifier(saved.getId());
+            }
+        });
+        return operationStatutMapper.toDTO(saved);
+    }
+
+    @Transactional(readOnly = true)
+    public OperationStatutDTO getOperation(Long id) {
+        return operationStatutRepository.findById(id)
+                .map(operationStatutMapper::toDTO)
+                .orElseThrow(() -> new ResourceNotFoundException("Opération introuvable avec l'id " + id));
+    }
+
+    @Transactional(readOnly = true)
+    public Page<RejetOperationStatutDTO> getRejets(Pageable pageable) {
+        return rejetOperationStatutRepository.findAll(pageable).map(operationStatutMapper::toDTO);
+    }
+
+    // Rejeu d'une opération abandonnée : nouvelle opération, le rejet quitte la file
+    @Transactional
+    public OperationStatutDTO rejouer(Long rejetId) {
+        RejetOperationStatut rejet = rejetOperationStatutRepository.findById(rejetId)
+                .orElseThrow(() -> new ResourceNotFoundException("Rejet introuvable pour l'opération " + rejetId));
+        rejetOperationStatutRepository.delete(rejet);
+        return soumettre(rejet.getCommandeId(), rejet.getStatutCible());
+    }
+
+    // Opérations restées en attente : file pleine à la soumission, ou arrêt avant leur traitement.
+    // Renouvelle aussi le bail des opérations de cette instance et récupère celles des instances arrêtées.
+    @Scheduled(fixedDelayString = "${commandes.operations.reprise-ms:10000}")
+    public void reprendre() {
+        transactionTemplate.executeWithoutResult(status -> {
+            operationStatutRepository.prolonger(instance, LocalDateTime.now());
+            int reprises = operationStatutRepository.remettreEnAttente(finDeBail());
+            if (reprises > 0) {
+                meterRegistry.counter("commandes.operations.reprises_bail_expire").increment(reprises);
+            }
+        });
+        int place = file.remainingCapacity();
+        if (!enService || place == 0) {
+            return;
+        }
+        LocalDateTime avant = LocalDateTime.now().minusNanos(TimeUnit.MILLISECONDS.toNanos(repriseMs));
+        operationStatutRepository.findIdsEnAttente(avant, Limit.of(place)).forEach(this::planifier);
+    }
+
+    private void planifier(Long operationId) {
+        // File pleine : l'opération reste EN_ATTENTE, la reprise la remettra en file
+        file.offer(operationId);
+    }
+
+    private void boucler() {
+        while (enService) {
+            try {
+                Long operationId = file.poll(100, TimeUnit.MILLISECONDS);
+                if (operationId != null) {
+                    traiter(operationId);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException ex) {
+                // Base indisponible jusque pour le rejet : l'opération reste EN_COURS jusqu'au redémarrage,
+                // le worker continue avec les suivantes
+            }
+        }
+    }
+
+    void traiter(Long operationId) throws InterruptedException {
+        Integer prise = transactionTemplate.execute(
+                status -> operationStatutRepository.prendre(operationId, instance, LocalDateTime.now()));
+        if (prise == null || prise == 0) {
+            // Déjà prise par un autre worker, ou supprimée avec sa commande
+            return;
+        }
+
+        for (int tentative = 1; ; tentative++) {
+            int courante = tentative;
+            try {
+                transactionTemplate.executeWithoutResult(status -> appliquer(operationId, courante));
+                return;
+            } catch (RuntimeException ex) {
+                if (!estTransitoire(ex) || tentative >= maxTentatives) {
+                    transactionTemplate.executeWithoutResult(status -> rejeter(operationId, courante, ex));
+                    return;
+                }
+            }
+            Thread.sleep(delaiReessaiMs * (1L << (tentative - 1)));
+        }
+    }
+
+    // Changement de statut et fin de l'opération dans la même transaction : tout ou rien.
+    // Opération reprise par une autre instance (bail expiré pendant une pause) : plus rien à faire ici.
+    private void appliquer(Long operationId, int tentative) {
+        OperationStatut operation = operationStatutRepository.findByIdForUpdate(operationId)
+                .orElseThrow(() -> new ResourceNotFoundException("Opération introuvable avec l'id " + operationId));
+        if (!appartient(operation)) {
+            meterRegistry.counter("commandes.operations.bails_perdus").increment();
+            return;
+        }
+        commandeFournisseurService.updateStatut(operation.getCommandeId(), operation.getStatutCible());
+        operation.setEtat(EtatOperation.TERMINEE);
+        operation.setTentatives(tentative);
+        operation.setDateFin(LocalDateTime.now());
+    }
+
+    private void rejeter(Long operationId, int tentatives, RuntimeException ex) {
+        operationStatutRepository.findByIdForUpdate(operationId).filter(this::appartient).ifPresent(operation -> {
+            String erreur = ex.getMessage() != null ? ex.getMessage() : ex.getClass().getSimpleName();
+            erreur = erreur.length() > ERREUR_MAX ? erreur.substring(0, ERREUR_MAX) : erreur;
+            operation.setEtat(EtatOperation.ECHOUEE);
+            operation.setTentatives(tentatives);
+            operation.setErreur(erreur);
+            operation.setDateFin(LocalDateTime.now());
+            rejetOperationStatutRepository.save(new RejetOperationStatut(operation.getId(), operation.getCommandeId(),
+                    operation.getStatutCible(), tentatives, erreur, operation.getDateFin()));
+        });
+    }
+
+    // Soumissions concurrentes pour une même commande : l'index unique partiel du changelog 019
+    // (PostgreSQL) n'admet qu'une opération EN_ATTENTE ou EN_COURS, la seconde reçoit le même 409
+    private OperationStatut enregistrer(OperationStatut operation) {
+        try {
+            return operationStatutRepository.saveAndFlush(operation);
+        } catch (DataIntegrityViolationException ex) {
+            if (ex.getCause() instanceof ConstraintViolationException violation
+                    && VIOLATION_UNICITE.equals(violation.getSQLState())) {
+                throw dejaEnCours(operation.getCommandeId());
+            }
+            throw ex;
+        }
+    }
+
+    private boolean appartient(OperationStatut operation) {
+        return operation.getEtat() == EtatOperation.EN_COURS && instance.equals(operation.getInstance());
+    }
+
+    private LocalDateTime finDeBail() {
+        return LocalDateTime.now().minusNanos(TimeUnit.MILLISECONDS.toNanos(bailMs));
+    }
+
+    private BusinessException dejaEnCours(Long commandeId) {
+        return new BusinessException("Un changement de statut est déjà en cours pour la commande " + commandeId);
+    }
+
+    // Verrou, conflit de version, connexion perdue : une nouvelle tentative peut réussir
+    private boolean estTransitoire(RuntimeException ex) {
+        return ex instanceof TransientDataAccessException
+                || ex instanceof RecoverableDataAccessException
+                || ex instanceof CannotCreateTransactionException;
+    }
+}
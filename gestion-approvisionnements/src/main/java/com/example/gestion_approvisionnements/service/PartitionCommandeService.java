@@ -0,0 +1,29 @@
+package com.example.gestion_approvisionnements.service;
+
+import com.example.gestion_approvisionnements.repository.CommandeFournisseurRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Year;
+
+// Partitions annuelles de commande_fournisseur et ligne_commande (PostgreSQL) : l'année en cours et les suivantes
+// existent toujours avant qu'une commande n'y soit datée. Sans partition, la ligne irait dans la partition par défaut.
+@Service
+@RequiredArgsConstructor
+public class PartitionCommandeService {
+
+    private final CommandeFournisseurRepository commandeFournisseurRepository;
+
+    @Value("${commandes.partitions.annees-avance:2}")
+    private int anneesAvance;
+
+    @Scheduled(cron = "${commandes.partitions.cron:-}")
+    @Transactional
+    public int creerPartitionsAVenir() {
+        int annee = Year.now().getValue();
+        return commandeFournisseurRepository.creerPartitions(annee, annee + anneesAvance);
+    }
+}
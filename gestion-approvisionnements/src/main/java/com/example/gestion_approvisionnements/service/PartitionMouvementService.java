@@ -0,0 +1,203 @@
+package com.example.gestion_approvisionnements.service;
+
+import com.example.gestion_approvisionnements.dto.MouvementArchiveDTO;
+import com.example.gestion_approvisionnements.dto.MouvementStockDTO;
+import com.example.gestion_approvisionnements.entity.ArchiveMouvement;
+import com.example.gestion_approvisionnements.entity.SoldeArchiveMouvement;
+import com.example.gestion_approvisionnements.repository.ArchiveMouvementRepository;
+import com.example.gestion_approvisionnements.repository.MouvementStockRepository;
+import com.example.gestion_approvisionnements.repository.ProduitRepository;
+import com.example.gestion_approvisionnements.repository.SoldeArchiveMouvementRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Partitions mensuelles de mouvement_stock (PostgreSQL) et archivage à froid des mois sortis de la fenêtre de
+// rétention : la partition est détachée, ses mouvements écrits dans un fichier compressé indexé par produit, et
+// le solde de chaque produit après ses mouvements archivés conservé en base pour les rejeux du journal.
+@Service
+@RequiredArgsConstructor
+public class PartitionMouvementService {
+
+    private static final Pattern PARTITION_MENSUELLE = Pattern.compile("mouvement_stock_(\\d{4})_(\\d{2})");
+
+    private final MouvementStockRepository mouvementStockRepository;
+    private final ArchiveMouvementRepository archiveMouvementRepository;
+    private final SoldeArchiveMouvementRepository soldeArchiveMouvementRepository;
+    private final ProduitRepository produitRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${stock.partitions.mois-avance:3}")
+    private int moisAvance;
+
+    @Value("${stock.archives.retention-mois:24}")
+    private int retentionMois;
+
+    @Value("${stock.archives.repertoire:archives/mouvements}")
+    private String repertoire;
+
+    private FichierArchiveMouvements fichiers;
+
+    @PostConstruct
+    void initialiser() {
+        fichiers = new FichierArchiveMouvements(Path.of(repertoire), objectMapper);
+    }
+
+    @Scheduled(cron = "${stock.partitions.cron:-}")
+    @Transactional
+    public int creerPartitionsAVenir() {
+        YearMonth mois = YearMonth.now();
+        return mouvementStockRepository.creerPartitions(mois.atDay(1), mois.plusMonths(moisAvance).atDay(1));
+    }
+
+    // Mois entièrement sortis de la fenêtre de rétention, du plus ancien au plus récent
+    @Scheduled(cron = "${stock.archives.cron:-}")
+    public int archiver() {
+        YearMonth limite = YearMonth.now().minusMonths(retentionMois);
+        int archives = 0;
+        for (YearMonth mois : partitionsMensuelles()) {
+            if (mois.isBefore(limite)) {
+                archiverMois(mois);
+                archives++;
+            }
+        }
+        return archives;
+    }
+
+    // Fichiers écrits avant le détachement, dans la transaction qui le valide : supprimés si elle échoue
+    public long archiverMois(YearMonth mois) {
+        try {
+            return transactionTemplate.execute(status -> archiverDansTransaction(mois));
+        } catch (RuntimeException ex) {
+            fichiers.supprimer(mois);
+            throw ex;
+        }
+    }
+
+    // Mouvements archivés d'un produit après la position et avant la borne (exclue), dans l'ordre de l'historique
+    public List<MouvementStockDTO> lireArchives(Long produitId, CurseurMouvement position, LocalDateTime fin,
+                                                int limite) {
+        List<MouvementStockDTO> mouvements = new ArrayList<>();
+        for (ArchiveMouvement archive : archiveMouvementRepository.findAllByOrderByMoisAsc()) {
+            YearMonth mois = YearMonth.from(archive.getMois());
+            if (fin != null && !archive.getMois().atStartOfDay().isBefore(fin)) {
+                break;
+            }
+            if (position != null && !mois.plusMonths(1).atDay(1).atStartOfDay().isAfter(position.dateMouvement())) {
+                continue;
+            }
+            for (MouvementStockDTO mouvement : fichiers.lire(mois, produitId)) {
+                if ((position == null || position.precede(mouvement))
+                        && (fin == null || mouvement.getDateMouvement().isBefore(fin))) {
+                    mouvements.add(mouvement);
+                    if (mouvements.size() == limite) {
+                        return mouvements;
+                    }
+                }
+            }
+        }
+        return mouvements;
+    }
+
+    private List<YearMonth> partitionsMensuelles() {
+        List<YearMonth> mois = new ArrayList<>();
+        for (String partition : mouvementStockRepository.findPartitions()) {
+            Matcher matcher = PARTITION_MENSUELLE.matcher(partition);
+            if (matcher.matches()) {
+                mois.add(YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2))));
+            }
+        }
+        mois.sort(null);
+        return mois;
+    }
+
+    private long archiverDansTransaction(YearMonth mois) {
+        long archives = 0;
+        List<SoldeArchiveMouvement> soldes = new ArrayList<>();
+        try (FichierArchiveMouvements.Ecriture ecriture = fichiers.ouvrir(mois);
+             Stream<MouvementArchiveDTO> mouvements = mouvementStockRepository.streamArchivables(
+                     mois.atDay(1).atStartOfDay(), mois.plusMonths(1).atDay(1).atStartOfDay())) {
+            // Flux groupé par produit : un membre du fichier et un solde par groupe
+            List<MouvementArchiveDTO> groupe = new ArrayList<>();
+            Iterator<MouvementArchiveDTO> iterateur = mouvements.iterator();
+            while (iterateur.hasNext()) {
+                MouvementArchiveDTO mouvement = iterateur.next();
+                if (!groupe.isEmpty() && !groupe.get(0).getProduitId().equals(mouvement.getProduitId())) {
+                    soldes.add(archiverProduit(ecriture, mois, groupe));
+                    archives += groupe.size();
+                    groupe = new ArrayList<>();
+                }
+                groupe.add(mouvement);
+            }
+            if (!groupe.isEmpty()) {
+                soldes.add(archiverProduit(ecriture, mois, groupe));
+                archives += groupe.size();
+            }
+            ecriture.terminer();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        // Un mouvement écrit ou supprimé entre la lecture et le détachement fait échouer le mois, repris au prochain passage
+        Long supprimes = mouvementStockRepository.archiverPartition(mois.atDay(1));
+        if (supprimes == null || supprimes != archives) {
+            throw new IllegalStateException("Archivage de " + FichierArchiveMouvements.nom(mois) + " annulé : "
+                    + archives + " mouvements écrits, " + supprimes + " retirés de la base");
+        }
+        soldeArchiveMouvementRepository.saveAll(soldes);
+        archiveMouvementRepository.save(new ArchiveMouvement(mois.atDay(1),
+                fichiers.donnees(mois).getFileName().toString(), archives, LocalDateTime.now()));
+        return archives;
+    }
+
+    // Mouvements d'un produit dans l'ordre du journal (création, id), appliqués au solde de ses archives précédentes
+    private SoldeArchiveMouvement archiverProduit(FichierArchiveMouvements.Ecriture ecriture, YearMonth mois,
+                                                  List<MouvementArchiveDTO> mouvements) throws IOException {
+        Long produitId = mouvements.get(0).getProduitId();
+        LocalDate premierJour = mois.atDay(1);
+        SoldeArchiveMouvement precedent = soldeArchiveMouvementRepository.findById(produitId).orElse(null);
+
+        // Produit lu seulement pour son solde d'ouverture (premier mois archivé) ou une entrée sans prix enregistré
+        RejeuStock rejeu = RejeuStock.depuisSolde(produitRepository.getReferenceById(produitId), precedent);
+        SoldeArchiveMouvement solde = precedent != null ? precedent
+                : new SoldeArchiveMouvement(produitId, 0, BigDecimal.ZERO, null, premierJour, 0L);
+        List<MouvementStockDTO> historique = new ArrayList<>(mouvements.size());
+        for (MouvementArchiveDTO mouvement : mouvements) {
+            rejeu.appliquer(mouvement.getTypeMouvement(), mouvement.getQuantite(), mouvement.getPrixUnitaire());
+            historique.add(new MouvementStockDTO(mouvement.getId(), mouvement.getDateMouvement(),
+                    mouvement.getQuantite(), mouvement.getTypeMouvement(), mouvement.getPrixUnitaire(),
+                    mouvement.getStockApresMouvement(), produitId, null, mouvement.getCommandeFournisseurId()));
+        }
+        historique.sort(CurseurMouvement.ORDRE);
+        ecriture.ajouter(produitId, historique);
+
+        solde.setStock(rejeu.stock());
+        solde.setCoutMoyenPondere(rejeu.coutMoyenPondere());
+        solde.setDernierCreatedAt(mouvements.get(mouvements.size() - 1).getCreatedAt());
+        if (solde.getMoisArchive().isBefore(premierJour)) {
+            solde.setMoisArchive(premierJour);
+        }
+        solde.setMouvementsArchives(solde.getMouvementsArchives() + mouvements.size());
+        return solde;
+    }
+}
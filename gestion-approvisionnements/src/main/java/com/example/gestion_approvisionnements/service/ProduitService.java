@@ -1,6 +1,7 @@
 package com.example.gestion_approvisionnements.service;
 
 import com.example.gestion_approvisionnements.dto.ProduitDTO;
+import com.example.gestion_approvisionnements.dto.VersionEntiteDTO;
 import com.example.gestion_approvisionnements.entity.Produit;
 import com.example.gestion_approvisionnements.exception.BusinessException;
 import com.example.gestion_approvisionnements.exception.ResourceNotFoundException;
@@ -10,13 +11,13 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
-import com.example.gestion_approvisionnements.dto.MouvementStockDTO;
-import com.example.gestion_approvisionnements.enums.TypeMouvement;
 import com.example.gestion_approvisionnements.service.MouvementStockService;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
@@ -26,18 +27,40 @@ public class ProduitService {
     private final ProduitRepository produitRepository;
     private final ProduitMapper produitMapper;
     private final MouvementStockService mouvementStockService;
+    private final CacheReferentielService cacheReferentielService;
 
     @Transactional(readOnly = true)
     public Page<ProduitDTO> getAllProduits(Pageable pageable) {
-        return produitRepository.findAll(pageable)
-                .map(produitMapper::toDTO);
+        return getProduitsVersionnes(pageable).contenu();
+    }
+
+    @Transactional(readOnly = true)
+    public RessourceVersionnee<Page<ProduitDTO>> getProduitsVersionnes(Pageable pageable) {
+        Page<Produit> page = produitRepository.findAll(pageable);
+        return new RessourceVersionnee<>(page.map(produitMapper::toDTO),
+                VersionRessource.page(page.map(this::version).getContent(), page.getTotalElements()));
     }
 
     @Transactional(readOnly = true)
     public ProduitDTO getProduitById(Long id) {
-        Produit produit = produitRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Produit introuvable avec l'id " + id));
-        return produitMapper.toDTO(produit);
+        return getProduitVersionne(id).contenu();
+    }
+
+    @Transactional(readOnly = true)
+    public RessourceVersionnee<ProduitDTO> getProduitVersionne(Long id) {
+        return cacheReferentielService.produit(id, this::chargerProduit);
+    }
+
+    // GET conditionnels : versions lues seules, sans charger ni mapper les produits
+    @Transactional(readOnly = true)
+    public Optional<VersionRessource> getVersionProduit(Long id) {
+        return produitRepository.findVersionById(id).map(VersionRessource::entite);
+    }
+
+    @Transactional(readOnly = true)
+    public VersionRessource getVersionProduits(Pageable pageable) {
+        Page<VersionEntiteDTO> versions = produitRepository.findVersions(pageable);
+        return VersionRessource.page(versions.getContent(), versions.getTotalElements());
     }
 
     public ProduitDTO createProduit(ProduitDTO produitDTO) {
@@ -50,6 +73,8 @@ public class ProduitService {
     }
 
     Produit saved = produitRepository.save(produit);
+    // Rien en cache pour ce nouvel id, mais les recherches par catégorie des autres instances sont à rafraîchir
+    cacheReferentielService.invaliderProduit(saved.getId());
     return produitMapper.toDTO(saved);
 }
 
@@ -61,6 +86,7 @@ public class ProduitService {
 
         produitMapper.updateEntityFromDTO(produitDTO, existing);
         Produit updated = produitRepository.save(existing);
+        cacheReferentielService.invaliderProduit(id);
         return produitMapper.toDTO(updated);
     }
 
@@ -69,6 +95,7 @@ public class ProduitService {
             throw new ResourceNotFoundException("Produit introuvable avec l'id " + id);
         }
         produitRepository.deleteById(id);
+        cacheReferentielService.invaliderProduit(id);
     }
 
     @Transactional(readOnly = true)
@@ -81,39 +108,15 @@ public class ProduitService {
         return produitMapper.toDTOList(produitRepository.findByStockActuelLessThanEqual(seuil));
     }
 
+    // Stock modifié par mises à jour relatives en base, rejouées sur conflit transitoire :
+    // pas de lecture-modification-écriture de l'entité
+    @Transactional(propagation = Propagation.SUPPORTS)
     public void ajusterStock(Long produitId, int variation, BigDecimal nouveauPrixUnitaire) {
-        Produit produit = produitRepository.findById(produitId)
-                .orElseThrow(() -> new ResourceNotFoundException("Produit introuvable avec l'id " + produitId));
-
-        int nouveauStock = produit.getStockActuel();
-        
-        // Création du mouvement
-        MouvementStockDTO mouvement = new MouvementStockDTO();
-        mouvement.setProduitId(produitId);
-        
         if (nouveauPrixUnitaire != null && nouveauPrixUnitaire.compareTo(BigDecimal.ZERO) > 0) {
-            // Cas 1: Nouvel arrivage avec nouveau prix
-            mouvement.setTypeMouvement(TypeMouvement.ENTREE);
-            mouvement.setQuantite(variation);
-            mouvement.setPrixUnitaire(nouveauPrixUnitaire);
-            produit.setPrixUnitaire(nouveauPrixUnitaire);
+            mouvementStockService.enregistrerArrivage(produitId, variation, nouveauPrixUnitaire);
         } else {
-            // Cas 2: Ajustement simple de stock
-            mouvement.setTypeMouvement(TypeMouvement.AJUSTEMENT);
-            nouveauStock += variation;  // On ajoute la variation ici
-            if (nouveauStock < 0) {
-                throw new BusinessException("Le stock ne peut pas devenir négatif");
-            }
-            mouvement.setQuantite(nouveauStock);
-            mouvement.setPrixUnitaire(produit.getPrixUnitaire());
+            mouvementStockService.enregistrerAjustement(produitId, variation);
         }
-
-        // Mise à jour du stock
-        produit.setStockActuel(nouveauStock);
-        produitRepository.save(produit);
-
-        // Enregistrement du mouvement
-        mouvementStockService.enregistrerMouvement(mouvement);
     }
 
     public void mettreAJourCoutMoyen(Long produitId, BigDecimal nouveauCump) {
@@ -125,6 +128,17 @@ public class ProduitService {
 
         produit.setCoutMoyenPondere(nouveauCump);
         produitRepository.save(produit);
+        cacheReferentielService.invaliderProduit(produitId);
+    }
+
+    private RessourceVersionnee<ProduitDTO> chargerProduit(Long id) {
+        Produit produit = produitRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Produit introuvable avec l'id " + id));
+        return new RessourceVersionnee<>(produitMapper.toDTO(produit), VersionRessource.entite(version(produit)));
+    }
+
+    private VersionEntiteDTO version(Produit produit) {
+        return new VersionEntiteDTO(produit.getId(), produit.getVersion(), produit.getUpdatedAt());
     }
 
     private void validateProduit(ProduitDTO produitDTO) {
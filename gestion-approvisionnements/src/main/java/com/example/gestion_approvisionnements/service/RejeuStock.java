@@ -0,0 +1,90 @@
+package com.example.gestion_approvisionnements.service;
+
+import com.example.gestion_approvisionnements.dto.StockALaDateDTO;
+import com.example.gestion_approvisionnements.entity.InstantaneStock;
+import com.example.gestion_approvisionnements.entity.MouvementStock;
+import com.example.gestion_approvisionnements.entity.Produit;
+import com.example.gestion_approvisionnements.entity.SoldeArchiveMouvement;
+import com.example.gestion_approvisionnements.enums.TypeMouvement;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Rejoue des mouvements du journal sur un état de valorisation séparé du produit, parti d'un instantané,
+// du solde de ses mouvements archivés ou de son solde d'ouverture (zéro s'il est inconnu)
+final class RejeuStock {
+
+    private final Produit produit;
+    private final ValorisationStock valorisation;
+    private final LocalDateTime dateInstantane;
+    private int mouvementsRejoues;
+
+    RejeuStock(Produit produit, InstantaneStock instantane) {
+        this(produit, instantane != null ? instantane.getDateInstantane() : null,
+                instantane != null ? instantane.getStock() : stockOuverture(produit),
+                instantane != null ? instantane.getCoutMoyenPondere() : coutMoyenPondereOuverture(produit));
+    }
+
+    private RejeuStock(Produit produit, LocalDateTime dateInstantane, int stock, BigDecimal coutMoyenPondere) {
+        this.produit = produit;
+        this.dateInstantane = dateInstantane;
+        this.valorisation = new ValorisationStock(stock, coutMoyenPondere);
+    }
+
+    static RejeuStock depuisSolde(Produit produit, SoldeArchiveMouvement solde) {
+        if (solde == null) {
+            return new RejeuStock(produit, null);
+        }
+        return new RejeuStock(produit, null, solde.getStock(), solde.getCoutMoyenPondere());
+    }
+
+    static RejeuStock depuisZero(Produit produit) {
+        return new RejeuStock(produit, null, 0, BigDecimal.ZERO);
+    }
+
+    private static int stockOuverture(Produit produit) {
+        return produit.getStockOuverture() != null ? produit.getStockOuverture() : 0;
+    }
+
+    private static BigDecimal coutMoyenPondereOuverture(Produit produit) {
+        return produit.getCoutMoyenPondereOuverture() != null ? produit.getCoutMoyenPondereOuverture() : BigDecimal.ZERO;
+    }
+
+    void appliquer(MouvementStock mouvement) {
+        appliquer(mouvement.getTypeMouvement(), mouvement.getQuantite(), mouvement.getPrixUnitaire());
+    }
+
+    void appliquer(TypeMouvement type, int quantite, BigDecimal prixUnitaire) {
+        switch (type) {
+            // Entrées antérieures à l'enregistrement du prix retenu : prix catalogue courant
+            case ENTREE -> valorisation.entree(quantite,
+                    prixUnitaire != null ? prixUnitaire : produit.getPrixUnitaire());
+            // Le journal a déjà été validé à l'écriture : pas de contrôle de stock au rejeu
+            case SORTIE -> valorisation.sortie(quantite);
+            case AJUSTEMENT -> valorisation.ajustement(quantite);
+        }
+        mouvementsRejoues++;
+    }
+
+    Produit produit() {
+        return produit;
+    }
+
+    int stock() {
+        return valorisation.stock();
+    }
+
+    BigDecimal coutMoyenPondere() {
+        return valorisation.coutMoyenPondere();
+    }
+
+    int mouvementsRejoues() {
+        return mouvementsRejoues;
+    }
+
+    StockALaDateDTO resultat(LocalDate date) {
+        return new StockALaDateDTO(produit.getId(), produit.getNom(), date, stock(),
+                coutMoyenPondere(), dateInstantane, mouvementsRejoues);
+    }
+}
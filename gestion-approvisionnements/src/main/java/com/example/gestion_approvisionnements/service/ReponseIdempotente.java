@@ -0,0 +1,13 @@
+package com.example.gestion_approvisionnements.service;
+
+// Réponse HTTP conservée pour une clé d'idempotence, rendue telle quelle aux requêtes répétées
+public record ReponseIdempotente(int statut, String contentType, byte[] corps) {
+
+    boolean reussie() {
+        return statut >= 200 && statut < 300;
+    }
+
+    ReponseIdempotente sansCorps() {
+        return new ReponseIdempotente(statut, null, new byte[0]);
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.gestion_approvisionnements.service;
+
+// Contenu d'une réponse et version des données dont il est issu : l'ETag renvoyé correspond toujours au contenu,
+// même servi par un cache en retard sur la base
+public record RessourceVersionnee<T>(T contenu, VersionRessource version) {
+}
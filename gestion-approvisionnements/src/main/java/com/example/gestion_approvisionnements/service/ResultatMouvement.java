@@ -0,0 +1,7 @@
+package com.example.gestion_approvisionnements.service;
+
+import com.example.gestion_approvisionnements.dto.MouvementStockDTO;
+
+// Issue d'une demande dans un lot ou un commit groupé : le mouvement enregistré, ou l'exception métier qui l'a refusé
+public record ResultatMouvement(MouvementStockDTO mouvement, RuntimeException erreur) {
+}
@@ -0,0 +1,84 @@
+package com.example.gestion_approvisionnements.service;
+
+import com.example.gestion_approvisionnements.entity.Montant;
+import com.example.gestion_approvisionnements.entity.Produit;
+
+import java.math.BigDecimal;
+
+// Calcul du CUMP partagé par l'application des mouvements en mémoire et leur rejeu pour un stock à date.
+// Le rejeu enchaîne ses entrées sur un CUMP entier (valeur × 10^-echelle) : seul le prix de chaque entrée est
+// converti, le CUMP ne redevient un BigDecimal qu'à la lecture du résultat
+final class ValorisationStock {
+
+    private static final int ECHELLE_CUMP = 2;
+
+    private int stock;
+    private long cump;
+    private int echelleCump;
+    // Renseigné tant que le CUMP ne tient pas dans un long : l'entrée suivante est calculée en BigDecimal
+    private BigDecimal cumpHorsLong;
+
+    ValorisationStock(int stock, BigDecimal coutMoyenPondere) {
+        this.stock = stock;
+        definirCump(coutMoyenPondere != null ? coutMoyenPondere : BigDecimal.ZERO);
+    }
+
+    static void appliquerEntree(Produit produit, int quantiteEntree, BigDecimal prixUnitaire) {
+        ValorisationStock valorisation = new ValorisationStock(produit.getStockActuel(), produit.getCoutMoyenPondere());
+        valorisation.entree(quantiteEntree, prixUnitaire);
+        produit.setCoutMoyenPondere(valorisation.coutMoyenPondere());
+        produit.setStockActuel(valorisation.stock());
+    }
+
+    void entree(int quantiteEntree, BigDecimal prixUnitaire) {
+        int nouveauStock = stock + quantiteEntree;
+
+        if (nouveauStock <= 0) {
+            definirCump(BigDecimal.ZERO);
+            stock = 0;
+            return;
+        }
+
+        if (cumpHorsLong == null) {
+            try {
+                int echelleCommune = Math.max(echelleCump, prixUnitaire.scale());
+                long prix = Montant.valeurEntiere(prixUnitaire, echelleCommune);
+                cump = Montant.moyennePonderee(Montant.aEchelle(cump, echelleCump, echelleCommune), stock,
+                        prix, quantiteEntree, echelleCommune, ECHELLE_CUMP);
+                echelleCump = ECHELLE_CUMP;
+                stock = nouveauStock;
+                return;
+            } catch (ArithmeticException horsLong) {
+                // Calcul refait ci-dessous en BigDecimal, l'état n'a pas été modifié
+            }
+        }
+        definirCump(Montant.moyennePonderee(coutMoyenPondere(), stock, prixUnitaire, quantiteEntree, ECHELLE_CUMP));
+        stock = nouveauStock;
+    }
+
+    void sortie(int quantite) {
+        stock -= quantite;
+    }
+
+    void ajustement(int quantite) {
+        stock = quantite;
+    }
+
+    int stock() {
+        return stock;
+    }
+
+    BigDecimal coutMoyenPondere() {
+        return cumpHorsLong != null ? cumpHorsLong : BigDecimal.valueOf(cump, echelleCump);
+    }
+
+    private void definirCump(BigDecimal coutMoyenPondere) {
+        try {
+            cump = Montant.valeurEntiere(coutMoyenPondere);
+            echelleCump = coutMoyenPondere.scale();
+            cumpHorsLong = null;
+        } catch (ArithmeticException horsLong) {
+            cumpHorsLong = coutMoyenPondere;
+        }
+    }
+}
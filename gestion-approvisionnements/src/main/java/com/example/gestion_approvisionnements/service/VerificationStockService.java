@@ -0,0 +1,266 @@
+package com.example.gestion_approvisionnements.service;
+
+import com.example.gestion_approvisionnements.dto.EcartStockDTO;
+import com.example.gestion_approvisionnements.dto.MouvementJournalDTO;
+import com.example.gestion_approvisionnements.dto.VerificationStockDTO;
+import com.example.gestion_approvisionnements.entity.Produit;
+import com.example.gestion_approvisionnements.entity.SoldeArchiveMouvement;
+import com.example.gestion_approvisionnements.enums.EtatVerification;
+import com.example.gestion_approvisionnements.exception.BusinessException;
+import com.example.gestion_approvisionnements.exception.ResourceNotFoundException;
+import com.example.gestion_approvisionnements.repository.MouvementStockRepository;
+import com.example.gestion_approvisionnements.repository.ProduitRepository;
+import com.example.gestion_approvisionnements.repository.SoldeArchiveMouvementRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+// Vérifie que le stock et le CUMP enregistrés sur chaque produit sont ceux obtenus en rejouant
+// tout son journal depuis zéro, ou depuis le solde de ses mouvements archivés. Le catalogue est découpé
+// en plages d'id traitées en parallèle (fork-join), chaque plage dans sa propre transaction avec un seul
+// parcours en flux de ses mouvements, lus en projection.
+@Service
+@RequiredArgsConstructor
+public class VerificationStockService {
+
+    private static final int HISTORIQUE = 20;
+
+    private final ProduitRepository produitRepository;
+    private final MouvementStockRepository mouvementStockRepository;
+    private final SoldeArchiveMouvementRepository soldeArchiveMouvementRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final CacheReferentielService cacheReferentielService;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<Long, Verification> verifications = new ConcurrentHashMap<>();
+    private final AtomicReference<Verification> enCours = new AtomicReference<>();
+
+    @Value("${stock.verification.parallelisme:4}")
+    private int parallelisme;
+
+    @Value("${stock.verification.taille-plage:1000}")
+    private int taillePlage;
+
+    @Value("${stock.verification.ecarts-max:1000}")
+    private int ecartsMax;
+
+    // Lancement en arrière-plan : l'avancement se suit avec getVerification
+    public VerificationStockDTO lancer(boolean reparation) {
+        Verification verification = demarrer(reparation);
+        Thread thread = new Thread(() -> executer(verification), "verification-stock-" + verification.id);
+        thread.setDaemon(true);
+        thread.start();
+        return verification.toDTO();
+    }
+
+    public VerificationStockDTO verifier(boolean reparation) {
+        Verification verification = demarrer(reparation);
+        executer(verification);
+        return verification.toDTO();
+    }
+
+    @Scheduled(cron = "${stock.verification.cron:-}")
+    public void verifierPeriodiquement() {
+        verifier(false);
+    }
+
+    public VerificationStockDTO getVerification(Long id) {
+        Verification verification = verifications.get(id);
+        if (verification == null) {
+            throw new ResourceNotFoundException("Vérification introuvable avec l'id " + id);
+        }
+        return verification.toDTO();
+    }
+
+    private Verification demarrer(boolean reparation) {
+        Verification verification = new Verification(sequence.incrementAndGet(), reparation);
+        if (!enCours.compareAndSet(null, verification)) {
+            throw new BusinessException("Une vérification du journal est déjà en cours");
+        }
+        verifications.put(verification.id, verification);
+        verifications.keySet().removeIf(id -> id <= verification.id - HISTORIQUE);
+        return verification;
+    }
+
+    private void executer(Verification verification) {
+        ForkJoinPool pool = new ForkJoinPool(parallelisme);
+        try {
+            List<Plage> plages = decouper(produitRepository.findAllIds(), verification);
+            pool.invoke(new VerificationPlages(verification, plages, 0, plages.size()));
+            verification.terminer(null);
+        } catch (RuntimeException ex) {
+            verification.terminer(ex);
+        } finally {
+            pool.shutdown();
+            enCours.set(null);
+        }
+    }
+
+    private List<Plage> decouper(List<Long> ids, Verification verification) {
+        verification.produitsTotal = ids.size();
+        List<Plage> plages = new ArrayList<>();
+        for (int debut = 0; debut < ids.size(); debut += taillePlage) {
+            int fin = Math.min(debut + taillePlage, ids.size()) - 1;
+            plages.add(new Plage(ids.get(debut), ids.get(fin)));
+        }
+        return plages;
+    }
+
+    private void verifierPlage(Verification verification, Plage plage) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        if (!verification.reparation) {
+            // Lecture seule sur un instantané cohérent : produits et journal vus au même instant
+            transaction.setReadOnly(true);
+            transaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        }
+
+        transaction.executeWithoutResult(status -> {
+            // En réparation, les produits de la plage sont verrouillés : aucun mouvement ne s'intercale
+            List<Produit> produits = verification.reparation
+                    ? produitRepository.findByIdBetweenForUpdate(plage.idMin(), plage.idMax())
+                    : produitRepository.findByIdBetweenOrderById(plage.idMin(), plage.idMax());
+            Map<Long, SoldeArchiveMouvement> soldes = new HashMap<>();
+            for (SoldeArchiveMouvement solde : soldeArchiveMouvementRepository.findByProduitIdBetween(plage.idMin(), plage.idMax())) {
+                soldes.put(solde.getProduitId(), solde);
+            }
+            Map<Long, RejeuStock> rejeux = new LinkedHashMap<>();
+            for (Produit produit : produits) {
+                rejeux.put(produit.getId(), RejeuStock.depuisSolde(produit, soldes.get(produit.getId())));
+            }
+
+            long mouvements = 0;
+            try (Stream<MouvementJournalDTO> journal = mouvementStockRepository.streamJournalPlage(plage.idMin(), plage.idMax())) {
+                Iterator<MouvementJournalDTO> iterateur = journal.iterator();
+                while (iterateur.hasNext()) {
+                    MouvementJournalDTO mouvement = iterateur.next();
+                    // Produit créé après le chargement de la plage : il sera vu par la prochaine vérification
+                    RejeuStock rejeu = rejeux.get(mouvement.getProduitId());
+                    if (rejeu != null) {
+                        rejeu.appliquer(mouvement.getTypeMouvement(), mouvement.getQuantite(), mouvement.getPrixUnitaire());
+                        mouvements++;
+                    }
+                }
+            }
+
+            for (RejeuStock rejeu : rejeux.values()) {
+                comparer(verification, rejeu);
+            }
+            verification.produitsVerifies.addAndGet(produits.size());
+            verification.mouvementsRejoues.addAndGet(mouvements);
+        });
+    }
+
+    private void comparer(Verification verification, RejeuStock rejeu) {
+        Produit produit = rejeu.produit();
+        BigDecimal cumpEnregistre = produit.getCoutMoyenPondere() != null ? produit.getCoutMoyenPondere() : BigDecimal.ZERO;
+        if (produit.getStockActuel() == rejeu.stock() && cumpEnregistre.compareTo(rejeu.coutMoyenPondere()) == 0) {
+            return;
+        }
+
+        verification.ajouterEcart(new EcartStockDTO(produit.getId(), produit.getNom(),
+                produit.getStockActuel(), rejeu.stock(),
+                produit.getCoutMoyenPondere(), rejeu.coutMoyenPondere(), rejeu.mouvementsRejoues(),
+                produit.ouvertureConnue()), ecartsMax);
+        // Sans solde d'ouverture, le journal n'explique pas l'état du produit : rien n'est réécrit
+        if (verification.reparation && produit.ouvertureConnue()) {
+            // Écrit au commit de la plage par le dirty checking, version incrémentée
+            produit.setStockActuel(rejeu.stock());
+            produit.setCoutMoyenPondere(rejeu.coutMoyenPondere());
+            cacheReferentielService.invaliderStock(produit.getId());
+        }
+    }
+
+    private class VerificationPlages extends RecursiveAction {
+
+        private final Verification verification;
+        private final List<Plage> plages;
+        private final int debut;
+        private final int fin;
+
+        VerificationPlages(Verification verification, List<Plage> plages, int debut, int fin) {
+            this.verification = verification;
+            this.plages = plages;
+            this.debut = debut;
+            this.fin = fin;
+        }
+
+        @Override
+        protected void compute() {
+            if (fin - debut <= 0) {
+                return;
+            }
+            if (fin - debut == 1) {
+                verifierPlage(verification, plages.get(debut));
+                return;
+            }
+            int milieu = (debut + fin) >>> 1;
+            invokeAll(new VerificationPlages(verification, plages, debut, milieu),
+                    new VerificationPlages(verification, plages, milieu, fin));
+        }
+    }
+
+    private record Plage(Long idMin, Long idMax) {
+    }
+
+    // État partagé par les tâches d'une vérification, lu à tout moment pour exposer l'avancement
+    private static class Verification {
+
+        private final long id;
+        private final boolean reparation;
+        private final LocalDateTime debut = LocalDateTime.now();
+        private final AtomicLong produitsVerifies = new AtomicLong();
+        private final AtomicLong mouvementsRejoues = new AtomicLong();
+        private final AtomicLong nombreEcarts = new AtomicLong();
+        private final Queue<EcartStockDTO> ecarts = new ConcurrentLinkedQueue<>();
+        private volatile int produitsTotal;
+        private volatile EtatVerification etat = EtatVerification.EN_COURS;
+        private volatile LocalDateTime fin;
+        private volatile String erreur;
+
+        Verification(long id, boolean reparation) {
+            this.id = id;
+            this.reparation = reparation;
+        }
+
+        void ajouterEcart(EcartStockDTO ecart, int ecartsMax) {
+            if (nombreEcarts.incrementAndGet() <= ecartsMax) {
+                ecarts.add(ecart);
+            }
+        }
+
+        void terminer(RuntimeException ex) {
+            erreur = ex != null ? ex.getMessage() : null;
+            fin = LocalDateTime.now();
+            etat = ex != null ? EtatVerification.ECHOUEE : EtatVerification.TERMINEE;
+        }
+
+        VerificationStockDTO toDTO() {
+            List<EcartStockDTO> copie = new ArrayList<>(ecarts);
+            copie.sort(Comparator.comparing(EcartStockDTO::getProduitId));
+            return new VerificationStockDTO(id, reparation, etat, debut, fin, produitsTotal,
+                    produitsVerifies.get(), mouvementsRejoues.get(), nombreEcarts.get(), copie, erreur);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.gestion_approvisionnements.service;
+
+import com.example.gestion_approvisionnements.repository.CommandeFournisseurRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+// Verrou des reconstructions de modèles de lecture (résumés, dépenses) contre les écritures de commandes et de
+// fournisseurs : attend celles en cours puis bloque les suivantes jusqu'à la fin de la transaction, lectures permises.
+// PostgreSQL uniquement (commandes.reconstruction.verrou) : sans verrou, reconstruire hors écriture de commandes.
+@Service
+@RequiredArgsConstructor
+@Transactional(propagation = Propagation.MANDATORY)
+public class VerrouCommandesService {
+
+    private final CommandeFournisseurRepository commandeFournisseurRepository;
+
+    @Value("${commandes.reconstruction.verrou:false}")
+    private boolean actif;
+
+    public void verrouillerEcritures() {
+        if (actif) {
+            commandeFournisseurRepository.verrouillerEcritures();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.gestion_approvisionnements.service;
+
+import com.example.gestion_approvisionnements.dto.VersionEntiteDTO;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+// Validateurs HTTP d'une ressource : ETag fort (SHA-256 des id, numéros de version et dates de modification)
+// et date de dernière modification. Calculés à l'identique depuis les entités chargées et depuis les seules versions lues en base.
+// Pas de date pour une page : une suppression change son contenu sans faire avancer aucune date.
+public record VersionRessource(String etag, LocalDateTime derniereModification) {
+
+    public static VersionRessource entite(VersionEntiteDTO version) {
+        LocalDateTime derniere = Stream.of(version.getModification(), version.getModificationFournisseur(),
+                        version.getModificationProduits())
+                .filter(Objects::nonNull)
+                .max(LocalDateTime::compareTo)
+                .orElse(null);
+        return new VersionRessource(empreinte(List.of(version), ""), derniere);
+    }
+
+    public static VersionRessource page(List<VersionEntiteDTO> versions, long total) {
+        return new VersionRessource(empreinte(versions, "total=" + total), null);
+    }
+
+    private static String empreinte(List<VersionEntiteDTO> versions, String suffixe) {
+        StringBuilder texte = new StringBuilder();
+        for (VersionEntiteDTO version : versions) {
+            texte.append(version.getId()).append('|')
+                    .append(version.getModification()).append('|')
+                    .append(version.getModificationFournisseur()).append('|')
+                    .append(version.getModificationProduits()).append('|')
+                    .append(version.getNumeroVersion()).append(';');
+        }
+        texte.append(suffixe);
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(texte.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
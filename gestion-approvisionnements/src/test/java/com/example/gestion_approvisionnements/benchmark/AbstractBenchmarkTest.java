@@ -0,0 +1,49 @@
+package com.example.gestion_approvisionnements.benchmark;
+
+import com.example.gestion_approvisionnements.integration.AbstractIntegrationTest;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+// Exécution : mvn test -Pbenchmark (H2 par défaut, ou -Dspring.datasource.url=... pour PostgreSQL)
+@Tag("benchmark")
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public abstract class AbstractBenchmarkTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    protected Mesure mesurer(String libelle, int operations, Runnable scenario) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        long debut = System.nanoTime();
+        scenario.run();
+        long dureeNanos = System.nanoTime() - debut;
+
+        Mesure mesure = new Mesure(libelle, operations, dureeNanos,
+                statistics.getPrepareStatementCount(), statistics.getEntityInsertCount(),
+                statistics.getSecondLevelCacheHitCount());
+        System.out.println(mesure);
+        return mesure;
+    }
+
+    protected record Mesure(String libelle, int operations, long dureeNanos, long requetes, long insertions,
+                             long lecturesCache) {
+
+        public double operationsParSeconde() {
+            return operations / (dureeNanos / 1_000_000_000.0);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("[benchmark] %-45s %8d ops %10.1f ms %10.1f ops/s %8d requêtes préparées %8d insertions"
+                            + " %8d lectures cache L2",
+                    libelle, operations, dureeNanos / 1_000_000.0, operationsParSeconde(), requetes, insertions,
+                    lecturesCache);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.gestion_approvisionnements.benchmark;
+
+import com.example.gestion_approvisionnements.dto.CommandeFournisseurDTO;
+import com.example.gestion_approvisionnements.dto.LigneCommandeDTO;
+import com.example.gestion_approvisionnements.entity.Fournisseur;
+import com.example.gestion_approvisionnements.entity.Produit;
+import com.example.gestion_approvisionnements.enums.StatutCommande;
+import com.example.gestion_approvisionnements.repository.CommandeFournisseurRepository;
+import com.example.gestion_approvisionnements.repository.FournisseurRepository;
+import com.example.gestion_approvisionnements.repository.LigneCommandeRepository;
+import com.example.gestion_approvisionnements.repository.MouvementStockRepository;
+import com.example.gestion_approvisionnements.repository.ProduitRepository;
+import com.example.gestion_approvisionnements.service.CommandeFournisseurService;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Requêtes évitées par le cache de second niveau : création puis livraison de commandes sur un même fournisseur
+// et un même catalogue, cache vidé avant chaque commande (froid) contre cache conservé (chaud).
+class CacheSecondNiveauBenchmarkTest extends AbstractBenchmarkTest {
+
+    private static final int PRODUITS = 20;
+    private static final int COMMANDES = 100;
+
+    @Autowired
+    private CommandeFournisseurService commandeFournisseurService;
+    @Autowired
+    private MouvementStockRepository mouvementStockRepository;
+    @Autowired
+    private LigneCommandeRepository ligneCommandeRepository;
+    @Autowired
+    private CommandeFournisseurRepository commandeFournisseurRepository;
+    @Autowired
+    private ProduitRepository produitRepository;
+    @Autowired
+    private FournisseurRepository fournisseurRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Fournisseur fournisseur;
+    private List<Produit> produits;
+
+    @BeforeEach
+    void setUp() {
+        viderTables();
+
+        fournisseur = new Fournisseur();
+        fournisseur.setSociete("Fournisseur benchmark");
+        fournisseur = fournisseurRepository.save(fournisseur);
+
+        List<Produit> nouveaux = new ArrayList<>();
+        for (int i = 0; i < PRODUITS; i++) {
+            Produit p = new Produit();
+            p.setNom("Produit " + i);
+            p.setPrixUnitaire(BigDecimal.valueOf(10 + i % 7));
+            p.setCategorie("BENCH");
+            p.setStockActuel(1_000_000);
+            p.setCoutMoyenPondere(BigDecimal.TEN);
+            nouveaux.add(p);
+        }
+        produits = produitRepository.saveAll(nouveaux);
+    }
+
+    @AfterEach
+    void tearDown() {
+        viderTables();
+    }
+
+    @Test
+    void creationEtLivraison_cacheFroidContreCacheChaud() {
+        // Tour de chauffe : plans de requêtes, séquences et cache rempli
+        commandeFournisseurService.updateStatut(creer(), StatutCommande.LIVREE);
+
+        List<Long> commandesFroides = new ArrayList<>();
+        Mesure creationFroide = mesurer("création commande, cache froid", COMMANDES, () -> {
+            for (int i = 0; i < COMMANDES; i++) {
+                entityManagerFactory.getCache().evictAll();
+                commandesFroides.add(creer());
+            }
+        });
+        List<Long> commandesChaudes = new ArrayList<>();
+        Mesure creationChaude = mesurer("création commande, cache chaud", COMMANDES, () -> {
+            for (int i = 0; i < COMMANDES; i++) {
+                commandesChaudes.add(creer());
+            }
+        });
+
+        Mesure livraisonFroide = mesurer("livraison commande, cache froid", COMMANDES, () ->
+                commandesFroides.forEach(id -> {
+                    entityManagerFactory.getCache().evictAll();
+                    commandeFournisseurService.updateStatut(id, StatutCommande.LIVREE);
+                }));
+        Mesure livraisonChaude = mesurer("livraison commande, cache chaud", COMMANDES, () ->
+                commandesChaudes.forEach(id -> commandeFournisseurService.updateStatut(id, StatutCommande.LIVREE)));
+
+        System.out.printf("[benchmark] requêtes évitées par commande : création %.1f, livraison %.1f%n",
+                (creationFroide.requetes() - creationChaude.requetes()) / (double) COMMANDES,
+                (livraisonFroide.requetes() - livraisonChaude.requetes()) / (double) COMMANDES);
+
+        // Fournisseur et produits servis par le cache : plus de SELECT pour le catalogue de la commande
+        // (l'écart exact varie de quelques requêtes de séquence selon les blocs d'identifiants)
+        assertThat(creationFroide.requetes() - creationChaude.requetes()).isGreaterThan((long) COMMANDES);
+        assertThat(creationChaude.lecturesCache()).isGreaterThanOrEqualTo((long) COMMANDES * (PRODUITS + 1));
+        assertThat(livraisonChaude.requetes()).isLessThan(livraisonFroide.requetes());
+        assertThat(produitRepository.findById(produits.get(0).getId()).orElseThrow().getStockActuel())
+                .isEqualTo(1_000_000 - (2 * COMMANDES + 1) * 3);
+    }
+
+    private Long creer() {
+        List<LigneCommandeDTO> lignes = new ArrayList<>();
+        for (Produit produit : produits) {
+            lignes.add(new LigneCommandeDTO(null, produit.getId(), null, 3, null, null));
+        }
+        return commandeFournisseurService.createCommande(new CommandeFournisseurDTO(null, LocalDate.now(),
+                StatutCommande.EN_ATTENTE, null, fournisseur.getId(), null, lignes)).getId();
+    }
+
+    private void viderTables() {
+        mouvementStockRepository.deleteAllInBatch();
+        ligneCommandeRepository.deleteAllInBatch();
+        commandeFournisseurRepository.deleteAllInBatch();
+        produitRepository.deleteAllInBatch();
+        fournisseurRepository.deleteAllInBatch();
+    }
+}
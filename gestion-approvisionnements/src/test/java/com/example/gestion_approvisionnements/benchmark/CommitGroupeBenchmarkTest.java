@@ -0,0 +1,139 @@
+package com.example.gestion_approvisionnements.benchmark;
+
+import com.example.gestion_approvisionnements.dto.MouvementStockDTO;
+import com.example.gestion_approvisionnements.entity.Produit;
+import com.example.gestion_approvisionnements.enums.TypeMouvement;
+import com.example.gestion_approvisionnements.repository.MouvementStockRepository;
+import com.example.gestion_approvisionnements.repository.ProduitRepository;
+import com.example.gestion_approvisionnements.service.CommitGroupeMouvementService;
+import com.example.gestion_approvisionnements.service.MouvementStockService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Même charge (appelants concurrents, un mouvement par appel) sur le chemin unitaire puis en commit groupé.
+// Sur H2 en mémoire le commit ne coûte pas de fsync : le gain mesuré y est un minimum, à confirmer sur PostgreSQL.
+@TestPropertySource(properties = {
+        "stock.commit-groupe.actif=true",
+        "stock.commit-groupe.fenetre-ms=2",
+        "stock.commit-groupe.taille-max=200"
+})
+class CommitGroupeBenchmarkTest extends AbstractBenchmarkTest {
+
+    private static final int APPELANTS = 32;
+    private static final int MOUVEMENTS = 8_000;
+    private static final int PRODUITS = 200;
+
+    @Autowired
+    private MouvementStockService mouvementStockService;
+    @Autowired
+    private CommitGroupeMouvementService commitGroupeMouvementService;
+    @Autowired
+    private MouvementStockRepository mouvementStockRepository;
+    @Autowired
+    private ProduitRepository produitRepository;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private List<Produit> produits;
+
+    @BeforeEach
+    void setUp() {
+        viderTables();
+
+        List<Produit> nouveaux = new ArrayList<>();
+        for (int i = 0; i < PRODUITS; i++) {
+            Produit p = new Produit();
+            p.setNom("Produit " + i);
+            p.setPrixUnitaire(BigDecimal.TEN);
+            p.setCategorie("BENCH");
+            p.setStockActuel(0);
+            nouveaux.add(p);
+        }
+        produits = produitRepository.saveAll(nouveaux);
+    }
+
+    @AfterEach
+    void tearDown() {
+        viderTables();
+    }
+
+    @Test
+    void cheminUnitaireContreCommitGroupe() throws Exception {
+        // Échauffement des deux chemins
+        executer(APPELANTS * 10, mouvementStockService::enregistrerMouvement);
+        executer(APPELANTS * 10, commitGroupeMouvementService::enregistrer);
+
+        Mesure unitaire = mesurer("commit par mouvement (" + APPELANTS + " appelants)", MOUVEMENTS,
+                () -> executer(MOUVEMENTS, mouvementStockService::enregistrerMouvement));
+
+        DistributionSummary tailles = meterRegistry.get("stock.commit_groupe.taille").summary();
+        Timer attente = meterRegistry.get("stock.commit_groupe.attente_file").timer();
+        long groupesAvant = tailles.count();
+        double mouvementsAvant = tailles.totalAmount();
+        double attenteAvant = attente.totalTime(TimeUnit.MILLISECONDS);
+
+        Mesure groupe = mesurer("commit groupé (" + APPELANTS + " appelants)", MOUVEMENTS,
+                () -> executer(MOUVEMENTS, commitGroupeMouvementService::enregistrer));
+
+        long groupes = tailles.count() - groupesAvant;
+        System.out.printf("[benchmark] commit groupé : %d transactions, %.1f mouvements par transaction, "
+                        + "attente moyenne en file %.2f ms, gain x%.2f%n",
+                groupes, (tailles.totalAmount() - mouvementsAvant) / groupes,
+                (attente.totalTime(TimeUnit.MILLISECONDS) - attenteAvant) / MOUVEMENTS,
+                groupe.operationsParSeconde() / unitaire.operationsParSeconde());
+
+        assertThat(groupes).isLessThan(MOUVEMENTS);
+        assertThat(mouvementStockRepository.count()).isEqualTo(2L * (MOUVEMENTS + APPELANTS * 10));
+    }
+
+    private void executer(int operations, Consumer<MouvementStockDTO> enregistrement) {
+        ExecutorService executor = Executors.newFixedThreadPool(APPELANTS);
+        CountDownLatch depart = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < operations; i++) {
+                MouvementStockDTO dto = new MouvementStockDTO();
+                dto.setProduitId(produits.get(i % PRODUITS).getId());
+                dto.setTypeMouvement(TypeMouvement.ENTREE);
+                dto.setQuantite(1);
+                dto.setPrixUnitaire(BigDecimal.TEN);
+                futures.add(executor.submit(() -> {
+                    depart.await();
+                    enregistrement.accept(dto);
+                    return null;
+                }));
+            }
+            depart.countDown();
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.MINUTES);
+            }
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void viderTables() {
+        mouvementStockRepository.deleteAllInBatch();
+        produitRepository.deleteAllInBatch();
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.gestion_approvisionnements.benchmark;
+
+import com.example.gestion_approvisionnements.entity.Produit;
+import com.example.gestion_approvisionnements.enums.FormatExport;
+import com.example.gestion_approvisionnements.repository.MouvementStockRepository;
+import com.example.gestion_approvisionnements.repository.ProduitRepository;
+import com.example.gestion_approvisionnements.service.ExportMouvementStockService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Base H2 sur disque : les lignes ne doivent pas occuper le tas, seul l'export est mesuré.
+// Le profil benchmark limite le tas (-Xmx256m) : un export qui matérialiserait le résultat échouerait.
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:file:./target/benchmark/export-volume;MODE=PostgreSQL")
+class ExportMouvementsVolumeBenchmarkTest extends AbstractBenchmarkTest {
+
+    private static final int MOUVEMENTS = 2_000_000;
+    private static final int BLOC_INSERTION = 200_000;
+
+    @Autowired
+    private ExportMouvementStockService exportMouvementStockService;
+    @Autowired
+    private MouvementStockRepository mouvementStockRepository;
+    @Autowired
+    private ProduitRepository produitRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Produit produit;
+
+    @BeforeEach
+    void setUp() {
+        viderTables();
+
+        Produit p = new Produit();
+        p.setNom("Produit export");
+        p.setPrixUnitaire(BigDecimal.ONE);
+        p.setCategorie("BENCH");
+        p.setStockActuel(0);
+        produit = produitRepository.save(p);
+
+        for (int debut = 1; debut <= MOUVEMENTS; debut += BLOC_INSERTION) {
+            jdbcTemplate.update("""
+                    INSERT INTO mouvement_stock (id, date_mouvement, quantite, type_mouvement, prix_unitaire,
+                                                 stock_apres_mouvement, produit_id)
+                    SELECT X, DATEADD('SECOND', X, TIMESTAMP '2024-01-01 00:00:00'), 1, 'ENTREE', 1.00, X, ?
+                    FROM SYSTEM_RANGE(?, ?)
+                    """, produit.getId(), debut, debut + BLOC_INSERTION - 1);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        viderTables();
+    }
+
+    @Test
+    void exportNdjsonDeDeuxMillionsDeMouvements() {
+        exporterAvecPicMemoire(FormatExport.NDJSON);
+    }
+
+    @Test
+    void exportCsvDeDeuxMillionsDeMouvements() {
+        exporterAvecPicMemoire(FormatExport.CSV);
+    }
+
+    private void exporterAvecPicMemoire(FormatExport format) {
+        CompteurOctets sortie = new CompteurOctets();
+        AtomicLong lignes = new AtomicLong();
+        System.gc();
+        ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        mesurer("export " + format + " (" + MOUVEMENTS + " mouvements)", MOUVEMENTS, () -> {
+            try {
+                lignes.set(exportMouvementStockService.exporter(format, null, null, null, null, sortie));
+            } catch (IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+
+        long picTas = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                .sum();
+        System.out.printf("[benchmark] export %s : %d Mo écrits, pic de tas %d Mo%n",
+                format, sortie.octets / (1024 * 1024), picTas / (1024 * 1024));
+
+        assertThat(lignes.get()).isEqualTo(MOUVEMENTS);
+        assertThat(sortie.lignes).isEqualTo(format == FormatExport.CSV ? MOUVEMENTS + 1 : MOUVEMENTS);
+    }
+
+    private void viderTables() {
+        mouvementStockRepository.deleteAllInBatch();
+        produitRepository.deleteAllInBatch();
+    }
+
+    private static class CompteurOctets extends OutputStream {
+
+        private long octets;
+        private long lignes;
+
+        @Override
+        public void write(int b) {
+            octets++;
+            if (b == '\n') {
+                lignes++;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            octets += len;
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    lignes++;
+                }
+            }
+        }
+    }
+}
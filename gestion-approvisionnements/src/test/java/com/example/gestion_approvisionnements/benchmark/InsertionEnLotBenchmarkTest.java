@@ -0,0 +1,181 @@
+package com.example.gestion_approvisionnements.benchmark;
+
+import com.example.gestion_approvisionnements.dto.CommandeFournisseurDTO;
+import com.example.gestion_approvisionnements.dto.LigneCommandeDTO;
+import com.example.gestion_approvisionnements.dto.MouvementStockDTO;
+import com.example.gestion_approvisionnements.entity.Fournisseur;
+import com.example.gestion_approvisionnements.entity.Produit;
+import com.example.gestion_approvisionnements.enums.StatutCommande;
+import com.example.gestion_approvisionnements.enums.TypeMouvement;
+import com.example.gestion_approvisionnements.repository.CommandeFournisseurRepository;
+import com.example.gestion_approvisionnements.repository.FournisseurRepository;
+import com.example.gestion_approvisionnements.repository.LigneCommandeRepository;
+import com.example.gestion_approvisionnements.repository.MouvementStockRepository;
+import com.example.gestion_approvisionnements.repository.ProduitRepository;
+import com.example.gestion_approvisionnements.service.CommandeFournisseurService;
+import com.example.gestion_approvisionnements.service.MouvementStockService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InsertionEnLotBenchmarkTest extends AbstractBenchmarkTest {
+
+    private static final int PRODUITS = 200;
+    private static final int COMMANDES = 20;
+    private static final int MOUVEMENTS_PAR_LOT = 1000;
+    private static final int LOTS = 10;
+    private static final int COMMANDES_REAPPRO = 500;
+    private static final int LIGNES_REAPPRO = 5;
+
+    @Autowired
+    private CommandeFournisseurService commandeFournisseurService;
+    @Autowired
+    private MouvementStockService mouvementStockService;
+    @Autowired
+    private MouvementStockRepository mouvementStockRepository;
+    @Autowired
+    private LigneCommandeRepository ligneCommandeRepository;
+    @Autowired
+    private CommandeFournisseurRepository commandeFournisseurRepository;
+    @Autowired
+    private ProduitRepository produitRepository;
+    @Autowired
+    private FournisseurRepository fournisseurRepository;
+
+    private Fournisseur fournisseur;
+    private List<Produit> produits;
+
+    @BeforeEach
+    void setUp() {
+        viderTables();
+
+        fournisseur = new Fournisseur();
+        fournisseur.setSociete("Fournisseur benchmark");
+        fournisseur = fournisseurRepository.save(fournisseur);
+
+        List<Produit> nouveaux = new ArrayList<>();
+        for (int i = 0; i < PRODUITS; i++) {
+            Produit p = new Produit();
+            p.setNom("Produit " + i);
+            p.setPrixUnitaire(BigDecimal.valueOf(10 + i % 7));
+            p.setCategorie("BENCH");
+            p.setStockActuel(1_000_000);
+            p.setCoutMoyenPondere(BigDecimal.TEN);
+            nouveaux.add(p);
+        }
+        produits = produitRepository.saveAll(nouveaux);
+    }
+
+    @AfterEach
+    void tearDown() {
+        viderTables();
+    }
+
+    @Test
+    void creationCommandesDeDeuxCentsLignes() {
+        commandeFournisseurService.createCommande(buildCommande());
+
+        Mesure mesure = mesurer("création commande (" + PRODUITS + " lignes)", COMMANDES, () -> {
+            for (int i = 0; i < COMMANDES; i++) {
+                commandeFournisseurService.createCommande(buildCommande());
+            }
+        });
+
+        assertThat(mesure.insertions()).isEqualTo((long) COMMANDES * (PRODUITS + 1));
+    }
+
+    @Test
+    void reapprovisionnementCommandesUnitaires() {
+        Mesure mesure = mesurer("commandes POST /api/commandes (" + LIGNES_REAPPRO + " lignes)", COMMANDES_REAPPRO, () -> {
+            for (int i = 0; i < COMMANDES_REAPPRO; i++) {
+                commandeFournisseurService.createCommande(buildCommandeReappro(i));
+            }
+        });
+
+        assertThat(mesure.insertions()).isEqualTo((long) COMMANDES_REAPPRO * (LIGNES_REAPPRO + 1));
+    }
+
+    @Test
+    void reapprovisionnementCommandesEnLot() {
+        Mesure mesure = mesurer("commandes POST /api/commandes/bulk (" + LIGNES_REAPPRO + " lignes)", COMMANDES_REAPPRO, () -> {
+            List<CommandeFournisseurDTO> commandes = new ArrayList<>();
+            for (int i = 0; i < COMMANDES_REAPPRO; i++) {
+                commandes.add(buildCommandeReappro(i));
+            }
+            assertThat(commandeFournisseurService.createCommandesEnLot(commandes).getNombreEchecs()).isZero();
+        });
+
+        assertThat(mesure.insertions()).isEqualTo((long) COMMANDES_REAPPRO * (LIGNES_REAPPRO + 1));
+    }
+
+    @Test
+    void ingestionMouvementsUnitaires() {
+        int total = MOUVEMENTS_PAR_LOT;
+        mesurer("mouvements POST /api/mouvements", total, () -> {
+            for (int i = 0; i < total; i++) {
+                mouvementStockService.enregistrerMouvement(buildMouvement(i));
+            }
+        });
+
+        assertThat(mouvementStockRepository.count()).isEqualTo(total);
+    }
+
+    @Test
+    void ingestionMouvementsEnLot() {
+        Mesure mesure = mesurer("mouvements POST /api/mouvements/batch", LOTS * MOUVEMENTS_PAR_LOT, () -> {
+            for (int lot = 0; lot < LOTS; lot++) {
+                List<MouvementStockDTO> mouvements = new ArrayList<>();
+                for (int i = 0; i < MOUVEMENTS_PAR_LOT; i++) {
+                    mouvements.add(buildMouvement(i));
+                }
+                mouvementStockService.enregistrerLot(mouvements);
+            }
+        });
+
+        assertThat(mesure.insertions()).isEqualTo((long) LOTS * MOUVEMENTS_PAR_LOT);
+    }
+
+    private CommandeFournisseurDTO buildCommande() {
+        List<LigneCommandeDTO> lignes = new ArrayList<>();
+        for (Produit produit : produits) {
+            lignes.add(new LigneCommandeDTO(null, produit.getId(), null, 3, produit.getPrixUnitaire(), null));
+        }
+        return new CommandeFournisseurDTO(null, LocalDate.now(), StatutCommande.EN_ATTENTE, null,
+                fournisseur.getId(), null, lignes);
+    }
+
+    // Petites commandes sans prix : le prix catalogue est repris pour chaque ligne
+    private CommandeFournisseurDTO buildCommandeReappro(int i) {
+        List<LigneCommandeDTO> lignes = new ArrayList<>();
+        for (int l = 0; l < LIGNES_REAPPRO; l++) {
+            lignes.add(new LigneCommandeDTO(null, produits.get((i + l) % PRODUITS).getId(), null, 10, null, null));
+        }
+        return new CommandeFournisseurDTO(null, LocalDate.now(), StatutCommande.EN_ATTENTE, null,
+                fournisseur.getId(), null, lignes);
+    }
+
+    private MouvementStockDTO buildMouvement(int i) {
+        MouvementStockDTO dto = new MouvementStockDTO();
+        dto.setProduitId(produits.get(i % PRODUITS).getId());
+        dto.setTypeMouvement(i % 2 == 0 ? TypeMouvement.ENTREE : TypeMouvement.SORTIE);
+        dto.setQuantite(1 + i % 5);
+        dto.setPrixUnitaire(BigDecimal.valueOf(12));
+        return dto;
+    }
+
+    private void viderTables() {
+        mouvementStockRepository.deleteAllInBatch();
+        ligneCommandeRepository.deleteAllInBatch();
+        commandeFournisseurRepository.deleteAllInBatch();
+        produitRepository.deleteAllInBatch();
+        fournisseurRepository.deleteAllInBatch();
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.gestion_approvisionnements.benchmark;
+
+import com.example.gestion_approvisionnements.dto.CommandeFournisseurDTO;
+import com.example.gestion_approvisionnements.dto.LigneCommandeDTO;
+import com.example.gestion_approvisionnements.entity.Fournisseur;
+import com.example.gestion_approvisionnements.entity.Produit;
+import com.example.gestion_approvisionnements.enums.StatutCommande;
+import com.example.gestion_approvisionnements.repository.CommandeFournisseurRepository;
+import com.example.gestion_approvisionnements.repository.FournisseurRepository;
+import com.example.gestion_approvisionnements.repository.LigneCommandeRepository;
+import com.example.gestion_approvisionnements.repository.MouvementStockRepository;
+import com.example.gestion_approvisionnements.repository.ProduitRepository;
+import com.example.gestion_approvisionnements.service.CommandeFournisseurService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LivraisonBenchmarkTest extends AbstractBenchmarkTest {
+
+    private static final int LIGNES = 500;
+    private static final int COMMANDES = 10;
+
+    @Autowired
+    private CommandeFournisseurService commandeFournisseurService;
+    @Autowired
+    private MouvementStockRepository mouvementStockRepository;
+    @Autowired
+    private LigneCommandeRepository ligneCommandeRepository;
+    @Autowired
+    private CommandeFournisseurRepository commandeFournisseurRepository;
+    @Autowired
+    private ProduitRepository produitRepository;
+    @Autowired
+    private FournisseurRepository fournisseurRepository;
+
+    private Fournisseur fournisseur;
+    private List<Produit> produits;
+
+    @BeforeEach
+    void setUp() {
+        viderTables();
+
+        fournisseur = new Fournisseur();
+        fournisseur.setSociete("Fournisseur benchmark");
+        fournisseur = fournisseurRepository.save(fournisseur);
+
+        List<Produit> nouveaux = new ArrayList<>();
+        for (int i = 0; i < LIGNES; i++) {
+            Produit p = new Produit();
+            p.setNom("Produit " + i);
+            p.setPrixUnitaire(BigDecimal.valueOf(10 + i % 7));
+            p.setCategorie("BENCH");
+            p.setStockActuel(1_000_000);
+            p.setCoutMoyenPondere(BigDecimal.TEN);
+            nouveaux.add(p);
+        }
+        produits = produitRepository.saveAll(nouveaux);
+    }
+
+    @AfterEach
+    void tearDown() {
+        viderTables();
+    }
+
+    @Test
+    void livraisonCommandesDeCinqCentsLignes() {
+        List<Long> commandeIds = new ArrayList<>();
+        for (int i = 0; i <= COMMANDES; i++) {
+            commandeIds.add(commandeFournisseurService.createCommande(buildCommande()).getId());
+        }
+        commandeFournisseurService.updateStatut(commandeIds.remove(0), StatutCommande.LIVREE);
+
+        Mesure mesure = mesurer("livraison commande (" + LIGNES + " lignes)", COMMANDES, () ->
+                commandeIds.forEach(id -> commandeFournisseurService.updateStatut(id, StatutCommande.LIVREE)));
+
+        assertThat(mesure.insertions()).isEqualTo((long) COMMANDES * LIGNES);
+        assertThat(produitRepository.findById(produits.get(0).getId()).orElseThrow().getStockActuel())
+                .isEqualTo(1_000_000 - (COMMANDES + 1) * 3);
+    }
+
+    private CommandeFournisseurDTO buildCommande() {
+        List<LigneCommandeDTO> lignes = new ArrayList<>();
+        for (Produit produit : produits) {
+            lignes.add(new LigneCommandeDTO(null, produit.getId(), null, 3, produit.getPrixUnitaire(), null));
+        }
+        return new CommandeFournisseurDTO(null, LocalDate.now(), StatutCommande.EN_ATTENTE, null,
+                fournisseur.getId(), null, lignes);
+    }
+
+    private void viderTables() {
+        mouvementStockRepository.deleteAllInBatch();
+        ligneCommandeRepository.deleteAllInBatch();
+        commandeFournisseurRepository.deleteAllInBatch();
+        produitRepository.deleteAllInBatch();
+        fournisseurRepository.deleteAllInBatch();
+    }
+}
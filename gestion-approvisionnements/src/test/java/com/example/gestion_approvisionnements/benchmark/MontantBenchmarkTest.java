@@ -0,0 +1,127 @@
+package com.example.gestion_approvisionnements.benchmark;
+
+import com.example.gestion_approvisionnements.entity.LigneCommande;
+import com.example.gestion_approvisionnements.entity.Montant;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// JMH : sous-totaux et montant d'une commande de 50 lignes, CUMP de 50 entrées en stock, calcul BigDecimal
+// remplacé contre Montant. Le profileur GC donne les octets alloués par opération (gc.alloc.rate.norm).
+@Tag("benchmark")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MontantBenchmarkTest {
+
+    private static final int LIGNES = 50;
+
+    private List<LigneCommande> lignes;
+    private BigDecimal[] prixEntrees;
+    private int[] quantitesEntrees;
+
+    @Setup
+    public void preparer() {
+        Random random = new Random(42);
+        lignes = new ArrayList<>();
+        for (int i = 0; i < LIGNES; i++) {
+            LigneCommande ligne = new LigneCommande();
+            ligne.setQuantite(1 + random.nextInt(500));
+            ligne.setPrixUnitaire(BigDecimal.valueOf(100 + random.nextInt(1_000_000), 2));
+            lignes.add(ligne);
+        }
+        prixEntrees = new BigDecimal[LIGNES];
+        quantitesEntrees = new int[LIGNES];
+        for (int i = 0; i < LIGNES; i++) {
+            prixEntrees[i] = BigDecimal.valueOf(1000 + random.nextInt(10_000), 2);
+            quantitesEntrees[i] = 1 + random.nextInt(500);
+        }
+    }
+
+    @Benchmark
+    public BigDecimal commandeBigDecimal() {
+        for (LigneCommande ligne : lignes) {
+            ligne.setSousTotal(ligne.getPrixUnitaire().multiply(new BigDecimal(ligne.getQuantite())));
+        }
+        return lignes.stream().map(LigneCommande::getSousTotal).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    @Benchmark
+    public BigDecimal commandeMontant() {
+        for (LigneCommande ligne : lignes) {
+            ligne.calculerSousTotal();
+        }
+        return Montant.somme(lignes, LigneCommande::getSousTotal);
+    }
+
+    // Rejeu de 50 entrées successives : chaque CUMP part du précédent
+    @Benchmark
+    public BigDecimal cumpBigDecimal() {
+        BigDecimal cump = BigDecimal.ZERO;
+        int stock = 0;
+        for (int i = 0; i < LIGNES; i++) {
+            cump = cump.multiply(BigDecimal.valueOf(stock))
+                    .add(prixEntrees[i].multiply(BigDecimal.valueOf(quantitesEntrees[i])))
+                    .divide(BigDecimal.valueOf(stock + quantitesEntrees[i]), 2, RoundingMode.HALF_UP);
+            stock += quantitesEntrees[i];
+        }
+        return cump;
+    }
+
+    // Une entrée à la fois (lot de mouvements) : CUMP reçu et rendu en BigDecimal à chaque appel
+    @Benchmark
+    public BigDecimal cumpMontant() {
+        BigDecimal cump = BigDecimal.ZERO;
+        int stock = 0;
+        for (int i = 0; i < LIGNES; i++) {
+            cump = Montant.moyennePonderee(cump, stock, prixEntrees[i], quantitesEntrees[i], 2);
+            stock += quantitesEntrees[i];
+        }
+        return cump;
+    }
+
+    // Rejeu du journal : CUMP cumulé sur un long, seul le prix de chaque entrée est converti
+    @Benchmark
+    public BigDecimal cumpMontantCumule() {
+        long cump = 0;
+        int stock = 0;
+        for (int i = 0; i < LIGNES; i++) {
+            cump = Montant.moyennePonderee(cump, stock, Montant.valeurEntiere(prixEntrees[i], 2), quantitesEntrees[i],
+                    2, 2);
+            stock += quantitesEntrees[i];
+        }
+        return BigDecimal.valueOf(cump, 2);
+    }
+
+    @Test
+    void executer() throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MontantBenchmarkTest.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+}
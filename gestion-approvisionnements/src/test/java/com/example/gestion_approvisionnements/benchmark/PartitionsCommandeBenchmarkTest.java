@@ -0,0 +1,144 @@
+package com.example.gestion_approvisionnements.benchmark;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Requêtes par période sur commande_fournisseur et ligne_commande partitionnées par année (changelog 015),
+// comparées aux mêmes données dans des tables non partitionnées portant les mêmes index.
+// Volume : -Dbenchmark.partitions.commandes=50000000 (une ligne par commande, dates réparties sur dix ans).
+@Testcontainers(disabledWithoutDocker = true)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class PartitionsCommandeBenchmarkTest extends AbstractBenchmarkTest {
+
+    private static final long COMMANDES = Long.getLong("benchmark.partitions.commandes", 50_000_000L);
+    private static final long BLOC_INSERTION = 5_000_000L;
+    private static final int REQUETES = 24;
+
+    // Même forme que findByDateCommandeBetween, agrégée pour ne mesurer que la lecture
+    private static final String PERIODE = """
+            SELECT COUNT(*), SUM(l.sous_total)
+            FROM %s c
+            JOIN %s l ON l.commande_fournisseur_id = c.id
+            JOIN fournisseur f ON f.id = c.fournisseur_id
+            JOIN produit p ON p.id = l.produit_id
+            WHERE c.date_commande BETWEEN ? AND ? AND l.date_commande BETWEEN ? AND ?
+            """;
+
+    // Dépenses d'un mois par fournisseur : toute la période est lue
+    private static final String DEPENSES_MOIS = """
+            SELECT c.fournisseur_id, SUM(c.montant_total)
+            FROM %s c
+            WHERE c.date_commande BETWEEN ? AND ?
+            GROUP BY c.fournisseur_id
+            """;
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void configurer(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("spring.jpa.database-platform", () -> "org.hibernate.dialect.PostgreSQLDialect");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "none");
+        registry.add("spring.liquibase.enabled", () -> "true");
+        registry.add("spring.liquibase.change-log", () -> "classpath:db/changelog/db.changelog-master.xml");
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    void remplirBase() {
+        jdbcTemplate.queryForObject("SELECT creer_partitions_commande(2016, 2025)", Integer.class);
+        jdbcTemplate.execute("""
+                INSERT INTO fournisseur (id, societe, ice)
+                SELECT g, 'Fournisseur ' || g, 'ICE' || g FROM generate_series(1, 2000) g
+                """);
+        jdbcTemplate.execute("""
+                INSERT INTO produit (id, nom, prix_unitaire, categorie, stock_actuel, cout_moyen_pondere, version)
+                SELECT g, 'Produit ' || g, 10, 'CAT' || (g % 500), 100, 10, 0 FROM generate_series(1, 50000) g
+                """);
+        for (long debut = 1; debut <= COMMANDES; debut += BLOC_INSERTION) {
+            long fin = Math.min(debut + BLOC_INSERTION - 1, COMMANDES);
+            jdbcTemplate.update("""
+                    INSERT INTO commande_fournisseur (id, date_commande, statut, montant_total, fournisseur_id)
+                    SELECT g, DATE '2016-01-01' + CAST(g % 3653 AS INT), 'LIVREE', 30, 1 + g % 2000
+                    FROM generate_series(CAST(? AS BIGINT), CAST(? AS BIGINT)) g
+                    """, debut, fin);
+            jdbcTemplate.update("""
+                    INSERT INTO ligne_commande (id, commande_fournisseur_id, date_commande, produit_id, quantite,
+                                                prix_unitaire, sous_total)
+                    SELECT g, g, DATE '2016-01-01' + CAST(g % 3653 AS INT), 1 + g % 50000, 3, 10, 30
+                    FROM generate_series(CAST(? AS BIGINT), CAST(? AS BIGINT)) g
+                    """, debut, fin);
+        }
+
+        // Copies non partitionnées, index du changelog 010
+        jdbcTemplate.execute("""
+                CREATE TABLE commande_fournisseur_plate AS SELECT * FROM commande_fournisseur;
+                ALTER TABLE commande_fournisseur_plate ADD PRIMARY KEY (id);
+                CREATE INDEX ON commande_fournisseur_plate (statut, date_commande);
+                CREATE INDEX ON commande_fournisseur_plate (fournisseur_id, date_commande);
+                CREATE INDEX ON commande_fournisseur_plate (date_commande);
+                CREATE TABLE ligne_commande_plate AS SELECT * FROM ligne_commande;
+                ALTER TABLE ligne_commande_plate ADD PRIMARY KEY (id);
+                CREATE INDEX ON ligne_commande_plate (commande_fournisseur_id, produit_id);
+                CREATE INDEX ON ligne_commande_plate (produit_id)
+                """);
+        jdbcTemplate.execute("VACUUM ANALYZE");
+    }
+
+    @Test
+    void commandesDUneSemaine() {
+        comparer("commandes d'une semaine", PERIODE, 6);
+    }
+
+    @Test
+    void commandesDUnMois() {
+        comparer("commandes d'un mois", PERIODE, 30);
+    }
+
+    @Test
+    void depensesDUnMoisParFournisseur() {
+        comparer("dépenses d'un mois par fournisseur", DEPENSES_MOIS, 30);
+    }
+
+    private void comparer(String libelle, String requete, int jours) {
+        Mesure plate = executer(libelle + " (non partitionnée)", requete,
+                "commande_fournisseur_plate", "ligne_commande_plate", jours);
+        Mesure partitionnee = executer(libelle + " (partitionnée)", requete,
+                "commande_fournisseur", "ligne_commande", jours);
+        System.out.printf("[benchmark] %s : x%.2f%n", libelle, partitionnee.operationsParSeconde()
+                / plate.operationsParSeconde());
+    }
+
+    // Une période différente par requête, réparties sur les dix ans : pas de lecture toujours servie par le cache
+    private Mesure executer(String libelle, String requete, String commandes, String lignes, int jours) {
+        String sql = String.format(requete, commandes, lignes);
+        boolean plageSurLesLignes = sql.contains("l.date_commande");
+        LocalDate origine = LocalDate.of(2016, 1, 10);
+        return mesurer(libelle + " " + COMMANDES + " commandes", REQUETES, () -> {
+            for (int i = 0; i < REQUETES; i++) {
+                LocalDate debut = origine.plusDays(i * 151L);
+                LocalDate fin = debut.plusDays(jours);
+                Object[] parametres = plageSurLesLignes ? new Object[]{debut, fin, debut, fin} : new Object[]{debut, fin};
+                assertThat(jdbcTemplate.queryForList(sql, parametres)).isNotEmpty();
+            }
+        });
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.gestion_approvisionnements.benchmark;
+
+import com.example.gestion_approvisionnements.dto.RechercheCommandeDTO;
+import com.example.gestion_approvisionnements.enums.StatutCommande;
+import com.example.gestion_approvisionnements.service.CommandeFournisseurService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+// GET /api/commandes/search sur PostgreSQL : chaque combinaison de critères, première tranche de 50 commandes
+// avec leurs lignes, en millisecondes par requête (objectif : moins de 100 ms à 10 millions de commandes).
+// Volume : -Dbenchmark.recherche.commandes=10000000 (trois lignes par commande, dates réparties sur cinq ans).
+@Testcontainers(disabledWithoutDocker = true)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class RechercheCommandesBenchmarkTest extends AbstractBenchmarkTest {
+
+    private static final long COMMANDES = Long.getLong("benchmark.recherche.commandes", 10_000_000L);
+    private static final long BLOC_INSERTION = 2_000_000L;
+    // Mêmes volumes que les insertions ci-dessous
+    private static final int FOURNISSEURS = 2000;
+    private static final int PRODUITS = 50_000;
+    private static final int REQUETES = 20;
+    private static final LocalDate ORIGINE = LocalDate.of(2021, 1, 1);
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void configurer(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("spring.jpa.database-platform", () -> "org.hibernate.dialect.PostgreSQLDialect");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "none");
+        registry.add("spring.liquibase.enabled", () -> "true");
+        registry.add("spring.liquibase.change-log", () -> "classpath:db/changelog/db.changelog-master.xml");
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private CommandeFournisseurService commandeFournisseurService;
+
+    // Statuts : 1 % en attente, 1 % validées, 0,1 % annulées, le reste livré ; montants de 10 à 10 000
+    @BeforeAll
+    void remplirBase() {
+        jdbcTemplate.queryForObject("SELECT creer_partitions_commande(2021, 2025)", Integer.class);
+        jdbcTemplate.execute("""
+                INSERT INTO fournisseur (id, societe, ice)
+                SELECT g, 'Fournisseur ' || g, 'ICE' || g FROM generate_series(1, 2000) g
+                """);
+        jdbcTemplate.execute("""
+                INSERT INTO produit (id, nom, prix_unitaire, categorie, stock_actuel, cout_moyen_pondere, version)
+                SELECT g, 'Produit ' || g, 10, 'CAT' || (g % 500), 100, 10, 0 FROM generate_series(1, 50000) g
+                """);
+        for (long debut = 1; debut <= COMMANDES; debut += BLOC_INSERTION) {
+            long fin = Math.min(debut + BLOC_INSERTION - 1, COMMANDES);
+            jdbcTemplate.update("""
+                    INSERT INTO commande_fournisseur (id, date_commande, statut, montant_total, fournisseur_id)
+                    SELECT g, DATE '2021-01-01' + CAST(g % 1826 AS INT),
+                           CASE WHEN g % 1000 = 0 THEN 'ANNULEE' WHEN g % 100 = 1 THEN 'EN_ATTENTE'
+                                WHEN g % 100 = 2 THEN 'VALIDEE' ELSE 'LIVREE' END,
+                           10 + (g * 7919) % 9991, 1 + g % 2000
+                    FROM generate_series(CAST(? AS BIGINT), CAST(? AS BIGINT)) g
+                    """, debut, fin);
+            jdbcTemplate.update("""
+                    INSERT INTO ligne_commande (id, commande_fournisseur_id, date_commande, produit_id, quantite,
+                                                prix_unitaire, sous_total)
+                    SELECT 3 * g + n, g, DATE '2021-01-01' + CAST(g % 1826 AS INT), 1 + (g * 31 + n * 7) % 50000, 1, 10, 10
+                    FROM generate_series(CAST(? AS BIGINT), CAST(? AS BIGINT)) g, generate_series(0, 2) n
+                    """, debut, fin);
+        }
+        jdbcTemplate.execute("VACUUM ANALYZE");
+    }
+
+    @Test
+    void toutesLesCombinaisonsDeCriteres() {
+        Map<String, IntFunction<RechercheCommandeDTO>> combinaisons = new LinkedHashMap<>();
+        combinaisons.put("sans critère", i -> new RechercheCommandeDTO());
+        combinaisons.put("statut", i -> recherche(i, StatutCommande.VALIDEE, false, false, false, false));
+        combinaisons.put("statut rare", i -> recherche(i, StatutCommande.ANNULEE, false, false, false, false));
+        combinaisons.put("fournisseur", i -> recherche(i, null, true, false, false, false));
+        combinaisons.put("période (mois)", i -> recherche(i, null, false, false, true, false));
+        combinaisons.put("montant (plage étroite)", i -> recherche(i, null, false, false, false, true));
+        combinaisons.put("produit", i -> recherche(i, null, false, true, false, false));
+        combinaisons.put("statut + fournisseur", i -> recherche(i, StatutCommande.VALIDEE, true, false, false, false));
+        combinaisons.put("statut + période", i -> recherche(i, StatutCommande.VALIDEE, false, false, true, false));
+        combinaisons.put("statut + montant", i -> recherche(i, StatutCommande.VALIDEE, false, false, false, true));
+        combinaisons.put("fournisseur + période", i -> recherche(i, null, true, false, true, false));
+        combinaisons.put("fournisseur + montant", i -> recherche(i, null, true, false, false, true));
+        combinaisons.put("produit + période", i -> recherche(i, null, false, true, true, false));
+        combinaisons.put("produit + statut", i -> recherche(i, StatutCommande.LIVREE, false, true, false, false));
+        combinaisons.put("période + montant", i -> recherche(i, null, false, false, true, true));
+        combinaisons.put("statut + fournisseur + période", i -> recherche(i, StatutCommande.LIVREE, true, false, true, false));
+        combinaisons.put("tous les critères", i -> recherche(i, StatutCommande.LIVREE, true, true, true, true));
+
+        // Tour de chauffe : plans et cache des index de chaque combinaison
+        combinaisons.values().forEach(criteres -> rechercher(criteres, REQUETES));
+        combinaisons.forEach((libelle, criteres) -> {
+            Mesure mesure = mesurer("recherche " + libelle, REQUETES, () -> rechercher(criteres, 0));
+            System.out.printf("[benchmark] recherche %-35s %8.1f ms par requête%n", libelle,
+                    mesure.dureeNanos() / 1_000_000.0 / REQUETES);
+        });
+    }
+
+    // Une valeur différente par requête (décalage) : pas de lecture toujours servie par le cache
+    private void rechercher(IntFunction<RechercheCommandeDTO> criteres, int decalage) {
+        for (int i = 0; i < REQUETES; i++) {
+            commandeFournisseurService.rechercherCommandes(criteres.apply(i + decalage), PageRequest.of(0, 50));
+        }
+    }
+
+    private static RechercheCommandeDTO recherche(int i, StatutCommande statut, boolean fournisseur, boolean produit,
+                                                  boolean periode, boolean montant) {
+        RechercheCommandeDTO recherche = new RechercheCommandeDTO();
+        recherche.setStatut(statut);
+        if (fournisseur) {
+            recherche.setFournisseurId(1L + (i * 97L) % FOURNISSEURS);
+        }
+        if (produit) {
+            recherche.setProduitId(1L + (i * 4099L) % PRODUITS);
+        }
+        if (periode) {
+            recherche.setDebut(ORIGINE.plusDays(i * 89L % 1790));
+            recherche.setFin(recherche.getDebut().plusDays(30));
+        }
+        if (montant) {
+            recherche.setMontantMin(BigDecimal.valueOf(100 + i * 431L % 9000));
+            recherche.setMontantMax(recherche.getMontantMin().add(BigDecimal.valueOf(50)));
+        }
+        return recherche;
+    }
+}
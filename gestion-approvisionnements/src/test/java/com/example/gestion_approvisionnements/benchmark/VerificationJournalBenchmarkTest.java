@@ -0,0 +1,94 @@
+package com.example.gestion_approvisionnements.benchmark;
+
+import com.example.gestion_approvisionnements.dto.VerificationStockDTO;
+import com.example.gestion_approvisionnements.enums.EtatVerification;
+import com.example.gestion_approvisionnements.repository.MouvementStockRepository;
+import com.example.gestion_approvisionnements.repository.ProduitRepository;
+import com.example.gestion_approvisionnements.service.VerificationStockService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Base H2 sur disque : 20 000 produits et 2 millions de mouvements, un produit sur cent en dérive.
+// La vérification est mesurée en séquentiel puis avec 4 tâches parallèles.
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:file:./target/benchmark/verification-journal;MODE=PostgreSQL")
+class VerificationJournalBenchmarkTest extends AbstractBenchmarkTest {
+
+    private static final int PRODUITS = 20_000;
+    private static final int MOUVEMENTS = 2_000_000;
+    private static final int BLOC_INSERTION = 200_000;
+
+    @Autowired
+    private VerificationStockService verificationStockService;
+    @Autowired
+    private MouvementStockRepository mouvementStockRepository;
+    @Autowired
+    private ProduitRepository produitRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        viderTables();
+
+        // Chaque produit reçoit MOUVEMENTS / PRODUITS entrées d'une unité à 1.00
+        jdbcTemplate.update("""
+                INSERT INTO produit (id, nom, prix_unitaire, categorie, stock_actuel, cout_moyen_pondere, version,
+                                     stock_ouverture, cout_moyen_pondere_ouverture)
+                SELECT X, CONCAT('Produit ', X), 1.00, 'BENCH',
+                       CASE WHEN MOD(X, 100) = 0 THEN ? ELSE ? END, 1.00, 0, 0, 0
+                FROM SYSTEM_RANGE(1, ?)
+                """, MOUVEMENTS / PRODUITS + 1, MOUVEMENTS / PRODUITS, PRODUITS);
+        for (int debut = 1; debut <= MOUVEMENTS; debut += BLOC_INSERTION) {
+            jdbcTemplate.update("""
+                    INSERT INTO mouvement_stock (id, date_mouvement, created_at, quantite, type_mouvement,
+                                                 prix_unitaire, stock_apres_mouvement, produit_id)
+                    SELECT X, DATEADD('SECOND', X, TIMESTAMP '2024-01-01 00:00:00'),
+                           DATEADD('SECOND', X, TIMESTAMP '2024-01-01 00:00:00'), 1, 'ENTREE', 1.00,
+                           (X - 1) / ? + 1, MOD(X - 1, ?) + 1
+                    FROM SYSTEM_RANGE(?, ?)
+                    """, PRODUITS, PRODUITS, debut, debut + BLOC_INSERTION - 1);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        viderTables();
+    }
+
+    @Test
+    void verificationDeDeuxMillionsDeMouvements() {
+        Mesure sequentielle = verifier(1);
+        Mesure parallele = verifier(4);
+
+        System.out.printf("[benchmark] vérification : gain x%.2f avec 4 tâches%n",
+                parallele.operationsParSeconde() / sequentielle.operationsParSeconde());
+    }
+
+    private Mesure verifier(int parallelisme) {
+        ReflectionTestUtils.setField(verificationStockService, "parallelisme", parallelisme);
+        AtomicReference<VerificationStockDTO> resultat = new AtomicReference<>();
+
+        Mesure mesure = mesurer("vérification journal (" + parallelisme + " tâche(s), mouvements)", MOUVEMENTS,
+                () -> resultat.set(verificationStockService.verifier(false)));
+
+        assertThat(resultat.get().getEtat()).isEqualTo(EtatVerification.TERMINEE);
+        assertThat(resultat.get().getProduitsVerifies()).isEqualTo(PRODUITS);
+        assertThat(resultat.get().getMouvementsRejoues()).isEqualTo(MOUVEMENTS);
+        assertThat(resultat.get().getNombreEcarts()).isEqualTo(PRODUITS / 100);
+        return mesure;
+    }
+
+    private void viderTables() {
+        mouvementStockRepository.deleteAllInBatch();
+        produitRepository.deleteAllInBatch();
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.gestion_approvisionnements.controller;
+
+import com.example.gestion_approvisionnements.service.IdempotenceService;
+import com.example.gestion_approvisionnements.service.ReponseIdempotente;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotenceFilterTest {
+
+    private static final String CORPS = "{\"produitId\":1,\"quantite\":2}";
+
+    @Mock
+    private IdempotenceService idempotenceService;
+
+    @Test
+    void doFilter_lectureNonBloquante_shouldLivrerLeCorpsRelu() throws Exception {
+        // Arrange
+        when(idempotenceService.executer(eq("cle-1"), anyString(), any()))
+                .thenAnswer(inv -> inv.<Callable<ReponseIdempotente>>getArgument(2).call());
+        List<String> evenements = new ArrayList<>();
+        ByteArrayOutputStream lu = new ByteArrayOutputStream();
+        FilterChain chain = (requete, reponse) -> {
+            ServletInputStream flux = requete.getInputStream();
+            flux.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    evenements.add("donnees");
+                    while (flux.isReady() && !flux.isFinished()) {
+                        lu.write(flux.read());
+                    }
+                }
+
+                @Override
+                public void onAllDataRead() {
+                    evenements.add("fin");
+                }
+
+                @Override
+                public void onError(Throwable erreur) {
+                    evenements.add("erreur");
+                }
+            });
+        };
+
+        // Act
+        new IdempotenceFilter(idempotenceService, new ObjectMapper())
+                .doFilter(requete(), new MockHttpServletResponse(), chain);
+
+        // Assert
+        assertThat(evenements).containsExactly("donnees", "fin");
+        assertThat(lu.toString(StandardCharsets.UTF_8)).isEqualTo(CORPS);
+    }
+
+    @Test
+    void doFilter_erreurDuLecteur_shouldEtreRemonteeParOnError() throws Exception {
+        // Arrange
+        when(idempotenceService.executer(eq("cle-1"), anyString(), any()))
+                .thenAnswer(inv -> inv.<Callable<ReponseIdempotente>>getArgument(2).call());
+        List<Throwable> erreurs = new ArrayList<>();
+        FilterChain chain = (requete, reponse) -> requete.getInputStream().setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() throws IOException {
+                throw new IOException("lecture interrompue");
+            }
+
+            @Override
+            public void onAllDataRead() {
+                erreurs.add(new IllegalStateException("fin signalée après une erreur"));
+            }
+
+            @Override
+            public void onError(Throwable erreur) {
+                erreurs.add(erreur);
+            }
+        });
+
+        // Act
+        new IdempotenceFilter(idempotenceService, new ObjectMapper())
+                .doFilter(requete(), new MockHttpServletResponse(), chain);
+
+        // Assert
+        assertThat(erreurs).singleElement()
+                .satisfies(erreur -> assertThat(erreur).hasMessage("lecture interrompue"));
+    }
+
+    private MockHttpServletRequest requete() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/mouvements");
+        request.addHeader(IdempotenceFilter.EN_TETE_CLE, "cle-1");
+        request.setContentType("application/json");
+        request.setContent(CORPS.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
@@ -1,5 +1,9 @@
 package com.example.gestion_approvisionnements.integration;
 
+import com.example.gestion_approvisionnements.service.CacheReferentielService;
+import com.example.gestion_approvisionnements.service.IndexIceService;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -11,4 +15,21 @@ public abstract class AbstractIntegrationTest {
 
     @Autowired
     protected MockMvc mockMvc;
+
+    @Autowired
+    private CacheReferentielService cacheReferentielService;
+
+    @Autowired
+    private IndexIceService indexIceService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    // Les tests écrivent aussi directement par les repositories, sans passer par les invalidations des services
+    @BeforeEach
+    void viderCacheReferentiel() {
+        cacheReferentielService.vider();
+        indexIceService.vider();
+        entityManagerFactory.getCache().evictAll();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,162 @@
+package com.example.gestion_approvisionnements.integration;
+
+import com.example.gestion_approvisionnements.dto.MouvementStockDTO;
+import com.example.gestion_approvisionnements.dto.StockALaDateDTO;
+import com.example.gestion_approvisionnements.dto.VerificationStockDTO;
+import com.example.gestion_approvisionnements.entity.SoldeArchiveMouvement;
+import com.example.gestion_approvisionnements.exception.BusinessException;
+import com.example.gestion_approvisionnements.repository.SoldeArchiveMouvementRepository;
+import com.example.gestion_approvisionnements.service.InstantaneStockService;
+import com.example.gestion_approvisionnements.service.MouvementStockService;
+import com.example.gestion_approvisionnements.service.PartitionMouvementService;
+import com.example.gestion_approvisionnements.service.VerificationStockService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Partitions mensuelles de mouvement_stock et archivage à froid (changelog 016), sur PostgreSQL.
+// Journal du produit : 1 (janvier), 2 (février), puis 3 daté de janvier mais créé après 2, donc non archivable.
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+class ArchiveMouvementsPostgresIntegrationTest {
+
+    private static final Path REPERTOIRE;
+
+    static {
+        try {
+            REPERTOIRE = Files.createTempDirectory("archives-mouvements");
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static final YearMonth JANVIER = YearMonth.of(2022, 1);
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void configurer(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("spring.jpa.database-platform", () -> "org.hibernate.dialect.PostgreSQLDialect");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "none");
+        registry.add("spring.liquibase.enabled", () -> "true");
+        registry.add("spring.liquibase.change-log", () -> "classpath:db/changelog/db.changelog-master.xml");
+        registry.add("stock.archives.repertoire", REPERTOIRE::toString);
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PartitionMouvementService partitionMouvementService;
+    @Autowired
+    private MouvementStockService mouvementStockService;
+    @Autowired
+    private InstantaneStockService instantaneStockService;
+    @Autowired
+    private VerificationStockService verificationStockService;
+    @Autowired
+    private SoldeArchiveMouvementRepository soldeArchiveMouvementRepository;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("TRUNCATE mouvement_stock, solde_archive_mouvement, archive_mouvement, instantane_stock, "
+                + "produit CASCADE");
+        jdbcTemplate.queryForObject("SELECT creer_partitions_mouvement(DATE '2022-01-01', DATE '2022-02-01')",
+                Integer.class);
+        jdbcTemplate.update("""
+                INSERT INTO produit (id, nom, prix_unitaire, categorie, stock_actuel, cout_moyen_pondere, version,
+                                     stock_ouverture, cout_moyen_pondere_ouverture)
+                VALUES (1, 'Produit archivé', 4, 'TEST', 15, 3.00, 0, 0, 0)
+                """);
+        jdbcTemplate.update("""
+                INSERT INTO mouvement_stock (id, date_mouvement, quantite, type_mouvement, prix_unitaire,
+                                             stock_apres_mouvement, produit_id, created_at)
+                VALUES (1, TIMESTAMP '2022-01-10 08:00', 10, 'ENTREE', 2.00, 10, 1, TIMESTAMP '2022-01-10 08:00'),
+                       (2, TIMESTAMP '2022-02-05 08:00', 10, 'ENTREE', 4.00, 20, 1, TIMESTAMP '2022-02-05 08:00'),
+                       (3, TIMESTAMP '2022-01-20 08:00', 5, 'SORTIE', NULL, 15, 1, TIMESTAMP '2022-02-06 08:00')
+                """);
+    }
+
+    @Test
+    void migration_shouldCreerLesPartitionsDuMoisEtDesSuivants() {
+        YearMonth mois = YearMonth.now();
+
+        assertThat(partitions()).contains(nom(mois), nom(mois.plusMonths(2)), "mouvement_stock_defaut");
+        assertThat(partitionMouvementService.creerPartitionsAVenir()).isLessThanOrEqualTo(1);
+        assertThat(partitionMouvementService.creerPartitionsAVenir()).isZero();
+        assertThat(partitions()).contains(nom(mois.plusMonths(3)));
+    }
+
+    @Test
+    void archiverMois_shouldDetacherLaPartitionEtGarderLesMouvementsNonArchivables() {
+        long archives = partitionMouvementService.archiverMois(JANVIER);
+
+        assertThat(archives).isEqualTo(1);
+        assertThat(partitions()).doesNotContain(nom(JANVIER)).contains(nom(JANVIER.plusMonths(1)));
+        assertThat(jdbcTemplate.queryForObject("SELECT tableoid::regclass::text FROM mouvement_stock WHERE id = 3",
+                String.class)).isEqualTo("mouvement_stock_defaut");
+        assertThat(Files.exists(REPERTOIRE.resolve(nom(JANVIER) + ".ndjson.gz"))).isTrue();
+        assertThat(jdbcTemplate.queryForObject("SELECT nombre_mouvements FROM archive_mouvement", Long.class))
+                .isEqualTo(1);
+
+        SoldeArchiveMouvement solde = soldeArchiveMouvementRepository.findById(1L).orElseThrow();
+        assertThat(solde.getStock()).isEqualTo(10);
+        assertThat(solde.getCoutMoyenPondere()).isEqualByComparingTo("2.00");
+        assertThat(solde.getDernierCreatedAt()).isEqualTo(LocalDateTime.of(2022, 1, 10, 8, 0));
+    }
+
+    @Test
+    void apresArchivage_historiqueStockADateEtVerification_shouldLireArchivesEtSolde() {
+        partitionMouvementService.archiverMois(JANVIER);
+
+        List<MouvementStockDTO> historique = mouvementStockService
+                .getMouvementsParProduit(1L, null, 10, null, null).getMouvements();
+        assertThat(historique).extracting(MouvementStockDTO::getId).containsExactly(1L, 3L, 2L);
+        assertThat(historique.get(0).getProduitNom()).isEqualTo("Produit archivé");
+        assertThat(mouvementStockService.getMouvementsParProduit(1L, null, 10,
+                LocalDate.of(2022, 1, 15), LocalDate.of(2022, 1, 31)).getMouvements())
+                .extracting(MouvementStockDTO::getId).containsExactly(3L);
+
+        StockALaDateDTO stock = instantaneStockService.getStockALaDate(1L, LocalDate.of(2022, 3, 1));
+        assertThat(stock.getStock()).isEqualTo(15);
+        assertThat(stock.getMouvementsRejoues()).isEqualTo(2);
+        assertThatThrownBy(() -> instantaneStockService.getStockALaDate(1L, LocalDate.of(2022, 1, 15)))
+                .isInstanceOf(BusinessException.class);
+
+        VerificationStockDTO verification = verificationStockService.verifier(false);
+        assertThat(verification.getNombreEcarts()).isZero();
+    }
+
+    private List<String> partitions() {
+        return jdbcTemplate.queryForList("""
+                SELECT inhrelid::regclass::text FROM pg_inherits WHERE inhparent = CAST('mouvement_stock' AS regclass)
+                """, String.class);
+    }
+
+    private static String nom(YearMonth mois) {
+        return String.format("mouvement_stock_%d_%02d", mois.getYear(), mois.getMonthValue());
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.gestion_approvisionnements.integration;
+
+import com.example.gestion_approvisionnements.dto.CommandeFournisseurDTO;
+import com.example.gestion_approvisionnements.dto.LigneCommandeDTO;
+import com.example.gestion_approvisionnements.dto.MouvementStockDTO;
+import com.example.gestion_approvisionnements.entity.Fournisseur;
+import com.example.gestion_approvisionnements.entity.Produit;
+import com.example.gestion_approvisionnements.enums.StatutCommande;
+import com.example.gestion_approvisionnements.enums.TypeMouvement;
+import com.example.gestion_approvisionnements.repository.CommandeFournisseurRepository;
+import com.example.gestion_approvisionnements.repository.FournisseurRepository;
+import com.example.gestion_approvisionnements.repository.MouvementStockRepository;
+import com.example.gestion_approvisionnements.repository.ProduitRepository;
+import com.example.gestion_approvisionnements.service.CommandeFournisseurService;
+import com.example.gestion_approvisionnements.service.MouvementStockService;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class CacheSecondNiveauIntegrationTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private ProduitRepository produitRepository;
+    @Autowired
+    private FournisseurRepository fournisseurRepository;
+    @Autowired
+    private CommandeFournisseurRepository commandeFournisseurRepository;
+    @Autowired
+    private MouvementStockRepository mouvementStockRepository;
+    @Autowired
+    private MouvementStockService mouvementStockService;
+    @Autowired
+    private CommandeFournisseurService commandeFournisseurService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Cache cache;
+
+    @BeforeEach
+    void setUp() {
+        mouvementStockRepository.deleteAll();
+        commandeFournisseurRepository.deleteAll();
+        fournisseurRepository.deleteAll();
+        produitRepository.deleteAll();
+        cache = entityManagerFactory.getCache();
+        cache.evictAll();
+    }
+
+    @Test
+    void findAllById_shouldMettreEnCacheEtIgnorerLesIdInconnus() {
+        Produit produit = produitRepository.save(buildProduit("Prod cache", "CAT"));
+        cache.evictAll();
+
+        List<Produit> produits = produitRepository.findAllById(List.of(produit.getId(), -1L));
+
+        assertThat(produits).extracting(Produit::getId).containsExactly(produit.getId());
+        assertThat(cache.contains(Produit.class, produit.getId())).isTrue();
+    }
+
+    @Test
+    void mouvement_shouldRetirerLeProduitDuCacheEtRelireLeStock() {
+        Produit produit = produitRepository.save(buildProduit("Prod mouvement", "CAT"));
+        produitRepository.findById(produit.getId());
+        assertThat(cache.contains(Produit.class, produit.getId())).isTrue();
+
+        MouvementStockDTO entree = new MouvementStockDTO();
+        entree.setProduitId(produit.getId());
+        entree.setTypeMouvement(TypeMouvement.ENTREE);
+        entree.setQuantite(5);
+        entree.setPrixUnitaire(BigDecimal.valueOf(16));
+        MouvementStockDTO enregistre = mouvementStockService.enregistrerMouvement(entree);
+
+        // Mise à jour par requête : relecture en base dans la transaction, produit retiré du cache au commit
+        assertThat(enregistre.getStockApresMouvement()).isEqualTo(15);
+        assertThat(cache.contains(Produit.class, produit.getId())).isFalse();
+        Produit relu = produitRepository.findById(produit.getId()).orElseThrow();
+        assertThat(relu.getStockActuel()).isEqualTo(15);
+        assertThat(relu.getCoutMoyenPondere()).isEqualByComparingTo("12.00");
+    }
+
+    @Test
+    void mouvementsConcurrents_shouldLaisserLesAutresProduitsEnCache() throws Exception {
+        Produit mouvemente = produitRepository.save(buildProduit("Prod mouvementé", "CAT"));
+        List<Long> autres = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            autres.add(produitRepository.save(buildProduit("Prod lu " + i, "CAT")).getId());
+        }
+        produitRepository.findAllById(autres);
+
+        // Entrées sur un produit pendant que les autres sont lus
+        List<Runnable> operations = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            operations.add(() -> mouvementStockService.enregistrerMouvement(
+                    buildEntree(mouvemente.getId(), 1, BigDecimal.TEN)));
+            Long autre = autres.get(i % autres.size());
+            operations.add(() -> produitRepository.findById(autre));
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        executerEnParallele(operations);
+
+        CacheRegionStatistics region = statistics.getDomainDataRegionStatistics("produit");
+        assertThat(region.getHitCount()).isGreaterThanOrEqualTo(40);
+        assertThat(region.getMissCount()).isZero();
+        assertThat(autres).allMatch(id -> cache.contains(Produit.class, id));
+        assertThat(produitRepository.findById(mouvemente.getId()).orElseThrow().getStockActuel()).isEqualTo(50);
+    }
+
+    @Test
+    void livraison_shouldMettreAJourLeProduitEnCache() {
+        Fournisseur fournisseur = new Fournisseur();
+        fournisseur.setSociete("Fournisseur cache");
+        fournisseur = fournisseurRepository.save(fournisseur);
+        Produit produit = produitRepository.save(buildProduit("Prod livré", "CAT"));
+
+        Long commandeId = commandeFournisseurService.createCommande(new CommandeFournisseurDTO(null, LocalDate.now(),
+                StatutCommande.EN_ATTENTE, null, fournisseur.getId(), null,
+                List.of(new LigneCommandeDTO(null, produit.getId(), null, 3, null, null)))).getId();
+        assertThat(cache.contains(Fournisseur.class, fournisseur.getId())).isTrue();
+        assertThat(cache.contains(Produit.class, produit.getId())).isTrue();
+
+        commandeFournisseurService.updateStatut(commandeId, StatutCommande.LIVREE);
+
+        // Écriture par l'entité : l'entrée est remplacée au commit par la nouvelle version
+        assertThat(cache.contains(Produit.class, produit.getId())).isTrue();
+        assertThat(produitRepository.findById(produit.getId()).orElseThrow().getStockActuel()).isEqualTo(7);
+    }
+
+    @Test
+    void getProduitsParCategorie_apresChangementDeCategorie_shouldNePlusServirLeResultatEnCache() throws Exception {
+        Produit produit = produitRepository.save(buildProduit("Prod catégorie", "OUTILS"));
+        mockMvc.perform(get("/api/produits/categorie/{categorie}", "outils"))
+                .andExpect(jsonPath("$.length()").value(1));
+
+        produit.setCategorie("JARDIN");
+        produitRepository.save(produit);
+        mockMvc.perform(get("/api/produits/categorie/{categorie}", "outils"))
+                .andExpect(jsonPath("$.length()").value(0));
+        mockMvc.perform(get("/api/produits/categorie/{categorie}", "jardin"))
+                .andExpect(jsonPath("$[0].stockActuel").value(10));
+
+        mockMvc.perform(patch("/api/produits/{id}/stock", produit.getId()).param("variation", "32"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/produits/categorie/{categorie}", "jardin"))
+                .andExpect(jsonPath("$[0].stockActuel").value(42));
+    }
+
+    private void executerEnParallele(List<Runnable> operations) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch depart = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Runnable operation : operations) {
+                futures.add(executor.submit(() -> {
+                    depart.await();
+                    operation.run();
+                    return null;
+                }));
+            }
+            depart.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private MouvementStockDTO buildEntree(Long produitId, int quantite, BigDecimal prix) {
+        MouvementStockDTO dto = new MouvementStockDTO();
+        dto.setProduitId(produitId);
+        dto.setTypeMouvement(TypeMouvement.ENTREE);
+        dto.setQuantite(quantite);
+        dto.setPrixUnitaire(prix);
+        return dto;
+    }
+
+    private Produit buildProduit(String nom, String categorie) {
+        Produit p = new Produit();
+        p.setNom(nom);
+        p.setPrixUnitaire(BigDecimal.TEN);
+        p.setCategorie(categorie);
+        p.setStockActuel(10);
+        p.setCoutMoyenPondere(BigDecimal.TEN);
+        return p;
+    }
+}
@@ -4,10 +4,13 @@ import com.example.gestion_approvisionnements.dto.CommandeFournisseurDTO;
 import com.example.gestion_approvisionnements.dto.LigneCommandeDTO;
 import com.example.gestion_approvisionnements.entity.CommandeFournisseur;
 import com.example.gestion_approvisionnements.entity.Fournisseur;
+import com.example.gestion_approvisionnements.entity.LigneCommande;
 import com.example.gestion_approvisionnements.entity.Produit;
 import com.example.gestion_approvisionnements.enums.StatutCommande;
+import com.example.gestion_approvisionnements.enums.TypeMouvement;
 import com.example.gestion_approvisionnements.repository.CommandeFournisseurRepository;
 import com.example.gestion_approvisionnements.repository.FournisseurRepository;
+import com.example.gestion_approvisionnements.repository.MouvementStockRepository;
 import com.example.gestion_approvisionnements.repository.ProduitRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
@@ -34,6 +37,9 @@ class CommandeFournisseurControllerIntegrationTest extends AbstractIntegrationTe
     @Autowired
     private ProduitRepository produitRepository;
 
+    @Autowired
+    private MouvementStockRepository mouvementStockRepository;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -43,6 +49,7 @@ class CommandeFournisseurControllerIntegrationTest extends AbstractIntegrationTe
 
     @BeforeEach
     void setUp() {
+        mouvementStockRepository.deleteAll();
         commandeFournisseurRepository.deleteAll();
         fournisseurRepository.deleteAll();
         produitRepository.deleteAll();
@@ -112,6 +119,43 @@ class CommandeFournisseurControllerIntegrationTest extends AbstractIntegrationTe
         assertThat(commandeFournisseurRepository.count()).isEqualTo(1);
     }
 
+    @Test
+    void createCommandesEnLot_shouldPersistValidAndReportFailures() throws Exception {
+        CommandeFournisseurDTO sansPrix = buildCommandeDTO();
+        sansPrix.getLignesCommande().forEach(ligne -> ligne.setPrixUnitaire(null));
+        CommandeFournisseurDTO fournisseurInconnu = buildCommandeDTO();
+        fournisseurInconnu.setFournisseurId(999L);
+        CommandeFournisseurDTO produitInconnu = buildCommandeDTO();
+        produitInconnu.getLignesCommande().get(1).setProduitId(998L);
+
+        mockMvc.perform(post("/api/commandes/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                List.of(buildCommandeDTO(), fournisseurInconnu, sansPrix, produitInconnu))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nombreTotal").value(4))
+                .andExpect(jsonPath("$.nombreReussis").value(2))
+                .andExpect(jsonPath("$.nombreEchecs").value(2))
+                .andExpect(jsonPath("$.resultats[0].commande.id").isNumber())
+                .andExpect(jsonPath("$.resultats[0].commande.montantTotal").value(40.0))
+                .andExpect(jsonPath("$.resultats[1].succes").value(false))
+                .andExpect(jsonPath("$.resultats[1].erreur").value("Fournisseur introuvable avec l'id 999"))
+                .andExpect(jsonPath("$.resultats[2].commande.fournisseurSociete").value("Fournisseur IT"))
+                .andExpect(jsonPath("$.resultats[2].commande.lignesCommande[1].prixUnitaire").value(20.0))
+                .andExpect(jsonPath("$.resultats[3].erreur").value("Produit introuvable avec l'id 998"));
+
+        assertThat(commandeFournisseurRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    void createCommandesEnLot_whenEmpty_shouldReturnConflict() throws Exception {
+        mockMvc.perform(post("/api/commandes/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.message").value("Le lot doit contenir au moins une commande"));
+    }
+
     @Test
     void getCommandes_shouldReturnPage() throws Exception {
         CommandeFournisseur commande = new CommandeFournisseur();
@@ -160,6 +204,54 @@ class CommandeFournisseurControllerIntegrationTest extends AbstractIntegrationTe
         assertThat(reloaded.getStatut()).isEqualTo(StatutCommande.VALIDEE);
     }
 
+    @Test
+    void updateStatut_livree_shouldPostOneSortiePerLigne() throws Exception {
+        produit1.setStockActuel(10);
+        produit2.setStockActuel(5);
+        produitRepository.saveAll(List.of(produit1, produit2));
+        Long commandeId = creerCommande();
+
+        mockMvc.perform(patch("/api/commandes/{id}/statut", commandeId)
+                        .param("statut", "LIVREE"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.statut").value("LIVREE"));
+
+        assertThat(produitRepository.findById(produit1.getId()).orElseThrow().getStockActuel()).isEqualTo(8);
+        assertThat(produitRepository.findById(produit2.getId()).orElseThrow().getStockActuel()).isEqualTo(4);
+        assertThat(mouvementStockRepository.findByProduitIdOrderByDateMouvementAsc(produit1.getId()))
+                .singleElement()
+                .satisfies(m -> {
+                    assertThat(m.getTypeMouvement()).isEqualTo(TypeMouvement.SORTIE);
+                    assertThat(m.getStockApresMouvement()).isEqualTo(8);
+                });
+    }
+
+    @Test
+    void updateStatut_livreeSansStockSuffisant_shouldRollbackEverything() throws Exception {
+        produit1.setStockActuel(10);
+        produitRepository.save(produit1);
+        Long commandeId = creerCommande();
+
+        mockMvc.perform(patch("/api/commandes/{id}/statut", commandeId)
+                        .param("statut", "LIVREE"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.message").value("Stock insuffisant pour effectuer cette sortie"));
+
+        assertThat(commandeFournisseurRepository.findById(commandeId).orElseThrow().getStatut())
+                .isEqualTo(StatutCommande.EN_ATTENTE);
+        assertThat(produitRepository.findById(produit1.getId()).orElseThrow().getStockActuel()).isEqualTo(10);
+        assertThat(mouvementStockRepository.count()).isZero();
+    }
+
+    private Long creerCommande() throws Exception {
+        String reponse = mockMvc.perform(post("/api/commandes")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(buildCommandeDTO())))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(reponse).get("id").asLong();
+    }
+
     @Test
     void deleteCommande_shouldDelete() throws Exception {
         CommandeFournisseur commande = new CommandeFournisseur();
@@ -209,6 +301,13 @@ class CommandeFournisseurControllerIntegrationTest extends AbstractIntegrationTe
         CommandeFournisseur c1 = new CommandeFournisseur();
         c1.setDateCommande(LocalDate.now().minusDays(5));
         c1.setFournisseur(fournisseur);
+        // La requête par période parcourt les lignes (partitionnées par date) : la commande en porte une
+        LigneCommande ligne = new LigneCommande();
+        ligne.setCommandeFournisseur(c1);
+        ligne.setProduit(produit1);
+        ligne.setQuantite(1);
+        ligne.setPrixUnitaire(produit1.getPrixUnitaire());
+        c1.getLignesCommande().add(ligne);
         commandeFournisseurRepository.save(c1);
 
         mockMvc.perform(get("/api/commandes/periode")
@@ -217,4 +316,66 @@ class CommandeFournisseurControllerIntegrationTest extends AbstractIntegrationTe
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.length()").value(1));
     }
-}
\ No newline at end of file
+
+    @Test
+    void rechercherCommandes_shouldCombinerLesCriteresEtPaginerDansLOrdreStable() throws Exception {
+        LocalDate jour = LocalDate.of(2025, 3, 10);
+        CommandeFournisseur attendue1 = sauvegarderCommande(jour, StatutCommande.VALIDEE, produit1, 5);
+        CommandeFournisseur attendue2 = sauvegarderCommande(jour, StatutCommande.VALIDEE, produit1, 3);
+        CommandeFournisseur attendue3 = sauvegarderCommande(jour.minusDays(2), StatutCommande.VALIDEE, produit1, 4);
+        sauvegarderCommande(jour, StatutCommande.EN_ATTENTE, produit1, 5);
+        sauvegarderCommande(jour, StatutCommande.VALIDEE, produit2, 5);
+        sauvegarderCommande(jour, StatutCommande.VALIDEE, produit1, 50);
+        sauvegarderCommande(jour.minusMonths(2), StatutCommande.VALIDEE, produit1, 5);
+
+        // Même date : départagées par id décroissant ; la tranche suivante reprend sans doublon
+        mockMvc.perform(get("/api/commandes/search")
+                        .param("statut", "VALIDEE")
+                        .param("fournisseurId", fournisseur.getId().toString())
+                        .param("produitId", produit1.getId().toString())
+                        .param("debut", "2025-03-01")
+                        .param("fin", "2025-03-31")
+                        .param("montantMin", "20")
+                        .param("montantMax", "100")
+                        .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(2))
+                .andExpect(jsonPath("$.content[0].id").value(attendue2.getId()))
+                .andExpect(jsonPath("$.content[1].id").value(attendue1.getId()))
+                .andExpect(jsonPath("$.content[0].lignesCommande.length()").value(1))
+                .andExpect(jsonPath("$.last").value(false));
+
+        mockMvc.perform(get("/api/commandes/search")
+                        .param("statut", "VALIDEE")
+                        .param("produitId", produit1.getId().toString())
+                        .param("debut", "2025-03-01")
+                        .param("montantMax", "100")
+                        .param("size", "2")
+                        .param("page", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].id").value(attendue3.getId()))
+                .andExpect(jsonPath("$.last").value(true));
+    }
+
+    @Test
+    void rechercherCommandes_quandTriNonSupporte_shouldReturnConflict() throws Exception {
+        mockMvc.perform(get("/api/commandes/search").param("sort", "montantTotal,desc"))
+                .andExpect(status().isConflict());
+    }
+
+    private CommandeFournisseur sauvegarderCommande(LocalDate date, StatutCommande statut, Produit produit, int quantite) {
+        CommandeFournisseur commande = new CommandeFournisseur();
+        commande.setDateCommande(date);
+        commande.setFournisseur(fournisseur);
+        commande.setStatut(statut);
+        commande.setMontantTotal(produit.getPrixUnitaire().multiply(BigDecimal.valueOf(quantite)));
+        LigneCommande ligne = new LigneCommande();
+        ligne.setCommandeFournisseur(commande);
+        ligne.setProduit(produit);
+        ligne.setQuantite(quantite);
+        ligne.setPrixUnitaire(produit.getPrixUnitaire());
+        commande.getLignesCommande().add(ligne);
+        return commandeFournisseurRepository.save(commande);
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.gestion_approvisionnements.integration;
+
+import com.example.gestion_approvisionnements.dto.CommandeFournisseurDTO;
+import com.example.gestion_approvisionnements.dto.LigneCommandeDTO;
+import com.example.gestion_approvisionnements.entity.Fournisseur;
+import com.example.gestion_approvisionnements.entity.Produit;
+import com.example.gestion_approvisionnements.enums.StatutCommande;
+import com.example.gestion_approvisionnements.repository.CommandeFournisseurRepository;
+import com.example.gestion_approvisionnements.repository.CommandeSummaryRepository;
+import com.example.gestion_approvisionnements.repository.FournisseurRepository;
+import com.example.gestion_approvisionnements.repository.MouvementStockRepository;
+import com.example.gestion_approvisionnements.repository.ProduitRepository;
+import com.example.gestion_approvisionnements.service.CommandeFournisseurService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Nombre de requêtes SQL par endpoint de lecture des commandes : fixe, quel que soit le nombre de commandes et de lignes
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class CommandeFournisseurRequetesIntegrationTest extends AbstractIntegrationTest {
+
+    private static final int COMMANDES_PAR_FOURNISSEUR = 12;
+    private static final int LIGNES_PAR_COMMANDE = 4;
+
+    @Autowired
+    private CommandeFournisseurService commandeFournisseurService;
+    @Autowired
+    private CommandeFournisseurRepository commandeFournisseurRepository;
+    @Autowired
+    private CommandeSummaryRepository commandeSummaryRepository;
+    @Autowired
+    private FournisseurRepository fournisseurRepository;
+    @Autowired
+    private ProduitRepository produitRepository;
+    @Autowired
+    private MouvementStockRepository mouvementStockRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Fournisseur fournisseur;
+    private Long commandeId;
+
+    @BeforeEach
+    void setUp() {
+        commandeSummaryRepository.deleteAllInBatch();
+        mouvementStockRepository.deleteAll();
+        commandeFournisseurRepository.deleteAll();
+        fournisseurRepository.deleteAll();
+        produitRepository.deleteAll();
+
+        List<Produit> produits = new ArrayList<>();
+        for (int i = 0; i < 2 * LIGNES_PAR_COMMANDE; i++) {
+            Produit p = new Produit();
+            p.setNom("Produit " + i);
+            p.setPrixUnitaire(BigDecimal.TEN);
+            p.setCategorie("TEST");
+            p.setStockActuel(0);
+            produits.add(p);
+        }
+        produits = produitRepository.saveAll(produits);
+
+        for (int f = 0; f < 2; f++) {
+            Fournisseur nouveau = new Fournisseur();
+            nouveau.setSociete("Fournisseur " + f);
+            nouveau.setIce("ICE_REQ_" + f);
+            fournisseur = fournisseurRepository.save(nouveau);
+            for (int c = 0; c < COMMANDES_PAR_FOURNISSEUR; c++) {
+                List<LigneCommandeDTO> lignes = new ArrayList<>();
+                for (int l = 0; l < LIGNES_PAR_COMMANDE; l++) {
+                    Produit produit = produits.get((c + l) % produits.size());
+                    lignes.add(new LigneCommandeDTO(null, produit.getId(), null, 1 + l, produit.getPrixUnitaire(), null));
+                }
+                commandeId = commandeFournisseurService.createCommande(new CommandeFournisseurDTO(null,
+                        LocalDate.of(2025, 1, 1 + c), StatutCommande.EN_ATTENTE, null,
+                        fournisseur.getId(), null, lignes)).getId();
+            }
+        }
+    }
+
+    @Test
+    void getCommandes_page_shouldUseThreeQueries() throws Exception {
+        // page, total, lignes et produits de la page
+        assertThat(compterRequetes(get("/api/commandes").param("size", "20"))).isEqualTo(3);
+        assertThat(compterRequetes(get("/api/commandes").param("size", "5"))).isEqualTo(3);
+    }
+
+    @Test
+    void getCommandes_page_shouldMapFournisseurAndLignes() throws Exception {
+        mockMvc.perform(get("/api/commandes").param("size", "20").param("sort", "id"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(20)))
+                .andExpect(jsonPath("$.content[0].fournisseurSociete").value("Fournisseur 0"))
+                .andExpect(jsonPath("$.content[0].lignesCommande", hasSize(LIGNES_PAR_COMMANDE)))
+                .andExpect(jsonPath("$.content[0].lignesCommande[0].produitNom").isString());
+    }
+
+    @Test
+    void getCommande_shouldUseOneQuery() throws Exception {
+        assertThat(compterRequetes(get("/api/commandes/{id}", commandeId))).isEqualTo(1);
+    }
+
+    @Test
+    void getCommandesParStatut_shouldUseOneQueryWithoutDuplicates() throws Exception {
+        assertThat(compterRequetes(get("/api/commandes/statut/{statut}", "EN_ATTENTE"))).isEqualTo(1);
+
+        mockMvc.perform(get("/api/commandes/statut/{statut}", "EN_ATTENTE"))
+                .andExpect(jsonPath("$", hasSize(2 * COMMANDES_PAR_FOURNISSEUR)))
+                .andExpect(jsonPath("$[0].lignesCommande", hasSize(LIGNES_PAR_COMMANDE)));
+    }
+
+    @Test
+    void getCommandesParFournisseur_shouldUseOneQuery() throws Exception {
+        assertThat(compterRequetes(get("/api/commandes/fournisseur/{id}", fournisseur.getId()))).isEqualTo(1);
+    }
+
+    @Test
+    void getCommandesParPeriode_shouldUseOneQuery() throws Exception {
+        assertThat(compterRequetes(get("/api/commandes/periode")
+                .param("debut", "2025-01-01")
+                .param("fin", "2025-01-31"))).isEqualTo(1);
+    }
+
+    @Test
+    void rechercherCommandes_shouldUseTwoQueriesWithoutCount() throws Exception {
+        // tranche (fournisseur joint), lignes et produits de la tranche ; pas de requête de comptage
+        assertThat(compterRequetes(get("/api/commandes/search").param("size", "20"))).isEqualTo(2);
+        assertThat(compterRequetes(get("/api/commandes/search")
+                .param("statut", "EN_ATTENTE")
+                .param("fournisseurId", fournisseur.getId().toString())
+                .param("debut", "2025-01-01")
+                .param("fin", "2025-01-31"))).isEqualTo(2);
+
+        mockMvc.perform(get("/api/commandes/search").param("size", "20"))
+                .andExpect(jsonPath("$.content", hasSize(20)))
+                .andExpect(jsonPath("$.content[0].fournisseurSociete").isString())
+                .andExpect(jsonPath("$.content[0].lignesCommande", hasSize(LIGNES_PAR_COMMANDE)));
+    }
+
+    @Test
+    void getSummaries_shouldUseOneQuery() throws Exception {
+        // Page incomplète : pas de requête de comptage
+        assertThat(compterRequetes(get("/api/commandes/summary").param("size", "50"))).isEqualTo(1);
+        assertThat(compterRequetes(get("/api/commandes/summary/statut/{statut}", "EN_ATTENTE")
+                .param("size", "50"))).isEqualTo(1);
+    }
+
+    private long compterRequetes(RequestBuilder requete) throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        mockMvc.perform(requete).andExpect(status().isOk());
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.gestion_approvisionnements.integration;
+
+import com.example.gestion_approvisionnements.dto.CommandeFournisseurDTO;
+import com.example.gestion_approvisionnements.dto.LigneCommandeDTO;
+import com.example.gestion_approvisionnements.entity.Fournisseur;
+import com.example.gestion_approvisionnements.entity.Produit;
+import com.example.gestion_approvisionnements.enums.StatutCommande;
+import com.example.gestion_approvisionnements.repository.CommandeFournisseurRepository;
+import com.example.gestion_approvisionnements.repository.CommandeSummaryRepository;
+import com.example.gestion_approvisionnements.repository.FournisseurRepository;
+import com.example.gestion_approvisionnements.repository.MouvementStockRepository;
+import com.example.gestion_approvisionnements.repository.ProduitRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class CommandeSummaryIntegrationTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private CommandeSummaryRepository commandeSummaryRepository;
+    @Autowired
+    private CommandeFournisseurRepository commandeFournisseurRepository;
+    @Autowired
+    private FournisseurRepository fournisseurRepository;
+    @Autowired
+    private ProduitRepository produitRepository;
+    @Autowired
+    private MouvementStockRepository mouvementStockRepository;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Fournisseur fournisseur;
+    private Produit produit1;
+    private Produit produit2;
+
+    @BeforeEach
+    void setUp() {
+        commandeSummaryRepository.deleteAllInBatch();
+        mouvementStockRepository.deleteAll();
+        commandeFournisseurRepository.deleteAll();
+        fournisseurRepository.deleteAll();
+        produitRepository.deleteAll();
+
+        fournisseur = new Fournisseur();
+        fournisseur.setSociete("Fournisseur Résumé");
+        fournisseur.setIce("ICE_SUMMARY");
+        fournisseur = fournisseurRepository.save(fournisseur);
+
+        produit1 = produitRepository.save(buildProduit("Prod 1", BigDecimal.valueOf(10)));
+        produit2 = produitRepository.save(buildProduit("Prod 2", BigDecimal.valueOf(20)));
+    }
+
+    @Test
+    void summary_shouldFollowCreationStatutEtSuppression() throws Exception {
+        Long premiere = creer(LocalDate.of(2025, 3, 1));
+        Long seconde = creer(LocalDate.of(2025, 3, 15));
+
+        mockMvc.perform(get("/api/commandes/summary").param("sort", "dateCommande"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(2))
+                .andExpect(jsonPath("$.content[0].id").value(premiere))
+                .andExpect(jsonPath("$.content[0].fournisseurSociete").value("Fournisseur Résumé"))
+                .andExpect(jsonPath("$.content[0].montantTotal").value(40.0))
+                .andExpect(jsonPath("$.content[0].nombreLignes").value(2))
+                .andExpect(jsonPath("$.content[0].lignesCommande").doesNotExist());
+
+        mockMvc.perform(patch("/api/commandes/{id}/statut", seconde).param("statut", "VALIDEE"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/commandes/summary/statut/{statut}", "VALIDEE"))
+                .andExpect(jsonPath("$.totalElements").value(1))
+                .andExpect(jsonPath("$.content[0].id").value(seconde));
+
+        mockMvc.perform(delete("/api/commandes/{id}", premiere))
+                .andExpect(status().isNoContent());
+        assertThat(commandeSummaryRepository.findAll()).extracting("id").containsExactly(seconde);
+    }
+
+    @Test
+    void summary_shouldFilterByFournisseurAndPeriode() throws Exception {
+        creer(LocalDate.of(2025, 3, 1));
+        Long mars = creer(LocalDate.of(2025, 3, 20));
+        creer(LocalDate.of(2025, 4, 2));
+
+        mockMvc.perform(get("/api/commandes/summary/fournisseur/{id}", fournisseur.getId()))
+                .andExpect(jsonPath("$.totalElements").value(3));
+        mockMvc.perform(get("/api/commandes/summary/periode")
+                        .param("debut", "2025-03-10")
+                        .param("fin", "2025-03-31"))
+                .andExpect(jsonPath("$.totalElements").value(1))
+                .andExpect(jsonPath("$.content[0].id").value(mars));
+    }
+
+    @Test
+    void summary_shouldFollowRenommageFournisseur() throws Exception {
+        creer(LocalDate.of(2025, 3, 1));
+
+        mockMvc.perform(put("/api/fournisseurs/{id}", fournisseur.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"societe\":\"Nouveau nom\",\"ice\":\"ICE_SUMMARY\"}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/commandes/summary"))
+                .andExpect(jsonPath("$.content[0].fournisseurSociete").value("Nouveau nom"));
+    }
+
+    @Test
+    void summary_bulk_shouldBeSummarizedInSameTransaction() throws Exception {
+        mockMvc.perform(post("/api/commandes/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(
+                                buildCommande(LocalDate.of(2025, 5, 1)), buildCommande(LocalDate.of(2025, 5, 2))))))
+                .andExpect(jsonPath("$.nombreReussis").value(2));
+
+        assertThat(commandeSummaryRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    void reconstruction_shouldRegenererDepuisLesCommandes() throws Exception {
+        Long commande = creer(LocalDate.of(2025, 3, 1));
+        creer(LocalDate.of(2025, 3, 2));
+        // Dérive du modèle de lecture : une ligne perdue, une ligne fausse
+        commandeSummaryRepository.deleteById(commande);
+        commandeSummaryRepository.findAll().forEach(summary -> {
+            summary.setNombreLignes(99);
+            commandeSummaryRepository.save(summary);
+        });
+
+        mockMvc.perform(post("/api/commandes/summary/reconstruction"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.commandes").value(2));
+
+        assertThat(commandeSummaryRepository.findAll())
+                .extracting("nombreLignes")
+                .containsExactly(2, 2);
+        assertThat(commandeSummaryRepository.findById(commande)).isPresent();
+    }
+
+    private Long creer(LocalDate date) throws Exception {
+        String reponse = mockMvc.perform(post("/api/commandes")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(buildCommande(date))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(reponse).get("id").asLong();
+    }
+
+    private CommandeFournisseurDTO buildCommande(LocalDate date) {
+        List<LigneCommandeDTO> lignes = List.of(
+                new LigneCommandeDTO(null, produit1.getId(), null, 2, produit1.getPrixUnitaire(), null),
+                new LigneCommandeDTO(null, produit2.getId(), null, 1, produit2.getPrixUnitaire(), null));
+        return new CommandeFournisseurDTO(null, date, StatutCommande.EN_ATTENTE, null, fournisseur.getId(), null, lignes);
+    }
+
+    private Produit buildProduit(String nom, BigDecimal prix) {
+        Produit p = new Produit();
+        p.setNom(nom);
+        p.setPrixUnitaire(prix);
+        p.setCategorie("TEST");
+        p.setStockActuel(0);
+        p.setCoutMoyenPondere(prix);
+        return p;
+    }
+}
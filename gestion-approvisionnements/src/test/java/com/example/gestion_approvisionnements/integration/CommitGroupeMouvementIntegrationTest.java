@@ -0,0 +1,163 @@
+package com.example.gestion_approvisionnements.integration;
+
+import com.example.gestion_approvisionnements.dto.MouvementStockDTO;
+import com.example.gestion_approvisionnements.entity.Produit;
+import com.example.gestion_approvisionnements.enums.TypeMouvement;
+import com.example.gestion_approvisionnements.exception.BusinessException;
+import com.example.gestion_approvisionnements.repository.MouvementStockRepository;
+import com.example.gestion_approvisionnements.repository.ProduitRepository;
+import com.example.gestion_approvisionnements.service.CommitGroupeMouvementService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@TestPropertySource(properties = {
+        "stock.commit-groupe.actif=true",
+        "stock.commit-groupe.fenetre-ms=5"
+})
+class CommitGroupeMouvementIntegrationTest extends AbstractIntegrationTest {
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    private CommitGroupeMouvementService commitGroupeMouvementService;
+
+    @Autowired
+    private MouvementStockRepository mouvementStockRepository;
+
+    @Autowired
+    private ProduitRepository produitRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        mouvementStockRepository.deleteAll();
+        produitRepository.deleteAll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        mouvementStockRepository.deleteAll();
+        produitRepository.deleteAll();
+    }
+
+    @Test
+    void sortiesConcurrentes_shouldGrouperLesCommitsSansSurventeNiPerte() throws Exception {
+        int stockInitial = 300;
+        int sorties = 400;
+        Produit produit = produitRepository.save(buildProduit(stockInitial));
+        DistributionSummary tailles = meterRegistry.get("stock.commit_groupe.taille").summary();
+        long groupesAvant = tailles.count();
+
+        AtomicInteger acceptees = new AtomicInteger();
+        AtomicInteger refusees = new AtomicInteger();
+        List<Runnable> operations = new ArrayList<>();
+        for (int i = 0; i < sorties; i++) {
+            operations.add(() -> {
+                try {
+                    commitGroupeMouvementService.enregistrer(buildMouvement(produit.getId(), TypeMouvement.SORTIE, 1));
+                    acceptees.incrementAndGet();
+                } catch (BusinessException ex) {
+                    refusees.incrementAndGet();
+                }
+            });
+        }
+        executerEnParallele(operations);
+
+        assertThat(acceptees.get()).isEqualTo(stockInitial);
+        assertThat(refusees.get()).isEqualTo(sorties - stockInitial);
+        assertThat(produitRepository.findById(produit.getId()).orElseThrow().getStockActuel()).isZero();
+        assertThat(mouvementStockRepository.count()).isEqualTo(stockInitial);
+        // Moins de transactions que de demandes : les appelants concurrents partagent leurs commits
+        assertThat(tailles.count() - groupesAvant).isLessThan(sorties);
+    }
+
+    @Test
+    void createMouvement_shouldAcquitterApresCommitEtConserverLesStatutsHttp() throws Exception {
+        Produit produit = produitRepository.save(buildProduit(5));
+
+        mockMvc.perform(post("/api/mouvements")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(buildMouvement(produit.getId(), TypeMouvement.SORTIE, 2))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").isNumber())
+                .andExpect(jsonPath("$.stockApresMouvement").value(3));
+        assertThat(mouvementStockRepository.count()).isEqualTo(1);
+
+        mockMvc.perform(post("/api/mouvements")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(buildMouvement(produit.getId(), TypeMouvement.SORTIE, 10))))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.message").value("Stock insuffisant pour effectuer cette sortie"));
+
+        mockMvc.perform(post("/api/mouvements")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(buildMouvement(999L, TypeMouvement.ENTREE, 1))))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("Produit introuvable avec l'id 999"));
+    }
+
+    private void executerEnParallele(List<Runnable> operations) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch depart = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Runnable operation : operations) {
+                futures.add(executor.submit(() -> {
+                    depart.await();
+                    operation.run();
+                    return null;
+                }));
+            }
+            depart.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Produit buildProduit(int stock) {
+        Produit p = new Produit();
+        p.setNom("Produit groupé");
+        p.setPrixUnitaire(BigDecimal.TEN);
+        p.setCategorie("TEST");
+        p.setStockActuel(stock);
+        p.setCoutMoyenPondere(BigDecimal.TEN);
+        return p;
+    }
+
+    private MouvementStockDTO buildMouvement(Long produitId, TypeMouvement type, int quantite) {
+        MouvementStockDTO dto = new MouvementStockDTO();
+        dto.setProduitId(produitId);
+        dto.setTypeMouvement(type);
+        dto.setQuantite(quantite);
+        return dto;
+    }
+}
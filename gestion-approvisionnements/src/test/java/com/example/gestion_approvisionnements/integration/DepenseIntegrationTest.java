@@ -0,0 +1,259 @@
+package com.example.gestion_approvisionnements.integration;
+
+import com.example.gestion_approvisionnements.dto.CommandeFournisseurDTO;
+import com.example.gestion_approvisionnements.dto.LigneCommandeDTO;
+import com.example.gestion_approvisionnements.entity.Fournisseur;
+import com.example.gestion_approvisionnements.entity.Produit;
+import com.example.gestion_approvisionnements.enums.StatutCommande;
+import com.example.gestion_approvisionnements.repository.CommandeFournisseurRepository;
+import com.example.gestion_approvisionnements.repository.CommandeSummaryRepository;
+import com.example.gestion_approvisionnements.repository.DepenseCategorieRepository;
+import com.example.gestion_approvisionnements.repository.DepenseFournisseurRepository;
+import com.example.gestion_approvisionnements.repository.FournisseurRepository;
+import com.example.gestion_approvisionnements.repository.MouvementStockRepository;
+import com.example.gestion_approvisionnements.repository.ProduitRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class DepenseIntegrationTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private DepenseFournisseurRepository depenseFournisseurRepository;
+    @Autowired
+    private DepenseCategorieRepository depenseCategorieRepository;
+    @Autowired
+    private CommandeSummaryRepository commandeSummaryRepository;
+    @Autowired
+    private CommandeFournisseurRepository commandeFournisseurRepository;
+    @Autowired
+    private FournisseurRepository fournisseurRepository;
+    @Autowired
+    private ProduitRepository produitRepository;
+    @Autowired
+    private MouvementStockRepository mouvementStockRepository;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Fournisseur alpha;
+    private Fournisseur beta;
+    private Produit bureau;
+    private Produit sansCategorie;
+
+    @BeforeEach
+    void setUp() {
+        depenseFournisseurRepository.deleteAllInBatch();
+        depenseCategorieRepository.deleteAllInBatch();
+        commandeSummaryRepository.deleteAllInBatch();
+        mouvementStockRepository.deleteAll();
+        commandeFournisseurRepository.deleteAll();
+        fournisseurRepository.deleteAll();
+        produitRepository.deleteAll();
+
+        alpha = fournisseurRepository.save(buildFournisseur("Alpha", "ICE_DEP_A"));
+        beta = fournisseurRepository.save(buildFournisseur("Beta", "ICE_DEP_B"));
+        bureau = produitRepository.save(buildProduit("Classeur", "BUREAU", BigDecimal.TEN));
+        sansCategorie = produitRepository.save(buildProduit("Divers", null, BigDecimal.valueOf(5)));
+    }
+
+    @Test
+    void depenses_shouldCumulerParFournisseurMoisEtCategorie() throws Exception {
+        creer(alpha, LocalDate.of(2025, 6, 5), 2, 2);
+        creer(alpha, LocalDate.of(2025, 6, 20), 1, 0);
+        creer(beta, LocalDate.of(2025, 7, 1), 0, 4);
+
+        mockMvc.perform(get("/api/depenses/fournisseurs").param("debut", "2025-06").param("fin", "2025-07"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].fournisseurSociete").value("Alpha"))
+                .andExpect(jsonPath("$[0].mois").value("2025-06-01"))
+                .andExpect(jsonPath("$[0].nombreCommandes").value(2))
+                .andExpect(jsonPath("$[0].montantTotal").value(40.0))
+                .andExpect(jsonPath("$[0].panierMoyen").value(20.0))
+                .andExpect(jsonPath("$[1].fournisseurId").value(beta.getId()))
+                .andExpect(jsonPath("$[1].mois").value("2025-07-01"));
+
+        mockMvc.perform(get("/api/depenses/fournisseurs/totaux").param("debut", "2025-01").param("fin", "2025-12"))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].fournisseurSociete").value("Alpha"))
+                .andExpect(jsonPath("$[0].mois").doesNotExist())
+                .andExpect(jsonPath("$[1].montantTotal").value(20.0));
+
+        mockMvc.perform(get("/api/depenses/categories").param("debut", "2025-06").param("fin", "2025-06"))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[?(@.categorie == 'BUREAU')].nombreCommandes").value(2))
+                .andExpect(jsonPath("$[?(@.categorie == 'BUREAU')].montantTotal").value(30.0))
+                .andExpect(jsonPath("$[?(@.categorie == '(sans catégorie)')].nombreCommandes").value(1))
+                .andExpect(jsonPath("$[?(@.categorie == '(sans catégorie)')].montantTotal").value(10.0));
+    }
+
+    @Test
+    void depenses_shouldSuivreLesChangementsDeStatut() throws Exception {
+        creer(alpha, LocalDate.of(2025, 6, 5), 2, 2);
+        Long annulee = creer(alpha, LocalDate.of(2025, 6, 20), 1, 0);
+
+        mockMvc.perform(patch("/api/commandes/{id}/statut", annulee).param("statut", "ANNULEE"))
+                .andExpect(status().isOk());
+
+        // Sans statut demandé, les commandes annulées sont exclues
+        mockMvc.perform(get("/api/depenses/fournisseurs").param("debut", "2025-06").param("fin", "2025-06"))
+                .andExpect(jsonPath("$[0].nombreCommandes").value(1))
+                .andExpect(jsonPath("$[0].montantTotal").value(30.0));
+        mockMvc.perform(get("/api/depenses/fournisseurs")
+                        .param("debut", "2025-06").param("fin", "2025-06").param("statut", "ANNULEE"))
+                .andExpect(jsonPath("$[0].nombreCommandes").value(1))
+                .andExpect(jsonPath("$[0].montantTotal").value(10.0));
+        mockMvc.perform(get("/api/depenses/categories").param("debut", "2025-06").param("fin", "2025-06"))
+                .andExpect(jsonPath("$[?(@.categorie == 'BUREAU')].nombreCommandes").value(1))
+                .andExpect(jsonPath("$[?(@.categorie == 'BUREAU')].montantTotal").value(20.0));
+    }
+
+    @Test
+    void depenses_produitRecategorise_shouldDecompterLaCategorieDeCreation() throws Exception {
+        Long annulee = creer(alpha, LocalDate.of(2025, 6, 5), 2, 0);
+        Long supprimee = creer(alpha, LocalDate.of(2025, 6, 9), 1, 0);
+        bureau.setCategorie("PAPETERIE");
+        produitRepository.save(bureau);
+
+        mockMvc.perform(patch("/api/commandes/{id}/statut", annulee).param("statut", "ANNULEE"))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/api/commandes/{id}", supprimee)).andExpect(status().isNoContent());
+
+        // Les retraits portent sur BUREAU, catégorie incrémentée à la création : aucune ligne PAPETERIE négative
+        mockMvc.perform(get("/api/depenses/categories").param("debut", "2025-06").param("fin", "2025-06"))
+                .andExpect(jsonPath("$.length()").value(0));
+        mockMvc.perform(get("/api/depenses/categories")
+                        .param("debut", "2025-06").param("fin", "2025-06").param("statut", "ANNULEE"))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].categorie").value("BUREAU"))
+                .andExpect(jsonPath("$[0].nombreCommandes").value(1))
+                .andExpect(jsonPath("$[0].montantTotal").value(20.0));
+    }
+
+    @Test
+    void depenses_shouldRetirerLesCommandesEtFournisseursSupprimes() throws Exception {
+        Long supprimee = creer(alpha, LocalDate.of(2025, 6, 5), 2, 2);
+        creer(alpha, LocalDate.of(2025, 6, 20), 1, 0);
+        creer(beta, LocalDate.of(2025, 7, 1), 0, 4);
+
+        mockMvc.perform(delete("/api/commandes/{id}", supprimee)).andExpect(status().isNoContent());
+        mockMvc.perform(delete("/api/fournisseurs/{id}", beta.getId())).andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/api/depenses/fournisseurs").param("debut", "2025-01").param("fin", "2025-12"))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].fournisseurId").value(alpha.getId()))
+                .andExpect(jsonPath("$[0].nombreCommandes").value(1))
+                .andExpect(jsonPath("$[0].montantTotal").value(10.0));
+        mockMvc.perform(get("/api/depenses/categories").param("debut", "2025-01").param("fin", "2025-12"))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].categorie").value("BUREAU"))
+                .andExpect(jsonPath("$[0].montantTotal").value(10.0));
+    }
+
+    @Test
+    void depenses_bulk_shouldCumulerLeLotParCle() throws Exception {
+        mockMvc.perform(post("/api/commandes/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(
+                                buildCommande(alpha, LocalDate.of(2025, 5, 1), 1, 1),
+                                buildCommande(alpha, LocalDate.of(2025, 5, 31), 2, 0)))))
+                .andExpect(jsonPath("$.nombreReussis").value(2));
+
+        assertThat(depenseFournisseurRepository.findAll())
+                .singleElement()
+                .satisfies(depense -> {
+                    assertThat(depense.getNombreCommandes()).isEqualTo(2);
+                    assertThat(depense.getMontantTotal()).isEqualByComparingTo("35");
+                });
+    }
+
+    @Test
+    void reconstruction_shouldRetrouverLesAgregatsIncrementaux() throws Exception {
+        creer(alpha, LocalDate.of(2024, 12, 31), 2, 2);
+        Long livree = creer(alpha, LocalDate.of(2025, 1, 2), 1, 0);
+        creer(beta, LocalDate.of(2025, 1, 15), 0, 4);
+        mockMvc.perform(patch("/api/commandes/{id}/statut", livree).param("statut", "VALIDEE"))
+                .andExpect(status().isOk());
+        List<String> attendues = lireTout();
+
+        // Dérive des agrégats : tout est perdu
+        depenseFournisseurRepository.deleteAllInBatch();
+        depenseCategorieRepository.deleteAllInBatch();
+
+        mockMvc.perform(post("/api/depenses/reconstruction"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lignesFournisseurs").value(3))
+                .andExpect(jsonPath("$.lignesCategories").value(4));
+        assertThat(lireTout()).isEqualTo(attendues);
+    }
+
+    @Test
+    void depenses_whenPeriodeInversee_shouldReturnConflict() throws Exception {
+        mockMvc.perform(get("/api/depenses/fournisseurs").param("debut", "2025-07").param("fin", "2025-06"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.message").value("Le mois de début doit précéder le mois de fin"));
+    }
+
+    private List<String> lireTout() throws Exception {
+        List<String> reponses = new ArrayList<>();
+        for (String statut : List.of("EN_ATTENTE", "VALIDEE")) {
+            for (String chemin : List.of("/api/depenses/fournisseurs", "/api/depenses/categories")) {
+                reponses.add(mockMvc.perform(get(chemin)
+                                .param("debut", "2024-01").param("fin", "2025-12").param("statut", statut))
+                        .andReturn().getResponse().getContentAsString());
+            }
+        }
+        return reponses;
+    }
+
+    private Long creer(Fournisseur fournisseur, LocalDate date, int quantiteBureau, int quantiteSansCategorie)
+            throws Exception {
+        String reponse = mockMvc.perform(post("/api/commandes")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                buildCommande(fournisseur, date, quantiteBureau, quantiteSansCategorie))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(reponse).get("id").asLong();
+    }
+
+    private CommandeFournisseurDTO buildCommande(Fournisseur fournisseur, LocalDate date, int quantiteBureau,
+                                                 int quantiteSansCategorie) {
+        List<LigneCommandeDTO> lignes = new ArrayList<>();
+        if (quantiteBureau > 0) {
+            lignes.add(new LigneCommandeDTO(null, bureau.getId(), null, quantiteBureau, null, null));
+        }
+        if (quantiteSansCategorie > 0) {
+            lignes.add(new LigneCommandeDTO(null, sansCategorie.getId(), null, quantiteSansCategorie, null, null));
+        }
+        return new CommandeFournisseurDTO(null, date, StatutCommande.EN_ATTENTE, null, fournisseur.getId(), null, lignes);
+    }
+
+    private Fournisseur buildFournisseur(String societe, String ice) {
+        Fournisseur f = new Fournisseur();
+        f.setSociete(societe);
+        f.setIce(ice);
+        return f;
+    }
+
+    private Produit buildProduit(String nom, String categorie, BigDecimal prix) {
+        Produit p = new Produit();
+        p.setNom(nom);
+        p.setPrixUnitaire(prix);
+        p.setCategorie(categorie);
+        p.setStockActuel(0);
+        p.setCoutMoyenPondere(prix);
+        return p;
+    }
+}
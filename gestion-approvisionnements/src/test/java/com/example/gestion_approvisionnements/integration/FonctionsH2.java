@@ -0,0 +1,15 @@
+package com.example.gestion_approvisionnements.integration;
+
+import java.time.LocalDateTime;
+
+// Fonctions PostgreSQL absentes de H2, déclarées par l'INIT des URL de test (CREATE ALIAS)
+public final class FonctionsH2 {
+
+    private FonctionsH2() {
+    }
+
+    // clock_timestamp() : heure de l'instruction, et non du début de la transaction
+    public static LocalDateTime clockTimestamp() {
+        return LocalDateTime.now();
+    }
+}
@@ -125,6 +125,28 @@ class FournisseurControllerIntegrationTest extends AbstractIntegrationTest {
         assertThat(reloaded.getSociete()).isEqualTo("Nouvelle");
     }
 
+    @Test
+    void getFournisseurByIce_apresChangementIce_shouldNePlusServirLAncienIce() throws Exception {
+        Fournisseur saved = fournisseurRepository.save(buildFournisseur("Avant", "ICE_AVANT"));
+        mockMvc.perform(get("/api/fournisseurs/ice/{ice}", "ICE_AVANT"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/fournisseurs/{id}", saved.getId()))
+                .andExpect(jsonPath("$.societe").value("Avant"));
+
+        FournisseurDTO dto = buildFournisseurDTO("Après", "ICE_APRES");
+        mockMvc.perform(put("/api/fournisseurs/{id}", saved.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(dto)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/fournisseurs/ice/{ice}", "ICE_AVANT"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/fournisseurs/ice/{ice}", "ICE_APRES"))
+                .andExpect(jsonPath("$.societe").value("Après"));
+        mockMvc.perform(get("/api/fournisseurs/{id}", saved.getId()))
+                .andExpect(jsonPath("$.societe").value("Après"));
+    }
+
     @Test
     void deleteFournisseur_shouldDelete() throws Exception {
         Fournisseur saved = fournisseurRepository.save(buildFournisseur("A supprimer", "ICEDEL"));
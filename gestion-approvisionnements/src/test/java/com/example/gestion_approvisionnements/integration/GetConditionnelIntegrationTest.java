@@ -0,0 +1,268 @@
+package com.example.gestion_approvisionnements.integration;
+
+import com.example.gestion_approvisionnements.dto.CommandeFournisseurDTO;
+import com.example.gestion_approvisionnements.dto.FournisseurDTO;
+import com.example.gestion_approvisionnements.dto.LigneCommandeDTO;
+import com.example.gestion_approvisionnements.dto.ProduitDTO;
+import com.example.gestion_approvisionnements.entity.Fournisseur;
+import com.example.gestion_approvisionnements.entity.Produit;
+import com.example.gestion_approvisionnements.enums.StatutCommande;
+import com.example.gestion_approvisionnements.repository.CommandeFournisseurRepository;
+import com.example.gestion_approvisionnements.repository.CommandeSummaryRepository;
+import com.example.gestion_approvisionnements.repository.FournisseurRepository;
+import com.example.gestion_approvisionnements.repository.MouvementStockRepository;
+import com.example.gestion_approvisionnements.repository.ProduitRepository;
+import com.example.gestion_approvisionnements.service.CommandeFournisseurService;
+import com.example.gestion_approvisionnements.service.FournisseurService;
+import com.example.gestion_approvisionnements.service.ProduitService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// GET conditionnels sur les produits, fournisseurs et commandes : 304 par la seule lecture des versions,
+// sans entité chargée ; nouvel ETag dès que la ressource ou une entité affichée avec elle change
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class GetConditionnelIntegrationTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private ProduitRepository produitRepository;
+    @Autowired
+    private FournisseurRepository fournisseurRepository;
+    @Autowired
+    private CommandeFournisseurRepository commandeFournisseurRepository;
+    @Autowired
+    private CommandeSummaryRepository commandeSummaryRepository;
+    @Autowired
+    private MouvementStockRepository mouvementStockRepository;
+    @Autowired
+    private ProduitService produitService;
+    @Autowired
+    private FournisseurService fournisseurService;
+    @Autowired
+    private CommandeFournisseurService commandeFournisseurService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Fournisseur fournisseur;
+    private List<Produit> produits;
+
+    @BeforeEach
+    void setUp() {
+        commandeSummaryRepository.deleteAllInBatch();
+        mouvementStockRepository.deleteAll();
+        commandeFournisseurRepository.deleteAll();
+        fournisseurRepository.deleteAll();
+        produitRepository.deleteAll();
+
+        Fournisseur f = new Fournisseur();
+        f.setSociete("Fournisseur conditionnel");
+        f.setIce("ICE_COND");
+        fournisseur = fournisseurRepository.save(f);
+
+        List<Produit> nouveaux = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Produit p = new Produit();
+            p.setNom("Produit " + i);
+            p.setPrixUnitaire(BigDecimal.TEN);
+            p.setCategorie("COND");
+            p.setStockActuel(100);
+            p.setCoutMoyenPondere(BigDecimal.TEN);
+            nouveaux.add(p);
+        }
+        produits = produitRepository.saveAll(nouveaux);
+    }
+
+    @Test
+    void getProduit_memeVersion_shouldRepondre304SansChargerLeProduit() throws Exception {
+        Long id = produits.get(0).getId();
+        MvcResult premiere = mockMvc.perform(get("/api/produits/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andReturn();
+        String etag = premiere.getResponse().getHeader(HttpHeaders.ETAG);
+
+        Statistics statistics = statistiques();
+        mockMvc.perform(get("/api/produits/{id}", id).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+
+        mockMvc.perform(get("/api/produits/{id}", id)
+                        .header(HttpHeaders.IF_MODIFIED_SINCE, premiere.getResponse().getHeader(HttpHeaders.LAST_MODIFIED)))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void getProduit_apresMouvement_shouldRenvoyerLeNouveauContenuEtSonETag() throws Exception {
+        Long id = produits.get(0).getId();
+        String etag = etag(get("/api/produits/{id}", id));
+
+        mockMvc.perform(patch("/api/produits/{id}/stock", id).param("variation", "5"))
+                .andExpect(status().isOk());
+
+        MvcResult apres = mockMvc.perform(get("/api/produits/{id}", id).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stockActuel").value(105))
+                .andReturn();
+        String nouvelEtag = apres.getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(nouvelEtag).isNotEqualTo(etag);
+        // Contenu désormais servi par le cache : même ETag que la version lue en base
+        assertThat(etag(get("/api/produits/{id}", id))).isEqualTo(nouvelEtag);
+        mockMvc.perform(get("/api/produits/{id}", id).header(HttpHeaders.IF_NONE_MATCH, nouvelEtag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void getProduit_dateDeModificationInchangee_shouldChangerDETagParLeNumeroDeVersion() throws Exception {
+        Long id = produits.get(0).getId();
+        MvcResult avant = mockMvc.perform(get("/api/produits/{id}", id)).andReturn();
+        String etag = avant.getResponse().getHeader(HttpHeaders.ETAG);
+        LocalDateTime date = jdbcTemplate.queryForObject("SELECT updated_at FROM produit WHERE id = ?",
+                LocalDateTime.class, id);
+
+        mockMvc.perform(patch("/api/produits/{id}/stock", id).param("variation", "5"))
+                .andExpect(status().isOk());
+        // Écriture dont la date n'avance pas : seul le numéro de version distingue les deux états
+        jdbcTemplate.update("UPDATE produit SET updated_at = ? WHERE id = ?", date, id);
+
+        mockMvc.perform(get("/api/produits/{id}", id).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.LAST_MODIFIED,
+                        avant.getResponse().getHeader(HttpHeaders.LAST_MODIFIED)))
+                .andExpect(jsonPath("$.stockActuel").value(105));
+    }
+
+    @Test
+    void getFournisseur_apresModification_shouldChangerDETag() throws Exception {
+        Long id = fournisseur.getId();
+        String etag = etag(get("/api/fournisseurs/{id}", id));
+        mockMvc.perform(get("/api/fournisseurs/{id}", id).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        FournisseurDTO modification = fournisseurService.getFournisseurById(id);
+        modification.setSociete("Fournisseur renommé");
+        fournisseurService.updateFournisseur(id, modification);
+
+        mockMvc.perform(get("/api/fournisseurs/{id}", id).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.societe").value("Fournisseur renommé"));
+    }
+
+    @Test
+    void getCommande_apresRenommageDUnProduitOuLivraison_shouldChangerDETag() throws Exception {
+        Long commandeId = creerCommande();
+        String etag = etag(get("/api/commandes/{id}", commandeId));
+
+        Statistics statistics = statistiques();
+        mockMvc.perform(get("/api/commandes/{id}", commandeId).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        // commande et fournisseur, puis produits des lignes
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+
+        ProduitDTO renomme = produitService.getProduitById(produits.get(1).getId());
+        renomme.setNom("Produit renommé");
+        produitService.updateProduit(renomme.getId(), renomme);
+        MvcResult apresRenommage = mockMvc.perform(get("/api/commandes/{id}", commandeId)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lignesCommande[1].produitNom").value("Produit renommé"))
+                .andReturn();
+        String etagRenommage = apresRenommage.getResponse().getHeader(HttpHeaders.ETAG);
+
+        commandeFournisseurService.updateStatut(commandeId, StatutCommande.LIVREE);
+        mockMvc.perform(get("/api/commandes/{id}", commandeId).header(HttpHeaders.IF_NONE_MATCH, etagRenommage))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.statut").value("LIVREE"));
+    }
+
+    @Test
+    void getPage_shouldChangerDETagQuandLaPageOuLeTotalChange() throws Exception {
+        String etag = etag(get("/api/produits").param("size", "2"));
+
+        Statistics statistics = statistiques();
+        mockMvc.perform(get("/api/produits").param("size", "2").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().doesNotExist(HttpHeaders.LAST_MODIFIED));
+        assertThat(statistics.getEntityLoadCount()).isZero();
+
+        // Produit hors de la première page : seul le total change
+        mockMvc.perform(delete("/api/produits/{id}", produits.get(2).getId()))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(get("/api/produits").param("size", "2").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(produits.get(0).getId()));
+    }
+
+    @Test
+    void getCommandes_memePage_shouldRepondre304SansChargerLesCommandes() throws Exception {
+        creerCommande();
+        creerCommande();
+        String etag = etag(get("/api/commandes").param("size", "10"));
+
+        Statistics statistics = statistiques();
+        mockMvc.perform(get("/api/commandes").param("size", "10").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        assertThat(statistics.getEntityLoadCount()).isZero();
+
+        produitService.ajusterStock(produits.get(0).getId(), 1, null);
+        mockMvc.perform(get("/api/commandes").param("size", "10").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void getInconnu_avecETag_shouldRepondre404() throws Exception {
+        mockMvc.perform(get("/api/commandes/{id}", 999_999L).header(HttpHeaders.IF_NONE_MATCH, "\"abc\""))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/produits/{id}", 999_999L).header(HttpHeaders.IF_NONE_MATCH, "\"abc\""))
+                .andExpect(status().isNotFound());
+    }
+
+    private Long creerCommande() {
+        List<LigneCommandeDTO> lignes = produits.stream()
+                .map(produit -> new LigneCommandeDTO(null, produit.getId(), null, 2, null, null))
+                .toList();
+        return commandeFournisseurService.createCommande(new CommandeFournisseurDTO(null, LocalDate.now(),
+                StatutCommande.EN_ATTENTE, null, fournisseur.getId(), null, lignes)).getId();
+    }
+
+    private String etag(RequestBuilder requete) throws Exception {
+        return mockMvc.perform(requete)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    private Statistics statistiques() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+}
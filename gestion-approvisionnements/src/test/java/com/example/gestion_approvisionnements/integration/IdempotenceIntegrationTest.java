@@ -0,0 +1,215 @@
+package com.example.gestion_approvisionnements.integration;
+
+import com.example.gestion_approvisionnements.dto.CommandeFournisseurDTO;
+import com.example.gestion_approvisionnements.dto.LigneCommandeDTO;
+import com.example.gestion_approvisionnements.dto.MouvementStockDTO;
+import com.example.gestion_approvisionnements.entity.Fournisseur;
+import com.example.gestion_approvisionnements.entity.Produit;
+import com.example.gestion_approvisionnements.enums.StatutCommande;
+import com.example.gestion_approvisionnements.enums.TypeMouvement;
+import com.example.gestion_approvisionnements.repository.CleIdempotenceRepository;
+import com.example.gestion_approvisionnements.repository.CommandeFournisseurRepository;
+import com.example.gestion_approvisionnements.repository.CommandeSummaryRepository;
+import com.example.gestion_approvisionnements.repository.FournisseurRepository;
+import com.example.gestion_approvisionnements.repository.MouvementStockRepository;
+import com.example.gestion_approvisionnements.repository.ProduitRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class IdempotenceIntegrationTest extends AbstractIntegrationTest {
+
+    private static final int DOUBLONS_SIMULTANES = 8;
+
+    @Autowired
+    private CleIdempotenceRepository cleIdempotenceRepository;
+    @Autowired
+    private CommandeSummaryRepository commandeSummaryRepository;
+    @Autowired
+    private CommandeFournisseurRepository commandeFournisseurRepository;
+    @Autowired
+    private FournisseurRepository fournisseurRepository;
+    @Autowired
+    private ProduitRepository produitRepository;
+    @Autowired
+    private MouvementStockRepository mouvementStockRepository;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Fournisseur fournisseur;
+    private Produit produit;
+
+    @BeforeEach
+    void setUp() {
+        cleIdempotenceRepository.deleteAllInBatch();
+        commandeSummaryRepository.deleteAllInBatch();
+        mouvementStockRepository.deleteAll();
+        commandeFournisseurRepository.deleteAll();
+        fournisseurRepository.deleteAll();
+        produitRepository.deleteAll();
+
+        fournisseur = new Fournisseur();
+        fournisseur.setSociete("Fournisseur Idempotence");
+        fournisseur.setIce("ICE_IDEM");
+        fournisseur = fournisseurRepository.save(fournisseur);
+
+        Produit p = new Produit();
+        p.setNom("Produit idempotent");
+        p.setPrixUnitaire(BigDecimal.TEN);
+        p.setCategorie("TEST");
+        p.setStockActuel(10);
+        p.setCoutMoyenPondere(BigDecimal.TEN);
+        produit = produitRepository.save(p);
+    }
+
+    @Test
+    void createCommande_repetee_shouldRejouerLaPremiereReponse() throws Exception {
+        String corps = objectMapper.writeValueAsString(buildCommande());
+
+        MockHttpServletResponse premiere = mockMvc.perform(post("/api/commandes")
+                        .header("Idempotency-Key", "commande-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(corps))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist("Idempotent-Replayed"))
+                .andReturn().getResponse();
+
+        mockMvc.perform(post("/api/commandes")
+                        .header("Idempotency-Key", "commande-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(corps))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andExpect(content().json(premiere.getContentAsString()));
+
+        assertThat(commandeFournisseurRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void ajusterStock_repete_shouldAppliquerUneSeuleFois() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(patch("/api/produits/{id}/stock", produit.getId())
+                            .header("Idempotency-Key", "stock-1")
+                            .param("variation", "5"))
+                    .andExpect(status().isOk());
+        }
+
+        assertThat(produitRepository.findById(produit.getId()).orElseThrow().getStockActuel()).isEqualTo(15);
+    }
+
+    @Test
+    void createMouvement_cleReutiliseePourUneAutreRequete_shouldReturnConflict() throws Exception {
+        mockMvc.perform(mouvement("mouvement-1", 2)).andExpect(status().isOk());
+
+        mockMvc.perform(mouvement("mouvement-1", 3))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.message").value("La clé d'idempotence a déjà été utilisée pour une autre requête"));
+
+        assertThat(mouvementStockRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void createMouvement_refuse_shouldPouvoirEtreRejoueAvecLaMemeCle() throws Exception {
+        mockMvc.perform(mouvement("mouvement-2", 50))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.message").value("Stock insuffisant pour effectuer cette sortie"));
+
+        produit.setStockActuel(100);
+        produitRepository.save(produit);
+        mockMvc.perform(mouvement("mouvement-2", 50))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Idempotent-Replayed"))
+                .andExpect(jsonPath("$.stockApresMouvement").value(50));
+    }
+
+    @Test
+    void createMouvement_sansCle_shouldGarderLeCheminHabituel() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/api/mouvements")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(buildMouvement(1))))
+                    .andExpect(status().isOk());
+        }
+
+        assertThat(mouvementStockRepository.count()).isEqualTo(2);
+        assertThat(cleIdempotenceRepository.count()).isZero();
+    }
+
+    @Test
+    void createMouvement_doublonsSimultanes_shouldEnregistrerUnSeulMouvement() throws Exception {
+        double nouvellesAvant = compteur("nouvelle");
+        ExecutorService executor = Executors.newFixedThreadPool(DOUBLONS_SIMULTANES);
+        CountDownLatch depart = new CountDownLatch(1);
+        List<Future<MockHttpServletResponse>> reponses = new ArrayList<>();
+        try {
+            for (int i = 0; i < DOUBLONS_SIMULTANES; i++) {
+                reponses.add(executor.submit(() -> {
+                    depart.await();
+                    return mockMvc.perform(mouvement("mouvement-simultane", 1)).andReturn().getResponse();
+                }));
+            }
+            depart.countDown();
+
+            List<String> corps = new ArrayList<>();
+            for (Future<MockHttpServletResponse> reponse : reponses) {
+                MockHttpServletResponse resultat = reponse.get(30, TimeUnit.SECONDS);
+                assertThat(resultat.getStatus()).isEqualTo(200);
+                corps.add(resultat.getContentAsString());
+            }
+            assertThat(corps).containsOnly(corps.get(0));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(mouvementStockRepository.count()).isEqualTo(1);
+        assertThat(produitRepository.findById(produit.getId()).orElseThrow().getStockActuel()).isEqualTo(9);
+        assertThat(compteur("nouvelle") - nouvellesAvant).isEqualTo(1);
+    }
+
+    private RequestBuilder mouvement(String cle, int quantite) throws Exception {
+        return post("/api/mouvements")
+                .header("Idempotency-Key", cle)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(buildMouvement(quantite)));
+    }
+
+    private double compteur(String resultat) {
+        return meterRegistry.get("idempotence.requetes").tag("resultat", resultat).counter().count();
+    }
+
+    private MouvementStockDTO buildMouvement(int quantite) {
+        MouvementStockDTO dto = new MouvementStockDTO();
+        dto.setProduitId(produit.getId());
+        dto.setTypeMouvement(TypeMouvement.SORTIE);
+        dto.setQuantite(quantite);
+        return dto;
+    }
+
+    private CommandeFournisseurDTO buildCommande() {
+        List<LigneCommandeDTO> lignes = List.of(
+                new LigneCommandeDTO(null, produit.getId(), null, 2, BigDecimal.TEN, null));
+        return new CommandeFournisseurDTO(null, LocalDate.of(2025, 6, 1), StatutCommande.EN_ATTENTE,
+                null, fournisseur.getId(), null, lignes);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.gestion_approvisionnements.integration;
+
+import com.example.gestion_approvisionnements.dto.FournisseurDTO;
+import com.example.gestion_approvisionnements.entity.Fournisseur;
+import com.example.gestion_approvisionnements.repository.FournisseurRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Unicité de l'ICE par la seule contrainte unique (une instruction par création) et lecture par ICE derrière
+// l'index : ICE inconnu écarté sans requête, ICE créé visible dès le commit, ICE remplacé ou supprimé introuvable
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class IndexIceIntegrationTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private FournisseurRepository fournisseurRepository;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Fournisseur existant;
+
+    @BeforeEach
+    void setUp() {
+        fournisseurRepository.deleteAll();
+        Fournisseur f = new Fournisseur();
+        f.setSociete("Existant");
+        f.setIce("ICE_EXISTANT");
+        existant = fournisseurRepository.save(f);
+    }
+
+    @Test
+    void getByIce_iceInconnu_shouldRepondre404SansRequete() throws Exception {
+        // Filtre construit à la première lecture
+        mockMvc.perform(get("/api/fournisseurs/ice/{ice}", "ICE_EXISTANT"))
+                .andExpect(status().isOk());
+
+        Statistics statistics = statistiques();
+        mockMvc.perform(get("/api/fournisseurs/ice/{ice}", "ICE_INCONNU"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("Fournisseur introuvable avec l'ICE ICE_INCONNU"));
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+
+        // ICE associé à son id : servi par le cache par id
+        mockMvc.perform(get("/api/fournisseurs/ice/{ice}", "ICE_EXISTANT"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(existant.getId()));
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    void create_shouldCouterUneInstructionEtRendreLIceVisible() throws Exception {
+        mockMvc.perform(get("/api/fournisseurs/ice/{ice}", "ICE_NOUVEAU"))
+                .andExpect(status().isNotFound());
+        // Premier id de la séquence alloué hors mesure
+        creer("Préalable", "ICE_PREALABLE");
+
+        Statistics statistics = statistiques();
+        creer("Nouveau", "ICE_NOUVEAU");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+        mockMvc.perform(get("/api/fournisseurs/ice/{ice}", "ICE_NOUVEAU"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.societe").value("Nouveau"));
+    }
+
+    @Test
+    void create_iceDejaUtilise_shouldRepondre409ApresLaSeuleInsertion() throws Exception {
+        creer("Préalable", "ICE_PREALABLE");
+
+        Statistics statistics = statistiques();
+        mockMvc.perform(post("/api/fournisseurs")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(dto("Doublon", "ICE_EXISTANT"))))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.message").value("Un fournisseur existe déjà avec l'ICE ICE_EXISTANT"));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(fournisseurRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    void update_iceDUnAutreFournisseur_shouldRepondre409SansModifier() throws Exception {
+        Long autreId = creer("Autre", "ICE_AUTRE");
+
+        mockMvc.perform(put("/api/fournisseurs/{id}", autreId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(dto("Autre", "ICE_EXISTANT"))))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.message").value("Un fournisseur existe déjà avec l'ICE ICE_EXISTANT"));
+
+        assertThat(fournisseurRepository.findById(autreId).orElseThrow().getIce()).isEqualTo("ICE_AUTRE");
+        mockMvc.perform(get("/api/fournisseurs/ice/{ice}", "ICE_AUTRE"))
+                .andExpect(jsonPath("$.id").value(autreId));
+        mockMvc.perform(get("/api/fournisseurs/ice/{ice}", "ICE_EXISTANT"))
+                .andExpect(jsonPath("$.id").value(existant.getId()));
+    }
+
+    @Test
+    void delete_shouldRendreLIceIntrouvable() throws Exception {
+        mockMvc.perform(get("/api/fournisseurs/ice/{ice}", "ICE_EXISTANT"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(delete("/api/fournisseurs/{id}", existant.getId()))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/api/fournisseurs/ice/{ice}", "ICE_EXISTANT"))
+                .andExpect(status().isNotFound());
+    }
+
+    private Long creer(String societe, String ice) throws Exception {
+        String reponse = mockMvc.perform(post("/api/fournisseurs")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(dto(societe, ice))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(reponse, FournisseurDTO.class).getId();
+    }
+
+    private FournisseurDTO dto(String societe, String ice) {
+        FournisseurDTO dto = new FournisseurDTO();
+        dto.setSociete(societe);
+        dto.setIce(ice);
+        return dto;
+    }
+
+    private Statistics statistiques() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.gestion_approvisionnements.integration;
+
+import com.example.gestion_approvisionnements.GestionApprovisionnementsApplication;
+import com.example.gestion_approvisionnements.dto.FournisseurDTO;
+import com.example.gestion_approvisionnements.entity.Fournisseur;
+import com.example.gestion_approvisionnements.entity.Produit;
+import com.example.gestion_approvisionnements.exception.ResourceNotFoundException;
+import com.example.gestion_approvisionnements.repository.FournisseurRepository;
+import com.example.gestion_approvisionnements.repository.ProduitRepository;
+import com.example.gestion_approvisionnements.service.FournisseurService;
+import com.example.gestion_approvisionnements.service.IndexIceService;
+import com.example.gestion_approvisionnements.service.ProduitService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+// Deux instances de l'application sur une même base PostgreSQL : une écriture sur A doit sortir des caches de B
+// (cache local et second niveau) par LISTEN/NOTIFY, et B doit se vider entièrement après une coupure de son écoute.
+@Testcontainers(disabledWithoutDocker = true)
+class InvalidationCachePostgresIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @TempDir
+    static Path repertoire;
+
+    private static ConfigurableApplicationContext instanceA;
+    private static ConfigurableApplicationContext instanceB;
+
+    private Long produitId;
+    private Long fournisseurId;
+
+    @BeforeAll
+    static void demarrer() throws IOException {
+        instanceA = demarrer("a");
+        instanceB = demarrer("b");
+    }
+
+    @AfterAll
+    static void arreter() {
+        if (instanceB != null) {
+            instanceB.close();
+        }
+        if (instanceA != null) {
+            instanceA.close();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        instanceA.getBean(JdbcTemplate.class)
+                .execute("TRUNCATE mouvement_stock, ligne_commande, commande_fournisseur, produit, fournisseur CASCADE");
+
+        Produit p = new Produit();
+        p.setNom("Produit partagé");
+        p.setPrixUnitaire(BigDecimal.TEN);
+        p.setCategorie("CAT");
+        p.setStockActuel(10);
+        p.setCoutMoyenPondere(BigDecimal.TEN);
+        produitId = instanceA.getBean(ProduitRepository.class).save(p).getId();
+
+        Fournisseur f = new Fournisseur();
+        f.setSociete("Fournisseur partagé");
+        f.setIce("ICE_AVANT");
+        fournisseurId = instanceA.getBean(FournisseurRepository.class).save(f).getId();
+        // Écritures hors services, sans notification : l'index des ICE de B repart de la base
+        instanceB.getBean(IndexIceService.class).vider();
+    }
+
+    @Test
+    void ajusterStockSurA_shouldInvaliderLeProduitSurB() {
+        ProduitService produitsB = instanceB.getBean(ProduitService.class);
+        assertThat(produitsB.getProduitById(produitId).getStockActuel()).isEqualTo(10);
+
+        instanceA.getBean(ProduitService.class).ajusterStock(produitId, 5, null);
+
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() ->
+                assertThat(produitsB.getProduitById(produitId).getStockActuel()).isEqualTo(15));
+        assertThat(instanceB.getBean(ProduitRepository.class).findById(produitId).orElseThrow().getStockActuel())
+                .isEqualTo(15);
+    }
+
+    @Test
+    void rafaleDAjustementsSurA_shouldDiffuserMoinsDeMessagesQueDeMouvements() {
+        ProduitService produitsB = instanceB.getBean(ProduitService.class);
+        assertThat(produitsB.getProduitById(produitId).getStockActuel()).isEqualTo(10);
+        MeterRegistry metriquesA = instanceA.getBean(MeterRegistry.class);
+        double avant = metriquesA.counter("referentiel.invalidation.publiees", "type", "S").count();
+
+        ProduitService produitsA = instanceA.getBean(ProduitService.class);
+        for (int i = 0; i < 30; i++) {
+            produitsA.ajusterStock(produitId, 1, null);
+        }
+
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() ->
+                assertThat(produitsB.getProduitById(produitId).getStockActuel()).isEqualTo(40));
+        assertThat(metriquesA.counter("referentiel.invalidation.publiees", "type", "S").count() - avant)
+                .isGreaterThanOrEqualTo(1).isLessThan(30);
+    }
+
+    @Test
+    void changementIceSurA_shouldNePlusServirLAncienIceSurB() {
+        FournisseurService fournisseursB = instanceB.getBean(FournisseurService.class);
+        assertThat(fournisseursB.getFournisseurByIce("ICE_AVANT").getId()).isEqualTo(fournisseurId);
+
+        FournisseurDTO modification = instanceA.getBean(FournisseurService.class).getFournisseurById(fournisseurId);
+        modification.setIce("ICE_APRES");
+        instanceA.getBean(FournisseurService.class).updateFournisseur(fournisseurId, modification);
+
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() ->
+                assertThatThrownBy(() -> fournisseursB.getFournisseurByIce("ICE_AVANT"))
+                        .isInstanceOf(ResourceNotFoundException.class));
+        assertThat(fournisseursB.getFournisseurById(fournisseurId).getIce()).isEqualTo("ICE_APRES");
+    }
+
+    @Test
+    void creationSurA_shouldFaireEntrerLeNouvelIceDansLeFiltreDeB() {
+        FournisseurService fournisseursB = instanceB.getBean(FournisseurService.class);
+        // Filtre de B construit avant la création
+        assertThatThrownBy(() -> fournisseursB.getFournisseurByIce("ICE_NOUVEAU"))
+                .isInstanceOf(ResourceNotFoundException.class);
+
+        FournisseurDTO nouveau = new FournisseurDTO();
+        nouveau.setSociete("Nouveau fournisseur");
+        nouveau.setIce("ICE_NOUVEAU");
+        Long id = instanceA.getBean(FournisseurService.class).createFournisseur(nouveau).getId();
+
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() ->
+                assertThat(fournisseursB.getFournisseurByIce("ICE_NOUVEAU").getId()).isEqualTo(id));
+    }
+
+    @Test
+    void coupureDeLEcoute_shouldReconnecterEtViderLesCachesDeB() {
+        ProduitService produitsB = instanceB.getBean(ProduitService.class);
+        MeterRegistry metriquesB = instanceB.getBean(MeterRegistry.class);
+        assertThat(produitsB.getProduitById(produitId).getStockActuel()).isEqualTo(10);
+        double reconnexions = metriquesB.counter("referentiel.invalidation.reconnexions").count();
+
+        // Écriture hors application : aucune notification, seul le vidage à la reconnexion la rend visible
+        JdbcTemplate jdbcTemplate = instanceA.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("UPDATE produit SET stock_actuel = 99 WHERE id = ?", produitId);
+        assertThat(produitsB.getProduitById(produitId).getStockActuel()).isEqualTo(10);
+        jdbcTemplate.queryForList("SELECT pg_terminate_backend(pid) FROM pg_stat_activity "
+                + "WHERE application_name = 'invalidation-referentiel'");
+
+        await().atMost(Duration.ofSeconds(15)).untilAsserted(() -> {
+            assertThat(metriquesB.counter("referentiel.invalidation.reconnexions").count()).isGreaterThan(reconnexions);
+            assertThat(produitsB.getProduitById(produitId).getStockActuel()).isEqualTo(99);
+        });
+    }
+
+    private static ConfigurableApplicationContext demarrer(String nom) throws IOException {
+        // Fournisseur JCache unique dans la JVM : un fichier de configuration par instance pour des caches séparés
+        Path configuration = repertoire.resolve("hibernate-jcache-" + nom + ".conf");
+        try (InputStream source = new ClassPathResource("hibernate-jcache.conf").getInputStream()) {
+            Files.copy(source, configuration);
+        }
+        return new SpringApplicationBuilder(GestionApprovisionnementsApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=" + postgres.getJdbcUrl(),
+                        "spring.datasource.username=" + postgres.getUsername(),
+                        "spring.datasource.password=" + postgres.getPassword(),
+                        "spring.datasource.driver-class-name=org.postgresql.Driver",
+                        "spring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect",
+                        "spring.jpa.hibernate.ddl-auto=none",
+                        "spring.liquibase.enabled=" + nom.equals("a"),
+                        "spring.liquibase.change-log=classpath:db/changelog/db.changelog-master.xml",
+                        "spring.jpa.properties.hibernate.javax.cache.uri=" + configuration.toUri(),
+                        "referentiel.invalidation.actif=true",
+                        "referentiel.invalidation.delai-reconnexion-ms=500",
+                        "referentiel.invalidation.attente-ms=100")
+                .run();
+    }
+}
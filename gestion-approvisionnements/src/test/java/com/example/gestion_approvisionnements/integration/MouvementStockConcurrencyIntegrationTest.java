@@ -0,0 +1,191 @@
+package com.example.gestion_approvisionnements.integration;
+
+import com.example.gestion_approvisionnements.dto.MouvementStockDTO;
+import com.example.gestion_approvisionnements.entity.Produit;
+import com.example.gestion_approvisionnements.enums.TypeMouvement;
+import com.example.gestion_approvisionnements.exception.BusinessException;
+import com.example.gestion_approvisionnements.repository.MouvementStockRepository;
+import com.example.gestion_approvisionnements.repository.ProduitRepository;
+import com.example.gestion_approvisionnements.service.MouvementStockService;
+import com.example.gestion_approvisionnements.service.ProduitService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MouvementStockConcurrencyIntegrationTest extends AbstractIntegrationTest {
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    private MouvementStockService mouvementStockService;
+
+    @Autowired
+    private ProduitService produitService;
+
+    @Autowired
+    private MouvementStockRepository mouvementStockRepository;
+
+    @Autowired
+    private ProduitRepository produitRepository;
+
+    @BeforeEach
+    void setUp() {
+        mouvementStockRepository.deleteAll();
+        produitRepository.deleteAll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        mouvementStockRepository.deleteAll();
+        produitRepository.deleteAll();
+    }
+
+    @Test
+    void entree_shouldComputeCumpInDatabase() {
+        Produit produit = produitRepository.save(buildProduit(100, BigDecimal.valueOf(2.00)));
+
+        MouvementStockDTO result = mouvementStockService.enregistrerMouvement(
+                buildMouvement(produit.getId(), TypeMouvement.ENTREE, 50, BigDecimal.valueOf(3.00)));
+
+        Produit reloaded = produitRepository.findById(produit.getId()).orElseThrow();
+        assertThat(result.getStockApresMouvement()).isEqualTo(150);
+        assertThat(reloaded.getStockActuel()).isEqualTo(150);
+        assertThat(reloaded.getCoutMoyenPondere()).isEqualByComparingTo("2.33");
+    }
+
+    @Test
+    void sortiesConcurrentes_shouldNeverOversellNorLoseUpdates() throws Exception {
+        int stockInitial = 300;
+        int sorties = 400;
+        Produit produit = produitRepository.save(buildProduit(stockInitial, BigDecimal.TEN));
+
+        AtomicInteger acceptees = new AtomicInteger();
+        AtomicInteger refusees = new AtomicInteger();
+        executerEnParallele(sorties, () -> {
+            try {
+                mouvementStockService.enregistrerMouvement(
+                        buildMouvement(produit.getId(), TypeMouvement.SORTIE, 1, null));
+                acceptees.incrementAndGet();
+            } catch (BusinessException ex) {
+                refusees.incrementAndGet();
+            }
+        });
+
+        Produit reloaded = produitRepository.findById(produit.getId()).orElseThrow();
+        assertThat(acceptees.get()).isEqualTo(stockInitial);
+        assertThat(refusees.get()).isEqualTo(sorties - stockInitial);
+        assertThat(reloaded.getStockActuel()).isZero();
+        assertThat(mouvementStockRepository.count()).isEqualTo(stockInitial);
+    }
+
+    @Test
+    void mouvementsMixtesConcurrents_shouldKeepStockEqualToLedger() throws Exception {
+        int entrees = 300;
+        int sorties = 200;
+        Produit produit = produitRepository.save(buildProduit(1000, BigDecimal.TEN));
+
+        List<Runnable> operations = new ArrayList<>();
+        for (int i = 0; i < entrees; i++) {
+            operations.add(() -> mouvementStockService.enregistrerMouvement(
+                    buildMouvement(produit.getId(), TypeMouvement.ENTREE, 3, BigDecimal.TEN)));
+        }
+        for (int i = 0; i < sorties; i++) {
+            operations.add(() -> mouvementStockService.enregistrerMouvement(
+                    buildMouvement(produit.getId(), TypeMouvement.SORTIE, 2, null)));
+        }
+        executerEnParallele(operations);
+
+        Produit reloaded = produitRepository.findById(produit.getId()).orElseThrow();
+        assertThat(reloaded.getStockActuel()).isEqualTo(1000 + entrees * 3 - sorties * 2);
+        assertThat(reloaded.getCoutMoyenPondere()).isEqualByComparingTo("10.00");
+        assertThat(mouvementStockRepository.count()).isEqualTo(entrees + sorties);
+    }
+
+    @Test
+    void ajustementsConcurrents_shouldApplyEveryVariationWithoutGoingNegative() throws Exception {
+        int stockInitial = 50;
+        Produit produit = produitRepository.save(buildProduit(stockInitial, BigDecimal.TEN));
+
+        List<Runnable> operations = new ArrayList<>();
+        AtomicInteger refusees = new AtomicInteger();
+        for (int i = 0; i < 100; i++) {
+            operations.add(() -> produitService.ajusterStock(produit.getId(), 2, null));
+        }
+        for (int i = 0; i < 200; i++) {
+            operations.add(() -> {
+                try {
+                    produitService.ajusterStock(produit.getId(), -1, null);
+                } catch (BusinessException ex) {
+                    refusees.incrementAndGet();
+                }
+            });
+        }
+        executerEnParallele(operations);
+
+        Produit reloaded = produitRepository.findById(produit.getId()).orElseThrow();
+        assertThat(reloaded.getStockActuel()).isEqualTo(stockInitial + 100 * 2 - (200 - refusees.get()));
+        assertThat(reloaded.getStockActuel()).isNotNegative();
+        assertThat(mouvementStockRepository.count()).isEqualTo(300 - refusees.get());
+    }
+
+    private void executerEnParallele(int repetitions, Runnable operation) throws Exception {
+        List<Runnable> operations = new ArrayList<>();
+        for (int i = 0; i < repetitions; i++) {
+            operations.add(operation);
+        }
+        executerEnParallele(operations);
+    }
+
+    private void executerEnParallele(List<Runnable> operations) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch depart = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Runnable operation : operations) {
+                futures.add(executor.submit(() -> {
+                    depart.await();
+                    operation.run();
+                    return null;
+                }));
+            }
+            depart.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Produit buildProduit(int stock, BigDecimal cump) {
+        Produit p = new Produit();
+        p.setNom("Produit concurrent");
+        p.setPrixUnitaire(cump);
+        p.setCategorie("TEST");
+        p.setStockActuel(stock);
+        p.setCoutMoyenPondere(cump);
+        return p;
+    }
+
+    private MouvementStockDTO buildMouvement(Long produitId, TypeMouvement type, int quantite, BigDecimal prix) {
+        MouvementStockDTO dto = new MouvementStockDTO();
+        dto.setProduitId(produitId);
+        dto.setTypeMouvement(type);
+        dto.setQuantite(quantite);
+        dto.setPrixUnitaire(prix);
+        return dto;
+    }
+}
@@ -0,0 +1,252 @@
+package com.example.gestion_approvisionnements.integration;
+
+import com.example.gestion_approvisionnements.dto.MouvementStockDTO;
+import com.example.gestion_approvisionnements.entity.Produit;
+import com.example.gestion_approvisionnements.enums.TypeMouvement;
+import com.example.gestion_approvisionnements.repository.MouvementStockRepository;
+import com.example.gestion_approvisionnements.repository.ProduitRepository;
+import com.example.gestion_approvisionnements.service.MouvementStockService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class MouvementStockControllerIntegrationTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private MouvementStockRepository mouvementStockRepository;
+
+    @Autowired
+    private ProduitRepository produitRepository;
+
+    @Autowired
+    private MouvementStockService mouvementStockService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Produit produit1;
+    private Produit produit2;
+
+    @BeforeEach
+    void setUp() {
+        mouvementStockRepository.deleteAll();
+        produitRepository.deleteAll();
+
+        produit1 = produitRepository.save(buildProduit("Prod 1", 10, BigDecimal.valueOf(2.00)));
+        produit2 = produitRepository.save(buildProduit("Prod 2", 0, BigDecimal.valueOf(5.00)));
+    }
+
+    @Test
+    void createMouvement_shouldApplyAndReturnStockApres() throws Exception {
+        MouvementStockDTO dto = buildMouvement(produit1.getId(), TypeMouvement.SORTIE, 4, null);
+
+        mockMvc.perform(post("/api/mouvements")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(dto)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stockApresMouvement").value(6))
+                .andExpect(jsonPath("$.produitNom").value("Prod 1"));
+
+        assertThat(produitRepository.findById(produit1.getId()).orElseThrow().getStockActuel()).isEqualTo(6);
+    }
+
+    @Test
+    void createMouvement_entreeSansPrix_shouldValoriserAuPrixCatalogue() throws Exception {
+        produit1.setCoutMoyenPondere(BigDecimal.valueOf(1.00));
+        produitRepository.save(produit1);
+        MouvementStockDTO dto = buildMouvement(produit1.getId(), TypeMouvement.ENTREE, 10, null);
+
+        mockMvc.perform(post("/api/mouvements")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(dto)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stockApresMouvement").value(20));
+
+        // (1.00 * 10 + 2.00 * 10) / 20
+        assertThat(produitRepository.findById(produit1.getId()).orElseThrow().getCoutMoyenPondere())
+                .isEqualByComparingTo("1.50");
+    }
+
+    @Test
+    void createMouvementsEnLot_shouldApplyInOrderAndReportFailures() throws Exception {
+        List<MouvementStockDTO> lot = List.of(
+                buildMouvement(produit1.getId(), TypeMouvement.ENTREE, 10, BigDecimal.valueOf(3.00)),
+                buildMouvement(produit2.getId(), TypeMouvement.SORTIE, 1, null),
+                buildMouvement(produit1.getId(), TypeMouvement.SORTIE, 5, null),
+                buildMouvement(999L, TypeMouvement.ENTREE, 1, null),
+                buildMouvement(produit2.getId(), TypeMouvement.AJUSTEMENT, 7, null)
+        );
+
+        mockMvc.perform(post("/api/mouvements/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(lot)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nombreTotal").value(5))
+                .andExpect(jsonPath("$.nombreReussis").value(3))
+                .andExpect(jsonPath("$.nombreEchecs").value(2))
+                .andExpect(jsonPath("$.resultats[0].succes").value(true))
+                .andExpect(jsonPath("$.resultats[0].mouvement.id").isNumber())
+                .andExpect(jsonPath("$.resultats[0].mouvement.stockApresMouvement").value(20))
+                .andExpect(jsonPath("$.resultats[1].succes").value(false))
+                .andExpect(jsonPath("$.resultats[1].erreur").value("Stock insuffisant pour effectuer cette sortie"))
+                .andExpect(jsonPath("$.resultats[2].mouvement.stockApresMouvement").value(15))
+                .andExpect(jsonPath("$.resultats[3].erreur").value("Produit introuvable avec l'id 999"))
+                .andExpect(jsonPath("$.resultats[4].mouvement.stockApresMouvement").value(7));
+
+        Produit reloaded1 = produitRepository.findById(produit1.getId()).orElseThrow();
+        Produit reloaded2 = produitRepository.findById(produit2.getId()).orElseThrow();
+        assertThat(reloaded1.getStockActuel()).isEqualTo(15);
+        assertThat(reloaded1.getCoutMoyenPondere()).isEqualByComparingTo("2.50");
+        assertThat(reloaded2.getStockActuel()).isEqualTo(7);
+        assertThat(mouvementStockRepository.count()).isEqualTo(3);
+    }
+
+    @Test
+    void createMouvementsEnLot_whenEmpty_shouldReturnConflict() throws Exception {
+        mockMvc.perform(post("/api/mouvements/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.message").value("Le lot doit contenir au moins un mouvement"));
+    }
+
+    @Test
+    void getByProduit_shouldPaginerParCurseurSansDoublonNiTrou() throws Exception {
+        LocalDateTime date = LocalDateTime.of(2025, 3, 1, 9, 0);
+        for (int i = 0; i < 5; i++) {
+            MouvementStockDTO dto = buildMouvement(produit1.getId(), TypeMouvement.ENTREE, 1, BigDecimal.ONE);
+            // Deux mouvements à la même date : départagés par l'id
+            dto.setDateMouvement(i < 2 ? date : date.plusMinutes(i));
+            mouvementStockService.enregistrerMouvement(dto);
+        }
+
+        List<Integer> stocks = new ArrayList<>();
+        String curseur = null;
+        int pages = 0;
+        do {
+            var requete = get("/api/mouvements/produit/{id}", produit1.getId()).param("taille", "2");
+            if (curseur != null) {
+                requete.param("curseur", curseur);
+            }
+            JsonNode page = objectMapper.readTree(mockMvc.perform(requete)
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString());
+            page.get("mouvements").forEach(m -> stocks.add(m.get("stockApresMouvement").asInt()));
+            curseur = page.get("curseurSuivant").isNull() ? null : page.get("curseurSuivant").asText();
+            pages++;
+        } while (curseur != null);
+
+        assertThat(pages).isEqualTo(3);
+        assertThat(stocks).containsExactly(11, 12, 13, 14, 15);
+    }
+
+    @Test
+    void getByType_whenCurseurInvalide_shouldReturnConflict() throws Exception {
+        mockMvc.perform(get("/api/mouvements/type/{type}", "SORTIE").param("curseur", "%%%"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.message").value("Curseur de pagination invalide"));
+    }
+
+    @Test
+    void exporter_ndjson_shouldStreamFilteredMovements() throws Exception {
+        produit1.setNom("Vis, \"inox\"");
+        produitRepository.save(produit1);
+        enregistrer(produit1.getId(), TypeMouvement.ENTREE, 5, LocalDateTime.of(2025, 1, 10, 8, 0));
+        enregistrer(produit1.getId(), TypeMouvement.SORTIE, 3, LocalDateTime.of(2025, 1, 31, 18, 0));
+        enregistrer(produit1.getId(), TypeMouvement.SORTIE, 1, LocalDateTime.of(2025, 2, 1, 8, 0));
+        enregistrer(produit2.getId(), TypeMouvement.ENTREE, 4, LocalDateTime.of(2025, 1, 15, 8, 0));
+
+        MvcResult demarrage = mockMvc.perform(get("/api/mouvements/export")
+                        .param("produitId", produit1.getId().toString())
+                        .param("debut", "2025-01-01")
+                        .param("fin", "2025-01-31"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String corps = mockMvc.perform(asyncDispatch(demarrage))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        List<JsonNode> lignes = corps.lines().map(this::lireJson).toList();
+        assertThat(lignes).extracting(l -> l.get("stockApresMouvement").asInt()).containsExactly(15, 12);
+        assertThat(lignes).extracting(l -> l.get("produitNom").asText()).containsOnly("Vis, \"inox\"");
+    }
+
+    @Test
+    void exporter_csv_shouldWriteHeaderAndEscapeText() throws Exception {
+        produit1.setNom("Vis, \"inox\"");
+        produitRepository.save(produit1);
+        enregistrer(produit1.getId(), TypeMouvement.SORTIE, 3, LocalDateTime.of(2025, 1, 31, 18, 0));
+        enregistrer(produit2.getId(), TypeMouvement.ENTREE, 4, LocalDateTime.of(2025, 1, 15, 8, 0));
+
+        MvcResult demarrage = mockMvc.perform(get("/api/mouvements/export")
+                        .param("format", "CSV")
+                        .param("type", "SORTIE"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String corps = mockMvc.perform(asyncDispatch(demarrage))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"mouvements.csv\""))
+                .andReturn().getResponse().getContentAsString();
+
+        List<String> lignes = corps.lines().toList();
+        assertThat(lignes).hasSize(2);
+        assertThat(lignes.get(0)).startsWith("id,date_mouvement,type_mouvement");
+        assertThat(lignes.get(1)).contains(",2025-01-31T18:00,SORTIE,3,").contains(",\"Vis, \"\"inox\"\"\",");
+    }
+
+    @Test
+    void exporter_whenPeriodeInversee_shouldReturnConflictBeforeStreaming() throws Exception {
+        mockMvc.perform(get("/api/mouvements/export")
+                        .param("debut", "2025-02-01")
+                        .param("fin", "2025-01-01"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.message").value("La date de fin doit être postérieure ou égale à la date de début"));
+    }
+
+    private void enregistrer(Long produitId, TypeMouvement type, int quantite, LocalDateTime date) {
+        MouvementStockDTO dto = buildMouvement(produitId, type, quantite, BigDecimal.ONE);
+        dto.setDateMouvement(date);
+        mouvementStockService.enregistrerMouvement(dto);
+    }
+
+    private JsonNode lireJson(String ligne) {
+        try {
+            return objectMapper.readTree(ligne);
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private Produit buildProduit(String nom, int stock, BigDecimal prix) {
+        Produit p = new Produit();
+        p.setNom(nom);
+        p.setPrixUnitaire(prix);
+        p.setCategorie("TEST");
+        p.setStockActuel(stock);
+        p.setCoutMoyenPondere(prix);
+        return p;
+    }
+
+    private MouvementStockDTO buildMouvement(Long produitId, TypeMouvement type, int quantite, BigDecimal prix) {
+        MouvementStockDTO dto = new MouvementStockDTO();
+        dto.setProduitId(produitId);
+        dto.setTypeMouvement(type);
+        dto.setQuantite(quantite);
+        dto.setPrixUnitaire(prix);
+        return dto;
+    }
+}
@@ -0,0 +1,248 @@
+package com.example.gestion_approvisionnements.integration;
+
+import com.example.gestion_approvisionnements.dto.CommandeFournisseurDTO;
+import com.example.gestion_approvisionnements.dto.LigneCommandeDTO;
+import com.example.gestion_approvisionnements.entity.Fournisseur;
+import com.example.gestion_approvisionnements.entity.OperationStatut;
+import com.example.gestion_approvisionnements.entity.Produit;
+import com.example.gestion_approvisionnements.enums.EtatOperation;
+import com.example.gestion_approvisionnements.enums.StatutCommande;
+import com.example.gestion_approvisionnements.repository.CommandeFournisseurRepository;
+import com.example.gestion_approvisionnements.repository.CommandeSummaryRepository;
+import com.example.gestion_approvisionnements.repository.FournisseurRepository;
+import com.example.gestion_approvisionnements.repository.MouvementStockRepository;
+import com.example.gestion_approvisionnements.repository.OperationStatutRepository;
+import com.example.gestion_approvisionnements.repository.ProduitRepository;
+import com.example.gestion_approvisionnements.repository.RejetOperationStatutRepository;
+import com.example.gestion_approvisionnements.service.CommandeFournisseurService;
+import com.example.gestion_approvisionnements.service.OperationStatutService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class OperationStatutIntegrationTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private OperationStatutRepository operationStatutRepository;
+    @Autowired
+    private RejetOperationStatutRepository rejetOperationStatutRepository;
+    @Autowired
+    private CommandeSummaryRepository commandeSummaryRepository;
+    @Autowired
+    private CommandeFournisseurRepository commandeFournisseurRepository;
+    @Autowired
+    private FournisseurRepository fournisseurRepository;
+    @Autowired
+    private ProduitRepository produitRepository;
+    @Autowired
+    private MouvementStockRepository mouvementStockRepository;
+    @Autowired
+    private CommandeFournisseurService commandeFournisseurService;
+    @Autowired
+    private OperationStatutService operationStatutService;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Fournisseur fournisseur;
+    private Produit produit1;
+    private Produit produit2;
+
+    @BeforeEach
+    void setUp() {
+        rejetOperationStatutRepository.deleteAllInBatch();
+        operationStatutRepository.deleteAllInBatch();
+        commandeSummaryRepository.deleteAllInBatch();
+        mouvementStockRepository.deleteAll();
+        commandeFournisseurRepository.deleteAll();
+        fournisseurRepository.deleteAll();
+        produitRepository.deleteAll();
+
+        fournisseur = new Fournisseur();
+        fournisseur.setSociete("Fournisseur Async");
+        fournisseur.setIce("ICE_ASYNC");
+        fournisseur = fournisseurRepository.save(fournisseur);
+
+        produit1 = produitRepository.save(buildProduit("Prod 1", 10));
+        produit2 = produitRepository.save(buildProduit("Prod 2", 5));
+    }
+
+    @Test
+    void updateStatutAsynchrone_shouldRepondre202PuisLivrer() throws Exception {
+        Long commandeId = creerCommande();
+
+        long operationId = soumettre(commandeId, "LIVREE");
+        JsonNode operation = attendreFin(operationId);
+
+        assertThat(operation.get("etat").asText()).isEqualTo("TERMINEE");
+        assertThat(operation.get("tentatives").asInt()).isEqualTo(1);
+        assertThat(commandeFournisseurRepository.findById(commandeId).orElseThrow().getStatut())
+                .isEqualTo(StatutCommande.LIVREE);
+        assertThat(produitRepository.findById(produit1.getId()).orElseThrow().getStockActuel()).isEqualTo(8);
+        assertThat(produitRepository.findById(produit2.getId()).orElseThrow().getStockActuel()).isEqualTo(4);
+        assertThat(mouvementStockRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    void updateStatutAsynchrone_whenStockInsuffisant_shouldRejeterPuisRejouer() throws Exception {
+        produit2.setStockActuel(0);
+        produit2 = produitRepository.save(produit2);
+        Long commandeId = creerCommande();
+
+        long operationId = soumettre(commandeId, "LIVREE");
+        JsonNode operation = attendreFin(operationId);
+
+        assertThat(operation.get("etat").asText()).isEqualTo("ECHOUEE");
+        assertThat(operation.get("erreur").asText()).isEqualTo("Stock insuffisant pour effectuer cette sortie");
+        assertThat(commandeFournisseurRepository.findById(commandeId).orElseThrow().getStatut())
+                .isEqualTo(StatutCommande.EN_ATTENTE);
+        assertThat(mouvementStockRepository.count()).isZero();
+        mockMvc.perform(get("/api/commandes/operations/rejets"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(1))
+                .andExpect(jsonPath("$.content[0].id").value(operationId))
+                .andExpect(jsonPath("$.content[0].commandeId").value(commandeId));
+
+        produit2.setStockActuel(5);
+        produit2 = produitRepository.save(produit2);
+        String reponse = mockMvc.perform(post("/api/commandes/operations/rejets/{id}/rejeu", operationId))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.etat").value("EN_ATTENTE"))
+                .andReturn().getResponse().getContentAsString();
+
+        JsonNode rejeu = attendreFin(objectMapper.readTree(reponse).get("id").asLong());
+        assertThat(rejeu.get("etat").asText()).isEqualTo("TERMINEE");
+        assertThat(rejetOperationStatutRepository.count()).isZero();
+        assertThat(commandeFournisseurRepository.findById(commandeId).orElseThrow().getStatut())
+                .isEqualTo(StatutCommande.LIVREE);
+    }
+
+    @Test
+    void updateStatut_livraisonsConcurrentes_shouldSortirLeStockUneSeuleFois() throws Exception {
+        Long commandeId = creerCommande();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<?>> livraisons = List.of(
+                    executor.submit(() -> commandeFournisseurService.updateStatut(commandeId, StatutCommande.LIVREE)),
+                    executor.submit(() -> commandeFournisseurService.updateStatut(commandeId, StatutCommande.LIVREE)));
+            for (Future<?> livraison : livraisons) {
+                livraison.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // La seconde transition attend le verrou de la commande et la lit déjà LIVREE
+        assertThat(produitRepository.findById(produit1.getId()).orElseThrow().getStockActuel()).isEqualTo(8);
+        assertThat(produitRepository.findById(produit2.getId()).orElseThrow().getStockActuel()).isEqualTo(4);
+        assertThat(mouvementStockRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    void reprendre_shouldNeReprendreQueLesOperationsAuBailExpire() throws Exception {
+        Long commandeEnCours = creerCommande();
+        Long commandeAbandonnee = creerCommande();
+        OperationStatut enCours = operationStatutRepository.save(buildEnCours(commandeEnCours, LocalDateTime.now()));
+        OperationStatut abandonnee = operationStatutRepository.save(
+                buildEnCours(commandeAbandonnee, LocalDateTime.now().minusHours(1)));
+
+        operationStatutService.reprendre();
+
+        // Bail d'une instance vivante : l'opération lui reste ; bail expiré : remise en attente puis traitée ici
+        assertThat(operationStatutRepository.findById(enCours.getId()).orElseThrow().getInstance())
+                .isEqualTo("instance-vivante");
+        assertThat(attendreFin(abandonnee.getId()).get("etat").asText()).isEqualTo("TERMINEE");
+        assertThat(operationStatutRepository.findById(enCours.getId()).orElseThrow().getEtat())
+                .isEqualTo(EtatOperation.EN_COURS);
+    }
+
+    @Test
+    void updateStatutAsynchrone_whenCommandeMissing_shouldReturn404WithoutOperation() throws Exception {
+        mockMvc.perform(patch("/api/commandes/{id}/statut", 999L)
+                        .param("statut", "LIVREE")
+                        .param("asynchrone", "true"))
+                .andExpect(status().isNotFound());
+
+        assertThat(operationStatutRepository.count()).isZero();
+    }
+
+    @Test
+    void getOperation_whenMissing_shouldReturn404() throws Exception {
+        mockMvc.perform(get("/api/commandes/operations/{id}", 999L))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("Opération introuvable avec l'id 999"));
+    }
+
+    private long soumettre(Long commandeId, String statut) throws Exception {
+        String reponse = mockMvc.perform(patch("/api/commandes/{id}/statut", commandeId)
+                        .param("statut", statut)
+                        .param("asynchrone", "true"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.commandeId").value(commandeId))
+                .andExpect(jsonPath("$.statutCible").value(statut))
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(reponse).get("id").asLong();
+    }
+
+    private JsonNode attendreFin(long operationId) throws Exception {
+        JsonNode operation;
+        long limite = System.currentTimeMillis() + 30_000;
+        do {
+            operation = objectMapper.readTree(mockMvc.perform(get("/api/commandes/operations/{id}", operationId))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString());
+        } while (List.of("EN_ATTENTE", "EN_COURS").contains(operation.get("etat").asText())
+                && System.currentTimeMillis() < limite);
+        return operation;
+    }
+
+    private Long creerCommande() throws Exception {
+        List<LigneCommandeDTO> lignes = List.of(
+                new LigneCommandeDTO(null, produit1.getId(), null, 2, BigDecimal.TEN, null),
+                new LigneCommandeDTO(null, produit2.getId(), null, 1, BigDecimal.TEN, null));
+        CommandeFournisseurDTO dto = new CommandeFournisseurDTO(null, LocalDate.now(), StatutCommande.EN_ATTENTE,
+                null, fournisseur.getId(), null, lignes);
+        String reponse = mockMvc.perform(post("/api/commandes")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(dto)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(reponse).get("id").asLong();
+    }
+
+    private OperationStatut buildEnCours(Long commandeId, LocalDateTime datePrise) {
+        OperationStatut operation = new OperationStatut();
+        operation.setCommandeId(commandeId);
+        operation.setStatutCible(StatutCommande.VALIDEE);
+        operation.setEtat(EtatOperation.EN_COURS);
+        operation.setDateCreation(datePrise);
+        operation.setInstance("instance-vivante");
+        operation.setDatePrise(datePrise);
+        return operation;
+    }
+
+    private Produit buildProduit(String nom, int stock) {
+        Produit p = new Produit();
+        p.setNom(nom);
+        p.setPrixUnitaire(BigDecimal.TEN);
+        p.setCategorie("TEST");
+        p.setStockActuel(stock);
+        p.setCoutMoyenPondere(BigDecimal.TEN);
+        return p;
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.gestion_approvisionnements.integration;
+
+import com.example.gestion_approvisionnements.dto.CommandeFournisseurDTO;
+import com.example.gestion_approvisionnements.dto.LigneCommandeDTO;
+import com.example.gestion_approvisionnements.entity.Fournisseur;
+import com.example.gestion_approvisionnements.entity.Produit;
+import com.example.gestion_approvisionnements.enums.StatutCommande;
+import com.example.gestion_approvisionnements.repository.CommandeFournisseurRepository;
+import com.example.gestion_approvisionnements.repository.FournisseurRepository;
+import com.example.gestion_approvisionnements.repository.ProduitRepository;
+import com.example.gestion_approvisionnements.service.CommandeFournisseurService;
+import com.example.gestion_approvisionnements.service.DepenseService;
+import com.example.gestion_approvisionnements.service.PartitionCommandeService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.Year;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Tables commande_fournisseur et ligne_commande partitionnées par année (changelog 015), sur PostgreSQL
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+class PartitionsCommandePostgresIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void configurer(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("spring.jpa.database-platform", () -> "org.hibernate.dialect.PostgreSQLDialect");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "none");
+        registry.add("spring.liquibase.enabled", () -> "true");
+        registry.add("spring.liquibase.change-log", () -> "classpath:db/changelog/db.changelog-master.xml");
+        registry.add("commandes.reconstruction.verrou", () -> "true");
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PartitionCommandeService partitionCommandeService;
+    @Autowired
+    private CommandeFournisseurService commandeFournisseurService;
+    @Autowired
+    private DepenseService depenseService;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private CommandeFournisseurRepository commandeFournisseurRepository;
+    @Autowired
+    private FournisseurRepository fournisseurRepository;
+    @Autowired
+    private ProduitRepository produitRepository;
+
+    private Fournisseur fournisseur;
+    private Produit produit;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("TRUNCATE ligne_commande, commande_fournisseur, produit, fournisseur CASCADE");
+
+        Fournisseur f = new Fournisseur();
+        f.setSociete("Fournisseur partitions");
+        f.setIce("ICE_PART");
+        fournisseur = fournisseurRepository.save(f);
+
+        Produit p = new Produit();
+        p.setNom("Produit partitions");
+        p.setPrixUnitaire(BigDecimal.TEN);
+        p.setCategorie("TEST");
+        p.setStockActuel(100);
+        p.setCoutMoyenPondere(BigDecimal.TEN);
+        produit = produitRepository.save(p);
+    }
+
+    @Test
+    void migration_shouldCreerLesPartitionsDeLAnneeEtDeLaSuivante() {
+        int annee = Year.now().getValue();
+
+        assertThat(partitions("commande_fournisseur"))
+                .contains("commande_fournisseur_" + annee, "commande_fournisseur_" + (annee + 1),
+                        "commande_fournisseur_defaut");
+        assertThat(partitions("ligne_commande"))
+                .contains("ligne_commande_" + annee, "ligne_commande_" + (annee + 1), "ligne_commande_defaut");
+    }
+
+    @Test
+    void creerPartitionsAVenir_shouldCreerLesAnneesManquantesUneSeuleFois() {
+        int derniere = Year.now().getValue() + 2;
+
+        partitionCommandeService.creerPartitionsAVenir();
+        int secondPassage = partitionCommandeService.creerPartitionsAVenir();
+
+        assertThat(secondPassage).isZero();
+        assertThat(partitions("commande_fournisseur")).contains("commande_fournisseur_" + derniere);
+        assertThat(partitions("ligne_commande")).contains("ligne_commande_" + derniere);
+    }
+
+    @Test
+    void createCommande_shouldRangerCommandeEtLignesDansLaPartitionDeSonAnnee() {
+        int annee = Year.now().getValue();
+        CommandeFournisseurDTO creee = commandeFournisseurService.createCommande(commande(LocalDate.now()));
+
+        assertThat(jdbcTemplate.queryForObject("SELECT tableoid::regclass::text FROM commande_fournisseur WHERE id = ?",
+                String.class, creee.getId())).isEqualTo("commande_fournisseur_" + annee);
+        assertThat(jdbcTemplate.queryForList(
+                "SELECT DISTINCT tableoid::regclass::text FROM ligne_commande WHERE commande_fournisseur_id = ?",
+                String.class, creee.getId())).containsExactly("ligne_commande_" + annee);
+        assertThat(commandeFournisseurService.getCommandeById(creee.getId()).getLignesCommande()).hasSize(1);
+    }
+
+    @Test
+    void createCommande_horsPartitions_shouldAllerDansLaPartitionParDefaut() {
+        CommandeFournisseurDTO creee = commandeFournisseurService.createCommande(commande(LocalDate.of(1999, 5, 1)));
+
+        assertThat(jdbcTemplate.queryForObject("SELECT tableoid::regclass::text FROM commande_fournisseur WHERE id = ?",
+                String.class, creee.getId())).isEqualTo("commande_fournisseur_defaut");
+        // L'année occupée dans la partition par défaut n'est pas recréée à côté
+        assertThat(commandeFournisseurRepository.creerPartitions(1999, 1999)).isZero();
+        assertThat(commandeFournisseurService.getCommandesParPeriode(LocalDate.of(1999, 1, 1),
+                LocalDate.of(1999, 12, 31))).hasSize(1);
+    }
+
+    @Test
+    void deleteCommande_shouldSupprimerLesOperationsEnCascade() {
+        CommandeFournisseurDTO creee = commandeFournisseurService.createCommande(commande(LocalDate.now()));
+        jdbcTemplate.update("""
+                INSERT INTO operation_statut (commande_id, statut_cible, etat, tentatives, date_creation)
+                VALUES (?, 'VALIDEE', 'TERMINEE', 1, CURRENT_TIMESTAMP)
+                """, creee.getId());
+
+        commandeFournisseurService.deleteCommande(creee.getId());
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM operation_statut WHERE commande_id = ?",
+                Long.class, creee.getId())).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ligne_commande WHERE commande_fournisseur_id = ?",
+                Long.class, creee.getId())).isZero();
+    }
+
+    @Test
+    void operationStatut_shouldRefuserUneSecondeOperationNonTermineeSurLaCommande() {
+        CommandeFournisseurDTO creee = commandeFournisseurService.createCommande(commande(LocalDate.now()));
+        String insertion = """
+                INSERT INTO operation_statut (commande_id, statut_cible, etat, tentatives, date_creation)
+                VALUES (?, 'VALIDEE', ?, 0, CURRENT_TIMESTAMP)
+                """;
+        jdbcTemplate.update(insertion, creee.getId(), "TERMINEE");
+        jdbcTemplate.update(insertion, creee.getId(), "EN_ATTENTE");
+
+        // Index unique partiel du changelog 019 : les opérations terminées n'y entrent pas
+        assertThatThrownBy(() -> jdbcTemplate.update(insertion, creee.getId(), "EN_COURS"))
+                .isInstanceOf(DataIntegrityViolationException.class);
+        jdbcTemplate.update(insertion, creee.getId(), "ECHOUEE");
+    }
+
+    @Test
+    void deleteCommande_whenMouvementsLies_shouldEtreRefusee() {
+        CommandeFournisseurDTO creee = commandeFournisseurService.createCommande(commande(LocalDate.now()));
+        commandeFournisseurService.updateStatut(creee.getId(), StatutCommande.LIVREE);
+
+        assertThatThrownBy(() -> jdbcTemplate.update("DELETE FROM commande_fournisseur WHERE id = ?", creee.getId()))
+                .isInstanceOf(DataIntegrityViolationException.class);
+        assertThat(commandeFournisseurRepository.existsById(creee.getId())).isTrue();
+    }
+
+    @Test
+    void reconstructionDepenses_shouldSuspendreLesCreationsDeCommandesJusquAuCommit() throws Exception {
+        CountDownLatch verrouille = new CountDownLatch(1);
+        CountDownLatch liberer = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> reconstruction = executor.submit(() -> transactionTemplate.executeWithoutResult(statut -> {
+                depenseService.reconstruire();
+                verrouille.countDown();
+                try {
+                    liberer.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            assertThat(verrouille.await(10, TimeUnit.SECONDS)).isTrue();
+
+            Future<CommandeFournisseurDTO> creation = executor.submit(
+                    () -> commandeFournisseurService.createCommande(commande(LocalDate.now())));
+            // Création en attente du verrou tant que la reconstruction n'est pas commitée
+            assertThatThrownBy(() -> creation.get(500, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+
+            liberer.countDown();
+            reconstruction.get(10, TimeUnit.SECONDS);
+            creation.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Comptée une seule fois : par son incrément, après la reconstruction
+        assertThat(jdbcTemplate.queryForObject("SELECT SUM(nombre_commandes) FROM depense_fournisseur", Long.class))
+                .isEqualTo(1L);
+        assertThat(jdbcTemplate.queryForObject("SELECT SUM(nombre_commandes) FROM depense_categorie", Long.class))
+                .isEqualTo(1L);
+    }
+
+    private List<String> partitions(String table) {
+        return jdbcTemplate.queryForList("""
+                SELECT inhrelid::regclass::text FROM pg_inherits WHERE inhparent = CAST(? AS regclass)
+                """, String.class, table);
+    }
+
+    private CommandeFournisseurDTO commande(LocalDate date) {
+        List<LigneCommandeDTO> lignes = List.of(
+                new LigneCommandeDTO(null, produit.getId(), null, 2, BigDecimal.TEN, null));
+        return new CommandeFournisseurDTO(null, date, StatutCommande.EN_ATTENTE, null, fournisseur.getId(), null,
+                lignes);
+    }
+}
@@ -0,0 +1,440 @@
+package com.example.gestion_approvisionnements.integration;
+
+import com.example.gestion_approvisionnements.dto.RechercheCommandeDTO;
+import com.example.gestion_approvisionnements.enums.StatutCommande;
+import com.example.gestion_approvisionnements.enums.TypeMouvement;
+import com.example.gestion_approvisionnements.repository.CommandeFournisseurRepository;
+import com.example.gestion_approvisionnements.repository.CommandeFournisseurSpecifications;
+import com.example.gestion_approvisionnements.repository.FournisseurRepository;
+import com.example.gestion_approvisionnements.repository.InstantaneStockRepository;
+import com.example.gestion_approvisionnements.repository.LigneCommandeRepository;
+import com.example.gestion_approvisionnements.repository.MouvementStockRepository;
+import com.example.gestion_approvisionnements.repository.ProduitRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+// Plans d'exécution des requêtes des repositories sur PostgreSQL, schéma créé par Liquibase.
+// Le SQL généré par Hibernate est capturé sans être exécuté, puis passé à EXPLAIN avec des valeurs sélectives :
+// un parcours séquentiel sur une table volumineuse signale un index manquant ou inutilisable.
+// Non testées, car elles lisent toute la table par nature : findAllIds, findDerniersAvant, findIdsProduitsAInstantaner ;
+// ni streamArchivables, qui lit un mois entier pour l'archiver.
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class PlansRequetesPostgresIntegrationTest {
+
+    private static final Set<String> TABLES_VOLUMINEUSES = Set.of("fournisseur", "produit", "commande_fournisseur",
+            "ligne_commande", "mouvement_stock", "instantane_stock");
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void configurer(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("spring.jpa.database-platform", () -> "org.hibernate.dialect.PostgreSQLDialect");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "none");
+        registry.add("spring.liquibase.enabled", () -> "true");
+        registry.add("spring.liquibase.change-log", () -> "classpath:db/changelog/db.changelog-master.xml");
+        registry.add("spring.jpa.properties.hibernate.session_factory.statement_inspector",
+                InspecteurCapture.class::getName);
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private FournisseurRepository fournisseurRepository;
+    @Autowired
+    private ProduitRepository produitRepository;
+    @Autowired
+    private CommandeFournisseurRepository commandeFournisseurRepository;
+    @Autowired
+    private LigneCommandeRepository ligneCommandeRepository;
+    @Autowired
+    private MouvementStockRepository mouvementStockRepository;
+    @Autowired
+    private InstantaneStockRepository instantaneStockRepository;
+
+    // Volumes et distributions choisis pour que chaque valeur recherchée soit rare
+    @BeforeAll
+    void remplirBase() {
+        jdbcTemplate.queryForObject("SELECT creer_partitions_commande(2020, 2025)", Integer.class);
+        jdbcTemplate.queryForObject("SELECT creer_partitions_mouvement(DATE '2020-01-01', DATE '2021-12-01')",
+                Integer.class);
+        jdbcTemplate.execute("""
+                INSERT INTO fournisseur (id, societe, ice)
+                SELECT g, 'Fournisseur ' || g, 'ICE' || g FROM generate_series(1, 2000) g
+                """);
+        jdbcTemplate.execute("""
+                INSERT INTO produit (id, nom, prix_unitaire, categorie, stock_actuel, cout_moyen_pondere, version)
+                SELECT g, 'Produit ' || g, 10, 'CAT' || (g % 500),
+                       CASE WHEN g % 1000 = 0 THEN 2 ELSE 100 + g % 900 END, 10, 0
+                FROM generate_series(1, 50000) g
+                """);
+        jdbcTemplate.execute("""
+                INSERT INTO commande_fournisseur (id, date_commande, statut, montant_total, fournisseur_id)
+                SELECT g, DATE '2020-01-01' + (g % 2000),
+                       CASE WHEN g % 1000 = 0 THEN 'ANNULEE' WHEN g % 100 = 1 THEN 'EN_ATTENTE'
+                            WHEN g % 100 = 2 THEN 'VALIDEE' ELSE 'LIVREE' END,
+                       30, 1 + g % 2000
+                FROM generate_series(1, 100000) g
+                """);
+        jdbcTemplate.execute("""
+                INSERT INTO ligne_commande (id, commande_fournisseur_id, date_commande, produit_id, quantite,
+                                            prix_unitaire, sous_total)
+                SELECT g, 1 + g % 100000, DATE '2020-01-01' + ((1 + g % 100000) % 2000), 1 + g % 50000, 1, 10, 10
+                FROM generate_series(1, 300000) g
+                """);
+        jdbcTemplate.execute("""
+                INSERT INTO mouvement_stock (id, date_mouvement, quantite, type_mouvement, prix_unitaire,
+                                             stock_apres_mouvement, produit_id, commande_fournisseur_id, created_at)
+                SELECT g, TIMESTAMP '2020-01-01 00:00:00' + g * INTERVAL '1 minute', 1,
+                       CASE WHEN g % 1000 = 0 THEN 'AJUSTEMENT' WHEN g % 2 = 0 THEN 'SORTIE' ELSE 'ENTREE' END,
+                       10, 100, 1 + g % 50000, CASE WHEN g % 100 = 0 THEN 1 + g % 100000 END,
+                       TIMESTAMP '2020-01-01 00:00:00' + g * INTERVAL '1 minute'
+                FROM generate_series(1, 1000000) g
+                """);
+        jdbcTemplate.execute("""
+                INSERT INTO instantane_stock (id, produit_id, date_instantane, stock, cout_moyen_pondere)
+                SELECT g, g, TIMESTAMP '2021-06-01 02:00:00', 100, 10 FROM generate_series(1, 50000) g
+                """);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @Test
+    void fournisseur_findByIce() {
+        verifierSansParcoursSequentiel(() -> fournisseurRepository.findByIce("ICE42"), "ICE42");
+    }
+
+    @Test
+    void fournisseur_findIcesByIdIn() {
+        verifierSansParcoursSequentiel(() -> fournisseurRepository.findIcesByIdIn(List.of(42L, 43L)), 42L, 43L);
+    }
+
+    @Test
+    void produit_findByCategorieIgnoreCase() {
+        verifierSansParcoursSequentiel(() -> produitRepository.findByCategorieIgnoreCase("cat42"), "cat42");
+    }
+
+    @Test
+    void produit_findByStockActuelLessThanEqual() {
+        verifierSansParcoursSequentiel(() -> produitRepository.findByStockActuelLessThanEqual(5), 5);
+    }
+
+    @Test
+    void produit_findAllByIdForUpdate() {
+        verifierSansParcoursSequentiel(() -> produitRepository.findAllByIdForUpdate(List.of(3L, 1L, 2L)), 3L, 1L, 2L);
+    }
+
+    @Test
+    void produit_findAllByCommandeIdForUpdate() {
+        verifierSansParcoursSequentiel(() -> produitRepository.findAllByCommandeIdForUpdate(42L), 42L);
+    }
+
+    @Test
+    void produit_findByIdBetweenOrderById() {
+        verifierSansParcoursSequentiel(() -> produitRepository.findByIdBetweenOrderById(100L, 200L), 100L, 200L);
+    }
+
+    @Test
+    void produit_findByIdBetweenForUpdate() {
+        verifierSansParcoursSequentiel(() -> produitRepository.findByIdBetweenForUpdate(100L, 200L), 100L, 200L);
+    }
+
+    @Test
+    void commande_findByStatut() {
+        verifierSansParcoursSequentiel(() -> commandeFournisseurRepository.findByStatut(StatutCommande.ANNULEE),
+                "ANNULEE");
+    }
+
+    @Test
+    void commande_findByFournisseurId() {
+        verifierSansParcoursSequentiel(() -> commandeFournisseurRepository.findByFournisseurId(42L), 42L);
+    }
+
+    @Test
+    void commande_findByDateCommandeBetween() {
+        LocalDate debut = LocalDate.of(2021, 3, 1);
+        LocalDate fin = LocalDate.of(2021, 3, 7);
+        verifierSansParcoursSequentiel(() -> commandeFournisseurRepository.findByDateCommandeBetween(debut, fin),
+                debut, fin, debut, fin);
+    }
+
+    @Test
+    void commande_findByDateCommandeBetween_shouldNeLireQueLesPartitionsDeLaPeriode() throws Exception {
+        LocalDate debut = LocalDate.of(2021, 3, 1);
+        LocalDate fin = LocalDate.of(2021, 3, 7);
+        String sql = capturer(() -> commandeFournisseurRepository.findByDateCommandeBetween(debut, fin));
+
+        String plan = jdbcTemplate.queryForObject("EXPLAIN (FORMAT JSON) " + sql, String.class, debut, fin, debut, fin);
+        Set<String> relations = new TreeSet<>();
+        collecterRelations(objectMapper.readTree(plan).get(0).get("Plan"), relations);
+        assertThat(relations).as(plan)
+                .contains("commande_fournisseur_2021", "ligne_commande_2021")
+                .noneMatch(relation -> relation.matches("(commande_fournisseur|ligne_commande)_(20(20|2[2-5])|defaut)"));
+    }
+
+    // Recherche combinée : première tranche de 50 (51 lignes lues), triée par date puis id décroissants.
+    // Paramètres : critères de la commande, puis ceux de la sous-requête sur les lignes, puis la limite.
+    @Test
+    void commande_rechercher_sansCritere() {
+        verifierRecherche(new RechercheCommandeDTO(), 51);
+    }
+
+    @Test
+    void commande_rechercher_statutFournisseurPeriode() {
+        LocalDate debut = LocalDate.of(2021, 3, 1);
+        LocalDate fin = LocalDate.of(2021, 3, 31);
+        verifierRecherche(new RechercheCommandeDTO(StatutCommande.ANNULEE, 42L, null, debut, fin, null, null),
+                "ANNULEE", 42L, debut, fin, 51);
+    }
+
+    @Test
+    void commande_rechercher_fournisseurMontant() {
+        verifierRecherche(new RechercheCommandeDTO(null, 42L, null, null, null, BigDecimal.TEN, BigDecimal.valueOf(40)),
+                42L, BigDecimal.TEN, BigDecimal.valueOf(40), 51);
+    }
+
+    @Test
+    void commande_rechercher_montant() {
+        verifierRecherche(new RechercheCommandeDTO(null, null, null, null, null, BigDecimal.valueOf(1000), null),
+                BigDecimal.valueOf(1000), 51);
+    }
+
+    @Test
+    void commande_rechercher_produitPeriode_shouldNeLireQueLesPartitionsDeLaPeriode() throws Exception {
+        LocalDate debut = LocalDate.of(2021, 3, 1);
+        LocalDate fin = LocalDate.of(2021, 3, 31);
+        RechercheCommandeDTO recherche = new RechercheCommandeDTO(null, null, 42L, debut, fin, null, null);
+        verifierRecherche(recherche, debut, fin, 42L, debut, fin, 51);
+
+        String sql = capturer(() -> commandeFournisseurRepository.rechercher(
+                CommandeFournisseurSpecifications.criteres(recherche), premiereTranche()));
+        String plan = jdbcTemplate.queryForObject("EXPLAIN (FORMAT JSON) " + sql, String.class,
+                debut, fin, 42L, debut, fin, 51);
+        Set<String> relations = new TreeSet<>();
+        collecterRelations(objectMapper.readTree(plan).get(0).get("Plan"), relations);
+        assertThat(relations).as(plan)
+                .contains("commande_fournisseur_2021", "ligne_commande_2021")
+                .noneMatch(relation -> relation.matches("(commande_fournisseur|ligne_commande)_(20(20|2[2-5])|defaut)"));
+    }
+
+    @Test
+    void commande_findDetailById() {
+        verifierSansParcoursSequentiel(() -> commandeFournisseurRepository.findDetailById(42L), 42L);
+    }
+
+    @Test
+    void commande_chargerLignes() {
+        verifierSansParcoursSequentiel(() -> commandeFournisseurRepository.chargerLignes(List.of(1L, 2L, 3L)),
+                1L, 2L, 3L);
+    }
+
+    @Test
+    void ligneCommande_findByCommandeFournisseurId() {
+        verifierSansParcoursSequentiel(() -> ligneCommandeRepository.findByCommandeFournisseurId(42L), 42L);
+    }
+
+    @Test
+    void mouvement_findByProduitIdOrderByDateMouvementAsc() {
+        verifierSansParcoursSequentiel(() -> mouvementStockRepository.findByProduitIdOrderByDateMouvementAsc(42L), 42L);
+    }
+
+    @Test
+    void mouvement_findByTypeMouvement() {
+        verifierSansParcoursSequentiel(() -> mouvementStockRepository.findByTypeMouvement(TypeMouvement.AJUSTEMENT),
+                "AJUSTEMENT");
+    }
+
+    @Test
+    void mouvement_findByProduitIdApres() {
+        LocalDateTime date = LocalDateTime.of(2020, 6, 1, 0, 0);
+        verifierSansParcoursSequentiel(() -> mouvementStockRepository.findByProduitIdApres(42L, date, 1L, Limit.of(50)),
+                42L, date, date, 1L, 50);
+    }
+
+    @Test
+    void mouvement_findByProduitIdEntre_shouldNeLireQueLesPartitionsDeLaPeriode() throws Exception {
+        LocalDateTime date = LocalDateTime.of(2021, 3, 1, 0, 0);
+        LocalDateTime fin = LocalDateTime.of(2021, 5, 1, 0, 0);
+        String sql = capturer(() -> mouvementStockRepository.findByProduitIdEntre(42L, date, 1L, fin, Limit.of(50)));
+
+        String plan = jdbcTemplate.queryForObject("EXPLAIN (FORMAT JSON) " + sql, String.class,
+                42L, date, fin, date, 1L, 50);
+        Set<String> relations = new TreeSet<>();
+        collecterRelations(objectMapper.readTree(plan).get(0).get("Plan"), relations);
+        assertThat(relations).as(plan)
+                .contains("mouvement_stock_2021_03", "mouvement_stock_2021_04")
+                .noneMatch(relation -> relation.matches("mouvement_stock_(2020_\\d{2}|2021_(0[1256789]|1\\d)|defaut)"));
+        verifierSansParcoursSequentiel(() -> mouvementStockRepository.findByProduitIdEntre(
+                42L, date, 1L, fin, Limit.of(50)), 42L, date, fin, date, 1L, 50);
+    }
+
+    @Test
+    void mouvement_findByTypeMouvementApres() {
+        LocalDateTime date = LocalDateTime.of(2020, 6, 1, 0, 0);
+        verifierSansParcoursSequentiel(() -> mouvementStockRepository.findByTypeMouvementApres(
+                TypeMouvement.AJUSTEMENT, date, 1L, Limit.of(50)), "AJUSTEMENT", date, 1L, 50);
+    }
+
+    @Test
+    void mouvement_streamPourExport_parProduit() {
+        verifierSansParcoursSequentiel(() -> mouvementStockRepository.streamPourExport(42L, null, null, null), 42L);
+    }
+
+    @Test
+    void mouvement_streamPourExport_parPeriode() {
+        LocalDateTime debut = LocalDateTime.of(2021, 3, 1, 0, 0);
+        LocalDateTime fin = LocalDateTime.of(2021, 3, 2, 0, 0);
+        verifierSansParcoursSequentiel(() -> mouvementStockRepository.streamPourExport(null, null, debut, fin),
+                debut, fin);
+    }
+
+    @Test
+    void mouvement_streamPourExport_shouldNeLireQueLesPartitionsDeLaPeriode() throws Exception {
+        LocalDateTime debut = LocalDateTime.of(2021, 3, 1, 0, 0);
+        LocalDateTime fin = LocalDateTime.of(2021, 5, 1, 0, 0);
+        String sql = capturer(() -> mouvementStockRepository.streamPourExport(42L, TypeMouvement.ENTREE, debut, fin));
+
+        String plan = jdbcTemplate.queryForObject("EXPLAIN (FORMAT JSON) " + sql, String.class,
+                42L, "ENTREE", debut, fin);
+        Set<String> relations = new TreeSet<>();
+        collecterRelations(objectMapper.readTree(plan).get(0).get("Plan"), relations);
+        assertThat(relations).as(plan)
+                .contains("mouvement_stock_2021_03", "mouvement_stock_2021_04")
+                .noneMatch(relation -> relation.matches("mouvement_stock_(2020_\\d{2}|2021_(0[1256789]|1\\d)|defaut)"));
+    }
+
+    @Test
+    void mouvement_streamARejouer() {
+        LocalDateTime fin = LocalDateTime.of(2021, 9, 1, 0, 0);
+        verifierSansParcoursSequentiel(() -> mouvementStockRepository.streamARejouer(42L, fin), 42L, 42L, fin, fin, fin);
+    }
+
+    @Test
+    void mouvement_streamJournalPlage() {
+        verifierSansParcoursSequentiel(() -> mouvementStockRepository.streamJournalPlage(100L, 120L), 100L, 120L);
+    }
+
+    @Test
+    void instantane_findFirstByProduitIdAndDateInstantaneLessThan() {
+        LocalDateTime fin = LocalDateTime.of(2021, 9, 1, 0, 0);
+        verifierSansParcoursSequentiel(() -> instantaneStockRepository
+                .findFirstByProduitIdAndDateInstantaneLessThanOrderByDateInstantaneDesc(42L, fin), 42L, fin, 1);
+    }
+
+    private void verifierRecherche(RechercheCommandeDTO recherche, Object... parametres) {
+        verifierSansParcoursSequentiel(() -> commandeFournisseurRepository.rechercher(
+                CommandeFournisseurSpecifications.criteres(recherche), premiereTranche()), parametres);
+    }
+
+    private static PageRequest premiereTranche() {
+        return PageRequest.of(0, 50, Sort.by(Sort.Direction.DESC, "dateCommande", "id"));
+    }
+
+    // Paramètres dans l'ordre des marqueurs du SQL généré (un paramètre nommé répété est lié à chaque occurrence)
+    private void verifierSansParcoursSequentiel(Runnable requete, Object... parametres) {
+        String sql = capturer(requete);
+        assertThat(sql.chars().filter(c -> c == '?').count()).as(sql).isEqualTo(parametres.length);
+
+        String plan = jdbcTemplate.queryForObject("EXPLAIN (FORMAT JSON) " + sql, String.class, parametres);
+        List<String> parcours = new ArrayList<>();
+        try {
+            collecterParcoursSequentiels(objectMapper.readTree(plan).get(0).get("Plan"), parcours);
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+        assertThat(parcours).as("%s%n%s", sql, plan).isEmpty();
+    }
+
+    // Une partition (commande_fournisseur_2021, mouvement_stock_2021_03, ligne_commande_defaut) compte pour sa table
+    private void collecterParcoursSequentiels(JsonNode noeud, List<String> parcours) {
+        String relation = noeud.path("Relation Name").asText().replaceFirst("_(\\d{4}(_\\d{2})?|defaut)$", "");
+        if ("Seq Scan".equals(noeud.path("Node Type").asText()) && TABLES_VOLUMINEUSES.contains(relation)) {
+            parcours.add(noeud.path("Relation Name").asText());
+        }
+        noeud.path("Plans").forEach(enfant -> collecterParcoursSequentiels(enfant, parcours));
+    }
+
+    private void collecterRelations(JsonNode noeud, Set<String> relations) {
+        if (noeud.hasNonNull("Relation Name")) {
+            relations.add(noeud.get("Relation Name").asText());
+        }
+        noeud.path("Plans").forEach(enfant -> collecterRelations(enfant, relations));
+    }
+
+    private String capturer(Runnable requete) {
+        InspecteurCapture.ACTIF.set(true);
+        try {
+            transactionTemplate.executeWithoutResult(status -> requete.run());
+        } catch (RuntimeException ex) {
+            for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+                if (cause instanceof RequeteCapturee capturee) {
+                    return capturee.sql;
+                }
+            }
+            throw ex;
+        } finally {
+            InspecteurCapture.ACTIF.remove();
+        }
+        return fail("Aucune requête SQL émise");
+    }
+
+    // Interrompt la première requête émise pendant une capture, avant tout accès à la base
+    public static class InspecteurCapture implements StatementInspector {
+
+        static final ThreadLocal<Boolean> ACTIF = new ThreadLocal<>();
+
+        @Override
+        public String inspect(String sql) {
+            if (Boolean.TRUE.equals(ACTIF.get())) {
+                throw new RequeteCapturee(sql);
+            }
+            return sql;
+        }
+    }
+
+    private static class RequeteCapturee extends RuntimeException {
+
+        private final String sql;
+
+        RequeteCapturee(String sql) {
+            super(sql, null, false, false);
+            this.sql = sql;
+        }
+    }
+}
@@ -1,8 +1,14 @@
 package com.example.gestion_approvisionnements.integration;
 
+import com.example.gestion_approvisionnements.dto.MouvementStockDTO;
 import com.example.gestion_approvisionnements.dto.ProduitDTO;
 import com.example.gestion_approvisionnements.entity.Produit;
+import com.example.gestion_approvisionnements.enums.TypeMouvement;
+import com.example.gestion_approvisionnements.repository.InstantaneStockRepository;
+import com.example.gestion_approvisionnements.repository.MouvementStockRepository;
 import com.example.gestion_approvisionnements.repository.ProduitRepository;
+import com.example.gestion_approvisionnements.service.InstantaneStockService;
+import com.example.gestion_approvisionnements.service.MouvementStockService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,6 +16,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -20,11 +28,25 @@ class ProduitControllerIntegrationTest extends AbstractIntegrationTest {
     @Autowired
     private ProduitRepository produitRepository;
 
+    @Autowired
+    private MouvementStockRepository mouvementStockRepository;
+
+    @Autowired
+    private InstantaneStockRepository instantaneStockRepository;
+
+    @Autowired
+    private MouvementStockService mouvementStockService;
+
+    @Autowired
+    private InstantaneStockService instantaneStockService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
     @BeforeEach
     void setUp() {
+        instantaneStockRepository.deleteAll();
+        mouvementStockRepository.deleteAll();
         produitRepository.deleteAll();
     }
 
@@ -122,6 +144,30 @@ class ProduitControllerIntegrationTest extends AbstractIntegrationTest {
         assertThat(reloaded.getStockActuel()).isEqualTo(15); // 10 + 5
     }
 
+    @Test
+    void getProduitById_apresMouvementEtCorrection_shouldRelireLesValeursAJour() throws Exception {
+        Produit saved = produitRepository.save(buildProduit("Prod cache", "Desc", BigDecimal.valueOf(10)));
+        mockMvc.perform(get("/api/produits/{id}", saved.getId()))
+                .andExpect(jsonPath("$.stockActuel").value(10));
+
+        enregistrer(saved.getId(), TypeMouvement.SORTIE, 4, null, null);
+        mockMvc.perform(get("/api/produits/{id}", saved.getId()))
+                .andExpect(jsonPath("$.stockActuel").value(6));
+
+        mockMvc.perform(patch("/api/produits/{id}/cump", saved.getId()).param("valeur", "12.00"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/produits/{id}", saved.getId()))
+                .andExpect(jsonPath("$.coutMoyenPondere").value(12.00));
+
+        Produit sansMouvement = produitRepository.save(buildProduit("Prod supprimé", "Desc", BigDecimal.ONE));
+        mockMvc.perform(get("/api/produits/{id}", sansMouvement.getId()))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/api/produits/{id}", sansMouvement.getId()))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(get("/api/produits/{id}", sansMouvement.getId()))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void mettreAJourCump_shouldUpdateCump() throws Exception {
         Produit saved = produitRepository.save(buildProduit("Prod cump", "Desc", BigDecimal.valueOf(10)));
@@ -173,6 +219,127 @@ class ProduitControllerIntegrationTest extends AbstractIntegrationTest {
         assertThat(produitRepository.existsById(saved.getId())).isFalse();
     }
 
+    @Test
+    void getStockALaDate_sansInstantane_shouldRejouerDepuisZero() throws Exception {
+        Produit saved = produitRepository.save(buildProduitVide("Vis"));
+        enregistrer(saved.getId(), TypeMouvement.ENTREE, 10, BigDecimal.valueOf(1.00), LocalDateTime.of(2025, 1, 10, 8, 0));
+        enregistrer(saved.getId(), TypeMouvement.ENTREE, 10, BigDecimal.valueOf(2.00), LocalDateTime.of(2025, 1, 15, 8, 0));
+        enregistrer(saved.getId(), TypeMouvement.SORTIE, 4, null, LocalDateTime.of(2025, 1, 20, 8, 0));
+
+        mockMvc.perform(get("/api/produits/{id}/stock", saved.getId()).param("date", "2025-01-15"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stock").value(20))
+                .andExpect(jsonPath("$.coutMoyenPondere").value(1.50))
+                .andExpect(jsonPath("$.dateInstantane").isEmpty())
+                .andExpect(jsonPath("$.mouvementsRejoues").value(2));
+    }
+
+    @Test
+    void getStockALaDate_produitCreeAvecDuStock_shouldRejouerDepuisSonOuverture() throws Exception {
+        ProduitDTO dto = new ProduitDTO(null, "Cheville", null, BigDecimal.valueOf(5.00), "Quincaillerie", 20,
+                BigDecimal.valueOf(5.00));
+        Long id = objectMapper.readTree(mockMvc.perform(post("/api/produits")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(dto)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString()).get("id").asLong();
+        enregistrer(id, TypeMouvement.ENTREE, 10, BigDecimal.valueOf(2.00), null);
+        enregistrer(id, TypeMouvement.SORTIE, 6, null, null);
+
+        mockMvc.perform(get("/api/produits/{id}/stock", id).param("date", LocalDate.now().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stock").value(24))
+                // (5.00 * 20 + 2.00 * 10) / 30
+                .andExpect(jsonPath("$.coutMoyenPondere").value(4.00))
+                .andExpect(jsonPath("$.mouvementsRejoues").value(2));
+        // Veille de la création : le produit n'existait pas
+        mockMvc.perform(get("/api/produits/{id}/stock", id).param("date", LocalDate.now().minusDays(1).toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stock").value(0))
+                .andExpect(jsonPath("$.mouvementsRejoues").value(0));
+    }
+
+    @Test
+    void getStockALaDate_shouldPartirDuDernierInstantaneEtRejouerLaSuite() throws Exception {
+        Produit saved = produitRepository.save(buildProduitVide("Écrou"));
+        enregistrer(saved.getId(), TypeMouvement.ENTREE, 10, BigDecimal.valueOf(1.00), LocalDateTime.of(2025, 1, 10, 8, 0));
+        enregistrer(saved.getId(), TypeMouvement.SORTIE, 4, null, LocalDateTime.of(2025, 1, 20, 8, 0));
+        assertThat(instantaneStockService.creerInstantanes()).isEqualTo(1);
+
+        // Saisie tardive, datée avant l'instantané mais créée après lui : elle doit être rejouée
+        enregistrer(saved.getId(), TypeMouvement.SORTIE, 2, null, LocalDateTime.of(2025, 1, 25, 8, 0));
+        enregistrer(saved.getId(), TypeMouvement.ENTREE, 4, BigDecimal.valueOf(2.50), null);
+
+        mockMvc.perform(get("/api/produits/{id}/stock", saved.getId()).param("date", LocalDate.now().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stock").value(8))
+                // (1.00 * 4 + 2.50 * 4) / 8
+                .andExpect(jsonPath("$.coutMoyenPondere").value(1.75))
+                .andExpect(jsonPath("$.dateInstantane").isNotEmpty())
+                .andExpect(jsonPath("$.mouvementsRejoues").value(2));
+
+        assertThat(produitRepository.findById(saved.getId()).orElseThrow().getStockActuel()).isEqualTo(8);
+    }
+
+    @Test
+    void getStockALaDate_whenProduitMissing_shouldReturn404() throws Exception {
+        mockMvc.perform(get("/api/produits/{id}/stock", 999L).param("date", "2025-01-15"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("Produit introuvable avec l'id 999"));
+    }
+
+    @Test
+    void getStocksALaDate_shouldRetournerTousLesProduitsParId() throws Exception {
+        Produit vis = produitRepository.save(buildProduitVide("Vis"));
+        Produit ecrou = produitRepository.save(buildProduitVide("Écrou"));
+        Produit rondelle = produitRepository.save(buildProduitVide("Rondelle"));
+        enregistrer(vis.getId(), TypeMouvement.ENTREE, 10, BigDecimal.ONE, LocalDateTime.of(2025, 1, 10, 8, 0));
+        enregistrer(ecrou.getId(), TypeMouvement.AJUSTEMENT, 7, null, LocalDateTime.of(2025, 1, 12, 8, 0));
+        instantaneStockService.creerInstantanes();
+        enregistrer(vis.getId(), TypeMouvement.SORTIE, 3, null, LocalDateTime.of(2025, 2, 1, 8, 0));
+
+        mockMvc.perform(get("/api/produits/stock").param("date", LocalDate.now().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].produitId").value(vis.getId()))
+                .andExpect(jsonPath("$[0].stock").value(7))
+                .andExpect(jsonPath("$[0].mouvementsRejoues").value(1))
+                .andExpect(jsonPath("$[1].stock").value(7))
+                .andExpect(jsonPath("$[1].mouvementsRejoues").value(0))
+                .andExpect(jsonPath("$[2].produitId").value(rondelle.getId()))
+                .andExpect(jsonPath("$[2].stock").value(0));
+    }
+
+    @Test
+    void creerInstantanes_shouldNeReprendreQueLesProduitsMouvementes() {
+        Produit vis = produitRepository.save(buildProduitVide("Vis"));
+        produitRepository.save(buildProduitVide("Écrou"));
+        assertThat(instantaneStockService.creerInstantanes()).isEqualTo(2);
+        assertThat(instantaneStockService.creerInstantanes()).isZero();
+
+        enregistrer(vis.getId(), TypeMouvement.ENTREE, 5, BigDecimal.ONE, null);
+
+        assertThat(instantaneStockService.creerInstantanes()).isEqualTo(1);
+        assertThat(instantaneStockRepository.count()).isEqualTo(3);
+    }
+
+    private void enregistrer(Long produitId, TypeMouvement type, int quantite, BigDecimal prix, LocalDateTime date) {
+        MouvementStockDTO dto = new MouvementStockDTO();
+        dto.setProduitId(produitId);
+        dto.setTypeMouvement(type);
+        dto.setQuantite(quantite);
+        dto.setPrixUnitaire(prix);
+        dto.setDateMouvement(date);
+        mouvementStockService.enregistrerMouvement(dto);
+    }
+
+    private Produit buildProduitVide(String nom) {
+        Produit p = buildProduit(nom, "Desc", BigDecimal.valueOf(2.00));
+        p.setStockActuel(0);
+        p.setCoutMoyenPondere(BigDecimal.ZERO);
+        return p;
+    }
+
     private Produit buildProduit(String nom, String description, BigDecimal prix) {
         Produit p = new Produit();
         p.setNom(nom);
@@ -0,0 +1,207 @@
+package com.example.gestion_approvisionnements.integration;
+
+import com.example.gestion_approvisionnements.dto.MouvementStockDTO;
+import com.example.gestion_approvisionnements.dto.ProduitDTO;
+import com.example.gestion_approvisionnements.dto.VerificationStockDTO;
+import com.example.gestion_approvisionnements.entity.Produit;
+import com.example.gestion_approvisionnements.enums.EtatVerification;
+import com.example.gestion_approvisionnements.enums.TypeMouvement;
+import com.example.gestion_approvisionnements.repository.MouvementStockRepository;
+import com.example.gestion_approvisionnements.repository.ProduitRepository;
+import com.example.gestion_approvisionnements.service.MouvementStockService;
+import com.example.gestion_approvisionnements.service.VerificationStockService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Plages de deux produits : la vérification de cinq produits passe par plusieurs tâches fork-join
+@TestPropertySource(properties = "stock.verification.taille-plage=2")
+class VerificationStockIntegrationTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private VerificationStockService verificationStockService;
+
+    @Autowired
+    private MouvementStockService mouvementStockService;
+
+    @Autowired
+    private MouvementStockRepository mouvementStockRepository;
+
+    @Autowired
+    private ProduitRepository produitRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private List<Produit> produits;
+
+    @BeforeEach
+    void setUp() {
+        mouvementStockRepository.deleteAll();
+        produitRepository.deleteAll();
+
+        produits = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Produit p = new Produit();
+            p.setNom("Produit " + i);
+            p.setPrixUnitaire(BigDecimal.valueOf(4.00));
+            p.setCategorie("TEST");
+            p.setStockActuel(0);
+            p.setCoutMoyenPondere(BigDecimal.ZERO);
+            produits.add(produitRepository.save(p));
+        }
+        for (Produit produit : produits) {
+            enregistrer(produit.getId(), TypeMouvement.ENTREE, 10, BigDecimal.valueOf(2.00));
+            enregistrer(produit.getId(), TypeMouvement.ENTREE, 10, null);
+            enregistrer(produit.getId(), TypeMouvement.SORTIE, 5, null);
+        }
+    }
+
+    @Test
+    void verifier_quandJournalCoherent_shouldNeSignalerAucunEcart() {
+        VerificationStockDTO result = verificationStockService.verifier(false);
+
+        assertThat(result.getEtat()).isEqualTo(EtatVerification.TERMINEE);
+        assertThat(result.getProduitsTotal()).isEqualTo(5);
+        assertThat(result.getProduitsVerifies()).isEqualTo(5);
+        assertThat(result.getMouvementsRejoues()).isEqualTo(15);
+        assertThat(result.getNombreEcarts()).isZero();
+    }
+
+    @Test
+    void verifier_shouldSignalerLesDerivesHorsJournalSansLesCorriger() throws Exception {
+        // Journal de chaque produit : 15 en stock, CUMP (2.00 * 10 + 4.00 * 10) / 20 = 3.00
+        modifier(produits.get(1), 18, BigDecimal.valueOf(3.00), BigDecimal.valueOf(4.00));
+        mockMvc.perform(patch("/api/produits/{id}/cump", produits.get(3).getId()).param("valeur", "9.99"))
+                .andExpect(status().isOk());
+        // Le prix catalogue change : les entrées sans prix gardent celui retenu à leur enregistrement
+        modifier(produits.get(4), 15, BigDecimal.valueOf(3.00), BigDecimal.valueOf(100.00));
+        // Un ajustement par PATCH passe par le journal : pas d'écart
+        mockMvc.perform(patch("/api/produits/{id}/stock", produits.get(0).getId()).param("variation", "3"))
+                .andExpect(status().isOk());
+
+        VerificationStockDTO result = verificationStockService.verifier(false);
+
+        assertThat(result.getNombreEcarts()).isEqualTo(2);
+        assertThat(result.getEcarts().get(0).getProduitId()).isEqualTo(produits.get(1).getId());
+        assertThat(result.getEcarts().get(0).getStockEnregistre()).isEqualTo(18);
+        assertThat(result.getEcarts().get(0).getStockJournal()).isEqualTo(15);
+        assertThat(result.getEcarts().get(1).getCoutMoyenPondereEnregistre()).isEqualByComparingTo("9.99");
+        assertThat(result.getEcarts().get(1).getCoutMoyenPondereJournal()).isEqualByComparingTo("3.00");
+        assertThat(produitRepository.findById(produits.get(1).getId()).orElseThrow().getStockActuel()).isEqualTo(18);
+    }
+
+    @Test
+    void verifier_enReparation_shouldReecrireLesValeursDuJournal() throws Exception {
+        modifier(produits.get(0), 11, BigDecimal.valueOf(3.00), BigDecimal.valueOf(4.00));
+        mockMvc.perform(patch("/api/produits/{id}/cump", produits.get(2).getId()).param("valeur", "0.50"))
+                .andExpect(status().isOk());
+
+        VerificationStockDTO reparation = verificationStockService.verifier(true);
+        VerificationStockDTO controle = verificationStockService.verifier(false);
+
+        assertThat(reparation.getNombreEcarts()).isEqualTo(2);
+        assertThat(controle.getNombreEcarts()).isZero();
+        Produit produit0 = produitRepository.findById(produits.get(0).getId()).orElseThrow();
+        Produit produit2 = produitRepository.findById(produits.get(2).getId()).orElseThrow();
+        assertThat(produit0.getStockActuel()).isEqualTo(15);
+        assertThat(produit2.getCoutMoyenPondere()).isEqualByComparingTo("3.00");
+    }
+
+    @Test
+    void verifier_enReparation_produitCreeAvecDuStock_shouldRejouerDepuisSonOuverture() throws Exception {
+        // 20 unités à 5.00 à la création, hors journal ; puis 10 à 2.00 et 6 sorties
+        ProduitDTO dto = new ProduitDTO(null, "Produit ouvert", null, BigDecimal.valueOf(5.00), "TEST", 20,
+                BigDecimal.valueOf(5.00));
+        Long id = objectMapper.readTree(mockMvc.perform(post("/api/produits")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(dto)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString()).get("id").asLong();
+        enregistrer(id, TypeMouvement.ENTREE, 10, BigDecimal.valueOf(2.00));
+        enregistrer(id, TypeMouvement.SORTIE, 6, null);
+
+        VerificationStockDTO reparation = verificationStockService.verifier(true);
+
+        assertThat(reparation.getNombreEcarts()).isZero();
+        Produit produit = produitRepository.findById(id).orElseThrow();
+        assertThat(produit.getStockActuel()).isEqualTo(24);
+        assertThat(produit.getCoutMoyenPondere()).isEqualByComparingTo("4.00");
+    }
+
+    @Test
+    void verifier_enReparation_ouvertureInconnue_shouldSignalerSansReecrire() {
+        // Produit mouvementé avant l'enregistrement des soldes d'ouverture (changelog 018)
+        jdbcTemplate.update("UPDATE produit SET stock_ouverture = NULL, cout_moyen_pondere_ouverture = NULL, "
+                + "stock_actuel = 40 WHERE id = ?", produits.get(1).getId());
+
+        VerificationStockDTO reparation = verificationStockService.verifier(true);
+
+        assertThat(reparation.getNombreEcarts()).isEqualTo(1);
+        assertThat(reparation.getEcarts().get(0).isOuvertureConnue()).isFalse();
+        assertThat(reparation.getEcarts().get(0).getStockJournal()).isEqualTo(15);
+        assertThat(jdbcTemplate.queryForObject("SELECT stock_actuel FROM produit WHERE id = ?", Integer.class,
+                produits.get(1).getId())).isEqualTo(40);
+    }
+
+    @Test
+    void lancerVerification_shouldRepondre202EtExposerLAvancement() throws Exception {
+        JsonNode lancement = objectMapper.readTree(mockMvc.perform(post("/api/stock/verifications"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.reparation").value(false))
+                .andReturn().getResponse().getContentAsString());
+        long id = lancement.get("id").asLong();
+
+        JsonNode etat;
+        long limite = System.currentTimeMillis() + 30_000;
+        do {
+            etat = objectMapper.readTree(mockMvc.perform(get("/api/stock/verifications/{id}", id))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString());
+        } while ("EN_COURS".equals(etat.get("etat").asText()) && System.currentTimeMillis() < limite);
+
+        assertThat(etat.get("etat").asText()).isEqualTo("TERMINEE");
+        assertThat(etat.get("produitsVerifies").asLong()).isEqualTo(5);
+        assertThat(etat.get("nombreEcarts").asLong()).isZero();
+    }
+
+    @Test
+    void getVerification_whenMissing_shouldReturn404() throws Exception {
+        mockMvc.perform(get("/api/stock/verifications/{id}", 999L))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("Vérification introuvable avec l'id 999"));
+    }
+
+    private void modifier(Produit produit, int stock, BigDecimal cump, BigDecimal prix) throws Exception {
+        ProduitDTO dto = new ProduitDTO(produit.getId(), produit.getNom(), null, prix, "TEST", stock, cump);
+        mockMvc.perform(put("/api/produits/{id}", produit.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(dto)))
+                .andExpect(status().isOk());
+    }
+
+    private void enregistrer(Long produitId, TypeMouvement type, int quantite, BigDecimal prix) {
+        MouvementStockDTO dto = new MouvementStockDTO();
+        dto.setProduitId(produitId);
+        dto.setTypeMouvement(type);
+        dto.setQuantite(quantite);
+        dto.setPrixUnitaire(prix);
+        mouvementStockService.enregistrerMouvement(dto);
+    }
+}
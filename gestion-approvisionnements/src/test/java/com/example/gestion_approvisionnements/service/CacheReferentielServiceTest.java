@@ -0,0 +1,208 @@
+package com.example.gestion_approvisionnements.service;
+
+import com.example.gestion_approvisionnements.dto.FournisseurDTO;
+import com.example.gestion_approvisionnements.dto.ProduitDTO;
+import com.example.gestion_approvisionnements.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+class CacheReferentielServiceTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private DiffusionInvalidationService diffusionInvalidationService;
+    private CacheReferentielService cacheReferentielService;
+    private AtomicInteger chargements;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        diffusionInvalidationService = mock(DiffusionInvalidationService.class);
+        cacheReferentielService = creer(true);
+        chargements = new AtomicInteger();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void produit_deuxLectures_shouldChargerUneSeuleFois() {
+        // Act
+        RessourceVersionnee<ProduitDTO> premiere = cacheReferentielService.produit(1L, chargementProduit());
+        RessourceVersionnee<ProduitDTO> seconde = cacheReferentielService.produit(1L, chargementProduit());
+
+        // Assert
+        assertThat(seconde).isSameAs(premiere);
+        assertThat(chargements.get()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "produits").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("referentiel.cache.taux.succes").tag("cache", "produits").gauge().value())
+                .isEqualTo(0.5);
+    }
+
+    @Test
+    void produit_introuvable_shouldNePasMettreEnCache() {
+        // Arrange
+        Function<Long, RessourceVersionnee<ProduitDTO>> introuvable = id -> {
+            chargements.incrementAndGet();
+            throw new ResourceNotFoundException("Produit introuvable avec l'id " + id);
+        };
+
+        // Act & Assert
+        assertThatThrownBy(() -> cacheReferentielService.produit(1L, introuvable))
+                .isInstanceOf(ResourceNotFoundException.class);
+        assertThatThrownBy(() -> cacheReferentielService.produit(1L, introuvable))
+                .isInstanceOf(ResourceNotFoundException.class);
+        assertThat(chargements.get()).isEqualTo(2);
+    }
+
+    @Test
+    void invaliderProduits_shouldRechargerAuProchainAcces() {
+        // Arrange
+        cacheReferentielService.produit(1L, chargementProduit());
+        cacheReferentielService.produit(2L, chargementProduit());
+
+        // Act
+        cacheReferentielService.invaliderProduits(List.of(1L));
+        cacheReferentielService.produit(1L, chargementProduit());
+        cacheReferentielService.produit(2L, chargementProduit());
+
+        // Assert
+        assertThat(chargements.get()).isEqualTo(3);
+        verify(diffusionInvalidationService).publierProduits(List.of(1L));
+    }
+
+    @Test
+    void invaliderProduit_dansUneTransaction_shouldInvaliderANouveauApresLaFin() {
+        // Arrange
+        TransactionSynchronizationManager.initSynchronization();
+        cacheReferentielService.produit(1L, chargementProduit());
+
+        // Act : une lecture concurrente remet l'état d'avant le commit entre l'écriture et le commit
+        cacheReferentielService.invaliderProduit(1L);
+        cacheReferentielService.produit(1L, chargementProduit());
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronisation -> synchronisation.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        cacheReferentielService.produit(1L, chargementProduit());
+
+        // Assert
+        assertThat(chargements.get()).isEqualTo(3);
+    }
+
+    @Test
+    void invaliderStocks_shouldRetirerLocalementEtDiffuserEnRegroupe() {
+        // Arrange
+        cacheReferentielService.produit(1L, chargementProduit());
+        cacheReferentielService.produit(2L, chargementProduit());
+
+        // Act
+        cacheReferentielService.invaliderStocks(List.of(1L));
+        cacheReferentielService.produit(1L, chargementProduit());
+        cacheReferentielService.produit(2L, chargementProduit());
+
+        // Assert
+        assertThat(chargements.get()).isEqualTo(3);
+        verify(diffusionInvalidationService).publierStocks(List.of(1L));
+        verifyNoMoreInteractions(diffusionInvalidationService);
+    }
+
+    @Test
+    void invaliderFournisseur_shouldRetirerSonEntreeEtDiffuser() {
+        // Arrange
+        cacheReferentielService.fournisseur(3L, id -> versionne(fournisseur(id, "ICE3")));
+        cacheReferentielService.fournisseur(4L, id -> versionne(fournisseur(id, "ICE4")));
+
+        // Act
+        cacheReferentielService.invaliderFournisseur(3L);
+
+        // Assert
+        assertThat(cacheReferentielService.fournisseur(3L, id -> versionne(fournisseur(id, "ICE33"))).contenu().getIce())
+                .isEqualTo("ICE33");
+        assertThat(cacheReferentielService.fournisseur(4L, id -> versionne(fournisseur(id, "ICE44"))).contenu().getIce())
+                .isEqualTo("ICE4");
+        verify(diffusionInvalidationService).publierFournisseurs(List.of(3L));
+    }
+
+    @Test
+    void evincer_shouldRetirerLocalementSansDiffuser() {
+        // Arrange
+        cacheReferentielService.produit(1L, chargementProduit());
+        cacheReferentielService.fournisseur(3L, id -> versionne(fournisseur(id, "ICE3")));
+
+        // Act
+        cacheReferentielService.evincerProduits(List.of(1L));
+        cacheReferentielService.evincerFournisseurs(List.of(3L));
+        cacheReferentielService.produit(1L, chargementProduit());
+
+        // Assert
+        assertThat(chargements.get()).isEqualTo(2);
+        assertThat(cacheReferentielService.fournisseur(3L, id -> versionne(fournisseur(id, "ICE33"))).contenu().getIce())
+                .isEqualTo("ICE33");
+        verifyNoInteractions(diffusionInvalidationService);
+    }
+
+    @Test
+    void cacheDesactive_shouldChargerAChaqueLecture() {
+        // Arrange
+        CacheReferentielService sansCache = creer(false);
+
+        // Act
+        sansCache.produit(1L, chargementProduit());
+        sansCache.produit(1L, chargementProduit());
+        sansCache.invaliderProduit(1L);
+
+        // Assert : la diffusion reste utile au cache de second niveau des autres instances
+        assertThat(chargements.get()).isEqualTo(2);
+        verify(diffusionInvalidationService).publierProduits(List.of(1L));
+    }
+
+    private CacheReferentielService creer(boolean actif) {
+        CacheReferentielService service = new CacheReferentielService(meterRegistry, diffusionInvalidationService);
+        ReflectionTestUtils.setField(service, "actif", actif);
+        ReflectionTestUtils.setField(service, "tailleMax", 100L);
+        ReflectionTestUtils.setField(service, "ttlSecondes", 60L);
+        if (actif) {
+            service.initialiser();
+        }
+        return service;
+    }
+
+    private Function<Long, RessourceVersionnee<ProduitDTO>> chargementProduit() {
+        return id -> {
+            chargements.incrementAndGet();
+            ProduitDTO produit = new ProduitDTO();
+            produit.setId(id);
+            return versionne(produit);
+        };
+    }
+
+    private static <T> RessourceVersionnee<T> versionne(T contenu) {
+        return new RessourceVersionnee<>(contenu, new VersionRessource("etag", null));
+    }
+
+    private static FournisseurDTO fournisseur(Long id, String ice) {
+        FournisseurDTO fournisseur = new FournisseurDTO();
+        fournisseur.setId(id);
+        fournisseur.setIce(ice);
+        return fournisseur;
+    }
+}
@@ -1,7 +1,10 @@
 package com.example.gestion_approvisionnements.service;
 
 import com.example.gestion_approvisionnements.dto.CommandeFournisseurDTO;
+import com.example.gestion_approvisionnements.dto.CommandeResultatDTO;
 import com.example.gestion_approvisionnements.dto.LigneCommandeDTO;
+import com.example.gestion_approvisionnements.dto.LotCommandesResultatDTO;
+import com.example.gestion_approvisionnements.dto.RechercheCommandeDTO;
 import com.example.gestion_approvisionnements.entity.CommandeFournisseur;
 import com.example.gestion_approvisionnements.entity.Fournisseur;
 import com.example.gestion_approvisionnements.entity.LigneCommande;
@@ -23,11 +26,16 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -47,6 +55,10 @@ class CommandeFournisseurServiceTest {
     private CommandeFournisseurMapper commandeFournisseurMapper;
     @Mock
     private LigneCommandeMapper ligneCommandeMapper;
+    @Mock
+    private CommandeSummaryService commandeSummaryService;
+    @Mock
+    private DepenseService depenseService;
 
     @InjectMocks
     private CommandeFournisseurService commandeFournisseurService;
@@ -57,6 +69,8 @@ class CommandeFournisseurServiceTest {
 
     @BeforeEach
     void setUp() {
+        ReflectionTestUtils.setField(commandeFournisseurService, "tailleMaxLot", 1000);
+
         // Setup Fournisseur
         fournisseur = new Fournisseur();
         fournisseur.setId(1L);
@@ -106,17 +120,100 @@ class CommandeFournisseurServiceTest {
         // Assert
         assertThat(result.getContent()).containsExactly(expectedDto);
         verify(commandeFournisseurRepository).findAll(pageable);
+        verify(commandeFournisseurRepository).chargerLignes(List.of(1L));
         verify(commandeFournisseurMapper).toDTO(entity);
         verifyNoMoreInteractions(commandeFournisseurRepository, commandeFournisseurMapper);
     }
 
+    @Test
+    void getAllCommandes_whenPageEmpty_shouldNotLoadLignes() {
+        // Arrange
+        PageRequest pageable = PageRequest.of(3, 10);
+        when(commandeFournisseurRepository.findAll(pageable)).thenReturn(Page.empty(pageable));
+
+        // Act
+        Page<CommandeFournisseurDTO> result = commandeFournisseurService.getAllCommandes(pageable);
+
+        // Assert
+        assertThat(result.getContent()).isEmpty();
+        verify(commandeFournisseurRepository).findAll(pageable);
+        verifyNoMoreInteractions(commandeFournisseurRepository);
+        verifyNoInteractions(commandeFournisseurMapper);
+    }
+
+    @Test
+    void rechercherCommandes_shouldImposerLeTriStableEtChargerLesLignesDeLaTranche() {
+        // Arrange
+        RechercheCommandeDTO recherche = new RechercheCommandeDTO(StatutCommande.EN_ATTENTE, 1L, 7L,
+                LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31), BigDecimal.ONE, BigDecimal.TEN);
+        PageRequest trie = PageRequest.of(2, 20, Sort.by(Sort.Direction.ASC, "dateCommande", "id"));
+        CommandeFournisseur entity = buildCommandeEntity(1L);
+        CommandeFournisseurDTO expectedDto = buildCommandeDTO(1L);
+
+        when(commandeFournisseurRepository.rechercher(any(), eq(trie)))
+                .thenReturn(new SliceImpl<>(List.of(entity), trie, true));
+        when(commandeFournisseurMapper.toDTO(entity)).thenReturn(expectedDto);
+
+        // Act
+        Slice<CommandeFournisseurDTO> result = commandeFournisseurService.rechercherCommandes(recherche,
+                PageRequest.of(2, 20, Sort.by(Sort.Direction.ASC, "dateCommande")));
+
+        // Assert
+        assertThat(result.getContent()).containsExactly(expectedDto);
+        assertThat(result.hasNext()).isTrue();
+        verify(commandeFournisseurRepository).rechercher(any(), eq(trie));
+        verify(commandeFournisseurRepository).chargerLignes(List.of(1L));
+        verifyNoMoreInteractions(commandeFournisseurRepository);
+    }
+
+    @Test
+    void rechercherCommandes_sansTri_shouldTrierParDateDecroissante() {
+        // Arrange
+        PageRequest trie = PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "dateCommande", "id"));
+        when(commandeFournisseurRepository.rechercher(any(), eq(trie))).thenReturn(new SliceImpl<>(List.of(), trie, false));
+
+        // Act
+        Slice<CommandeFournisseurDTO> result = commandeFournisseurService.rechercherCommandes(new RechercheCommandeDTO(),
+                PageRequest.of(0, 10));
+
+        // Assert
+        assertThat(result.getContent()).isEmpty();
+        verify(commandeFournisseurRepository).rechercher(any(), eq(trie));
+        verifyNoMoreInteractions(commandeFournisseurRepository);
+        verifyNoInteractions(commandeFournisseurMapper);
+    }
+
+    @Test
+    void rechercherCommandes_quandCriteresInvalides_shouldThrowBusinessException() {
+        // Arrange
+        RechercheCommandeDTO periodeInversee = new RechercheCommandeDTO();
+        periodeInversee.setDebut(LocalDate.of(2025, 2, 1));
+        periodeInversee.setFin(LocalDate.of(2025, 1, 1));
+        RechercheCommandeDTO montantsInverses = new RechercheCommandeDTO();
+        montantsInverses.setMontantMin(BigDecimal.TEN);
+        montantsInverses.setMontantMax(BigDecimal.ONE);
+
+        // Act & Assert
+        assertThatThrownBy(() -> commandeFournisseurService.rechercherCommandes(periodeInversee, PageRequest.of(0, 10)))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("La date de fin doit être postérieure ou égale à la date de début");
+        assertThatThrownBy(() -> commandeFournisseurService.rechercherCommandes(montantsInverses, PageRequest.of(0, 10)))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Le montant maximum doit être supérieur ou égal au montant minimum");
+        assertThatThrownBy(() -> commandeFournisseurService.rechercherCommandes(new RechercheCommandeDTO(),
+                PageRequest.of(0, 10, Sort.by("montantTotal"))))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Tri non supporté : montantTotal (dateCommande ou id)");
+        verifyNoInteractions(commandeFournisseurRepository);
+    }
+
     @Test
     void getCommandeById_whenFound_shouldReturnDto() {
         // Arrange
         CommandeFournisseur entity = buildCommandeEntity(5L);
         CommandeFournisseurDTO expectedDto = buildCommandeDTO(5L);
 
-        when(commandeFournisseurRepository.findById(5L)).thenReturn(Optional.of(entity));
+        when(commandeFournisseurRepository.findDetailById(5L)).thenReturn(Optional.of(entity));
         when(commandeFournisseurMapper.toDTO(entity)).thenReturn(expectedDto);
 
         // Act
@@ -124,7 +221,7 @@ class CommandeFournisseurServiceTest {
 
         // Assert
         assertThat(result).isEqualTo(expectedDto);
-        verify(commandeFournisseurRepository).findById(5L);
+        verify(commandeFournisseurRepository).findDetailById(5L);
         verify(commandeFournisseurMapper).toDTO(entity);
         verifyNoMoreInteractions(commandeFournisseurRepository, commandeFournisseurMapper);
     }
@@ -132,13 +229,13 @@ class CommandeFournisseurServiceTest {
     @Test
     void getCommandeById_whenMissing_shouldThrowResourceNotFound() {
         // Arrange
-        when(commandeFournisseurRepository.findById(99L)).thenReturn(Optional.empty());
+        when(commandeFournisseurRepository.findDetailById(99L)).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThatThrownBy(() -> commandeFournisseurService.getCommandeById(99L))
                 .isInstanceOf(ResourceNotFoundException.class)
                 .hasMessageContaining("99");
-        verify(commandeFournisseurRepository).findById(99L);
+        verify(commandeFournisseurRepository).findDetailById(99L);
         verifyNoMoreInteractions(commandeFournisseurRepository);
         verifyNoInteractions(commandeFournisseurMapper);
     }
@@ -150,17 +247,10 @@ class CommandeFournisseurServiceTest {
         CommandeFournisseur savedEntity = buildCommandeEntity(10L);
         CommandeFournisseurDTO expectedDto = buildCommandeDTO(10L);
 
-        when(fournisseurRepository.findById(1L)).thenReturn(Optional.of(fournisseur));
+        when(fournisseurRepository.findAllById(Set.of(1L))).thenReturn(List.of(fournisseur));
+        when(produitRepository.findAllById(Set.of(1L, 2L))).thenReturn(List.of(produit1, produit2));
         when(commandeFournisseurMapper.toEntity(baseCommandeDTO)).thenReturn(entity);
-        when(produitRepository.findById(1L)).thenReturn(Optional.of(produit1));
-        when(produitRepository.findById(2L)).thenReturn(Optional.of(produit2));
-        when(ligneCommandeMapper.toEntity(any(LigneCommandeDTO.class))).thenAnswer(inv -> {
-            LigneCommandeDTO dto = inv.getArgument(0);
-            LigneCommande ligne = new LigneCommande();
-            ligne.setQuantite(dto.getQuantite());
-            ligne.setPrixUnitaire(dto.getPrixUnitaire());
-            return ligne;
-        });
+        mockLigneMapper();
         when(commandeFournisseurRepository.save(entity)).thenReturn(savedEntity);
         when(commandeFournisseurMapper.toDTO(savedEntity)).thenReturn(expectedDto);
 
@@ -169,29 +259,33 @@ class CommandeFournisseurServiceTest {
 
         // Assert
         assertThat(result).isEqualTo(expectedDto);
-        verify(fournisseurRepository).findById(1L);
+        assertThat(entity.getMontantTotal()).isEqualByComparingTo("65.0");
+        verify(fournisseurRepository).findAllById(Set.of(1L));
+        verify(produitRepository).findAllById(Set.of(1L, 2L));
         verify(commandeFournisseurMapper).toEntity(baseCommandeDTO);
-        verify(produitRepository).findById(1L);
-        verify(produitRepository).findById(2L);
         verify(ligneCommandeMapper, times(2)).toEntity(any(LigneCommandeDTO.class));
         verify(commandeFournisseurRepository).save(entity);
+        verify(commandeSummaryService).enregistrer(savedEntity);
+        verify(depenseService).enregistrer(savedEntity);
         verify(commandeFournisseurMapper).toDTO(savedEntity);
         verifyNoMoreInteractions(fournisseurRepository, commandeFournisseurMapper, produitRepository,
-                ligneCommandeMapper, commandeFournisseurRepository);
+                ligneCommandeMapper, commandeFournisseurRepository, commandeSummaryService, depenseService);
     }
 
     @Test
     void createCommande_whenFournisseurMissing_shouldThrowResourceNotFound() {
         // Arrange
-        when(fournisseurRepository.findById(1L)).thenReturn(Optional.empty());
+        when(fournisseurRepository.findAllById(Set.of(1L))).thenReturn(List.of());
+        when(produitRepository.findAllById(Set.of(1L, 2L))).thenReturn(List.of(produit1, produit2));
 
         // Act & Assert
         assertThatThrownBy(() -> commandeFournisseurService.createCommande(baseCommandeDTO))
                 .isInstanceOf(ResourceNotFoundException.class)
                 .hasMessageContaining("Fournisseur");
-        verify(fournisseurRepository).findById(1L);
-        verifyNoMoreInteractions(fournisseurRepository);
-        verifyNoInteractions(commandeFournisseurMapper, produitRepository, ligneCommandeMapper, commandeFournisseurRepository);
+        verify(fournisseurRepository).findAllById(Set.of(1L));
+        verify(produitRepository).findAllById(Set.of(1L, 2L));
+        verifyNoMoreInteractions(fournisseurRepository, produitRepository);
+        verifyNoInteractions(commandeFournisseurMapper, ligneCommandeMapper, commandeFournisseurRepository);
     }
 
     @Test
@@ -201,16 +295,17 @@ class CommandeFournisseurServiceTest {
                 null, LocalDate.now(), StatutCommande.EN_ATTENTE, BigDecimal.ZERO, 1L, "Fournisseur", null
         );
 
-        when(fournisseurRepository.findById(1L)).thenReturn(Optional.of(fournisseur));
+        when(fournisseurRepository.findAllById(Set.of(1L))).thenReturn(List.of(fournisseur));
         when(commandeFournisseurMapper.toEntity(dtoSansLignes)).thenReturn(new CommandeFournisseur());
 
         // Act & Assert
         assertThatThrownBy(() -> commandeFournisseurService.createCommande(dtoSansLignes))
                 .isInstanceOf(BusinessException.class)
                 .hasMessageContaining("au moins une ligne");
-        verify(fournisseurRepository).findById(1L);
+        verify(fournisseurRepository).findAllById(Set.of(1L));
         verify(commandeFournisseurMapper).toEntity(dtoSansLignes);
         verifyNoMoreInteractions(fournisseurRepository, commandeFournisseurMapper);
+        verifyNoInteractions(produitRepository, commandeFournisseurRepository);
     }
 
     @Test
@@ -220,34 +315,103 @@ class CommandeFournisseurServiceTest {
                 null, LocalDate.now(), StatutCommande.EN_ATTENTE, BigDecimal.ZERO, 1L, "Fournisseur", List.of()
         );
 
-        when(fournisseurRepository.findById(1L)).thenReturn(Optional.of(fournisseur));
+        when(fournisseurRepository.findAllById(Set.of(1L))).thenReturn(List.of(fournisseur));
         when(commandeFournisseurMapper.toEntity(dtoLignesVides)).thenReturn(new CommandeFournisseur());
 
         // Act & Assert
         assertThatThrownBy(() -> commandeFournisseurService.createCommande(dtoLignesVides))
                 .isInstanceOf(BusinessException.class)
                 .hasMessageContaining("au moins une ligne");
-        verify(fournisseurRepository).findById(1L);
+        verify(fournisseurRepository).findAllById(Set.of(1L));
         verify(commandeFournisseurMapper).toEntity(dtoLignesVides);
         verifyNoMoreInteractions(fournisseurRepository, commandeFournisseurMapper);
+        verifyNoInteractions(produitRepository, commandeFournisseurRepository);
     }
 
     @Test
     void createCommande_whenProduitMissing_shouldThrowResourceNotFound() {
-        when(fournisseurRepository.findById(1L)).thenReturn(Optional.of(fournisseur));
+        when(fournisseurRepository.findAllById(Set.of(1L))).thenReturn(List.of(fournisseur));
+        when(produitRepository.findAllById(Set.of(1L, 2L))).thenReturn(List.of(produit2));
         when(commandeFournisseurMapper.toEntity(baseCommandeDTO)).thenReturn(new CommandeFournisseur());
 
-        when(produitRepository.findById(1L)).thenReturn(Optional.empty());
-
         assertThatThrownBy(() -> commandeFournisseurService.createCommande(baseCommandeDTO))
                 .isInstanceOf(ResourceNotFoundException.class)
-                .hasMessageContaining("Produit");
+                .hasMessageContaining("Produit introuvable avec l'id 1");
 
-        verify(fournisseurRepository).findById(1L);
+        verify(fournisseurRepository).findAllById(Set.of(1L));
+        verify(produitRepository).findAllById(Set.of(1L, 2L));
         verify(commandeFournisseurMapper).toEntity(baseCommandeDTO);
-        verify(produitRepository).findById(1L);
         verifyNoMoreInteractions(fournisseurRepository, commandeFournisseurMapper, produitRepository);
-        verifyNoInteractions(ligneCommandeMapper);
+        verifyNoInteractions(ligneCommandeMapper, commandeFournisseurRepository);
+    }
+
+    @Test
+    void createCommandesEnLot_shouldLoadCatalogueOnceAndReportPerCommande() {
+        // Arrange
+        CommandeFournisseurDTO fournisseurInconnu = new CommandeFournisseurDTO(null, LocalDate.now(),
+                StatutCommande.EN_ATTENTE, null, 9L, null, baseCommandeDTO.getLignesCommande());
+        CommandeFournisseurDTO quantiteNulle = new CommandeFournisseurDTO(null, LocalDate.now(),
+                StatutCommande.EN_ATTENTE, null, 1L, null,
+                List.of(new LigneCommandeDTO(null, 2L, null, 0, null, null)));
+        CommandeFournisseur premiere = new CommandeFournisseur();
+        CommandeFournisseur seconde = new CommandeFournisseur();
+        CommandeFournisseurDTO premiereDto = buildCommandeDTO(20L);
+        CommandeFournisseurDTO secondeDto = buildCommandeDTO(21L);
+
+        when(fournisseurRepository.findAllById(Set.of(1L, 9L))).thenReturn(List.of(fournisseur));
+        when(produitRepository.findAllById(Set.of(1L, 2L))).thenReturn(List.of(produit1, produit2));
+        when(commandeFournisseurMapper.toEntity(baseCommandeDTO)).thenReturn(premiere, seconde);
+        when(commandeFournisseurMapper.toEntity(quantiteNulle)).thenReturn(new CommandeFournisseur());
+        mockLigneMapper();
+        // Entités bidirectionnelles : comparaison par identité (equals/hashCode Lombok récursifs)
+        when(commandeFournisseurRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+        when(commandeFournisseurMapper.toDTO(same(premiere))).thenReturn(premiereDto);
+        when(commandeFournisseurMapper.toDTO(same(seconde))).thenReturn(secondeDto);
+
+        // Act
+        LotCommandesResultatDTO result = commandeFournisseurService.createCommandesEnLot(
+                List.of(baseCommandeDTO, fournisseurInconnu, quantiteNulle, baseCommandeDTO));
+
+        // Assert
+        assertThat(result.getNombreTotal()).isEqualTo(4);
+        assertThat(result.getNombreReussis()).isEqualTo(2);
+        assertThat(result.getNombreEchecs()).isEqualTo(2);
+        assertThat(result.getResultats()).extracting(CommandeResultatDTO::getCommande)
+                .containsExactly(premiereDto, null, null, secondeDto);
+        assertThat(result.getResultats()).extracting(CommandeResultatDTO::getErreur)
+                .containsExactly(null, "Fournisseur introuvable avec l'id 9", "La quantité doit être au moins 1", null);
+        assertThat(premiere.getLignesCommande()).hasSize(2);
+        verify(fournisseurRepository).findAllById(Set.of(1L, 9L));
+        verify(produitRepository).findAllById(Set.of(1L, 2L));
+        verify(commandeFournisseurMapper, times(2)).toEntity(baseCommandeDTO);
+        verify(commandeFournisseurMapper).toEntity(quantiteNulle);
+        verify(ligneCommandeMapper, times(4)).toEntity(any(LigneCommandeDTO.class));
+        verify(commandeFournisseurRepository).saveAll(argThat(commandes -> commandes instanceof List<?> liste
+                && liste.size() == 2 && liste.get(0) == premiere && liste.get(1) == seconde));
+        verify(commandeSummaryService).enregistrerTous(argThat(commandes -> commandes.size() == 2));
+        verify(depenseService).enregistrerTous(argThat(commandes -> commandes.size() == 2));
+        verify(commandeFournisseurMapper).toDTO(same(premiere));
+        verify(commandeFournisseurMapper).toDTO(same(seconde));
+        verifyNoMoreInteractions(fournisseurRepository, produitRepository, commandeFournisseurMapper,
+                ligneCommandeMapper, commandeFournisseurRepository, commandeSummaryService, depenseService);
+    }
+
+    @Test
+    void createCommandesEnLot_whenVide_shouldThrowBusinessException() {
+        assertThatThrownBy(() -> commandeFournisseurService.createCommandesEnLot(List.of()))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Le lot doit contenir au moins une commande");
+        verifyNoInteractions(fournisseurRepository, produitRepository, commandeFournisseurRepository);
+    }
+
+    @Test
+    void createCommandesEnLot_whenTropGrand_shouldThrowBusinessException() {
+        ReflectionTestUtils.setField(commandeFournisseurService, "tailleMaxLot", 1);
+
+        assertThatThrownBy(() -> commandeFournisseurService.createCommandesEnLot(List.of(baseCommandeDTO, baseCommandeDTO)))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Le lot ne peut pas dépasser 1 commandes");
+        verifyNoInteractions(fournisseurRepository, produitRepository, commandeFournisseurRepository);
     }
 
     @Test
@@ -257,7 +421,7 @@ class CommandeFournisseurServiceTest {
         CommandeFournisseurDTO expectedDto = buildCommandeDTO(7L);
         expectedDto.setStatut(StatutCommande.VALIDEE);
 
-        when(commandeFournisseurRepository.findById(7L)).thenReturn(Optional.of(commande));
+        when(commandeFournisseurRepository.findByIdForUpdate(7L)).thenReturn(Optional.of(commande));
         when(commandeFournisseurRepository.save(commande)).thenReturn(commande);
         when(commandeFournisseurMapper.toDTO(commande)).thenReturn(expectedDto);
 
@@ -266,21 +430,24 @@ class CommandeFournisseurServiceTest {
 
         // Assert
         assertThat(result.getStatut()).isEqualTo(StatutCommande.VALIDEE);
-        verify(commandeFournisseurRepository).findById(7L);
+        verify(commandeFournisseurRepository).findByIdForUpdate(7L);
         verify(commandeFournisseurRepository).save(commande);
+        verify(commandeSummaryService).changerStatut(7L, StatutCommande.VALIDEE);
+        verify(depenseService).changerStatut(commande, StatutCommande.EN_ATTENTE);
         verify(commandeFournisseurMapper).toDTO(commande);
-        verifyNoMoreInteractions(commandeFournisseurRepository, commandeFournisseurMapper);
+        verifyNoMoreInteractions(commandeFournisseurRepository, commandeFournisseurMapper, commandeSummaryService,
+                depenseService);
     }
 
     @Test
     void updateStatut_whenCommandeMissing_shouldThrowResourceNotFound() {
         // Arrange
-        when(commandeFournisseurRepository.findById(50L)).thenReturn(Optional.empty());
+        when(commandeFournisseurRepository.findByIdForUpdate(50L)).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThatThrownBy(() -> commandeFournisseurService.updateStatut(50L, StatutCommande.LIVREE))
                 .isInstanceOf(ResourceNotFoundException.class);
-        verify(commandeFournisseurRepository).findById(50L);
+        verify(commandeFournisseurRepository).findByIdForUpdate(50L);
         verifyNoMoreInteractions(commandeFournisseurRepository);
         verifyNoInteractions(commandeFournisseurMapper);
     }
@@ -288,27 +455,31 @@ class CommandeFournisseurServiceTest {
     @Test
     void deleteCommande_whenExists_shouldDelete() {
         // Arrange
-        when(commandeFournisseurRepository.existsById(3L)).thenReturn(true);
+        CommandeFournisseur commande = buildCommandeEntity(3L);
+        when(commandeFournisseurRepository.findById(3L)).thenReturn(Optional.of(commande));
 
         // Act
         commandeFournisseurService.deleteCommande(3L);
 
         // Assert
-        verify(commandeFournisseurRepository).existsById(3L);
-        verify(commandeFournisseurRepository).deleteById(3L);
-        verifyNoMoreInteractions(commandeFournisseurRepository);
+        verify(commandeFournisseurRepository).findById(3L);
+        verify(commandeSummaryService).supprimer(3L);
+        verify(depenseService).supprimer(commande);
+        verify(commandeFournisseurRepository).delete(commande);
+        verifyNoMoreInteractions(commandeFournisseurRepository, commandeSummaryService, depenseService);
     }
 
     @Test
     void deleteCommande_whenMissing_shouldThrowResourceNotFound() {
         // Arrange
-        when(commandeFournisseurRepository.existsById(3L)).thenReturn(false);
+        when(commandeFournisseurRepository.findById(3L)).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThatThrownBy(() -> commandeFournisseurService.deleteCommande(3L))
                 .isInstanceOf(ResourceNotFoundException.class);
-        verify(commandeFournisseurRepository).existsById(3L);
+        verify(commandeFournisseurRepository).findById(3L);
         verifyNoMoreInteractions(commandeFournisseurRepository);
+        verifyNoInteractions(commandeSummaryService, depenseService);
     }
 
     @Test
@@ -391,4 +562,14 @@ class CommandeFournisseurServiceTest {
                 List.of()
         );
     }
-}
\ No newline at end of file
+
+    private void mockLigneMapper() {
+        when(ligneCommandeMapper.toEntity(any(LigneCommandeDTO.class))).thenAnswer(inv -> {
+            LigneCommandeDTO dto = inv.getArgument(0);
+            LigneCommande ligne = new LigneCommande();
+            ligne.setQuantite(dto.getQuantite());
+            ligne.setPrixUnitaire(dto.getPrixUnitaire());
+            return ligne;
+        });
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.gestion_approvisionnements.service;
+
+import com.example.gestion_approvisionnements.dto.CommandeSummaryDTO;
+import com.example.gestion_approvisionnements.entity.CommandeFournisseur;
+import com.example.gestion_approvisionnements.entity.CommandeSummary;
+import com.example.gestion_approvisionnements.entity.Fournisseur;
+import com.example.gestion_approvisionnements.entity.LigneCommande;
+import com.example.gestion_approvisionnements.enums.StatutCommande;
+import com.example.gestion_approvisionnements.mapper.CommandeSummaryMapper;
+import com.example.gestion_approvisionnements.repository.CommandeSummaryRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CommandeSummaryServiceTest {
+
+    @Mock
+    private CommandeSummaryRepository commandeSummaryRepository;
+    @Mock
+    private CommandeSummaryMapper commandeSummaryMapper;
+    @Mock
+    private VerrouCommandesService verrouCommandesService;
+
+    @InjectMocks
+    private CommandeSummaryService commandeSummaryService;
+
+    @Test
+    void enregistrer_shouldDenormaliserFournisseurEtCompterLignes() {
+        // Arrange
+        Fournisseur fournisseur = new Fournisseur();
+        fournisseur.setId(3L);
+        fournisseur.setSociete("Fournisseur Test");
+        CommandeFournisseur commande = new CommandeFournisseur();
+        commande.setId(12L);
+        commande.setDateCommande(LocalDate.of(2025, 4, 1));
+        commande.setStatut(StatutCommande.EN_ATTENTE);
+        commande.setFournisseur(fournisseur);
+        commande.setMontantTotal(BigDecimal.valueOf(65));
+        commande.setLignesCommande(List.of(new LigneCommande(), new LigneCommande()));
+        ArgumentCaptor<CommandeSummary> captor = ArgumentCaptor.forClass(CommandeSummary.class);
+
+        // Act
+        commandeSummaryService.enregistrer(commande);
+
+        // Assert
+        verify(commandeSummaryRepository).save(captor.capture());
+        CommandeSummary summary = captor.getValue();
+        assertThat(summary.getId()).isEqualTo(12L);
+        assertThat(summary.getFournisseurId()).isEqualTo(3L);
+        assertThat(summary.getFournisseurSociete()).isEqualTo("Fournisseur Test");
+        assertThat(summary.getMontantTotal()).isEqualByComparingTo("65");
+        assertThat(summary.getNombreLignes()).isEqualTo(2);
+        // Insertion directe, sans SELECT de fusion
+        assertThat(summary.isNew()).isTrue();
+        verifyNoMoreInteractions(commandeSummaryRepository);
+    }
+
+    @Test
+    void changerStatut_shouldUpdateSummaryOnly() {
+        // Act
+        commandeSummaryService.changerStatut(12L, StatutCommande.LIVREE);
+
+        // Assert
+        verify(commandeSummaryRepository).changerStatut(12L, StatutCommande.LIVREE);
+        verifyNoMoreInteractions(commandeSummaryRepository);
+        verifyNoInteractions(commandeSummaryMapper);
+    }
+
+    @Test
+    void getSummariesParStatut_shouldMapPage() {
+        // Arrange
+        PageRequest pageable = PageRequest.of(0, 20);
+        CommandeSummary summary = new CommandeSummary();
+        CommandeSummaryDTO dto = new CommandeSummaryDTO();
+        Page<CommandeSummary> page = new PageImpl<>(List.of(summary));
+        when(commandeSummaryRepository.findByStatut(StatutCommande.VALIDEE, pageable)).thenReturn(page);
+        when(commandeSummaryMapper.toDTO(summary)).thenReturn(dto);
+
+        // Act
+        Page<CommandeSummaryDTO> result = commandeSummaryService.getSummariesParStatut(StatutCommande.VALIDEE, pageable);
+
+        // Assert
+        assertThat(result.getContent()).containsExactly(dto);
+        verify(commandeSummaryRepository).findByStatut(StatutCommande.VALIDEE, pageable);
+        verify(commandeSummaryMapper).toDTO(summary);
+        verifyNoMoreInteractions(commandeSummaryRepository, commandeSummaryMapper);
+    }
+
+    @Test
+    void reconstruire_shouldVerrouillerLesEcrituresPuisViderEtRegenerer() {
+        // Arrange
+        when(commandeSummaryRepository.reconstruire()).thenReturn(42);
+
+        // Act
+        int result = commandeSummaryService.reconstruire();
+
+        // Assert
+        assertThat(result).isEqualTo(42);
+        InOrder ordre = inOrder(verrouCommandesService, commandeSummaryRepository);
+        ordre.verify(verrouCommandesService).verrouillerEcritures();
+        ordre.verify(commandeSummaryRepository).deleteAllInBatch();
+        ordre.verify(commandeSummaryRepository).reconstruire();
+        verifyNoMoreInteractions(commandeSummaryRepository);
+    }
+}
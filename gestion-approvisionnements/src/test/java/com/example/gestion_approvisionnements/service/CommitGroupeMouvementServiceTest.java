@@ -0,0 +1,230 @@
+package com.example.gestion_approvisionnements.service;
+
+import com.example.gestion_approvisionnements.dto.MouvementStockDTO;
+import com.example.gestion_approvisionnements.enums.TypeMouvement;
+import com.example.gestion_approvisionnements.exception.BusinessException;
+import com.example.gestion_approvisionnements.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CommitGroupeMouvementServiceTest {
+
+    @Mock
+    private MouvementStockService mouvementStockService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private CommitGroupeMouvementService commitGroupeMouvementService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        commitGroupeMouvementService = new CommitGroupeMouvementService(mouvementStockService, meterRegistry);
+        ReflectionTestUtils.setField(commitGroupeMouvementService, "fenetreMs", 50L);
+        ReflectionTestUtils.setField(commitGroupeMouvementService, "tailleMax", 3);
+        ReflectionTestUtils.setField(commitGroupeMouvementService, "capaciteFile", 100);
+        ReflectionTestUtils.setField(commitGroupeMouvementService, "attenteFileMaxMs", 100L);
+        ReflectionTestUtils.setField(commitGroupeMouvementService, "attenteResultatMaxMs", 5000L);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        commitGroupeMouvementService.arreter();
+    }
+
+    @Test
+    void enregistrer_quandInactif_shouldUtiliserLeCheminUnitaire() {
+        // Arrange
+        MouvementStockDTO dto = buildMouvement(1L);
+        MouvementStockDTO enregistre = buildMouvement(1L);
+        when(mouvementStockService.enregistrerMouvement(dto)).thenReturn(enregistre);
+        commitGroupeMouvementService.demarrer();
+
+        // Act
+        MouvementStockDTO result = commitGroupeMouvementService.enregistrer(dto);
+
+        // Assert
+        assertThat(result).isSameAs(enregistre);
+        verify(mouvementStockService).enregistrerMouvement(dto);
+        verifyNoMoreInteractions(mouvementStockService);
+        assertThat(meterRegistry.find("stock.commit_groupe.taille").summary()).isNull();
+    }
+
+    @Test
+    void enregistrer_quandActif_shouldGrouperEtRendreASonAppelantSonResultat() throws Exception {
+        // Arrange
+        activer();
+        CountDownLatch premierGroupe = new CountDownLatch(1);
+        when(mouvementStockService.enregistrerGroupe(anyList())).thenAnswer(inv -> {
+            List<MouvementStockDTO> groupe = inv.getArgument(0);
+            premierGroupe.await(1, TimeUnit.SECONDS);
+            List<ResultatMouvement> resultats = new ArrayList<>();
+            for (MouvementStockDTO dto : groupe) {
+                resultats.add(dto.getProduitId() == 99L
+                        ? new ResultatMouvement(null, new ResourceNotFoundException("Produit introuvable avec l'id 99"))
+                        : new ResultatMouvement(enregistre(dto), null));
+            }
+            return resultats;
+        });
+
+        // Act : trois appelants concurrents, dont un refusé
+        CompletableFuture<MouvementStockDTO> a = CompletableFuture.supplyAsync(() ->
+                commitGroupeMouvementService.enregistrer(buildMouvement(1L)));
+        CompletableFuture<MouvementStockDTO> b = CompletableFuture.supplyAsync(() ->
+                commitGroupeMouvementService.enregistrer(buildMouvement(2L)));
+        CompletableFuture<MouvementStockDTO> c = CompletableFuture.supplyAsync(() ->
+                commitGroupeMouvementService.enregistrer(buildMouvement(99L)));
+        premierGroupe.countDown();
+
+        // Assert
+        assertThat(a.get(5, TimeUnit.SECONDS).getStockApresMouvement()).isEqualTo(1);
+        assertThat(b.get(5, TimeUnit.SECONDS).getStockApresMouvement()).isEqualTo(2);
+        assertThatThrownBy(c::join).hasCauseInstanceOf(ResourceNotFoundException.class);
+        verify(mouvementStockService, never()).enregistrerMouvement(any());
+        assertThat(meterRegistry.get("stock.commit_groupe.taille").summary().totalAmount()).isEqualTo(3);
+        assertThat(meterRegistry.get("stock.commit_groupe.attente_file").timer().count()).isEqualTo(3);
+    }
+
+    @Test
+    void enregistrer_quandLeCommitEchoue_shouldPropagerATousLesAppelantsDuGroupe() {
+        // Arrange
+        activer();
+        when(mouvementStockService.enregistrerGroupe(anyList()))
+                .thenThrow(new DataIntegrityViolationException("contrainte violée"));
+
+        // Act & Assert
+        assertThatThrownBy(() -> commitGroupeMouvementService.enregistrer(buildMouvement(1L)))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    void enregistrer_quandFileSaturee_shouldThrowBusinessException() throws Exception {
+        // Arrange : le committeur reste bloqué sur son premier groupe, la file (capacité 1) se remplit
+        ReflectionTestUtils.setField(commitGroupeMouvementService, "capaciteFile", 1);
+        ReflectionTestUtils.setField(commitGroupeMouvementService, "tailleMax", 1);
+        activer();
+        CountDownLatch debloquer = new CountDownLatch(1);
+        CountDownLatch groupeEnCours = new CountDownLatch(1);
+        when(mouvementStockService.enregistrerGroupe(anyList())).thenAnswer(inv -> {
+            groupeEnCours.countDown();
+            debloquer.await(5, TimeUnit.SECONDS);
+            return List.of(new ResultatMouvement(buildMouvement(1L), null));
+        });
+        CompletableFuture<MouvementStockDTO> enCours = CompletableFuture.supplyAsync(() ->
+                commitGroupeMouvementService.enregistrer(buildMouvement(1L)));
+        groupeEnCours.await(5, TimeUnit.SECONDS);
+        CompletableFuture<MouvementStockDTO> enFile = CompletableFuture.supplyAsync(() ->
+                commitGroupeMouvementService.enregistrer(buildMouvement(1L)));
+        while (!enFile.isDone() && fileVide()) {
+            Thread.onSpinWait();
+        }
+
+        // Act & Assert
+        assertThatThrownBy(() -> commitGroupeMouvementService.enregistrer(buildMouvement(1L)))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("File des mouvements saturée, veuillez réessayer");
+        debloquer.countDown();
+        assertThat(enCours.get(5, TimeUnit.SECONDS)).isNotNull();
+        assertThat(enFile.get(5, TimeUnit.SECONDS)).isNotNull();
+    }
+
+    @Test
+    void enregistrer_quandDelaiDepasse_shouldRetirerLaDemandeEncoreEnFileEtSignalerLaDemandeEnCours() throws Exception {
+        // Arrange : groupes d'un mouvement, le premier bloqué au-delà du délai d'attente des appelants
+        ReflectionTestUtils.setField(commitGroupeMouvementService, "tailleMax", 1);
+        ReflectionTestUtils.setField(commitGroupeMouvementService, "attenteResultatMaxMs", 300L);
+        activer();
+        CountDownLatch debloquer = new CountDownLatch(1);
+        CountDownLatch groupeEnCours = new CountDownLatch(1);
+        when(mouvementStockService.enregistrerGroupe(anyList())).thenAnswer(inv -> {
+            groupeEnCours.countDown();
+            debloquer.await(5, TimeUnit.SECONDS);
+            return List.of(new ResultatMouvement(buildMouvement(1L), null));
+        });
+        CompletableFuture<MouvementStockDTO> enCours = CompletableFuture.supplyAsync(() ->
+                commitGroupeMouvementService.enregistrer(buildMouvement(1L)));
+        groupeEnCours.await(5, TimeUnit.SECONDS);
+
+        // Act & Assert
+        assertThatThrownBy(() -> commitGroupeMouvementService.enregistrer(buildMouvement(2L)))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Mouvement non enregistré dans le délai, veuillez réessayer");
+        assertThat(fileVide()).isTrue();
+        assertThatThrownBy(() -> enCours.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(BusinessException.class)
+                .hasMessageContaining("non confirmé dans le délai");
+        debloquer.countDown();
+        verify(mouvementStockService, timeout(5000)).enregistrerGroupe(anyList());
+        assertThat(meterRegistry.get("stock.commit_groupe.delais_depasses").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void enregistrer_apresArret_shouldThrowBusinessException() throws InterruptedException {
+        // Arrange
+        activer();
+        commitGroupeMouvementService.arreter();
+
+        // Act & Assert
+        assertThatThrownBy(() -> commitGroupeMouvementService.enregistrer(buildMouvement(1L)))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Service en cours d'arrêt, mouvement non enregistré");
+        verifyNoInteractions(mouvementStockService);
+    }
+
+    @Test
+    void enregistrer_quandUnGroupeLeveUneErreur_shouldGarderLeCommitteurEnService() {
+        // Arrange
+        activer();
+        when(mouvementStockService.enregistrerGroupe(anyList()))
+                .thenThrow(new StackOverflowError())
+                .thenAnswer(inv -> List.of(new ResultatMouvement(buildMouvement(2L), null)));
+
+        // Act & Assert
+        assertThatThrownBy(() -> commitGroupeMouvementService.enregistrer(buildMouvement(1L)))
+                .isInstanceOf(StackOverflowError.class);
+        assertThat(commitGroupeMouvementService.enregistrer(buildMouvement(2L)).getProduitId()).isEqualTo(2L);
+    }
+
+    private void activer() {
+        ReflectionTestUtils.setField(commitGroupeMouvementService, "actif", true);
+        commitGroupeMouvementService.demarrer();
+    }
+
+    private boolean fileVide() {
+        return ((Collection<?>) ReflectionTestUtils.getField(commitGroupeMouvementService, "file")).isEmpty();
+    }
+
+    private MouvementStockDTO enregistre(MouvementStockDTO dto) {
+        MouvementStockDTO result = buildMouvement(dto.getProduitId());
+        result.setStockApresMouvement(dto.getProduitId().intValue());
+        return result;
+    }
+
+    private MouvementStockDTO buildMouvement(Long produitId) {
+        MouvementStockDTO dto = new MouvementStockDTO();
+        dto.setProduitId(produitId);
+        dto.setTypeMouvement(TypeMouvement.ENTREE);
+        dto.setQuantite(1);
+        return dto;
+    }
+}
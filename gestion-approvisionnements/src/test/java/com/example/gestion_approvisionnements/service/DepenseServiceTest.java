@@ -0,0 +1,206 @@
+package com.example.gestion_approvisionnements.service;
+
+import com.example.gestion_approvisionnements.dto.MontantCategorieDTO;
+import com.example.gestion_approvisionnements.dto.ReconstructionDepensesDTO;
+import com.example.gestion_approvisionnements.entity.CommandeFournisseur;
+import com.example.gestion_approvisionnements.entity.DepenseCategorie;
+import com.example.gestion_approvisionnements.entity.Fournisseur;
+import com.example.gestion_approvisionnements.entity.LigneCommande;
+import com.example.gestion_approvisionnements.entity.Produit;
+import com.example.gestion_approvisionnements.enums.StatutCommande;
+import com.example.gestion_approvisionnements.exception.BusinessException;
+import com.example.gestion_approvisionnements.repository.DepenseCategorieRepository;
+import com.example.gestion_approvisionnements.repository.DepenseFournisseurRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DepenseServiceTest {
+
+    private static final LocalDate JUIN = LocalDate.of(2025, 6, 1);
+
+    @Mock
+    private DepenseFournisseurRepository depenseFournisseurRepository;
+    @Mock
+    private DepenseCategorieRepository depenseCategorieRepository;
+    @Mock
+    private VerrouCommandesService verrouCommandesService;
+
+    @InjectMocks
+    private DepenseService depenseService;
+
+    @Test
+    void enregistrerTous_shouldCumulerLeLotParCle() {
+        // Arrange
+        CommandeFournisseur premiere = buildCommande(1L, LocalDate.of(2025, 6, 3), "30",
+                buildLigne("BUREAU", "20"), buildLigne(null, "10"));
+        CommandeFournisseur seconde = buildCommande(2L, LocalDate.of(2025, 6, 28), "15",
+                buildLigne("BUREAU", "5"), buildLigne("BUREAU", "10"));
+
+        // Act
+        depenseService.enregistrerTous(List.of(premiere, seconde));
+
+        // Assert
+        verify(depenseFournisseurRepository).ajouter(eq(3L), eq(JUIN), eq(StatutCommande.EN_ATTENTE), eq(2L),
+                argThat(montant -> montant.compareTo(new BigDecimal("45")) == 0));
+        verify(depenseCategorieRepository).ajouter(eq("BUREAU"), eq(JUIN), eq(StatutCommande.EN_ATTENTE), eq(2L),
+                argThat(montant -> montant.compareTo(new BigDecimal("35")) == 0));
+        verify(depenseCategorieRepository).ajouter(eq(DepenseCategorie.SANS_CATEGORIE), eq(JUIN),
+                eq(StatutCommande.EN_ATTENTE), eq(1L), argThat(montant -> montant.compareTo(BigDecimal.TEN) == 0));
+        verifyNoMoreInteractions(depenseFournisseurRepository, depenseCategorieRepository);
+    }
+
+    @Test
+    void changerStatut_shouldDeplacerLesMontantsVersLeNouveauStatut() {
+        // Arrange
+        CommandeFournisseur commande = buildCommande(1L, LocalDate.of(2025, 6, 3), "30");
+        commande.setStatut(StatutCommande.LIVREE);
+        when(depenseCategorieRepository.findMontantsParCommande(1L)).thenReturn(List.of(
+                new MontantCategorieDTO(1L, commande.getDateCommande(), StatutCommande.LIVREE, "BUREAU",
+                        new BigDecimal("30"))));
+
+        // Act
+        depenseService.changerStatut(commande, StatutCommande.VALIDEE);
+
+        // Assert
+        verify(depenseFournisseurRepository).ajouter(eq(3L), eq(JUIN), eq(StatutCommande.VALIDEE), eq(-1L),
+                argThat(montant -> montant.compareTo(new BigDecimal("-30")) == 0));
+        verify(depenseFournisseurRepository).ajouter(eq(3L), eq(JUIN), eq(StatutCommande.LIVREE), eq(1L),
+                argThat(montant -> montant.compareTo(new BigDecimal("30")) == 0));
+        verify(depenseCategorieRepository).findMontantsParCommande(1L);
+        verify(depenseCategorieRepository).ajouter(eq("BUREAU"), eq(JUIN), eq(StatutCommande.VALIDEE), eq(-1L),
+                argThat(montant -> montant.compareTo(new BigDecimal("-30")) == 0));
+        verify(depenseCategorieRepository).ajouter(eq("BUREAU"), eq(JUIN), eq(StatutCommande.LIVREE), eq(1L),
+                argThat(montant -> montant.compareTo(new BigDecimal("30")) == 0));
+        verifyNoMoreInteractions(depenseFournisseurRepository, depenseCategorieRepository);
+    }
+
+    @Test
+    void changerStatut_whenStatutInchange_shouldNeRienEcrire() {
+        // Arrange
+        CommandeFournisseur commande = buildCommande(1L, LocalDate.of(2025, 6, 3), "30");
+
+        // Act
+        depenseService.changerStatut(commande, StatutCommande.EN_ATTENTE);
+
+        // Assert
+        verifyNoInteractions(depenseFournisseurRepository, depenseCategorieRepository);
+    }
+
+    @Test
+    void supprimer_shouldRetirerLaCommandeDesDeuxAgregats() {
+        // Arrange
+        CommandeFournisseur commande = buildCommande(1L, LocalDate.of(2025, 6, 3), "30");
+        when(depenseCategorieRepository.findMontantsParCommande(1L)).thenReturn(List.of(
+                new MontantCategorieDTO(1L, commande.getDateCommande(), StatutCommande.EN_ATTENTE, null,
+                        new BigDecimal("30"))));
+
+        // Act
+        depenseService.supprimer(commande);
+
+        // Assert
+        verify(depenseFournisseurRepository).ajouter(eq(3L), eq(JUIN), eq(StatutCommande.EN_ATTENTE), eq(-1L),
+                argThat(montant -> montant.compareTo(new BigDecimal("-30")) == 0));
+        verify(depenseCategorieRepository).findMontantsParCommande(1L);
+        verify(depenseCategorieRepository).ajouter(eq(DepenseCategorie.SANS_CATEGORIE), eq(JUIN),
+                eq(StatutCommande.EN_ATTENTE), eq(-1L), argThat(montant -> montant.compareTo(new BigDecimal("-30")) == 0));
+        verifyNoMoreInteractions(depenseFournisseurRepository, depenseCategorieRepository);
+    }
+
+    @Test
+    void supprimerFournisseur_shouldSupprimerSesLignesEtDecompterSesCategories() {
+        // Arrange
+        when(depenseCategorieRepository.findMontantsParFournisseur(3L)).thenReturn(List.of(
+                new MontantCategorieDTO(1L, LocalDate.of(2025, 6, 3), StatutCommande.LIVREE, "BUREAU", BigDecimal.TEN),
+                new MontantCategorieDTO(2L, LocalDate.of(2025, 6, 9), StatutCommande.LIVREE, "BUREAU", BigDecimal.ONE)));
+
+        // Act
+        depenseService.supprimerFournisseur(3L);
+
+        // Assert
+        verify(depenseFournisseurRepository).supprimerFournisseur(3L);
+        verify(depenseCategorieRepository).findMontantsParFournisseur(3L);
+        verify(depenseCategorieRepository).ajouter(eq("BUREAU"), eq(JUIN), eq(StatutCommande.LIVREE), eq(-2L),
+                argThat(montant -> montant.compareTo(new BigDecimal("-11")) == 0));
+        verifyNoMoreInteractions(depenseFournisseurRepository, depenseCategorieRepository);
+    }
+
+    @Test
+    void reconstruire_shouldVerrouillerLesEcrituresAvantDeViderLesAgregats() {
+        // Arrange
+        when(depenseFournisseurRepository.reconstruire()).thenReturn(3);
+        when(depenseCategorieRepository.reconstruire(DepenseCategorie.SANS_CATEGORIE)).thenReturn(4);
+
+        // Act
+        ReconstructionDepensesDTO result = depenseService.reconstruire();
+
+        // Assert
+        assertThat(result.getLignesFournisseurs()).isEqualTo(3);
+        assertThat(result.getLignesCategories()).isEqualTo(4);
+        InOrder ordre = inOrder(verrouCommandesService, depenseFournisseurRepository, depenseCategorieRepository);
+        ordre.verify(verrouCommandesService).verrouillerEcritures();
+        ordre.verify(depenseFournisseurRepository).deleteAllInBatch();
+        ordre.verify(depenseCategorieRepository).deleteAllInBatch();
+        ordre.verify(depenseFournisseurRepository).reconstruire();
+        ordre.verify(depenseCategorieRepository).reconstruire(DepenseCategorie.SANS_CATEGORIE);
+    }
+
+    @Test
+    void getDepensesParFournisseur_sansStatut_shouldExclureLesCommandesAnnulees() {
+        // Act
+        depenseService.getDepensesParFournisseur(YearMonth.of(2024, 1), YearMonth.of(2025, 12), null, 3L);
+
+        // Assert
+        verify(depenseFournisseurRepository).findParMois(LocalDate.of(2024, 1, 1), LocalDate.of(2025, 12, 1),
+                EnumSet.of(StatutCommande.EN_ATTENTE, StatutCommande.VALIDEE, StatutCommande.LIVREE), 3L);
+        verifyNoMoreInteractions(depenseFournisseurRepository);
+    }
+
+    @Test
+    void getTotauxParFournisseur_whenPeriodeInversee_shouldThrowBusinessException() {
+        // Act & Assert
+        assertThatThrownBy(() -> depenseService.getTotauxParFournisseur(YearMonth.of(2025, 7), YearMonth.of(2025, 6), null))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Le mois de début doit précéder le mois de fin");
+        verifyNoInteractions(depenseFournisseurRepository);
+    }
+
+    private CommandeFournisseur buildCommande(Long id, LocalDate date, String montant, LigneCommande... lignes) {
+        Fournisseur fournisseur = new Fournisseur();
+        fournisseur.setId(3L);
+        CommandeFournisseur commande = new CommandeFournisseur();
+        commande.setId(id);
+        commande.setDateCommande(date);
+        commande.setStatut(StatutCommande.EN_ATTENTE);
+        commande.setFournisseur(fournisseur);
+        commande.setMontantTotal(new BigDecimal(montant));
+        commande.setLignesCommande(List.of(lignes));
+        return commande;
+    }
+
+    private LigneCommande buildLigne(String categorie, String sousTotal) {
+        Produit produit = new Produit();
+        produit.setCategorie("RECLASSE");
+        LigneCommande ligne = new LigneCommande();
+        ligne.setProduit(produit);
+        ligne.setCategorie(categorie);
+        ligne.setSousTotal(new BigDecimal(sousTotal));
+        return ligne;
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.gestion_approvisionnements.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+class DiffusionInvalidationServiceTest {
+
+    private static final String NOTIFY = "SELECT pg_notify(?, ?)";
+
+    private JdbcTemplate jdbcTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private DiffusionInvalidationService diffusionInvalidationService;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        meterRegistry = new SimpleMeterRegistry();
+        diffusionInvalidationService = creer(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.unbindResourceIfPossible(diffusionInvalidationService);
+    }
+
+    @Test
+    void publier_horsTransaction_shouldNotifierImmediatement() {
+        // Act
+        diffusionInvalidationService.publierProduits(List.of(1L, 2L));
+
+        // Assert
+        verify(jdbcTemplate).queryForObject(NOTIFY, Object.class, "referentiel_invalidation",
+                diffusionInvalidationService.getInstance() + ";P;1,2");
+        verifyNoMoreInteractions(jdbcTemplate);
+        assertThat(meterRegistry.get("referentiel.invalidation.publiees").tag("type", "P").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void publier_dansUneTransaction_shouldNotifierUneFoisParTypeAvantLeCommit() {
+        // Arrange
+        TransactionSynchronizationManager.initSynchronization();
+
+        // Act
+        diffusionInvalidationService.publierProduits(List.of(1L));
+        diffusionInvalidationService.publierProduits(List.of(2L, 1L));
+        diffusionInvalidationService.publierFournisseurs(List.of(3L));
+        verifyNoInteractions(jdbcTemplate);
+        List<TransactionSynchronization> synchronisations = TransactionSynchronizationManager.getSynchronizations();
+        synchronisations.forEach(synchronisation -> synchronisation.beforeCommit(false));
+        synchronisations.forEach(synchronisation -> synchronisation.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        // Assert
+        String instance = diffusionInvalidationService.getInstance();
+        verify(jdbcTemplate).queryForObject(NOTIFY, Object.class, "referentiel_invalidation", instance + ";P;1,2");
+        verify(jdbcTemplate).queryForObject(NOTIFY, Object.class, "referentiel_invalidation", instance + ";F;3");
+        verifyNoMoreInteractions(jdbcTemplate);
+        assertThat(synchronisations).hasSize(1);
+        assertThat(TransactionSynchronizationManager.hasResource(diffusionInvalidationService)).isFalse();
+    }
+
+    @Test
+    void publier_rollback_shouldNeRienNotifier() {
+        // Arrange
+        TransactionSynchronizationManager.initSynchronization();
+
+        // Act
+        diffusionInvalidationService.publierProduits(List.of(1L));
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronisation -> synchronisation.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        // Assert
+        verifyNoInteractions(jdbcTemplate);
+        assertThat(TransactionSynchronizationManager.hasResource(diffusionInvalidationService)).isFalse();
+    }
+
+    @Test
+    void publierStocks_shouldRegrouperLesTransactionsCommiteesEnUnSeulMessage() {
+        // Arrange
+        TransactionSynchronizationManager.initSynchronization();
+
+        // Act : deux transactions commitées, une annulée, puis un tour de diffusion
+        diffusionInvalidationService.publierStocks(List.of(1L));
+        diffusionInvalidationService.publierStocks(List.of(2L, 1L));
+        diffusionInvalidationService.publierStocks(List.of(3L));
+        List<TransactionSynchronization> synchronisations = TransactionSynchronizationManager.getSynchronizations();
+        synchronisations.get(0).afterCommit();
+        synchronisations.get(1).afterCommit();
+        synchronisations.get(2).afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        verifyNoInteractions(jdbcTemplate);
+        diffusionInvalidationService.diffuserStocks();
+        diffusionInvalidationService.diffuserStocks();
+
+        // Assert
+        verify(jdbcTemplate).queryForObject(NOTIFY, Object.class, "referentiel_invalidation",
+                diffusionInvalidationService.getInstance() + ";S;1,2");
+        verifyNoMoreInteractions(jdbcTemplate);
+        assertThat(meterRegistry.get("referentiel.invalidation.publiees").tag("type", "S").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void diffuserStocks_quandLEnvoiEchoue_shouldGarderLesIdPourLeTourSuivant() {
+        // Arrange
+        diffusionInvalidationService.publierStocks(List.of(4L));
+        when(jdbcTemplate.queryForObject(eq(NOTIFY), eq(Object.class), any(), any()))
+                .thenThrow(new DataAccessResourceFailureException("connexion perdue"))
+                .thenReturn(null);
+
+        // Act
+        assertThatThrownBy(diffusionInvalidationService::diffuserStocks)
+                .isInstanceOf(DataAccessResourceFailureException.class);
+        diffusionInvalidationService.diffuserStocks();
+
+        // Assert
+        verify(jdbcTemplate, times(2)).queryForObject(NOTIFY, Object.class, "referentiel_invalidation",
+                diffusionInvalidationService.getInstance() + ";S;4");
+    }
+
+    @Test
+    void publier_inactif_shouldNeRienNotifier() {
+        // Arrange
+        DiffusionInvalidationService inactif = creer(false);
+
+        // Act
+        inactif.publierProduits(List.of(1L));
+        inactif.publierFournisseurs(List.of(2L));
+        inactif.publierStocks(List.of(3L));
+        inactif.diffuserStocks();
+
+        // Assert
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void messages_shouldDecouperSousLaTailleMax() {
+        // Arrange
+        ReflectionTestUtils.setField(diffusionInvalidationService, "tailleMessageMax", 100);
+        List<Long> ids = LongStream.rangeClosed(1_000_000, 1_000_030).boxed().toList();
+
+        // Act
+        List<String> messages = diffusionInvalidationService.messages("P", ids);
+        diffusionInvalidationService.publierProduits(ids);
+
+        // Assert
+        assertThat(messages).hasSizeGreaterThan(1).allSatisfy(message -> {
+            assertThat(message).hasSizeLessThanOrEqualTo(100);
+            assertThat(message).startsWith(diffusionInvalidationService.getInstance() + ";P;");
+        });
+        assertThat(messages).flatMap(message -> List.of(message.substring(message.lastIndexOf(';') + 1).split(",")))
+                .hasSize(ids.size());
+        verify(jdbcTemplate, times(messages.size())).queryForObject(eq(NOTIFY), eq(Object.class), any(), any());
+    }
+
+    private DiffusionInvalidationService creer(boolean actif) {
+        DiffusionInvalidationService service = new DiffusionInvalidationService(jdbcTemplate, meterRegistry);
+        ReflectionTestUtils.setField(service, "actif", actif);
+        ReflectionTestUtils.setField(service, "canal", "referentiel_invalidation");
+        ReflectionTestUtils.setField(service, "tailleMessageMax", 7000);
+        return service;
+    }
+}
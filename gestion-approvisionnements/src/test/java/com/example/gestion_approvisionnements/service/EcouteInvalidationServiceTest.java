@@ -0,0 +1,130 @@
+package com.example.gestion_approvisionnements.service;
+
+import com.example.gestion_approvisionnements.entity.Fournisseur;
+import com.example.gestion_approvisionnements.entity.Produit;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EcouteInvalidationServiceTest {
+
+    @Mock
+    private DiffusionInvalidationService diffusionInvalidationService;
+    @Mock
+    private CacheReferentielService cacheReferentielService;
+    @Mock
+    private IndexIceService indexIceService;
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+    @Mock
+    private DataSourceProperties dataSourceProperties;
+    @Mock
+    private Cache cache;
+
+    private SimpleMeterRegistry meterRegistry;
+    private EcouteInvalidationService ecouteInvalidationService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        ecouteInvalidationService = new EcouteInvalidationService(diffusionInvalidationService, cacheReferentielService,
+                indexIceService, entityManagerFactory, dataSourceProperties, meterRegistry);
+        lenient().when(diffusionInvalidationService.getInstance()).thenReturn("locale");
+        lenient().when(entityManagerFactory.getCache()).thenReturn(cache);
+        lenient().when(cache.unwrap(Cache.class)).thenReturn(cache);
+    }
+
+    @Test
+    void traiter_produits_shouldRetirerDesDeuxCachesEtDesRecherches() {
+        // Act
+        ecouteInvalidationService.traiter("distante;P;1,2");
+
+        // Assert
+        verify(cacheReferentielService).evincerProduits(List.of(1L, 2L));
+        verify(cache).evictEntityData(Produit.class, 1L);
+        verify(cache).evictEntityData(Produit.class, 2L);
+        verify(cache).evictDefaultQueryRegion();
+        verifyNoMoreInteractions(cacheReferentielService);
+        assertThat(meterRegistry.get("referentiel.invalidation.recues").tag("type", "P").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void traiter_stocks_shouldRetirerDesDeuxCachesSansToucherAuxRecherches() {
+        // Act
+        ecouteInvalidationService.traiter("distante;S;1,2");
+
+        // Assert
+        verify(cacheReferentielService).evincerProduits(List.of(1L, 2L));
+        verify(cache).evictEntityData(Produit.class, 1L);
+        verify(cache).evictEntityData(Produit.class, 2L);
+        verify(cache, never()).evictDefaultQueryRegion();
+        verifyNoMoreInteractions(cacheReferentielService);
+        assertThat(meterRegistry.get("referentiel.invalidation.recues").tag("type", "S").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void traiter_fournisseurs_shouldRetirerDesDeuxCachesEtRelireLesIce() {
+        // Act
+        ecouteInvalidationService.traiter("distante;F;3");
+
+        // Assert
+        verify(cacheReferentielService).evincerFournisseurs(List.of(3L));
+        verify(cache).evictEntityData(Fournisseur.class, 3L);
+        verify(cache, never()).evictDefaultQueryRegion();
+        verify(indexIceService).rafraichir(List.of(3L));
+        verifyNoMoreInteractions(cacheReferentielService, indexIceService);
+    }
+
+    @Test
+    void traiter_messageDeCetteInstance_shouldEtreIgnore() {
+        // Act
+        ecouteInvalidationService.traiter("locale;P;1");
+
+        // Assert
+        verifyNoInteractions(cacheReferentielService, indexIceService, cache);
+    }
+
+    @Test
+    void traiter_messageIllisible_shouldViderLesCaches() {
+        // Act
+        ecouteInvalidationService.traiter("distante;P;1,x");
+        ecouteInvalidationService.traiter("distante;Z;1");
+        ecouteInvalidationService.traiter("tronque");
+
+        // Assert
+        verify(cacheReferentielService, times(3)).vider();
+        verify(indexIceService, times(3)).vider();
+        verify(cache, times(3)).evictAll();
+        verifyNoMoreInteractions(cacheReferentielService);
+        assertThat(meterRegistry.get("referentiel.invalidation.vidages").counter().count()).isEqualTo(3);
+    }
+
+    @Test
+    void recevoir_quandLInvalidationEchoue_shouldViderLesCachesSansPropager() {
+        // Arrange
+        doThrow(new IllegalStateException("cache indisponible")).when(cacheReferentielService).evincerProduits(any());
+
+        // Act
+        ecouteInvalidationService.recevoir("distante;P;1");
+        ecouteInvalidationService.recevoir("distante;P;2");
+
+        // Assert
+        verify(cacheReferentielService, times(2)).vider();
+        verify(indexIceService, times(2)).vider();
+        verify(cache, times(2)).evictAll();
+        assertThat(meterRegistry.get("referentiel.invalidation.echecs").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("referentiel.invalidation.vidages").counter().count()).isEqualTo(2);
+    }
+}
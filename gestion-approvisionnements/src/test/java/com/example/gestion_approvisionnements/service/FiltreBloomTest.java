@@ -0,0 +1,51 @@
+package com.example.gestion_approvisionnements.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FiltreBloomTest {
+
+    @Test
+    void peutContenir_shouldNeJamaisManquerUneValeurAjoutee() {
+        // Arrange
+        FiltreBloom filtre = new FiltreBloom(10_000, 0.01);
+
+        // Act
+        IntStream.range(0, 10_000).forEach(i -> filtre.ajouter("ICE" + i));
+
+        // Assert
+        assertThat(IntStream.range(0, 10_000)).allMatch(i -> filtre.peutContenir("ICE" + i));
+        assertThat(filtre.estSature()).isFalse();
+    }
+
+    @Test
+    void peutContenir_shouldRespecterLeTauxDeFauxPositifsAPleineCapacite() {
+        // Arrange
+        FiltreBloom filtre = new FiltreBloom(10_000, 0.01);
+        IntStream.range(0, 10_000).forEach(i -> filtre.ajouter("ICE" + i));
+
+        // Act
+        long fauxPositifs = IntStream.range(0, 100_000)
+                .filter(i -> filtre.peutContenir("INCONNU" + i))
+                .count();
+
+        // Assert
+        assertThat(fauxPositifs).isLessThan(2_000);
+    }
+
+    @Test
+    void estSature_shouldDevenirVraiAuDelaDeLaCapacite() {
+        // Arrange
+        FiltreBloom filtre = new FiltreBloom(10, 0.01);
+
+        // Act
+        IntStream.range(0, 11).forEach(i -> filtre.ajouter("ICE" + i));
+
+        // Assert
+        assertThat(filtre.estSature()).isTrue();
+        assertThat(filtre.peutContenir("ICE10")).isTrue();
+    }
+}
@@ -6,18 +6,22 @@ import com.example.gestion_approvisionnements.exception.BusinessException;
 import com.example.gestion_approvisionnements.exception.ResourceNotFoundException;
 import com.example.gestion_approvisionnements.mapper.FournisseurMapper;
 import com.example.gestion_approvisionnements.repository.FournisseurRepository;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 
+import java.sql.SQLException;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -31,6 +35,14 @@ class FournisseurServiceTest {
     private FournisseurRepository fournisseurRepository;
     @Mock
     private FournisseurMapper fournisseurMapper;
+    @Mock
+    private CommandeSummaryService commandeSummaryService;
+    @Mock
+    private DepenseService depenseService;
+    @Mock
+    private CacheReferentielService cacheReferentielService;
+    @Mock
+    private IndexIceService indexIceService;
 
     @InjectMocks
     private FournisseurService fournisseurService;
@@ -40,6 +52,11 @@ class FournisseurServiceTest {
     @BeforeEach
     void setUp() {
         baseDto = buildDto(null, "ICE123");
+        // Cache traversé : chaque lecture va au repository
+        lenient().when(cacheReferentielService.fournisseur(any(), any())).thenAnswer(invocation ->
+                invocation.<Function<Long, FournisseurDTO>>getArgument(1).apply(invocation.getArgument(0)));
+        lenient().when(indexIceService.peutExister(any())).thenReturn(true);
+        lenient().when(indexIceService.id(any())).thenReturn(Optional.empty());
     }
 
     @Test
@@ -96,15 +113,14 @@ class FournisseurServiceTest {
     }
 
     @Test
-    void createFournisseur_whenIceAvailable_shouldPersistAndReturnDto() {
+    void createFournisseur_whenIceAvailable_shouldPersistInOneWriteAndIndexTheIce() {
         // Arrange
         Fournisseur entity = new Fournisseur();
         Fournisseur saved = buildEntity(10L, "ICE123");
         FournisseurDTO expected = buildDto(10L, "ICE123");
 
-        when(fournisseurRepository.existsByIce("ICE123")).thenReturn(false);
         when(fournisseurMapper.toEntity(baseDto)).thenReturn(entity);
-        when(fournisseurRepository.save(entity)).thenReturn(saved);
+        when(fournisseurRepository.saveAndFlush(entity)).thenReturn(saved);
         when(fournisseurMapper.toDTO(saved)).thenReturn(expected);
 
         // Act
@@ -112,49 +128,41 @@ class FournisseurServiceTest {
 
         // Assert
         assertThat(result).isEqualTo(expected);
-        verify(fournisseurRepository).existsByIce("ICE123");
         verify(fournisseurMapper).toEntity(baseDto);
-        verify(fournisseurRepository).save(entity);
+        verify(fournisseurRepository).saveAndFlush(entity);
         verify(fournisseurMapper).toDTO(saved);
+        verify(cacheReferentielService).invaliderFournisseur(10L);
+        verify(indexIceService).invaliderFournisseur(10L, "ICE123");
         verifyNoMoreInteractions(fournisseurRepository, fournisseurMapper);
     }
 
     @Test
-    void createFournisseur_whenIceAlreadyUsed_shouldThrowBusinessException() {
+    void createFournisseur_whenIceAlreadyUsed_shouldTranslateUniqueViolationToBusinessException() {
         // Arrange
-        when(fournisseurRepository.existsByIce("ICE123")).thenReturn(true);
+        Fournisseur entity = buildEntity(null, "ICE123");
+        when(fournisseurMapper.toEntity(baseDto)).thenReturn(entity);
+        when(fournisseurRepository.saveAndFlush(entity)).thenThrow(violation("23505"));
 
         // Act & Assert
         assertThatThrownBy(() -> fournisseurService.createFournisseur(baseDto))
                 .isInstanceOf(BusinessException.class)
-                .hasMessageContaining("ICE123");
-        verify(fournisseurRepository).existsByIce("ICE123");
+                .hasMessage("Un fournisseur existe déjà avec l'ICE ICE123");
+        verify(fournisseurRepository).saveAndFlush(entity);
         verifyNoMoreInteractions(fournisseurRepository);
-        verifyNoInteractions(fournisseurMapper);
+        verifyNoInteractions(indexIceService, cacheReferentielService);
     }
 
     @Test
-    void createFournisseur_whenIceBlank_shouldSkipAvailabilityCheck() {
+    void createFournisseur_whenOtherIntegrityViolation_shouldPropagate() {
         // Arrange
-        FournisseurDTO dtoSansIce = buildDto(null, " ");
-        Fournisseur entity = buildEntity(null, " ");
-        Fournisseur saved = buildEntity(3L, " ");
-        FournisseurDTO expected = buildDto(3L, " ");
-
-        when(fournisseurMapper.toEntity(dtoSansIce)).thenReturn(entity);
-        when(fournisseurRepository.save(entity)).thenReturn(saved);
-        when(fournisseurMapper.toDTO(saved)).thenReturn(expected);
-
-        // Act
-        FournisseurDTO result = fournisseurService.createFournisseur(dtoSansIce);
+        Fournisseur entity = buildEntity(null, "ICE123");
+        DataIntegrityViolationException autre = violation("23502");
+        when(fournisseurMapper.toEntity(baseDto)).thenReturn(entity);
+        when(fournisseurRepository.saveAndFlush(entity)).thenThrow(autre);
 
-        // Assert
-        assertThat(result).isEqualTo(expected);
-        verify(fournisseurMapper).toEntity(dtoSansIce);
-        verify(fournisseurRepository).save(entity);
-        verify(fournisseurMapper).toDTO(saved);
-        verify(fournisseurRepository, never()).existsByIce(anyString());
-        verifyNoMoreInteractions(fournisseurRepository, fournisseurMapper);
+        // Act & Assert
+        assertThatThrownBy(() -> fournisseurService.createFournisseur(baseDto)).isSameAs(autre);
+        verifyNoInteractions(indexIceService);
     }
 
     @Test
@@ -165,8 +173,11 @@ class FournisseurServiceTest {
         FournisseurDTO expected = buildDto(7L, "ICE888");
 
         when(fournisseurRepository.findById(7L)).thenReturn(Optional.of(existing));
-        when(fournisseurRepository.existsByIce("ICE888")).thenReturn(false);
-        when(fournisseurRepository.save(existing)).thenReturn(existing);
+        doAnswer(inv -> {
+            existing.setIce(updateDto.getIce());
+            return null;
+        }).when(fournisseurMapper).updateEntityFromDTO(updateDto, existing);
+        when(fournisseurRepository.saveAndFlush(existing)).thenReturn(existing);
         when(fournisseurMapper.toDTO(existing)).thenReturn(expected);
 
         // Act
@@ -175,24 +186,48 @@ class FournisseurServiceTest {
         // Assert
         assertThat(result).isEqualTo(expected);
         verify(fournisseurRepository).findById(7L);
-        verify(fournisseurRepository).existsByIce("ICE888");
         verify(fournisseurMapper).updateEntityFromDTO(updateDto, existing);
-        verify(fournisseurRepository).save(existing);
+        verify(fournisseurRepository).saveAndFlush(existing);
         verify(fournisseurMapper).toDTO(existing);
+        verify(cacheReferentielService).invaliderFournisseur(7L);
+        verify(indexIceService).invaliderFournisseur(7L, "ICE888");
         verifyNoMoreInteractions(fournisseurRepository, fournisseurMapper);
+        verifyNoInteractions(commandeSummaryService);
+    }
+
+    @Test
+    void updateFournisseur_whenSocieteChanges_shouldRenameInCommandeSummaries() {
+        // Arrange
+        Fournisseur existing = buildEntity(7L, "ICE777");
+        FournisseurDTO updateDto = buildDto(7L, "ICE777");
+        updateDto.setSociete("Nouvelle société");
+        FournisseurDTO expected = buildDto(7L, "ICE777");
+
+        when(fournisseurRepository.findById(7L)).thenReturn(Optional.of(existing));
+        doAnswer(inv -> {
+            existing.setSociete(updateDto.getSociete());
+            return null;
+        }).when(fournisseurMapper).updateEntityFromDTO(updateDto, existing);
+        when(fournisseurRepository.saveAndFlush(existing)).thenReturn(existing);
+        when(fournisseurMapper.toDTO(existing)).thenReturn(expected);
+
+        // Act
+        fournisseurService.updateFournisseur(7L, updateDto);
+
+        // Assert
+        verify(commandeSummaryService).renommerFournisseur(7L, "Nouvelle société");
+        verifyNoMoreInteractions(commandeSummaryService);
     }
 
     @Test
-    void updateFournisseur_whenIceBelongsToSameEntity_shouldSucceed() {
+    void updateFournisseur_whenIceBelongsToSameEntity_shouldSucceedWithoutIceLookup() {
         // Arrange
         Fournisseur existing = buildEntity(4L, "ICE444");
         FournisseurDTO updateDto = buildDto(4L, "ICE444");
         FournisseurDTO expected = buildDto(4L, "ICE444");
 
         when(fournisseurRepository.findById(4L)).thenReturn(Optional.of(existing));
-        when(fournisseurRepository.existsByIce("ICE444")).thenReturn(true);
-        when(fournisseurRepository.findByIce("ICE444")).thenReturn(Optional.of(existing));
-        when(fournisseurRepository.save(existing)).thenReturn(existing);
+        when(fournisseurRepository.saveAndFlush(existing)).thenReturn(existing);
         when(fournisseurMapper.toDTO(existing)).thenReturn(expected);
 
         // Act
@@ -201,10 +236,8 @@ class FournisseurServiceTest {
         // Assert
         assertThat(result).isEqualTo(expected);
         verify(fournisseurRepository).findById(4L);
-        verify(fournisseurRepository).existsByIce("ICE444");
-        verify(fournisseurRepository).findByIce("ICE444");
         verify(fournisseurMapper).updateEntityFromDTO(updateDto, existing);
-        verify(fournisseurRepository).save(existing);
+        verify(fournisseurRepository).saveAndFlush(existing);
         verify(fournisseurMapper).toDTO(existing);
         verifyNoMoreInteractions(fournisseurRepository, fournisseurMapper);
     }
@@ -226,21 +259,22 @@ class FournisseurServiceTest {
     void updateFournisseur_whenIceBelongsToAnotherEntity_shouldThrowBusinessException() {
         // Arrange
         Fournisseur existing = buildEntity(6L, "ICE600");
-        Fournisseur other = buildEntity(99L, "ICE123");
 
         when(fournisseurRepository.findById(6L)).thenReturn(Optional.of(existing));
-        when(fournisseurRepository.existsByIce("ICE123")).thenReturn(true);
-        when(fournisseurRepository.findByIce("ICE123")).thenReturn(Optional.of(other));
+        doAnswer(inv -> {
+            existing.setIce(baseDto.getIce());
+            return null;
+        }).when(fournisseurMapper).updateEntityFromDTO(baseDto, existing);
+        when(fournisseurRepository.saveAndFlush(existing)).thenThrow(violation("23505"));
 
         // Act & Assert
         assertThatThrownBy(() -> fournisseurService.updateFournisseur(6L, baseDto))
                 .isInstanceOf(BusinessException.class)
                 .hasMessageContaining("ICE123");
         verify(fournisseurRepository).findById(6L);
-        verify(fournisseurRepository).existsByIce("ICE123");
-        verify(fournisseurRepository).findByIce("ICE123");
+        verify(fournisseurRepository).saveAndFlush(existing);
         verifyNoMoreInteractions(fournisseurRepository);
-        verifyNoInteractions(fournisseurMapper);
+        verifyNoInteractions(cacheReferentielService, indexIceService, commandeSummaryService);
     }
 
     @Test
@@ -253,8 +287,11 @@ class FournisseurServiceTest {
 
         // Assert
         verify(fournisseurRepository).existsById(3L);
+        verify(depenseService).supprimerFournisseur(3L);
         verify(fournisseurRepository).deleteById(3L);
-        verifyNoMoreInteractions(fournisseurRepository);
+        verify(cacheReferentielService).invaliderFournisseur(3L);
+        verify(indexIceService).invaliderFournisseur(3L, null);
+        verifyNoMoreInteractions(fournisseurRepository, depenseService);
     }
 
     @Test
@@ -267,10 +304,23 @@ class FournisseurServiceTest {
                 .isInstanceOf(ResourceNotFoundException.class);
         verify(fournisseurRepository).existsById(3L);
         verifyNoMoreInteractions(fournisseurRepository);
+        verifyNoInteractions(depenseService);
+    }
+
+    @Test
+    void getFournisseurByIce_whenRejectedByIndex_shouldThrowWithoutQuery() {
+        // Arrange
+        when(indexIceService.peutExister("ICE999")).thenReturn(false);
+
+        // Act & Assert
+        assertThatThrownBy(() -> fournisseurService.getFournisseurByIce("ICE999"))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessage("Fournisseur introuvable avec l'ICE ICE999");
+        verifyNoInteractions(fournisseurRepository, fournisseurMapper);
     }
 
     @Test
-    void getFournisseurByIce_whenFound_shouldReturnDto() {
+    void getFournisseurByIce_whenNotAssociated_shouldLoadByIceAndAssociate() {
         // Arrange
         Fournisseur entity = buildEntity(2L, "ICE222");
         FournisseurDTO dto = buildDto(2L, "ICE222");
@@ -284,21 +334,50 @@ class FournisseurServiceTest {
         assertThat(result).isEqualTo(dto);
         verify(fournisseurRepository).findByIce("ICE222");
         verify(fournisseurMapper).toDTO(entity);
+        verify(indexIceService).associer("ICE222", 2L);
         verifyNoMoreInteractions(fournisseurRepository, fournisseurMapper);
     }
 
     @Test
-    void getFournisseurByIce_whenMissing_shouldThrowResourceNotFound() {
+    void getFournisseurByIce_whenAssociated_shouldReadById() {
         // Arrange
-        when(fournisseurRepository.findByIce("ICE999")).thenReturn(Optional.empty());
+        Fournisseur entity = buildEntity(2L, "ICE222");
+        FournisseurDTO dto = buildDto(2L, "ICE222");
+        when(indexIceService.id("ICE222")).thenReturn(Optional.of(2L));
+        when(fournisseurRepository.findById(2L)).thenReturn(Optional.of(entity));
+        when(fournisseurMapper.toDTO(entity)).thenReturn(dto);
+
+        // Act
+        FournisseurDTO result = fournisseurService.getFournisseurByIce("ICE222");
+
+        // Assert
+        assertThat(result).isEqualTo(dto);
+        verify(fournisseurRepository).findById(2L);
+        verify(fournisseurRepository, never()).findByIce(anyString());
+        verify(indexIceService, never()).oublier(anyString());
+    }
+
+    @Test
+    void getFournisseurByIce_whenAssociationStale_shouldForgetAndReloadByIce() {
+        // Arrange : le fournisseur 2 a changé d'ICE depuis l'association
+        Fournisseur renomme = buildEntity(2L, "ICE_NOUVEAU");
+        when(indexIceService.id("ICE222")).thenReturn(Optional.of(2L));
+        when(fournisseurRepository.findById(2L)).thenReturn(Optional.of(renomme));
+        when(fournisseurMapper.toDTO(renomme)).thenReturn(buildDto(2L, "ICE_NOUVEAU"));
+        when(fournisseurRepository.findByIce("ICE222")).thenReturn(Optional.empty());
 
         // Act & Assert
-        assertThatThrownBy(() -> fournisseurService.getFournisseurByIce("ICE999"))
+        assertThatThrownBy(() -> fournisseurService.getFournisseurByIce("ICE222"))
                 .isInstanceOf(ResourceNotFoundException.class)
-                .hasMessageContaining("ICE999");
-        verify(fournisseurRepository).findByIce("ICE999");
-        verifyNoMoreInteractions(fournisseurRepository);
-        verifyNoInteractions(fournisseurMapper);
+                .hasMessageContaining("ICE222");
+        verify(indexIceService).oublier("ICE222");
+        verify(indexIceService).signalerFauxPositif();
+        verify(indexIceService, never()).associer(anyString(), anyLong());
+    }
+
+    private static DataIntegrityViolationException violation(String sqlState) {
+        return new DataIntegrityViolationException("violation", new ConstraintViolationException("violation",
+                new SQLException("violation", sqlState), "insert into fournisseur", "uk_fournisseur_ice"));
     }
 
     private Fournisseur buildEntity(Long id, String ice) {
@@ -0,0 +1,253 @@
+package com.example.gestion_approvisionnements.service;
+
+import com.example.gestion_approvisionnements.entity.CleIdempotence;
+import com.example.gestion_approvisionnements.exception.BusinessException;
+import com.example.gestion_approvisionnements.repository.CleIdempotenceRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotenceServiceTest {
+
+    private static final String CLE = "cle-1";
+    private static final String EMPREINTE = "a".repeat(64);
+
+    @Mock
+    private CleIdempotenceRepository cleIdempotenceRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private IdempotenceService idempotenceService;
+    private AtomicInteger executions;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        idempotenceService = new IdempotenceService(cleIdempotenceRepository,
+                new TransactionTemplate(transactionManager), meterRegistry);
+        ReflectionTestUtils.setField(idempotenceService, "ttlHeures", 24L);
+        ReflectionTestUtils.setField(idempotenceService, "tailleMaxCache", 2);
+        ReflectionTestUtils.setField(idempotenceService, "attenteMaxMs", 1000L);
+        ReflectionTestUtils.setField(idempotenceService, "corpsMaxOctets", 1024);
+        idempotenceService.initialiser();
+        executions = new AtomicInteger();
+    }
+
+    @Test
+    void executer_nouvelleCle_shouldReserverExecuterEtConserver() throws Exception {
+        // Arrange
+        when(cleIdempotenceRepository.findById(CLE)).thenReturn(Optional.empty());
+
+        // Act
+        ReponseIdempotente result = idempotenceService.executer(CLE, EMPREINTE, requete(201));
+
+        // Assert
+        assertThat(result.statut()).isEqualTo(201);
+        assertThat(executions.get()).isEqualTo(1);
+        verify(cleIdempotenceRepository).findById(CLE);
+        verify(cleIdempotenceRepository).saveAndFlush(argThat(cle -> cle.isNew() && cle.getId().equals(CLE)));
+        verify(cleIdempotenceRepository).enregistrerReponse(CLE, 201, "application/json", result.corps());
+        verifyNoMoreInteractions(cleIdempotenceRepository);
+        assertThat(compteur("nouvelle")).isEqualTo(1);
+    }
+
+    @Test
+    void executer_cleEnMemoire_shouldRejouerSansToucherALaTable() throws Exception {
+        // Arrange
+        when(cleIdempotenceRepository.findById(CLE)).thenReturn(Optional.empty());
+        ReponseIdempotente premiere = idempotenceService.executer(CLE, EMPREINTE, requete(201));
+
+        // Act
+        ReponseIdempotente result = idempotenceService.executer(CLE, EMPREINTE, requete(201));
+
+        // Assert
+        assertThat(result).isSameAs(premiere);
+        assertThat(executions.get()).isEqualTo(1);
+        verify(cleIdempotenceRepository, times(1)).findById(CLE);
+        assertThat(compteur("memoire")).isEqualTo(1);
+    }
+
+    @Test
+    void executer_cleEnTable_shouldRejouerEtMettreEnCache() throws Exception {
+        // Arrange
+        when(cleIdempotenceRepository.findById(CLE)).thenReturn(Optional.of(buildCle(200)));
+
+        // Act
+        ReponseIdempotente result = idempotenceService.executer(CLE, EMPREINTE, requete(201));
+        idempotenceService.executer(CLE, EMPREINTE, requete(201));
+
+        // Assert
+        assertThat(result.statut()).isEqualTo(200);
+        assertThat(new String(result.corps(), StandardCharsets.UTF_8)).isEqualTo("{\"id\":1}");
+        assertThat(executions.get()).isZero();
+        verify(cleIdempotenceRepository, times(1)).findById(CLE);
+        verifyNoMoreInteractions(cleIdempotenceRepository);
+        assertThat(compteur("table")).isEqualTo(1);
+        assertThat(compteur("memoire")).isEqualTo(1);
+    }
+
+    @Test
+    void executer_whenEmpreinteDifferente_shouldThrowBusinessException() {
+        // Arrange
+        when(cleIdempotenceRepository.findById(CLE)).thenReturn(Optional.of(buildCle(200)));
+
+        // Act & Assert
+        assertThatThrownBy(() -> idempotenceService.executer(CLE, "b".repeat(64), requete(201)))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("La clé d'idempotence a déjà été utilisée pour une autre requête");
+        assertThat(executions.get()).isZero();
+    }
+
+    @Test
+    void executer_whenReponseEnEchec_shouldLibererLaCle() throws Exception {
+        // Arrange
+        when(cleIdempotenceRepository.findById(CLE)).thenReturn(Optional.empty());
+
+        // Act
+        ReponseIdempotente result = idempotenceService.executer(CLE, EMPREINTE, requete(409));
+
+        // Assert
+        assertThat(result.statut()).isEqualTo(409);
+        verify(cleIdempotenceRepository).supprimer(CLE);
+        verify(cleIdempotenceRepository, never()).enregistrerReponse(anyString(), anyInt(), any(), any());
+    }
+
+    @Test
+    void executer_whenReserveeParUneAutreInstance_shouldRejouerSaReponse() throws Exception {
+        // Arrange
+        when(cleIdempotenceRepository.findById(CLE))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(buildCle(200)));
+        when(cleIdempotenceRepository.saveAndFlush(any(CleIdempotence.class)))
+                .thenThrow(new DataIntegrityViolationException("clé dupliquée"));
+
+        // Act
+        ReponseIdempotente result = idempotenceService.executer(CLE, EMPREINTE, requete(201));
+
+        // Assert
+        assertThat(result.statut()).isEqualTo(200);
+        assertThat(executions.get()).isZero();
+    }
+
+    @Test
+    void executer_whenReservationSansReponse_shouldThrowBusinessException() {
+        // Arrange
+        CleIdempotence enCours = buildCle(200);
+        enCours.setStatutHttp(null);
+        when(cleIdempotenceRepository.findById(CLE)).thenReturn(Optional.of(enCours));
+
+        // Act & Assert
+        assertThatThrownBy(() -> idempotenceService.executer(CLE, EMPREINTE, requete(201)))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Une requête avec cette clé d'idempotence est déjà en cours");
+    }
+
+    @Test
+    void executer_whenReservationSansReponseAuDelaDeLAttente_shouldNeJamaisLaReprendre() {
+        // Arrange : requête toujours en cours, ou commitée sur une instance arrêtée avant d'enregistrer sa réponse
+        CleIdempotence sansReponse = buildCle(200);
+        sansReponse.setStatutHttp(null);
+        sansReponse.setDateCreation(LocalDateTime.now().minusMinutes(10));
+        when(cleIdempotenceRepository.findById(CLE)).thenReturn(Optional.of(sansReponse));
+
+        // Act & Assert
+        assertThatThrownBy(() -> idempotenceService.executer(CLE, EMPREINTE, requete(201)))
+                .isInstanceOf(BusinessException.class)
+                .hasMessageContaining("vérifier son effet avant de réessayer avec une nouvelle clé");
+        assertThat(executions.get()).isZero();
+        verify(cleIdempotenceRepository).findById(CLE);
+        verifyNoMoreInteractions(cleIdempotenceRepository);
+        assertThat(meterRegistry.get("idempotence.reservations_sans_reponse").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void executer_whenReservationExpiree_shouldLaSupprimerSeulementSiToujoursExpireeEtReexecuter() throws Exception {
+        // Arrange
+        CleIdempotence expiree = buildCle(200);
+        expiree.setStatutHttp(null);
+        expiree.setDateExpiration(LocalDateTime.now().minusMinutes(1));
+        when(cleIdempotenceRepository.findById(CLE)).thenReturn(Optional.of(expiree));
+
+        // Act
+        ReponseIdempotente result = idempotenceService.executer(CLE, EMPREINTE, requete(201));
+
+        // Assert
+        assertThat(result.statut()).isEqualTo(201);
+        assertThat(executions.get()).isEqualTo(1);
+        verify(cleIdempotenceRepository).supprimerSiExpiree(eq(CLE), any(LocalDateTime.class));
+        verify(cleIdempotenceRepository, never()).supprimer(anyString());
+    }
+
+    @Test
+    void executer_whenReponseReussieTropVolumineuse_shouldGarderLaCleAvecLeStatutSeul() throws Exception {
+        // Arrange
+        when(cleIdempotenceRepository.findById(CLE)).thenReturn(Optional.empty());
+        ReflectionTestUtils.setField(idempotenceService, "corpsMaxOctets", 4);
+
+        // Act
+        ReponseIdempotente result = idempotenceService.executer(CLE, EMPREINTE, requete(201));
+
+        // Assert
+        assertThat(result.corps()).hasSizeGreaterThan(4);
+        verify(cleIdempotenceRepository).enregistrerReponse(CLE, 201, null, new byte[0]);
+        verify(cleIdempotenceRepository, never()).supprimer(anyString());
+    }
+
+    @Test
+    void executer_whenRequeteEnErreur_shouldGarderLaReservation() {
+        // Arrange
+        when(cleIdempotenceRepository.findById(CLE)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThatThrownBy(() -> idempotenceService.executer(CLE, EMPREINTE, () -> {
+            throw new IllegalStateException("connexion perdue après commit");
+        })).isInstanceOf(IllegalStateException.class);
+        verify(cleIdempotenceRepository, never()).supprimer(anyString());
+        verify(cleIdempotenceRepository, never()).enregistrerReponse(anyString(), anyInt(), any(), any());
+    }
+
+    private Callable<ReponseIdempotente> requete(int statut) {
+        return () -> {
+            executions.incrementAndGet();
+            return new ReponseIdempotente(statut, "application/json", "{\"id\":2}".getBytes(StandardCharsets.UTF_8));
+        };
+    }
+
+    private double compteur(String resultat) {
+        return meterRegistry.get("idempotence.requetes").tag("resultat", resultat).counter().count();
+    }
+
+    private CleIdempotence buildCle(int statut) {
+        CleIdempotence cle = new CleIdempotence();
+        cle.setId(CLE);
+        cle.setEmpreinte(EMPREINTE);
+        cle.setStatutHttp(statut);
+        cle.setContentType("application/json");
+        cle.setCorps("{\"id\":1}".getBytes(StandardCharsets.UTF_8));
+        cle.setDateCreation(LocalDateTime.now());
+        cle.setDateExpiration(LocalDateTime.now().plusHours(1));
+        return cle;
+    }
+}
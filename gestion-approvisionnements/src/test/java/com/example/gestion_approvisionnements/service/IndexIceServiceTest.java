@@ -0,0 +1,176 @@
+package com.example.gestion_approvisionnements.service;
+
+import com.example.gestion_approvisionnements.repository.FournisseurRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class IndexIceServiceTest {
+
+    private FournisseurRepository fournisseurRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private IndexIceService indexIceService;
+
+    @BeforeEach
+    void setUp() {
+        fournisseurRepository = mock(FournisseurRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        indexIceService = creer(true);
+        when(fournisseurRepository.findAllIces()).thenReturn(List.of("ICE1", "ICE2"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void peutExister_shouldConstruireLeFiltreUneFoisEtRejeterLesInconnus() {
+        // Act
+        boolean connu = indexIceService.peutExister("ICE1");
+        boolean inconnu = indexIceService.peutExister("ICE_INCONNU");
+
+        // Assert
+        assertThat(connu).isTrue();
+        assertThat(inconnu).isFalse();
+        verify(fournisseurRepository, times(1)).findAllIces();
+        assertThat(meterRegistry.get("referentiel.index_ice.rejets").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void invaliderFournisseur_dansUneTransaction_shouldAjouterLIceApresLeCommitSeulement() {
+        // Arrange
+        indexIceService.peutExister("ICE1");
+        indexIceService.associer("ICE_AVANT", 5L);
+        TransactionSynchronizationManager.initSynchronization();
+
+        // Act
+        indexIceService.invaliderFournisseur(5L, "ICE5");
+        boolean avantCommit = indexIceService.peutExister("ICE5");
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronisation -> synchronisation.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        // Assert
+        assertThat(avantCommit).isFalse();
+        assertThat(indexIceService.peutExister("ICE5")).isTrue();
+        assertThat(indexIceService.id("ICE_AVANT")).isEmpty();
+    }
+
+    @Test
+    void invaliderFournisseur_rollback_shouldNePasAjouterLIce() {
+        // Arrange
+        indexIceService.peutExister("ICE1");
+        TransactionSynchronizationManager.initSynchronization();
+
+        // Act
+        indexIceService.invaliderFournisseur(5L, "ICE5");
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronisation -> synchronisation.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        // Assert
+        assertThat(indexIceService.peutExister("ICE5")).isFalse();
+    }
+
+    @Test
+    void associer_shouldEtreRetireeParLEcritureDuFournisseurSeulement() {
+        // Arrange
+        indexIceService.associer("ICE1", 1L);
+        indexIceService.associer("ICE2", 2L);
+
+        // Act
+        indexIceService.invaliderFournisseur(1L, null);
+
+        // Assert
+        assertThat(indexIceService.id("ICE1")).isEmpty();
+        assertThat(indexIceService.id("ICE2")).contains(2L);
+    }
+
+    @Test
+    void rafraichir_shouldRelireLesIceDesFournisseursDUneAutreInstance() {
+        // Arrange
+        indexIceService.peutExister("ICE1");
+        indexIceService.associer("ICE_AVANT", 3L);
+        when(fournisseurRepository.findIcesByIdIn(List.of(3L))).thenReturn(List.of("ICE3"));
+
+        // Act
+        indexIceService.rafraichir(List.of(3L));
+
+        // Assert
+        assertThat(indexIceService.peutExister("ICE3")).isTrue();
+        assertThat(indexIceService.id("ICE_AVANT")).isEmpty();
+    }
+
+    @Test
+    void rafraichir_lectureImpossible_shouldReconstruireLeFiltreDepuisLaBase() {
+        // Arrange
+        indexIceService.peutExister("ICE1");
+        when(fournisseurRepository.findIcesByIdIn(List.of(3L)))
+                .thenThrow(new DataAccessResourceFailureException("connexion perdue"));
+        when(fournisseurRepository.findAllIces()).thenReturn(List.of("ICE1", "ICE3"));
+
+        // Act
+        indexIceService.rafraichir(List.of(3L));
+
+        // Assert
+        assertThat(indexIceService.peutExister("ICE3")).isTrue();
+        verify(fournisseurRepository, times(2)).findAllIces();
+    }
+
+    @Test
+    void peutExister_filtreSature_shouldLeReconstruirePlusGrand() {
+        // Arrange
+        ReflectionTestUtils.setField(indexIceService, "capaciteMin", 2);
+        indexIceService.peutExister("ICE1");
+
+        // Act : deux ICE en base, capacité du filtre au double
+        indexIceService.invaliderFournisseur(3L, "ICE3");
+        indexIceService.invaliderFournisseur(4L, "ICE4");
+        indexIceService.peutExister("ICE1");
+        indexIceService.invaliderFournisseur(5L, "ICE5");
+        indexIceService.peutExister("ICE1");
+
+        // Assert
+        verify(fournisseurRepository, times(2)).findAllIces();
+        assertThat(meterRegistry.get("referentiel.index_ice.reconstructions").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void inactif_shouldToutLaisserPasserSansLireLaBase() {
+        // Arrange
+        IndexIceService inactif = creer(false);
+
+        // Act
+        inactif.associer("ICE1", 1L);
+
+        // Assert
+        assertThat(inactif.peutExister("ICE_INCONNU")).isTrue();
+        assertThat(inactif.id("ICE1")).isEmpty();
+        verifyNoInteractions(fournisseurRepository);
+    }
+
+    private IndexIceService creer(boolean actif) {
+        IndexIceService service = new IndexIceService(fournisseurRepository, meterRegistry);
+        ReflectionTestUtils.setField(service, "actif", actif);
+        ReflectionTestUtils.setField(service, "tailleMax", 100L);
+        ReflectionTestUtils.setField(service, "capaciteMin", 100);
+        ReflectionTestUtils.setField(service, "tauxFauxPositifs", 0.01);
+        service.initialiser();
+        return service;
+    }
+}
@@ -0,0 +1,272 @@
+package com.example.gestion_approvisionnements.service;
+
+import com.example.gestion_approvisionnements.dto.StockALaDateDTO;
+import com.example.gestion_approvisionnements.entity.InstantaneStock;
+import com.example.gestion_approvisionnements.entity.MouvementStock;
+import com.example.gestion_approvisionnements.entity.Produit;
+import com.example.gestion_approvisionnements.entity.SoldeArchiveMouvement;
+import com.example.gestion_approvisionnements.enums.TypeMouvement;
+import com.example.gestion_approvisionnements.exception.BusinessException;
+import com.example.gestion_approvisionnements.exception.ResourceNotFoundException;
+import com.example.gestion_approvisionnements.repository.InstantaneStockRepository;
+import com.example.gestion_approvisionnements.repository.MouvementStockRepository;
+import com.example.gestion_approvisionnements.repository.ProduitRepository;
+import com.example.gestion_approvisionnements.repository.SoldeArchiveMouvementRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InstantaneStockServiceTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 3, 10);
+    private static final LocalDateTime FIN = LocalDateTime.of(2025, 3, 11, 0, 0);
+
+    @Mock
+    private InstantaneStockRepository instantaneStockRepository;
+    @Mock
+    private MouvementStockRepository mouvementStockRepository;
+    @Mock
+    private ProduitRepository produitRepository;
+    @Mock
+    private SoldeArchiveMouvementRepository soldeArchiveMouvementRepository;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private EntityManager entityManager;
+
+    @InjectMocks
+    private InstantaneStockService instantaneStockService;
+
+    private Produit produit;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(instantaneStockService, "tailleBloc", 2);
+
+        produit = new Produit();
+        produit.setId(1L);
+        produit.setNom("Produit A");
+        produit.setPrixUnitaire(BigDecimal.valueOf(4.00));
+        produit.setStockActuel(50);
+        produit.setCoutMoyenPondere(BigDecimal.valueOf(2.00));
+    }
+
+    @Test
+    void creerInstantanes_shouldTraiterParBlocsSousVerrou() {
+        // Arrange
+        Produit produit2 = new Produit();
+        produit2.setId(2L);
+        produit2.setStockActuel(5);
+        Produit produit3 = new Produit();
+        produit3.setId(3L);
+        produit3.setStockActuel(0);
+        when(instantaneStockRepository.findIdsProduitsAInstantaner()).thenReturn(List.of(1L, 2L, 3L));
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(inv -> ((TransactionCallback<Integer>) inv.getArgument(0)).doInTransaction(null));
+        when(produitRepository.findAllByIdForUpdate(List.of(1L, 2L))).thenReturn(List.of(produit, produit2));
+        when(produitRepository.findAllByIdForUpdate(List.of(3L))).thenReturn(List.of(produit3));
+
+        // Act
+        int crees = instantaneStockService.creerInstantanes();
+
+        // Assert
+        assertThat(crees).isEqualTo(3);
+        verify(transactionTemplate, times(2)).execute(any());
+        verify(instantaneStockRepository).saveAll(argThat((List<InstantaneStock> instantanes) ->
+                instantanes.size() == 2
+                        && instantanes.get(0).getStock() == 50
+                        && instantanes.get(0).getCoutMoyenPondere().compareTo(BigDecimal.valueOf(2.00)) == 0));
+        verify(instantaneStockRepository).saveAll(argThat((List<InstantaneStock> instantanes) ->
+                instantanes.size() == 1 && instantanes.get(0).getProduit() == produit3));
+        verify(instantaneStockRepository).findIdsProduitsAInstantaner();
+        verifyNoMoreInteractions(instantaneStockRepository);
+    }
+
+    @Test
+    void getStockALaDate_shouldRejouerApresInstantane() {
+        // Arrange
+        LocalDateTime dateInstantane = LocalDateTime.of(2025, 3, 1, 2, 0);
+        when(produitRepository.findById(1L)).thenReturn(Optional.of(produit));
+        when(instantaneStockRepository.findFirstByProduitIdAndDateInstantaneLessThanOrderByDateInstantaneDesc(1L, FIN))
+                .thenReturn(Optional.of(new InstantaneStock(1L, produit, dateInstantane, 10, BigDecimal.valueOf(2.00))));
+        MouvementStock entree = buildMouvement(TypeMouvement.ENTREE, 10, null);
+        MouvementStock sortie = buildMouvement(TypeMouvement.SORTIE, 5, null);
+        when(mouvementStockRepository.streamARejouer(1L, FIN)).thenReturn(Stream.of(entree, sortie));
+
+        // Act
+        StockALaDateDTO result = instantaneStockService.getStockALaDate(1L, DATE);
+
+        // Assert : ENTREE sans prix valorisée au prix catalogue, (2.00 * 10 + 4.00 * 10) / 20
+        assertThat(result.getStock()).isEqualTo(15);
+        assertThat(result.getCoutMoyenPondere()).isEqualByComparingTo("3.00");
+        assertThat(result.getDateInstantane()).isEqualTo(dateInstantane);
+        assertThat(result.getMouvementsRejoues()).isEqualTo(2);
+        assertThat(produit.getStockActuel()).isEqualTo(50);
+        verify(entityManager).detach(entree);
+        verify(entityManager).detach(sortie);
+    }
+
+    @Test
+    void getStockALaDate_sansInstantane_shouldPartirDeZero() {
+        // Arrange
+        when(produitRepository.findById(1L)).thenReturn(Optional.of(produit));
+        when(instantaneStockRepository.findFirstByProduitIdAndDateInstantaneLessThanOrderByDateInstantaneDesc(1L, FIN))
+                .thenReturn(Optional.empty());
+        when(mouvementStockRepository.streamARejouer(1L, FIN)).thenReturn(Stream.of(
+                buildMouvement(TypeMouvement.ENTREE, 8, BigDecimal.valueOf(1.00)),
+                buildMouvement(TypeMouvement.AJUSTEMENT, 6, null)));
+
+        // Act
+        StockALaDateDTO result = instantaneStockService.getStockALaDate(1L, DATE);
+
+        // Assert
+        assertThat(result.getStock()).isEqualTo(6);
+        assertThat(result.getCoutMoyenPondere()).isEqualByComparingTo("1.00");
+        assertThat(result.getDateInstantane()).isNull();
+    }
+
+    @Test
+    void getStockALaDate_produitCreeAvecDuStock_shouldPartirDeSonOuverture() {
+        // Arrange : créé avec 20 unités à 5.00, hors journal
+        produit.setStockOuverture(20);
+        produit.setCoutMoyenPondereOuverture(BigDecimal.valueOf(5.00));
+        produit.setCreatedAt(LocalDateTime.of(2025, 1, 2, 9, 0));
+        when(produitRepository.findById(1L)).thenReturn(Optional.of(produit));
+        when(instantaneStockRepository.findFirstByProduitIdAndDateInstantaneLessThanOrderByDateInstantaneDesc(1L, FIN))
+                .thenReturn(Optional.empty());
+        when(mouvementStockRepository.streamARejouer(1L, FIN)).thenReturn(Stream.of(
+                buildMouvement(TypeMouvement.ENTREE, 10, BigDecimal.valueOf(2.00)),
+                buildMouvement(TypeMouvement.SORTIE, 6, null)));
+
+        // Act
+        StockALaDateDTO result = instantaneStockService.getStockALaDate(1L, DATE);
+
+        // Assert : (5.00 * 20 + 2.00 * 10) / 30
+        assertThat(result.getStock()).isEqualTo(24);
+        assertThat(result.getCoutMoyenPondere()).isEqualByComparingTo("4.00");
+        assertThat(result.getMouvementsRejoues()).isEqualTo(2);
+    }
+
+    @Test
+    void getStockALaDate_avantLaCreationDuProduit_shouldPartirDeZero() {
+        // Arrange
+        produit.setStockOuverture(20);
+        produit.setCoutMoyenPondereOuverture(BigDecimal.valueOf(5.00));
+        produit.setCreatedAt(LocalDateTime.of(2025, 4, 1, 9, 0));
+        when(produitRepository.findById(1L)).thenReturn(Optional.of(produit));
+        when(instantaneStockRepository.findFirstByProduitIdAndDateInstantaneLessThanOrderByDateInstantaneDesc(1L, FIN))
+                .thenReturn(Optional.empty());
+        when(mouvementStockRepository.streamARejouer(1L, FIN)).thenReturn(Stream.empty());
+
+        // Act
+        StockALaDateDTO result = instantaneStockService.getStockALaDate(1L, DATE);
+
+        // Assert
+        assertThat(result.getStock()).isZero();
+        assertThat(result.getCoutMoyenPondere()).isEqualByComparingTo("0");
+    }
+
+    @Test
+    void getStockALaDate_quandInstantaneAnterieurAuxArchives_shouldPartirDuSolde() {
+        // Arrange
+        when(produitRepository.findById(1L)).thenReturn(Optional.of(produit));
+        when(instantaneStockRepository.findFirstByProduitIdAndDateInstantaneLessThanOrderByDateInstantaneDesc(1L, FIN))
+                .thenReturn(Optional.of(new InstantaneStock(1L, produit, LocalDateTime.of(2023, 1, 1, 2, 0), 99,
+                        BigDecimal.ONE)));
+        when(soldeArchiveMouvementRepository.findById(1L)).thenReturn(Optional.of(new SoldeArchiveMouvement(1L, 20,
+                BigDecimal.valueOf(2.00), LocalDateTime.of(2023, 2, 28, 9, 0), LocalDate.of(2023, 2, 1), 40L)));
+        when(mouvementStockRepository.streamARejouer(1L, FIN)).thenReturn(Stream.of(
+                buildMouvement(TypeMouvement.SORTIE, 5, null)));
+
+        // Act
+        StockALaDateDTO result = instantaneStockService.getStockALaDate(1L, DATE);
+
+        // Assert
+        assertThat(result.getStock()).isEqualTo(15);
+        assertThat(result.getCoutMoyenPondere()).isEqualByComparingTo("2.00");
+        assertThat(result.getDateInstantane()).isNull();
+        assertThat(result.getMouvementsRejoues()).isEqualTo(1);
+    }
+
+    @Test
+    void getStockALaDate_quandDateDansLesMoisArchives_shouldThrowBusinessException() {
+        // Arrange
+        when(produitRepository.findById(1L)).thenReturn(Optional.of(produit));
+        when(soldeArchiveMouvementRepository.findById(1L)).thenReturn(Optional.of(new SoldeArchiveMouvement(1L, 20,
+                BigDecimal.valueOf(2.00), LocalDateTime.of(2025, 3, 31, 9, 0), LocalDate.of(2025, 3, 1), 40L)));
+
+        // Act & Assert
+        assertThatThrownBy(() -> instantaneStockService.getStockALaDate(1L, DATE))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Les mouvements du produit 1 sont archivés jusqu'au 2025-03-31 : stock à date indisponible avant");
+        verifyNoInteractions(mouvementStockRepository);
+    }
+
+    @Test
+    void getStockALaDate_whenProduitMissing_shouldThrowNotFound() {
+        // Arrange
+        when(produitRepository.findById(1L)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThatThrownBy(() -> instantaneStockService.getStockALaDate(1L, DATE))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessageContaining("1");
+        verifyNoInteractions(instantaneStockRepository, mouvementStockRepository);
+    }
+
+    @Test
+    void getStocksALaDate_shouldCombinerInstantanesEtRejeuParProduit() {
+        // Arrange
+        Produit produit2 = new Produit();
+        produit2.setId(2L);
+        produit2.setNom("Produit B");
+        when(instantaneStockRepository.findDerniersAvant(FIN)).thenReturn(List.of(
+                new InstantaneStock(1L, produit, LocalDateTime.of(2025, 3, 1, 2, 0), 10, BigDecimal.valueOf(2.00))));
+        when(produitRepository.findAll(any(Sort.class)))
+                .thenReturn(List.of(produit, produit2));
+        MouvementStock sortie = buildMouvement(TypeMouvement.SORTIE, 3, null);
+        MouvementStock entree = buildMouvement(TypeMouvement.ENTREE, 4, BigDecimal.ONE);
+        entree.setProduit(produit2);
+        when(mouvementStockRepository.streamARejouer(null, FIN)).thenReturn(Stream.of(sortie, entree));
+
+        // Act
+        List<StockALaDateDTO> result = instantaneStockService.getStocksALaDate(DATE);
+
+        // Assert
+        assertThat(result).extracting(StockALaDateDTO::getProduitId).containsExactly(1L, 2L);
+        assertThat(result).extracting(StockALaDateDTO::getStock).containsExactly(7, 4);
+        assertThat(result).extracting(StockALaDateDTO::getMouvementsRejoues).containsExactly(1, 1);
+        verify(produitRepository, never()).findAllByIdForUpdate(anyList());
+    }
+
+    private MouvementStock buildMouvement(TypeMouvement type, int quantite, BigDecimal prix) {
+        MouvementStock m = new MouvementStock();
+        m.setProduit(produit);
+        m.setTypeMouvement(type);
+        m.setQuantite(quantite);
+        m.setPrixUnitaire(prix);
+        return m;
+    }
+}
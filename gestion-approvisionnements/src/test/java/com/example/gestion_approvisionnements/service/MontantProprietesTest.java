@@ -0,0 +1,138 @@
+package com.example.gestion_approvisionnements.service;
+
+import com.example.gestion_approvisionnements.entity.Montant;
+import net.jqwik.api.Arbitraries;
+import net.jqwik.api.Arbitrary;
+import net.jqwik.api.Assume;
+import net.jqwik.api.Combinators;
+import net.jqwik.api.Example;
+import net.jqwik.api.ForAll;
+import net.jqwik.api.Property;
+import net.jqwik.api.Provide;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Équivalence avec les calculs BigDecimal remplacés (recopiés ci-dessous) : même valeur et même échelle,
+// y compris pour les montants hors long ou à plus de 6 décimales, recalculés en BigDecimal
+class MontantProprietesTest {
+
+    @Property(tries = 5000)
+    void sousTotalIdentiqueAuCalculBigDecimal(@ForAll("prix") BigDecimal prix, @ForAll int quantite) {
+        assertThat(Montant.produit(prix, quantite)).isEqualTo(prix.multiply(new BigDecimal(quantite)));
+    }
+
+    @Property(tries = 2000)
+    void montantTotalIdentiqueAuCalculBigDecimal(@ForAll("sousTotaux") List<BigDecimal> sousTotaux) {
+        assertThat(Montant.somme(sousTotaux, Function.identity()))
+                .isEqualTo(sousTotaux.stream().reduce(BigDecimal.ZERO, BigDecimal::add));
+    }
+
+    @Property(tries = 5000)
+    void cumpIdentiqueAuCalculBigDecimal(@ForAll("prix") BigDecimal ancienCump, @ForAll int ancienStock,
+                                         @ForAll("prix") BigDecimal prixUnitaire, @ForAll int quantiteEntree) {
+        int nouveauStock = ancienStock + quantiteEntree;
+        Assume.that(nouveauStock > 0);
+
+        assertThat(Montant.moyennePonderee(ancienCump, ancienStock, prixUnitaire, quantiteEntree, 2))
+                .isEqualTo(cumpBigDecimal(ancienCump, ancienStock, prixUnitaire, quantiteEntree, nouveauStock));
+    }
+
+    @Property(tries = 5000)
+    void cumpIdentiquePourDesStocksCourants(@ForAll("prixCourants") BigDecimal ancienCump,
+                                            @ForAll("quantites") int ancienStock,
+                                            @ForAll("prixCourants") BigDecimal prixUnitaire,
+                                            @ForAll("quantites") int quantiteEntree) {
+        int nouveauStock = ancienStock + quantiteEntree;
+        Assume.that(nouveauStock > 0);
+
+        assertThat(Montant.moyennePonderee(ancienCump, ancienStock, prixUnitaire, quantiteEntree, 2))
+                .isEqualTo(cumpBigDecimal(ancienCump, ancienStock, prixUnitaire, quantiteEntree, nouveauStock));
+    }
+
+    // Rejeu : CUMP cumulé sur un long d'une entrée à l'autre, identique au CUMP BigDecimal recalculé à chaque entrée
+    @Property(tries = 2000)
+    void cumpCumuleIdentiqueAuxEntreesSuccessives(@ForAll("prix") BigDecimal cumpInitial,
+                                                 @ForAll("quantites") int stockInitial,
+                                                 @ForAll("entrees") List<Entree> entrees) {
+        ValorisationStock valorisation = new ValorisationStock(stockInitial, cumpInitial);
+        BigDecimal cump = cumpInitial;
+        int stock = stockInitial;
+        for (Entree entree : entrees) {
+            valorisation.entree(entree.quantite(), entree.prix());
+            int nouveauStock = stock + entree.quantite();
+            cump = nouveauStock <= 0 ? BigDecimal.ZERO
+                    : cumpBigDecimal(cump, stock, entree.prix(), entree.quantite(), nouveauStock);
+            stock = Math.max(nouveauStock, 0);
+        }
+
+        assertThat(valorisation.stock()).isEqualTo(stock);
+        assertThat(valorisation.coutMoyenPondere()).isEqualTo(cump);
+    }
+
+    @Example
+    void conversionExacteAuxFrontieres() {
+        Montant montant = Montant.de(new BigDecimal("12.30"));
+
+        assertThat(montant).isEqualTo(new Montant(1230, 2));
+        assertThat(montant.fois(3).enBigDecimal()).isEqualTo(new BigDecimal("36.90"));
+    }
+
+    @Example
+    void demiCentimeArrondiLoinDeZero() {
+        assertThat(Montant.moyennePonderee(new BigDecimal("1.00"), 1, new BigDecimal("2.01"), 1, 2))
+                .isEqualTo(new BigDecimal("1.51"));
+        assertThat(Montant.moyennePonderee(new BigDecimal("-1.01"), 1, BigDecimal.ZERO, 1, 2))
+                .isEqualTo(new BigDecimal("-0.51"));
+    }
+
+    @Example
+    void depassementDuLongRecalculeEnBigDecimal() {
+        BigDecimal prix = new BigDecimal("92233720368547758.07");
+
+        assertThat(Montant.produit(prix, 3)).isEqualTo(new BigDecimal("276701161105643274.21"));
+    }
+
+    @Provide
+    Arbitrary<BigDecimal> prixCourants() {
+        return Arbitraries.bigDecimals().between(BigDecimal.ZERO, new BigDecimal("99999999.99")).ofScale(2);
+    }
+
+    @Provide
+    Arbitrary<Integer> quantites() {
+        return Arbitraries.integers().between(-1000, 1_000_000);
+    }
+
+    // Prix du catalogue, valeurs quelconques d'échelle -2 à 8 et montants au-delà du long
+    @Provide
+    Arbitrary<BigDecimal> prix() {
+        return Arbitraries.oneOf(
+                prixCourants(),
+                Combinators.combine(Arbitraries.longs(), Arbitraries.integers().between(-2, 8)).as(BigDecimal::valueOf),
+                Arbitraries.bigDecimals().between(new BigDecimal("-1E+30"), new BigDecimal("1E+30")).ofScale(3));
+    }
+
+    @Provide
+    Arbitrary<List<Entree>> entrees() {
+        return Combinators.combine(quantites(), prix()).as(Entree::new).list().ofMaxSize(50);
+    }
+
+    @Provide
+    Arbitrary<List<BigDecimal>> sousTotaux() {
+        return prix().list().ofMaxSize(200);
+    }
+
+    private static BigDecimal cumpBigDecimal(BigDecimal ancienCump, int ancienStock, BigDecimal prixUnitaire,
+                                             int quantiteEntree, int nouveauStock) {
+        return ancienCump.multiply(BigDecimal.valueOf(ancienStock))
+                .add(prixUnitaire.multiply(BigDecimal.valueOf(quantiteEntree)))
+                .divide(BigDecimal.valueOf(nouveauStock), 2, RoundingMode.HALF_UP);
+    }
+
+    private record Entree(int quantite, BigDecimal prix) {
+    }
+}
@@ -1,7 +1,10 @@
 package com.example.gestion_approvisionnements.service;
 
+import com.example.gestion_approvisionnements.dto.LotMouvementsResultatDTO;
 import com.example.gestion_approvisionnements.dto.MouvementStockDTO;
+import com.example.gestion_approvisionnements.dto.PageMouvementsDTO;
 import com.example.gestion_approvisionnements.entity.CommandeFournisseur;
+import com.example.gestion_approvisionnements.entity.LigneCommande;
 import com.example.gestion_approvisionnements.entity.MouvementStock;
 import com.example.gestion_approvisionnements.entity.Produit;
 import com.example.gestion_approvisionnements.enums.TypeMouvement;
@@ -15,13 +18,20 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -39,6 +49,12 @@ class MouvementStockServiceTest {
     private CommandeFournisseurRepository commandeFournisseurRepository;
     @Mock
     private MouvementStockMapper mouvementStockMapper;
+    @Mock
+    private MutationStockService mutationStockService;
+    @Mock
+    private PartitionMouvementService partitionMouvementService;
+    @Mock
+    private CacheReferentielService cacheReferentielService;
 
     @InjectMocks
     private MouvementStockService mouvementStockService;
@@ -48,130 +64,174 @@ class MouvementStockServiceTest {
 
     @BeforeEach
     void setUp() {
+        ReflectionTestUtils.setField(mouvementStockService, "tailleMaxLot", 100);
+        ReflectionTestUtils.setField(mouvementStockService, "taillePageDefaut", 100);
+        ReflectionTestUtils.setField(mouvementStockService, "taillePageMax", 1000);
         produit = buildProduit(1L, 100, BigDecimal.valueOf(2.00));
         entreeDto = buildMouvementDTO(TypeMouvement.ENTREE, 50, BigDecimal.valueOf(3.00), null);
     }
 
     @Test
-    void getMouvementsParProduit_shouldReturnMapperResult() {
+    void getMouvementsParProduit_premierePage_shouldReturnPageAndCurseurSuivant() {
         // Arrange
-        List<MouvementStock> entities = List.of(buildMouvement(TypeMouvement.ENTREE, 10, BigDecimal.ONE));
-        List<MouvementStockDTO> expected = List.of(buildResultDto(5L, 110));
-        when(mouvementStockRepository.findByProduitIdOrderByDateMouvementAsc(1L)).thenReturn(entities);
-        when(mouvementStockMapper.toDTOList(entities)).thenReturn(expected);
+        MouvementStock m1 = buildMouvementDate(5L, LocalDateTime.of(2025, 1, 1, 10, 0));
+        MouvementStock m2 = buildMouvementDate(6L, LocalDateTime.of(2025, 1, 1, 11, 0));
+        MouvementStock m3 = buildMouvementDate(7L, LocalDateTime.of(2025, 1, 1, 12, 0));
+        List<MouvementStockDTO> dtos = List.of(buildDtoDate(5L, m1.getDateMouvement()),
+                buildDtoDate(6L, m2.getDateMouvement()), buildDtoDate(7L, m3.getDateMouvement()));
+        when(mouvementStockRepository.findByProduitIdOrderByDateMouvementAscIdAsc(1L, Limit.of(3)))
+                .thenReturn(List.of(m1, m2, m3));
+        when(mouvementStockMapper.toDTOList(List.of(m1, m2, m3))).thenReturn(dtos);
 
         // Act
-        List<MouvementStockDTO> result = mouvementStockService.getMouvementsParProduit(1L);
+        PageMouvementsDTO result = mouvementStockService.getMouvementsParProduit(1L, null, 2, null, null);
 
         // Assert
-        assertThat(result).isEqualTo(expected);
-        verify(mouvementStockRepository).findByProduitIdOrderByDateMouvementAsc(1L);
-        verify(mouvementStockMapper).toDTOList(entities);
+        assertThat(result.getMouvements()).isEqualTo(dtos.subList(0, 2));
+        assertThat(result.getCurseurSuivant()).isNotNull();
+        assertThat(CurseurMouvement.decoder(result.getCurseurSuivant()))
+                .isEqualTo(new CurseurMouvement(m2.getDateMouvement(), 6L));
+        verify(mouvementStockRepository).findByProduitIdOrderByDateMouvementAscIdAsc(1L, Limit.of(3));
+        verify(mouvementStockMapper).toDTOList(List.of(m1, m2, m3));
+        verify(partitionMouvementService).lireArchives(1L, null, null, 3);
         verifyNoMoreInteractions(mouvementStockRepository, mouvementStockMapper);
         verifyNoInteractions(produitRepository, commandeFournisseurRepository);
     }
 
     @Test
-    void getMouvementsParType_shouldReturnMapperResult() {
+    void getMouvementsParProduit_surPeriodeArchivee_shouldFusionnerArchivesEtBase() {
+        // Arrange
+        LocalDate debut = LocalDate.of(2022, 1, 1);
+        LocalDate fin = LocalDate.of(2022, 3, 31);
+        LocalDateTime finExclue = LocalDateTime.of(2022, 4, 1, 0, 0);
+        CurseurMouvement position = new CurseurMouvement(debut.atStartOfDay(), Long.MIN_VALUE);
+        MouvementStock enBase = buildMouvementDate(9L, LocalDateTime.of(2022, 1, 15, 8, 0));
+        MouvementStockDTO enBaseDto = buildDtoDate(9L, enBase.getDateMouvement());
+        MouvementStockDTO archive1 = buildDtoDate(3L, LocalDateTime.of(2022, 1, 10, 8, 0));
+        MouvementStockDTO archive2 = buildDtoDate(4L, LocalDateTime.of(2022, 1, 20, 8, 0));
+        when(mouvementStockRepository.findByProduitIdEntre(1L, position.dateMouvement(), Long.MIN_VALUE, finExclue,
+                Limit.of(3))).thenReturn(List.of(enBase));
+        when(mouvementStockMapper.toDTOList(List.of(enBase))).thenReturn(List.of(enBaseDto));
+        when(partitionMouvementService.lireArchives(1L, position, finExclue, 3))
+                .thenReturn(new ArrayList<>(List.of(archive1, archive2)));
+        Produit p = buildProduit(1L, 10, BigDecimal.ONE);
+        p.setNom("Produit A");
+        when(produitRepository.findById(1L)).thenReturn(Optional.of(p));
+
+        // Act
+        PageMouvementsDTO result = mouvementStockService.getMouvementsParProduit(1L, null, 2, debut, fin);
+
+        // Assert
+        assertThat(result.getMouvements()).extracting(MouvementStockDTO::getId).containsExactly(3L, 9L);
+        assertThat(result.getMouvements()).extracting(MouvementStockDTO::getProduitNom)
+                .containsExactly("Produit A", null);
+        assertThat(CurseurMouvement.decoder(result.getCurseurSuivant()))
+                .isEqualTo(new CurseurMouvement(enBase.getDateMouvement(), 9L));
+    }
+
+    @Test
+    void getMouvementsParProduit_quandPeriodeInversee_shouldThrowBusinessException() {
+        // Act & Assert
+        assertThatThrownBy(() -> mouvementStockService.getMouvementsParProduit(1L, null, null,
+                LocalDate.of(2025, 2, 1), LocalDate.of(2025, 1, 1)))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("La date de fin doit être postérieure ou égale à la date de début");
+        verifyNoInteractions(mouvementStockRepository, partitionMouvementService);
+    }
+
+    @Test
+    void getMouvementsParType_avecCurseur_shouldReprendreApresLaPosition() {
         // Arrange
-        List<MouvementStock> entities = List.of(buildMouvement(TypeMouvement.SORTIE, 5, BigDecimal.ONE));
-        List<MouvementStockDTO> expected = List.of(buildResultDto(6L, 95));
-        when(mouvementStockRepository.findByTypeMouvement(TypeMouvement.SORTIE)).thenReturn(entities);
+        LocalDateTime date = LocalDateTime.of(2025, 1, 1, 11, 0);
+        String curseur = new CurseurMouvement(date, 6L).encoder();
+        List<MouvementStock> entities = List.of(buildMouvementDate(7L, date.plusHours(1)));
+        List<MouvementStockDTO> expected = List.of(buildResultDto(7L, 95));
+        when(mouvementStockRepository.findByTypeMouvementApres(TypeMouvement.SORTIE, date, 6L, Limit.of(101)))
+                .thenReturn(entities);
         when(mouvementStockMapper.toDTOList(entities)).thenReturn(expected);
 
         // Act
-        List<MouvementStockDTO> result = mouvementStockService.getMouvementsParType(TypeMouvement.SORTIE);
+        PageMouvementsDTO result = mouvementStockService.getMouvementsParType(TypeMouvement.SORTIE, curseur, null);
 
         // Assert
-        assertThat(result).isEqualTo(expected);
-        verify(mouvementStockRepository).findByTypeMouvement(TypeMouvement.SORTIE);
+        assertThat(result.getMouvements()).isEqualTo(expected);
+        assertThat(result.getCurseurSuivant()).isNull();
+        verify(mouvementStockRepository).findByTypeMouvementApres(TypeMouvement.SORTIE, date, 6L, Limit.of(101));
         verify(mouvementStockMapper).toDTOList(entities);
         verifyNoMoreInteractions(mouvementStockRepository, mouvementStockMapper);
     }
 
     @Test
-    void enregistrerMouvement_entreeAvecPrix_shouldUpdateStockAndCump() {
+    void getMouvementsParProduit_quandCurseurInvalide_shouldThrowBusinessException() {
+        // Act & Assert
+        assertThatThrownBy(() -> mouvementStockService.getMouvementsParProduit(1L, "pas-un-curseur", null, null, null))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Curseur de pagination invalide");
+        verifyNoInteractions(mouvementStockRepository, mouvementStockMapper);
+    }
+
+    @Test
+    void getMouvementsParProduit_quandTailleHorsBornes_shouldThrowBusinessException() {
+        // Act & Assert
+        assertThatThrownBy(() -> mouvementStockService.getMouvementsParProduit(1L, null, 5000, null, null))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("La taille de page doit être comprise entre 1 et 1000");
+        verifyNoInteractions(mouvementStockRepository, mouvementStockMapper);
+    }
+
+    @Test
+    void enregistrerMouvement_entreeAvecPrix_shouldDelegateToMutationEngine() {
         // Arrange
         MouvementStockDTO dto = entreeDto;
-        when(produitRepository.findById(1L)).thenReturn(Optional.of(produit));
-        when(mouvementStockMapper.toEntity(dto)).thenAnswer(inv -> {
-            MouvementStock mouvement = new MouvementStock();
-            mouvement.setQuantite(dto.getQuantite());
-            mouvement.setTypeMouvement(dto.getTypeMouvement());
-            mouvement.setPrixUnitaire(dto.getPrixUnitaire());
-            return mouvement;
-        });
-        when(produitRepository.save(produit)).thenAnswer(inv -> inv.getArgument(0));
+        produit.setStockActuel(150);
+        executerSansTransaction();
+        when(mouvementStockMapper.toEntity(dto)).thenAnswer(inv -> toEntity(dto));
+        when(mutationStockService.appliquer(1L, TypeMouvement.ENTREE, 50, BigDecimal.valueOf(3.00))).thenReturn(produit);
         when(mouvementStockRepository.save(any(MouvementStock.class))).thenAnswer(inv -> {
             MouvementStock saved = inv.getArgument(0);
             saved.setId(10L);
             return saved;
         });
-        when(mouvementStockMapper.toDTO(any(MouvementStock.class))).thenAnswer(inv -> {
-            MouvementStock saved = inv.getArgument(0);
-            MouvementStockDTO result = new MouvementStockDTO();
-            result.setId(saved.getId());
-            result.setStockApresMouvement(saved.getStockApresMouvement());
-            return result;
-        });
+        when(mouvementStockMapper.toDTO(any(MouvementStock.class))).thenAnswer(inv -> toResultDto(inv.getArgument(0)));
 
         // Act
         MouvementStockDTO result = mouvementStockService.enregistrerMouvement(dto);
 
         // Assert
-        assertThat(produit.getStockActuel()).isEqualTo(150);
-        assertThat(produit.getCoutMoyenPondere()).isEqualByComparingTo("2.33");
         assertThat(result.getId()).isEqualTo(10L);
         assertThat(result.getStockApresMouvement()).isEqualTo(150);
-        verify(produitRepository).findById(1L);
         verify(mouvementStockMapper).toEntity(dto);
         verify(commandeFournisseurRepository, never()).findById(anyLong());
-        verify(produitRepository).save(produit);
-        verify(mouvementStockRepository).save(any(MouvementStock.class));
+        verify(mutationStockService).appliquer(1L, TypeMouvement.ENTREE, 50, BigDecimal.valueOf(3.00));
+        verify(mouvementStockRepository).save(argThat(m -> m.getProduit() == produit));
         verify(mouvementStockMapper).toDTO(any(MouvementStock.class));
-        verifyNoMoreInteractions(produitRepository, mouvementStockRepository, mouvementStockMapper);
+        verifyNoMoreInteractions(mouvementStockRepository, mouvementStockMapper);
+        verifyNoInteractions(produitRepository);
     }
 
     @Test
-    void enregistrerMouvement_entreeSansPrix_shouldUtiliserPrixProduit() {
+    void enregistrerMouvement_entreeSansPrix_shouldLaisserLeMoteurUtiliserPrixCatalogue() {
         // Arrange
         MouvementStockDTO dto = buildMouvementDTO(TypeMouvement.ENTREE, 10, null, null);
-        produit.setStockActuel(0);
-        produit.setCoutMoyenPondere(BigDecimal.valueOf(4.00));
-        produit.setPrixUnitaire(BigDecimal.valueOf(5.00));
-
-        when(produitRepository.findById(1L)).thenReturn(Optional.of(produit));
-        when(mouvementStockMapper.toEntity(dto)).thenAnswer(inv -> {
-            MouvementStock mouvement = new MouvementStock();
-            mouvement.setQuantite(dto.getQuantite());
-            mouvement.setTypeMouvement(dto.getTypeMouvement());
-            mouvement.setPrixUnitaire(dto.getPrixUnitaire());
-            return mouvement;
-        });
-        when(produitRepository.save(produit)).thenAnswer(inv -> inv.getArgument(0));
+        produit.setStockActuel(10);
+
+        executerSansTransaction();
+        when(mouvementStockMapper.toEntity(dto)).thenAnswer(inv -> toEntity(dto));
+        when(mutationStockService.appliquer(1L, TypeMouvement.ENTREE, 10, null)).thenReturn(produit);
         when(mouvementStockRepository.save(any(MouvementStock.class))).thenAnswer(inv -> {
             MouvementStock saved = inv.getArgument(0);
             saved.setId(11L);
             return saved;
         });
-        when(mouvementStockMapper.toDTO(any(MouvementStock.class))).thenAnswer(inv -> {
-            MouvementStock saved = inv.getArgument(0);
-            MouvementStockDTO result = new MouvementStockDTO();
-            result.setId(saved.getId());
-            result.setStockApresMouvement(saved.getStockApresMouvement());
-            return result;
-        });
+        when(mouvementStockMapper.toDTO(any(MouvementStock.class))).thenAnswer(inv -> toResultDto(inv.getArgument(0)));
 
         // Act
         MouvementStockDTO result = mouvementStockService.enregistrerMouvement(dto);
 
         // Assert
-        assertThat(produit.getStockActuel()).isEqualTo(10);
-        assertThat(produit.getCoutMoyenPondere()).isEqualByComparingTo("5.00");
         assertThat(result.getStockApresMouvement()).isEqualTo(10);
-        verify(produitRepository).findById(1L);
         verify(mouvementStockMapper).toEntity(dto);
-        verify(produitRepository).save(produit);
+        verify(mutationStockService).appliquer(1L, TypeMouvement.ENTREE, 10, null);
         verify(mouvementStockRepository).save(any(MouvementStock.class));
         verify(mouvementStockMapper).toDTO(any(MouvementStock.class));
     }
@@ -180,83 +240,106 @@ class MouvementStockServiceTest {
     void enregistrerMouvement_sortieMenantStockNegatif_shouldThrowBusinessException() {
         // Arrange
         MouvementStockDTO dto = buildMouvementDTO(TypeMouvement.SORTIE, 200, null, null);
-        when(produitRepository.findById(1L)).thenReturn(Optional.of(produit));
-        when(mouvementStockMapper.toEntity(dto)).thenAnswer(inv -> {
-            MouvementStock mouvement = new MouvementStock();
-            mouvement.setQuantite(dto.getQuantite());
-            mouvement.setTypeMouvement(dto.getTypeMouvement());
-            mouvement.setPrixUnitaire(dto.getPrixUnitaire());
-            return mouvement;
-        });
+        executerSansTransaction();
+        when(mouvementStockMapper.toEntity(dto)).thenAnswer(inv -> toEntity(dto));
+        when(mutationStockService.appliquer(1L, TypeMouvement.SORTIE, 200, null))
+                .thenThrow(new BusinessException("Stock insuffisant pour effectuer cette sortie"));
 
         // Act & Assert
         assertThatThrownBy(() -> mouvementStockService.enregistrerMouvement(dto))
         .isInstanceOf(BusinessException.class)
         .hasMessage("Stock insuffisant pour effectuer cette sortie");
-        verify(produitRepository).findById(1L);
         verify(mouvementStockMapper).toEntity(dto);
-        verifyNoMoreInteractions(produitRepository, mouvementStockMapper);
-        verifyNoInteractions(mouvementStockRepository, commandeFournisseurRepository);
+        verifyNoMoreInteractions(mouvementStockMapper);
+        verifyNoInteractions(produitRepository, mouvementStockRepository, commandeFournisseurRepository);
     }
 
     @Test
-    void enregistrerMouvement_ajustementDevraitFixerStockSansChangerCump() {
+    void enregistrerMouvement_ajustementDevraitFixerStock() {
         // Arrange
         MouvementStockDTO dto = buildMouvementDTO(TypeMouvement.AJUSTEMENT, 42, null, null);
-        BigDecimal cumpInitial = produit.getCoutMoyenPondere();
-        when(produitRepository.findById(1L)).thenReturn(Optional.of(produit));
-        when(mouvementStockMapper.toEntity(dto)).thenAnswer(inv -> {
-            MouvementStock mouvement = new MouvementStock();
-            mouvement.setQuantite(dto.getQuantite());
-            mouvement.setTypeMouvement(dto.getTypeMouvement());
-            return mouvement;
-        });
-        when(produitRepository.save(produit)).thenAnswer(inv -> inv.getArgument(0));
+        produit.setStockActuel(42);
+        executerSansTransaction();
+        when(mouvementStockMapper.toEntity(dto)).thenAnswer(inv -> toEntity(dto));
+        when(mutationStockService.appliquer(1L, TypeMouvement.AJUSTEMENT, 42, null)).thenReturn(produit);
         when(mouvementStockRepository.save(any(MouvementStock.class))).thenAnswer(inv -> {
             MouvementStock saved = inv.getArgument(0);
             saved.setId(12L);
             return saved;
         });
-        when(mouvementStockMapper.toDTO(any(MouvementStock.class))).thenAnswer(inv -> {
-            MouvementStock saved = inv.getArgument(0);
-            MouvementStockDTO result = new MouvementStockDTO();
-            result.setId(saved.getId());
-            result.setStockApresMouvement(saved.getStockApresMouvement());
-            return result;
-        });
+        when(mouvementStockMapper.toDTO(any(MouvementStock.class))).thenAnswer(inv -> toResultDto(inv.getArgument(0)));
 
         // Act
         MouvementStockDTO result = mouvementStockService.enregistrerMouvement(dto);
 
         // Assert
-        assertThat(produit.getStockActuel()).isEqualTo(42);
-        assertThat(produit.getCoutMoyenPondere()).isEqualByComparingTo(cumpInitial);
         assertThat(result.getStockApresMouvement()).isEqualTo(42);
-        verify(produitRepository).findById(1L);
         verify(mouvementStockMapper).toEntity(dto);
-        verify(produitRepository).save(produit);
+        verify(mutationStockService).appliquer(1L, TypeMouvement.AJUSTEMENT, 42, null);
         verify(mouvementStockRepository).save(any(MouvementStock.class));
         verify(mouvementStockMapper).toDTO(any(MouvementStock.class));
     }
 
+    @Test
+    void enregistrerAjustement_shouldJournaliserLeStockObtenuParLaVariation() {
+        // Arrange
+        produit.setStockActuel(95);
+        executerSansTransaction();
+        when(mutationStockService.ajuster(1L, -5)).thenReturn(produit);
+        when(mouvementStockRepository.save(any(MouvementStock.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(mouvementStockMapper.toDTO(any(MouvementStock.class))).thenAnswer(inv -> toResultDto(inv.getArgument(0)));
+
+        // Act
+        MouvementStockDTO result = mouvementStockService.enregistrerAjustement(1L, -5);
+
+        // Assert
+        assertThat(result.getStockApresMouvement()).isEqualTo(95);
+        verify(mouvementStockRepository).save(argThat(mouvement ->
+                mouvement.getTypeMouvement() == TypeMouvement.AJUSTEMENT && mouvement.getQuantite() == 95
+                        && mouvement.getProduit() == produit));
+        verify(mutationStockService).ajuster(1L, -5);
+        verifyNoInteractions(produitRepository);
+    }
+
+    @Test
+    void enregistrerArrivage_shouldApplyEntreeThenChangePrixCatalogue() {
+        // Arrange
+        executerSansTransaction();
+        when(mouvementStockMapper.toEntity(any(MouvementStockDTO.class)))
+                .thenAnswer(inv -> toEntity(inv.getArgument(0)));
+        when(mutationStockService.appliquer(1L, TypeMouvement.ENTREE, 5, BigDecimal.valueOf(2.5))).thenReturn(produit);
+        when(mouvementStockRepository.save(any(MouvementStock.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(mouvementStockMapper.toDTO(any(MouvementStock.class))).thenAnswer(inv -> toResultDto(inv.getArgument(0)));
+
+        // Act
+        mouvementStockService.enregistrerArrivage(1L, 5, BigDecimal.valueOf(2.5));
+
+        // Assert
+        InOrder ordre = inOrder(mutationStockService);
+        ordre.verify(mutationStockService).appliquer(1L, TypeMouvement.ENTREE, 5, BigDecimal.valueOf(2.5));
+        ordre.verify(mutationStockService).changerPrixUnitaire(1L, BigDecimal.valueOf(2.5));
+        verifyNoInteractions(produitRepository);
+    }
+
     @Test
     void enregistrerMouvement_quandProduitInexistant_shouldThrowResourceNotFound() {
         // Arrange
-        when(produitRepository.findById(1L)).thenReturn(Optional.empty());
+        executerSansTransaction();
+        when(mouvementStockMapper.toEntity(entreeDto)).thenAnswer(inv -> toEntity(entreeDto));
+        when(mutationStockService.appliquer(1L, TypeMouvement.ENTREE, 50, BigDecimal.valueOf(3.00)))
+                .thenThrow(new ResourceNotFoundException("Produit introuvable avec l'id 1"));
 
         // Act & Assert
         assertThatThrownBy(() -> mouvementStockService.enregistrerMouvement(entreeDto))
                 .isInstanceOf(ResourceNotFoundException.class);
-        verify(produitRepository).findById(1L);
-        verifyNoMoreInteractions(produitRepository);
-        verifyNoInteractions(mouvementStockMapper, mouvementStockRepository, commandeFournisseurRepository);
+        verifyNoInteractions(produitRepository, mouvementStockRepository, commandeFournisseurRepository);
     }
 
     @Test
     void enregistrerMouvement_quandCommandeRenseigneeMaisInexistante_shouldThrowResourceNotFound() {
         // Arrange
         MouvementStockDTO dto = buildMouvementDTO(TypeMouvement.ENTREE, 5, BigDecimal.ONE, 9L);
-        when(produitRepository.findById(1L)).thenReturn(Optional.of(produit));
+        executerSansTransaction();
         when(commandeFournisseurRepository.findById(9L)).thenReturn(Optional.empty());
 
         // Act & Assert
@@ -264,12 +347,142 @@ class MouvementStockServiceTest {
                 .isInstanceOf(ResourceNotFoundException.class)
                 .hasMessageContaining("Commande fournisseur introuvable");
 
-        verify(produitRepository).findById(1L);
         verify(commandeFournisseurRepository).findById(9L);
-        verifyNoInteractions(mouvementStockMapper);
-        verifyNoMoreInteractions(produitRepository, commandeFournisseurRepository);
+        verify(mutationStockService).executerAvecReessais(any());
+        verifyNoMoreInteractions(commandeFournisseurRepository, mutationStockService);
+        verifyNoInteractions(mouvementStockMapper, produitRepository, mouvementStockRepository);
+    }
+
+    @Test
+    void enregistrerLot_quandLotVide_shouldThrowBusinessException() {
+        // Act & Assert
+        assertThatThrownBy(() -> mouvementStockService.enregistrerLot(List.of()))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Le lot doit contenir au moins un mouvement");
+        verifyNoInteractions(produitRepository, mouvementStockRepository, mutationStockService);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void enregistrerLot_shouldApplyInOrderWithOneLookupAndReportFailures() {
+        // Arrange
+        MouvementStockDTO entree = buildMouvementDTO(TypeMouvement.ENTREE, 50, BigDecimal.valueOf(3.00), null);
+        MouvementStockDTO sortieTropGrande = buildMouvementDTO(TypeMouvement.SORTIE, 500, null, null);
+        MouvementStockDTO sortie = buildMouvementDTO(TypeMouvement.SORTIE, 30, null, null);
+        when(mutationStockService.executerAvecReessais(any()))
+                .thenAnswer(inv -> ((Supplier<LotMouvementsResultatDTO>) inv.getArgument(0)).get());
+        when(produitRepository.findAllByIdForUpdate(Set.of(1L))).thenReturn(List.of(produit));
+        when(mouvementStockMapper.toEntity(any(MouvementStockDTO.class))).thenAnswer(inv -> toEntity(inv.getArgument(0)));
+        when(mouvementStockRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+        when(mouvementStockMapper.toDTO(any(MouvementStock.class))).thenAnswer(inv -> toResultDto(inv.getArgument(0)));
+
+        // Act
+        LotMouvementsResultatDTO result = mouvementStockService.enregistrerLot(List.of(entree, sortieTropGrande, sortie));
+
+        // Assert
+        assertThat(result.getNombreReussis()).isEqualTo(2);
+        assertThat(result.getNombreEchecs()).isEqualTo(1);
+        assertThat(result.getResultats().get(1).getErreur()).isEqualTo("Stock insuffisant pour effectuer cette sortie");
+        assertThat(result.getResultats().get(2).getMouvement().getStockApresMouvement()).isEqualTo(120);
+        assertThat(produit.getStockActuel()).isEqualTo(120);
+        assertThat(produit.getCoutMoyenPondere()).isEqualByComparingTo("2.33");
+        verify(produitRepository).findAllByIdForUpdate(Set.of(1L));
+        verify(mouvementStockRepository).saveAll(argThat(mouvements -> ((List<MouvementStock>) mouvements).size() == 2));
+        verify(cacheReferentielService).invaliderStocks(Set.of(1L));
+        verifyNoMoreInteractions(produitRepository, mouvementStockRepository);
+        verifyNoInteractions(commandeFournisseurRepository);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void enregistrerGroupe_shouldKeepEachExceptionWithItsDemande() {
+        // Arrange
+        MouvementStockDTO produitInconnu = buildMouvementDTO(TypeMouvement.ENTREE, 5, null, null);
+        produitInconnu.setProduitId(99L);
+        MouvementStockDTO sortie = buildMouvementDTO(TypeMouvement.SORTIE, 30, null, null);
+        when(mutationStockService.executerAvecReessais(any()))
+                .thenAnswer(inv -> ((Supplier<List<ResultatMouvement>>) inv.getArgument(0)).get());
+        when(produitRepository.findAllByIdForUpdate(Set.of(1L, 99L))).thenReturn(List.of(produit));
+        when(mouvementStockMapper.toEntity(any(MouvementStockDTO.class))).thenAnswer(inv -> toEntity(inv.getArgument(0)));
+        when(mouvementStockRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+        when(mouvementStockMapper.toDTO(any(MouvementStock.class))).thenAnswer(inv -> toResultDto(inv.getArgument(0)));
+
+        // Act
+        List<ResultatMouvement> result = mouvementStockService.enregistrerGroupe(List.of(produitInconnu, sortie));
+
+        // Assert
+        assertThat(result.get(0).mouvement()).isNull();
+        assertThat(result.get(0).erreur()).isInstanceOf(ResourceNotFoundException.class);
+        assertThat(result.get(1).erreur()).isNull();
+        assertThat(result.get(1).mouvement().getStockApresMouvement()).isEqualTo(70);
+        verify(mouvementStockRepository).saveAll(argThat(mouvements -> ((List<MouvementStock>) mouvements).size() == 1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void enregistrerLivraison_shouldLockProduitsOnceAndSaveAllSorties() {
+        // Arrange
+        Produit produit2 = buildProduit(2L, 10, BigDecimal.valueOf(5.00));
+        CommandeFournisseur commande = new CommandeFournisseur();
+        commande.setId(7L);
+        commande.setLignesCommande(List.of(buildLigne(commande, produit, 30), buildLigne(commande, produit2, 4),
+                buildLigne(commande, produit, 20)));
+        when(produitRepository.findAllByCommandeIdForUpdate(7L)).thenReturn(List.of(produit, produit2));
+        when(mouvementStockRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+
+        // Act
+        List<MouvementStock> result = mouvementStockService.enregistrerLivraison(commande);
+
+        // Assert
+        assertThat(result).extracting(MouvementStock::getStockApresMouvement).containsExactly(70, 6, 50);
+        assertThat(result).allMatch(m -> m.getTypeMouvement() == TypeMouvement.SORTIE && m.getCommandeFournisseur() == commande);
+        assertThat(produit.getStockActuel()).isEqualTo(50);
+        assertThat(produit2.getStockActuel()).isEqualTo(6);
+        verify(produitRepository).findAllByCommandeIdForUpdate(7L);
+        verify(mouvementStockRepository).saveAll(argThat(mouvements -> ((List<MouvementStock>) mouvements).size() == 3));
+        verify(cacheReferentielService).invaliderStocks(List.of(1L, 2L, 1L));
+        verifyNoMoreInteractions(produitRepository, mouvementStockRepository);
+        verifyNoInteractions(commandeFournisseurRepository, mouvementStockMapper, mutationStockService);
+    }
+
+    @Test
+    void enregistrerLivraison_quandStockInsuffisant_shouldThrowWithoutSaving() {
+        // Arrange
+        CommandeFournisseur commande = new CommandeFournisseur();
+        commande.setId(7L);
+        commande.setLignesCommande(List.of(buildLigne(commande, produit, 60), buildLigne(commande, produit, 60)));
+        when(produitRepository.findAllByCommandeIdForUpdate(7L)).thenReturn(List.of(produit));
+
+        // Act & Assert
+        assertThatThrownBy(() -> mouvementStockService.enregistrerLivraison(commande))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Stock insuffisant pour effectuer cette sortie");
+        verify(produitRepository).findAllByCommandeIdForUpdate(7L);
+        verifyNoMoreInteractions(produitRepository);
         verifyNoInteractions(mouvementStockRepository);
     }
+
+    @SuppressWarnings("unchecked")
+    private void executerSansTransaction() {
+        when(mutationStockService.executerAvecReessais(any()))
+                .thenAnswer(inv -> ((Supplier<MouvementStockDTO>) inv.getArgument(0)).get());
+    }
+
+    private MouvementStock toEntity(MouvementStockDTO dto) {
+        MouvementStock mouvement = new MouvementStock();
+        mouvement.setQuantite(dto.getQuantite());
+        mouvement.setTypeMouvement(dto.getTypeMouvement());
+        mouvement.setPrixUnitaire(dto.getPrixUnitaire());
+        return mouvement;
+    }
+
+    private MouvementStockDTO toResultDto(MouvementStock saved) {
+        MouvementStockDTO result = new MouvementStockDTO();
+        result.setId(saved.getId());
+        result.setStockApresMouvement(saved.getStockApresMouvement());
+        return result;
+    }
+
     private Produit buildProduit(Long id, int stock, BigDecimal cump) {
         Produit p = new Produit();
         p.setId(id);
@@ -298,10 +511,33 @@ class MouvementStockServiceTest {
         return mouvement;
     }
 
+    private LigneCommande buildLigne(CommandeFournisseur commande, Produit produit, int quantite) {
+        LigneCommande ligne = new LigneCommande();
+        ligne.setCommandeFournisseur(commande);
+        ligne.setProduit(produit);
+        ligne.setQuantite(quantite);
+        ligne.setPrixUnitaire(BigDecimal.TEN);
+        return ligne;
+    }
+
+    private MouvementStock buildMouvementDate(Long id, LocalDateTime date) {
+        MouvementStock mouvement = buildMouvement(TypeMouvement.SORTIE, 5, BigDecimal.ONE);
+        mouvement.setId(id);
+        mouvement.setDateMouvement(date);
+        return mouvement;
+    }
+
     private MouvementStockDTO buildResultDto(Long id, int stock) {
         MouvementStockDTO dto = new MouvementStockDTO();
         dto.setId(id);
         dto.setStockApresMouvement(stock);
         return dto;
     }
-}
\ No newline at end of file
+
+    private MouvementStockDTO buildDtoDate(Long id, LocalDateTime date) {
+        MouvementStockDTO dto = new MouvementStockDTO();
+        dto.setId(id);
+        dto.setDateMouvement(date);
+        return dto;
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.gestion_approvisionnements.service;
+
+import com.example.gestion_approvisionnements.entity.Produit;
+import com.example.gestion_approvisionnements.enums.TypeMouvement;
+import com.example.gestion_approvisionnements.exception.BusinessException;
+import com.example.gestion_approvisionnements.exception.ResourceNotFoundException;
+import com.example.gestion_approvisionnements.repository.ProduitRepository;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MutationStockServiceTest {
+
+    @Mock
+    private ProduitRepository produitRepository;
+    @Mock
+    private EntityManager entityManager;
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+    @Mock
+    private Cache cache;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private CacheReferentielService cacheReferentielService;
+
+    @InjectMocks
+    private MutationStockService mutationStockService;
+
+    private Produit produit;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(mutationStockService, "maxTentatives", 3);
+        ReflectionTestUtils.setField(mutationStockService, "delaiReessaiMs", 0L);
+
+        produit = new Produit();
+        produit.setId(1L);
+        produit.setStockActuel(100);
+        produit.setCoutMoyenPondere(BigDecimal.valueOf(2.00));
+    }
+
+    @Test
+    void appliquer_entree_shouldRunConditionalUpdateAndRefreshProduit() {
+        // Arrange
+        when(produitRepository.appliquerEntree(1L, 50, BigDecimal.valueOf(3.00))).thenReturn(1);
+        when(entityManagerFactory.getCache()).thenReturn(cache);
+        when(entityManager.getReference(Produit.class, 1L)).thenReturn(produit);
+        doAnswer(inv -> {
+            produit.setStockActuel(150);
+            return null;
+        }).when(entityManager).refresh(produit);
+
+        // Act
+        Produit result = mutationStockService.appliquer(1L, TypeMouvement.ENTREE, 50, BigDecimal.valueOf(3.00));
+
+        // Assert
+        assertThat(result).isSameAs(produit);
+        assertThat(result.getStockActuel()).isEqualTo(150);
+        verify(produitRepository).appliquerEntree(1L, 50, BigDecimal.valueOf(3.00));
+        verify(entityManager).getReference(Produit.class, 1L);
+        verify(entityManager).refresh(produit);
+        verify(cache).evict(Produit.class, 1L);
+        verify(cacheReferentielService).invaliderStock(1L);
+        verifyNoMoreInteractions(produitRepository, entityManager);
+    }
+
+    @Test
+    void appliquer_sortieSansStockSuffisant_shouldThrowBusinessException() {
+        // Arrange
+        when(produitRepository.appliquerSortie(1L, 200)).thenReturn(0);
+        when(produitRepository.existsById(1L)).thenReturn(true);
+
+        // Act & Assert
+        assertThatThrownBy(() -> mutationStockService.appliquer(1L, TypeMouvement.SORTIE, 200, null))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Stock insuffisant pour effectuer cette sortie");
+        verify(produitRepository).appliquerSortie(1L, 200);
+        verify(produitRepository).existsById(1L);
+        verifyNoMoreInteractions(produitRepository);
+        verifyNoInteractions(entityManager, cacheReferentielService);
+    }
+
+    @Test
+    void appliquer_ajustementNegatif_shouldThrowBusinessException() {
+        // Act & Assert
+        assertThatThrownBy(() -> mutationStockService.appliquer(1L, TypeMouvement.AJUSTEMENT, -1, null))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("La quantité d'ajustement ne peut pas être négative");
+        verifyNoInteractions(produitRepository, entityManager);
+    }
+
+    @Test
+    void appliquer_quandProduitInexistant_shouldThrowResourceNotFound() {
+        // Arrange
+        when(produitRepository.definirStock(1L, 10)).thenReturn(0);
+        when(produitRepository.existsById(1L)).thenReturn(false);
+
+        // Act & Assert
+        assertThatThrownBy(() -> mutationStockService.appliquer(1L, TypeMouvement.AJUSTEMENT, 10, null))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessage("Produit introuvable avec l'id 1");
+        verifyNoInteractions(entityManager);
+    }
+
+    @Test
+    void ajuster_shouldApplyRelativeConditionalUpdateAndRefreshProduit() {
+        // Arrange
+        when(produitRepository.appliquerAjustement(1L, -30)).thenReturn(1);
+        when(entityManagerFactory.getCache()).thenReturn(cache);
+        when(entityManager.getReference(Produit.class, 1L)).thenReturn(produit);
+        doAnswer(inv -> {
+            produit.setStockActuel(70);
+            return null;
+        }).when(entityManager).refresh(produit);
+
+        // Act
+        Produit result = mutationStockService.ajuster(1L, -30);
+
+        // Assert
+        assertThat(result.getStockActuel()).isEqualTo(70);
+        verify(produitRepository).appliquerAjustement(1L, -30);
+        verify(cache).evict(Produit.class, 1L);
+        verify(cacheReferentielService).invaliderStock(1L);
+        verifyNoMoreInteractions(produitRepository);
+    }
+
+    @Test
+    void ajuster_quandStockDeviendraitNegatif_shouldThrowBusinessException() {
+        // Arrange
+        when(produitRepository.appliquerAjustement(1L, -200)).thenReturn(0);
+        when(produitRepository.existsById(1L)).thenReturn(true);
+
+        // Act & Assert
+        assertThatThrownBy(() -> mutationStockService.ajuster(1L, -200))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Le stock ne peut pas devenir négatif");
+        verifyNoInteractions(entityManager, cacheReferentielService);
+    }
+
+    @Test
+    void ajuster_quandProduitInexistant_shouldThrowResourceNotFound() {
+        // Arrange
+        when(produitRepository.appliquerAjustement(8L, 3)).thenReturn(0);
+        when(produitRepository.existsById(8L)).thenReturn(false);
+
+        // Act & Assert
+        assertThatThrownBy(() -> mutationStockService.ajuster(8L, 3))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessage("Produit introuvable avec l'id 8");
+        verifyNoInteractions(entityManager, cacheReferentielService);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void executerAvecReessais_quandConflitTransitoire_shouldRetryUntilSuccess() {
+        // Arrange
+        AtomicInteger appels = new AtomicInteger();
+        when(transactionTemplate.execute(any())).thenAnswer(inv -> {
+            if (appels.incrementAndGet() < 3) {
+                throw new CannotAcquireLockException("verrou indisponible");
+            }
+            return ((TransactionCallback<String>) inv.getArgument(0)).doInTransaction(null);
+        });
+
+        // Act
+        String result = mutationStockService.executerAvecReessais(() -> "ok");
+
+        // Assert
+        assertThat(result).isEqualTo("ok");
+        verify(transactionTemplate, times(3)).execute(any());
+    }
+
+    @Test
+    void executerAvecReessais_quandTentativesEpuisees_shouldThrowBusinessException() {
+        // Arrange
+        when(transactionTemplate.execute(any())).thenThrow(new CannotAcquireLockException("verrou indisponible"));
+
+        // Act & Assert
+        assertThatThrownBy(() -> mutationStockService.executerAvecReessais(() -> "ok"))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Conflit d'accès concurrent sur le stock, veuillez réessayer");
+        verify(transactionTemplate, times(3)).execute(any());
+    }
+
+    @Test
+    void executerAvecReessais_quandErreurMetier_shouldNotRetry() {
+        // Arrange
+        when(transactionTemplate.execute(any())).thenThrow(new BusinessException("Stock insuffisant pour effectuer cette sortie"));
+
+        // Act & Assert
+        assertThatThrownBy(() -> mutationStockService.executerAvecReessais(() -> "ok"))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Stock insuffisant pour effectuer cette sortie");
+        verify(transactionTemplate, times(1)).execute(any());
+    }
+}
@@ -0,0 +1,301 @@
+package com.example.gestion_approvisionnements.service;
+
+import com.example.gestion_approvisionnements.dto.OperationStatutDTO;
+import com.example.gestion_approvisionnements.entity.OperationStatut;
+import com.example.gestion_approvisionnements.entity.RejetOperationStatut;
+import com.example.gestion_approvisionnements.enums.EtatOperation;
+import com.example.gestion_approvisionnements.enums.StatutCommande;
+import com.example.gestion_approvisionnements.exception.BusinessException;
+import com.example.gestion_approvisionnements.exception.ResourceNotFoundException;
+import com.example.gestion_approvisionnements.mapper.OperationStatutMapper;
+import com.example.gestion_approvisionnements.repository.CommandeFournisseurRepository;
+import com.example.gestion_approvisionnements.repository.OperationStatutRepository;
+import com.example.gestion_approvisionnements.repository.RejetOperationStatutRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OperationStatutServiceTest {
+
+    @Mock
+    private OperationStatutRepository operationStatutRepository;
+    @Mock
+    private RejetOperationStatutRepository rejetOperationStatutRepository;
+    @Mock
+    private CommandeFournisseurRepository commandeFournisseurRepository;
+    @Mock
+    private CommandeFournisseurService commandeFournisseurService;
+    @Mock
+    private OperationStatutMapper operationStatutMapper;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private OperationStatutService operationStatutService;
+
+    @BeforeEach
+    void setUp() {
+        operationStatutService = new OperationStatutService(operationStatutRepository, rejetOperationStatutRepository,
+                commandeFournisseurRepository, commandeFournisseurService, operationStatutMapper,
+                new TransactionTemplate(transactionManager), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(operationStatutService, "maxTentatives", 3);
+        ReflectionTestUtils.setField(operationStatutService, "delaiReessaiMs", 1L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void soumettre_shouldEnregistrerEnAttenteEtPlanifierApresCommit() {
+        // Arrange
+        TransactionSynchronizationManager.initSynchronization();
+        OperationStatutDTO dto = new OperationStatutDTO();
+        when(commandeFournisseurRepository.existsById(1L)).thenReturn(true);
+        when(operationStatutRepository.existsByCommandeIdAndEtatIn(eq(1L), anyCollection())).thenReturn(false);
+        when(operationStatutRepository.saveAndFlush(any(OperationStatut.class))).thenAnswer(inv -> {
+            OperationStatut operation = inv.getArgument(0);
+            operation.setId(7L);
+            return operation;
+        });
+        when(operationStatutMapper.toDTO(any(OperationStatut.class))).thenReturn(dto);
+        ArgumentCaptor<OperationStatut> captor = ArgumentCaptor.forClass(OperationStatut.class);
+
+        // Act
+        OperationStatutDTO result = operationStatutService.soumettre(1L, StatutCommande.LIVREE);
+
+        // Assert
+        assertThat(result).isSameAs(dto);
+        verify(operationStatutRepository).saveAndFlush(captor.capture());
+        assertThat(captor.getValue().getEtat()).isEqualTo(EtatOperation.EN_ATTENTE);
+        assertThat(captor.getValue().getStatutCible()).isEqualTo(StatutCommande.LIVREE);
+        assertThat(TransactionSynchronizationManager.getSynchronizations()).hasSize(1);
+        verifyNoInteractions(commandeFournisseurService);
+    }
+
+    @Test
+    void soumettre_whenOperationDejaEnCours_shouldThrowBusinessException() {
+        // Arrange
+        when(commandeFournisseurRepository.existsById(1L)).thenReturn(true);
+        when(operationStatutRepository.existsByCommandeIdAndEtatIn(eq(1L), anyCollection())).thenReturn(true);
+
+        // Act & Assert
+        assertThatThrownBy(() -> operationStatutService.soumettre(1L, StatutCommande.LIVREE))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Un changement de statut est déjà en cours pour la commande 1");
+        verify(operationStatutRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void soumettre_whenSoumissionConcurrente_shouldTranslateUniqueViolationToBusinessException() {
+        // Arrange : l'autre soumission n'était pas encore commitée au contrôle, l'index unique la refuse
+        TransactionSynchronizationManager.initSynchronization();
+        when(commandeFournisseurRepository.existsById(1L)).thenReturn(true);
+        when(operationStatutRepository.existsByCommandeIdAndEtatIn(eq(1L), anyCollection())).thenReturn(false);
+        when(operationStatutRepository.saveAndFlush(any(OperationStatut.class))).thenThrow(violation("23505"));
+
+        // Act & Assert
+        assertThatThrownBy(() -> operationStatutService.soumettre(1L, StatutCommande.LIVREE))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Un changement de statut est déjà en cours pour la commande 1");
+        assertThat(TransactionSynchronizationManager.getSynchronizations()).isEmpty();
+    }
+
+    @Test
+    void soumettre_whenAutreViolationDIntegrite_shouldPropagate() {
+        // Arrange : commande supprimée entre le contrôle et l'insertion
+        when(commandeFournisseurRepository.existsById(1L)).thenReturn(true);
+        when(operationStatutRepository.existsByCommandeIdAndEtatIn(eq(1L), anyCollection())).thenReturn(false);
+        when(operationStatutRepository.saveAndFlush(any(OperationStatut.class))).thenThrow(violation("23503"));
+
+        // Act & Assert
+        assertThatThrownBy(() -> operationStatutService.soumettre(1L, StatutCommande.LIVREE))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    void soumettre_whenCommandeMissing_shouldThrowResourceNotFound() {
+        // Arrange
+        when(commandeFournisseurRepository.existsById(99L)).thenReturn(false);
+
+        // Act & Assert
+        assertThatThrownBy(() -> operationStatutService.soumettre(99L, StatutCommande.LIVREE))
+                .isInstanceOf(ResourceNotFoundException.class);
+        verifyNoInteractions(operationStatutRepository);
+    }
+
+    @Test
+    void traiter_whenEchecTransitoire_shouldReessayerPuisTerminer() throws Exception {
+        // Arrange
+        OperationStatut operation = buildOperation();
+        when(operationStatutRepository.prendre(eq(7L), anyString(), any(LocalDateTime.class))).thenReturn(1);
+        when(operationStatutRepository.findByIdForUpdate(7L)).thenReturn(Optional.of(operation));
+        when(commandeFournisseurService.updateStatut(1L, StatutCommande.LIVREE))
+                .thenThrow(new CannotAcquireLockException("verrou"))
+                .thenReturn(null);
+
+        // Act
+        operationStatutService.traiter(7L);
+
+        // Assert
+        verify(commandeFournisseurService, times(2)).updateStatut(1L, StatutCommande.LIVREE);
+        assertThat(operation.getEtat()).isEqualTo(EtatOperation.TERMINEE);
+        assertThat(operation.getTentatives()).isEqualTo(2);
+        assertThat(operation.getDateFin()).isNotNull();
+        verifyNoInteractions(rejetOperationStatutRepository);
+    }
+
+    @Test
+    void traiter_whenEchecMetier_shouldRejeterSansReessai() throws Exception {
+        // Arrange
+        OperationStatut operation = buildOperation();
+        when(operationStatutRepository.prendre(eq(7L), anyString(), any(LocalDateTime.class))).thenReturn(1);
+        when(operationStatutRepository.findByIdForUpdate(7L)).thenReturn(Optional.of(operation));
+        when(commandeFournisseurService.updateStatut(1L, StatutCommande.LIVREE))
+                .thenThrow(new BusinessException("Stock insuffisant pour effectuer cette sortie"));
+        ArgumentCaptor<RejetOperationStatut> captor = ArgumentCaptor.forClass(RejetOperationStatut.class);
+
+        // Act
+        operationStatutService.traiter(7L);
+
+        // Assert
+        verify(commandeFournisseurService).updateStatut(1L, StatutCommande.LIVREE);
+        verify(rejetOperationStatutRepository).save(captor.capture());
+        assertThat(captor.getValue().getId()).isEqualTo(7L);
+        assertThat(captor.getValue().getTentatives()).isEqualTo(1);
+        assertThat(captor.getValue().getErreur()).isEqualTo("Stock insuffisant pour effectuer cette sortie");
+        assertThat(operation.getEtat()).isEqualTo(EtatOperation.ECHOUEE);
+    }
+
+    @Test
+    void traiter_whenTentativesEpuisees_shouldRejeter() throws Exception {
+        // Arrange
+        OperationStatut operation = buildOperation();
+        when(operationStatutRepository.prendre(eq(7L), anyString(), any(LocalDateTime.class))).thenReturn(1);
+        when(operationStatutRepository.findByIdForUpdate(7L)).thenReturn(Optional.of(operation));
+        when(commandeFournisseurService.updateStatut(1L, StatutCommande.LIVREE))
+                .thenThrow(new CannotAcquireLockException("verrou"));
+
+        // Act
+        operationStatutService.traiter(7L);
+
+        // Assert
+        verify(commandeFournisseurService, times(3)).updateStatut(1L, StatutCommande.LIVREE);
+        verify(rejetOperationStatutRepository).save(any(RejetOperationStatut.class));
+        assertThat(operation.getEtat()).isEqualTo(EtatOperation.ECHOUEE);
+        assertThat(operation.getTentatives()).isEqualTo(3);
+    }
+
+    @Test
+    void traiter_whenDejaPrise_shouldNeRienFaire() throws Exception {
+        // Arrange
+        when(operationStatutRepository.prendre(eq(7L), anyString(), any(LocalDateTime.class))).thenReturn(0);
+
+        // Act
+        operationStatutService.traiter(7L);
+
+        // Assert
+        verify(operationStatutRepository).prendre(eq(7L), anyString(), any(LocalDateTime.class));
+        verifyNoMoreInteractions(operationStatutRepository);
+        verifyNoInteractions(commandeFournisseurService, rejetOperationStatutRepository);
+    }
+
+    @Test
+    void traiter_whenRepriseParUneAutreInstance_shouldNeRienAppliquer() throws Exception {
+        // Arrange : bail expiré pendant une pause, opération reprise ailleurs avant l'application
+        OperationStatut operation = buildOperation();
+        operation.setInstance("autre-instance");
+        when(operationStatutRepository.prendre(eq(7L), anyString(), any(LocalDateTime.class))).thenReturn(1);
+        when(operationStatutRepository.findByIdForUpdate(7L)).thenReturn(Optional.of(operation));
+
+        // Act
+        operationStatutService.traiter(7L);
+
+        // Assert
+        verifyNoInteractions(commandeFournisseurService, rejetOperationStatutRepository);
+        assertThat(operation.getEtat()).isEqualTo(EtatOperation.EN_COURS);
+        assertThat(operation.getDateFin()).isNull();
+    }
+
+    @Test
+    void reprendre_shouldRenouvelerSonBailEtNeReprendreQueLesBauxExpires() {
+        // Arrange
+        ReflectionTestUtils.setField(operationStatutService, "bailMs", 60_000L);
+        ReflectionTestUtils.setField(operationStatutService, "file", new ArrayBlockingQueue<Long>(10));
+        String instance = (String) ReflectionTestUtils.getField(operationStatutService, "instance");
+        ArgumentCaptor<LocalDateTime> avant = ArgumentCaptor.forClass(LocalDateTime.class);
+
+        // Act
+        operationStatutService.reprendre();
+
+        // Assert
+        verify(operationStatutRepository).prolonger(eq(instance), any(LocalDateTime.class));
+        verify(operationStatutRepository).remettreEnAttente(avant.capture());
+        assertThat(avant.getValue()).isBefore(LocalDateTime.now().minusSeconds(59));
+    }
+
+    @Test
+    void rejouer_shouldSupprimerLeRejetEtSoumettreUneNouvelleOperation() {
+        // Arrange
+        TransactionSynchronizationManager.initSynchronization();
+        RejetOperationStatut rejet = new RejetOperationStatut(7L, 1L, StatutCommande.LIVREE, 1,
+                "Stock insuffisant pour effectuer cette sortie", LocalDateTime.now());
+        when(rejetOperationStatutRepository.findById(7L)).thenReturn(Optional.of(rejet));
+        when(commandeFournisseurRepository.existsById(1L)).thenReturn(true);
+        when(operationStatutRepository.existsByCommandeIdAndEtatIn(eq(1L), anyCollection())).thenReturn(false);
+        when(operationStatutRepository.saveAndFlush(any(OperationStatut.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        // Act
+        operationStatutService.rejouer(7L);
+
+        // Assert
+        verify(rejetOperationStatutRepository).delete(rejet);
+        verify(operationStatutRepository).saveAndFlush(argThat(operation ->
+                operation.getCommandeId().equals(1L) && operation.getEtat() == EtatOperation.EN_ATTENTE));
+    }
+
+    private static DataIntegrityViolationException violation(String sqlState) {
+        return new DataIntegrityViolationException("violation", new ConstraintViolationException("violation",
+                new SQLException("violation", sqlState), "insert into operation_statut",
+                "uk_operation_statut__commande_en_cours"));
+    }
+
+    private OperationStatut buildOperation() {
+        OperationStatut operation = new OperationStatut();
+        operation.setId(7L);
+        operation.setCommandeId(1L);
+        operation.setStatutCible(StatutCommande.LIVREE);
+        operation.setEtat(EtatOperation.EN_COURS);
+        operation.setDateCreation(LocalDateTime.now());
+        operation.setInstance((String) ReflectionTestUtils.getField(operationStatutService, "instance"));
+        operation.setDatePrise(LocalDateTime.now());
+        return operation;
+    }
+}
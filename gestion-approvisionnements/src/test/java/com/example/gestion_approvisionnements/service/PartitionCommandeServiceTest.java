@@ -0,0 +1,40 @@
+package com.example.gestion_approvisionnements.service;
+
+import com.example.gestion_approvisionnements.repository.CommandeFournisseurRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Year;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PartitionCommandeServiceTest {
+
+    @Mock
+    private CommandeFournisseurRepository commandeFournisseurRepository;
+
+    @InjectMocks
+    private PartitionCommandeService partitionCommandeService;
+
+    @Test
+    void creerPartitionsAVenir_shouldCouvrirLAnneeEnCoursEtLesAnneesDAvance() {
+        // Arrange
+        ReflectionTestUtils.setField(partitionCommandeService, "anneesAvance", 2);
+        int annee = Year.now().getValue();
+        when(commandeFournisseurRepository.creerPartitions(annee, annee + 2)).thenReturn(4);
+
+        // Act
+        int creees = partitionCommandeService.creerPartitionsAVenir();
+
+        // Assert
+        assertThat(creees).isEqualTo(4);
+        verify(commandeFournisseurRepository).creerPartitions(annee, annee + 2);
+        verifyNoMoreInteractions(commandeFournisseurRepository);
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.gestion_approvisionnements.service;
+
+import com.example.gestion_approvisionnements.dto.MouvementArchiveDTO;
+import com.example.gestion_approvisionnements.dto.MouvementStockDTO;
+import com.example.gestion_approvisionnements.entity.ArchiveMouvement;
+import com.example.gestion_approvisionnements.entity.Produit;
+import com.example.gestion_approvisionnements.entity.SoldeArchiveMouvement;
+import com.example.gestion_approvisionnements.enums.TypeMouvement;
+import com.example.gestion_approvisionnements.repository.ArchiveMouvementRepository;
+import com.example.gestion_approvisionnements.repository.MouvementStockRepository;
+import com.example.gestion_approvisionnements.repository.ProduitRepository;
+import com.example.gestion_approvisionnements.repository.SoldeArchiveMouvementRepository;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PartitionMouvementServiceTest {
+
+    private static final YearMonth MOIS = YearMonth.of(2023, 1);
+    private static final LocalDateTime DEBUT = LocalDateTime.of(2023, 1, 1, 0, 0);
+    private static final LocalDateTime FIN = LocalDateTime.of(2023, 2, 1, 0, 0);
+
+    @Mock
+    private MouvementStockRepository mouvementStockRepository;
+    @Mock
+    private ArchiveMouvementRepository archiveMouvementRepository;
+    @Mock
+    private SoldeArchiveMouvementRepository soldeArchiveMouvementRepository;
+    @Mock
+    private ProduitRepository produitRepository;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @TempDir
+    private Path repertoire;
+
+    private PartitionMouvementService partitionMouvementService;
+
+    @BeforeEach
+    void setUp() {
+        partitionMouvementService = new PartitionMouvementService(mouvementStockRepository, archiveMouvementRepository,
+                soldeArchiveMouvementRepository, produitRepository, transactionTemplate,
+                JsonMapper.builder().findAndAddModules().build());
+        ReflectionTestUtils.setField(partitionMouvementService, "moisAvance", 3);
+        ReflectionTestUtils.setField(partitionMouvementService, "retentionMois", 24);
+        ReflectionTestUtils.setField(partitionMouvementService, "repertoire", repertoire.toString());
+        partitionMouvementService.initialiser();
+    }
+
+    @Test
+    void creerPartitionsAVenir_shouldCouvrirLeMoisEnCoursEtLesMoisDAvance() {
+        // Arrange
+        YearMonth mois = YearMonth.now();
+        when(mouvementStockRepository.creerPartitions(mois.atDay(1), mois.plusMonths(3).atDay(1))).thenReturn(4);
+
+        // Act
+        int creees = partitionMouvementService.creerPartitionsAVenir();
+
+        // Assert
+        assertThat(creees).isEqualTo(4);
+        verify(mouvementStockRepository).creerPartitions(mois.atDay(1), mois.plusMonths(3).atDay(1));
+        verifyNoMoreInteractions(mouvementStockRepository);
+    }
+
+    @Test
+    void archiverMois_shouldEcrireLArchiveEtLesSoldesPuisPermettreLaRelecture() throws IOException {
+        // Arrange : journal du produit 1 dans l'ordre de création, dates dans un autre ordre
+        executerTransactions();
+        when(mouvementStockRepository.streamArchivables(DEBUT, FIN)).thenReturn(Stream.of(
+                archivable(10L, 1L, TypeMouvement.ENTREE, 10, BigDecimal.valueOf(2.00), 20, 1),
+                archivable(11L, 1L, TypeMouvement.ENTREE, 10, BigDecimal.valueOf(4.00), 5, 2),
+                archivable(12L, 1L, TypeMouvement.SORTIE, 5, null, 25, 3),
+                archivable(13L, 2L, TypeMouvement.ENTREE, 5, null, 10, 4)));
+        // Produit 1 créé avec 5 unités à 2.00, premier mois archivé : rejeu depuis ce solde d'ouverture
+        Produit produit1 = new Produit();
+        produit1.setId(1L);
+        produit1.setStockOuverture(5);
+        produit1.setCoutMoyenPondereOuverture(BigDecimal.valueOf(2.00));
+        Produit produit2 = new Produit();
+        produit2.setId(2L);
+        produit2.setPrixUnitaire(BigDecimal.valueOf(4.00));
+        when(produitRepository.getReferenceById(1L)).thenReturn(produit1);
+        when(produitRepository.getReferenceById(2L)).thenReturn(produit2);
+        when(soldeArchiveMouvementRepository.findById(1L)).thenReturn(Optional.empty());
+        when(soldeArchiveMouvementRepository.findById(2L)).thenReturn(Optional.of(new SoldeArchiveMouvement(2L, 5,
+                BigDecimal.valueOf(2.00), LocalDateTime.of(2022, 12, 20, 9, 0), LocalDate.of(2022, 12, 1), 7L)));
+        when(mouvementStockRepository.archiverPartition(MOIS.atDay(1))).thenReturn(4L);
+
+        // Act
+        long archives = partitionMouvementService.archiverMois(MOIS);
+
+        // Assert
+        assertThat(archives).isEqualTo(4);
+        ArgumentCaptor<List<SoldeArchiveMouvement>> soldes = ArgumentCaptor.forClass(List.class);
+        verify(soldeArchiveMouvementRepository).saveAll(soldes.capture());
+        SoldeArchiveMouvement solde1 = soldes.getValue().get(0);
+        // (5 * 2.00 + 10 * 2.00 + 10 * 4.00) / 25
+        assertThat(solde1.getStock()).isEqualTo(20);
+        assertThat(solde1.getCoutMoyenPondere()).isEqualByComparingTo("2.80");
+        assertThat(solde1.getDernierCreatedAt()).isEqualTo(LocalDateTime.of(2023, 3, 1, 3, 0));
+        assertThat(solde1.getMouvementsArchives()).isEqualTo(3);
+        // Produit 2 : (5 * 2.00 + 5 * 4.00) / 10, à partir de son solde précédent
+        SoldeArchiveMouvement solde2 = soldes.getValue().get(1);
+        assertThat(solde2.getStock()).isEqualTo(10);
+        assertThat(solde2.getCoutMoyenPondere()).isEqualByComparingTo("3.00");
+        assertThat(solde2.getMoisArchive()).isEqualTo(MOIS.atDay(1));
+        assertThat(solde2.getMouvementsArchives()).isEqualTo(8);
+        verify(archiveMouvementRepository).save(argThat(archive -> archive.getMois().equals(MOIS.atDay(1))
+                && archive.getNombreMouvements() == 4
+                && archive.getFichier().equals("mouvement_stock_2023_01.ndjson.gz")));
+
+        // Le fichier entier se lit comme un seul flux gzip : un membre par produit, mouvements triés par date
+        Path fichier = repertoire.resolve("mouvement_stock_2023_01.ndjson.gz");
+        try (BufferedReader lecteur = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(fichier)), StandardCharsets.UTF_8))) {
+            assertThat(lecteur.lines()).hasSize(4);
+        }
+        assertThat(Files.list(repertoire)).extracting(p -> p.getFileName().toString())
+                .containsExactlyInAnyOrder("mouvement_stock_2023_01.ndjson.gz", "mouvement_stock_2023_01.idx");
+
+        when(archiveMouvementRepository.findAllByOrderByMoisAsc()).thenReturn(List.of(
+                new ArchiveMouvement(MOIS.atDay(1), fichier.getFileName().toString(), 4L, LocalDateTime.now())));
+        assertThat(partitionMouvementService.lireArchives(1L, null, null, 10))
+                .extracting(MouvementStockDTO::getId).containsExactly(11L, 10L, 12L);
+        assertThat(partitionMouvementService.lireArchives(1L,
+                new CurseurMouvement(LocalDateTime.of(2023, 1, 5, 8, 0), 11L), null, 10))
+                .extracting(MouvementStockDTO::getId).containsExactly(10L, 12L);
+        assertThat(partitionMouvementService.lireArchives(1L, null, LocalDateTime.of(2023, 1, 21, 0, 0), 10))
+                .extracting(MouvementStockDTO::getId).containsExactly(11L, 10L);
+        assertThat(partitionMouvementService.lireArchives(2L, null, null, 10))
+                .extracting(MouvementStockDTO::getProduitId).containsExactly(2L);
+        assertThat(partitionMouvementService.lireArchives(3L, null, null, 10)).isEmpty();
+    }
+
+    @Test
+    void archiverMois_quandLaBaseNeRetirePasLesMemesMouvements_shouldAnnulerEtSupprimerLesFichiers() throws IOException {
+        // Arrange
+        executerTransactions();
+        when(mouvementStockRepository.streamArchivables(DEBUT, FIN)).thenReturn(Stream.of(
+                archivable(10L, 1L, TypeMouvement.ENTREE, 10, BigDecimal.ONE, 20, 1)));
+        when(produitRepository.getReferenceById(1L)).thenReturn(new Produit());
+        when(mouvementStockRepository.archiverPartition(MOIS.atDay(1))).thenReturn(2L);
+
+        // Act & Assert
+        assertThatThrownBy(() -> partitionMouvementService.archiverMois(MOIS))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Archivage de mouvement_stock_2023_01 annulé : 1 mouvements écrits, 2 retirés de la base");
+        assertThat(Files.list(repertoire)).isEmpty();
+        verify(soldeArchiveMouvementRepository, never()).saveAll(any());
+        verifyNoInteractions(archiveMouvementRepository);
+    }
+
+    @Test
+    void archiver_shouldNArchiverQueLesMoisHorsRetention() {
+        // Arrange
+        executerTransactions();
+        YearMonth ancien = YearMonth.now().minusMonths(30);
+        YearMonth recent = YearMonth.now().minusMonths(2);
+        when(mouvementStockRepository.findPartitions()).thenReturn(List.of("mouvement_stock_defaut",
+                FichierArchiveMouvements.nom(recent), FichierArchiveMouvements.nom(ancien)));
+        when(mouvementStockRepository.streamArchivables(any(), any())).thenReturn(Stream.empty());
+        when(mouvementStockRepository.archiverPartition(ancien.atDay(1))).thenReturn(0L);
+
+        // Act
+        int archives = partitionMouvementService.archiver();
+
+        // Assert
+        assertThat(archives).isEqualTo(1);
+        verify(mouvementStockRepository).archiverPartition(ancien.atDay(1));
+        verify(mouvementStockRepository, never()).archiverPartition(recent.atDay(1));
+    }
+
+    private void executerTransactions() {
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(inv -> ((TransactionCallback<?>) inv.getArgument(0)).doInTransaction(null));
+    }
+
+    private MouvementArchiveDTO archivable(Long id, Long produitId, TypeMouvement type, int quantite,
+                                           BigDecimal prix, int jour, int heureCreation) {
+        return new MouvementArchiveDTO(id, LocalDateTime.of(2023, 1, jour, 8, 0), quantite, type, prix, null,
+                produitId, null, LocalDateTime.of(2023, 3, 1, heureCreation, 0));
+    }
+}
@@ -19,6 +19,7 @@ import org.springframework.data.domain.PageRequest;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -34,6 +35,8 @@ class ProduitServiceTest {
     private ProduitMapper produitMapper;
     @Mock
     private MouvementStockService mouvementStockService;
+    @Mock
+    private CacheReferentielService cacheReferentielService;
 
     @InjectMocks
     private ProduitService produitService;
@@ -42,6 +45,9 @@ class ProduitServiceTest {
 
     @BeforeEach
     void setUp() {
+        // Cache traversé : chaque lecture va au repository
+        lenient().when(cacheReferentielService.produit(any(), any())).thenAnswer(invocation ->
+                invocation.<Function<Long, ProduitDTO>>getArgument(1).apply(invocation.getArgument(0)));
         baseProduitDTO = new ProduitDTO(
                 null,
                 "Stylo",
@@ -130,6 +136,7 @@ class ProduitServiceTest {
         verify(produitMapper).toEntity(baseProduitDTO);
         verify(produitRepository).save(entity);
         verify(produitMapper).toDTO(saved);
+        verify(cacheReferentielService).invaliderProduit(15L);
         verifyNoMoreInteractions(produitRepository, produitMapper);
     }
 
@@ -188,6 +195,7 @@ class ProduitServiceTest {
         verify(produitMapper).updateEntityFromDTO(baseProduitDTO, existing);
         verify(produitRepository).save(existing);
         verify(produitMapper).toDTO(existing);
+        verify(cacheReferentielService).invaliderProduit(7L);
         verifyNoMoreInteractions(produitRepository, produitMapper);
     }
 
@@ -230,6 +238,7 @@ class ProduitServiceTest {
         // Assert
         verify(produitRepository).existsById(11L);
         verify(produitRepository).deleteById(11L);
+        verify(cacheReferentielService).invaliderProduit(11L);
         verifyNoMoreInteractions(produitRepository);
     }
 
@@ -282,46 +291,38 @@ class ProduitServiceTest {
     }
 
     @Test
-    void ajusterStock_whenVariationKeepsStockPositive_shouldPersistUpdatedStock() {
-        // Arrange
-        Produit produit = buildProduit(4L, 10, BigDecimal.ONE);
-        when(produitRepository.findById(4L)).thenReturn(Optional.of(produit));
-
+    void ajusterStock_sansPrix_shouldDelegateRelativeAdjustment() {
         // Act
-       produitService.ajusterStock(4L, 5, null);
+        produitService.ajusterStock(4L, -5, null);
 
         // Assert
-        assertThat(produit.getStockActuel()).isEqualTo(15);
-        verify(produitRepository).findById(4L);
-        verify(produitRepository).save(produit);
-        verifyNoMoreInteractions(produitRepository);
-        verifyNoInteractions(produitMapper);
+        verify(mouvementStockService).enregistrerAjustement(4L, -5);
+        verifyNoMoreInteractions(mouvementStockService);
+        verifyNoInteractions(produitRepository, produitMapper, cacheReferentielService);
     }
 
     @Test
-    void ajusterStock_whenProduitMissing_shouldThrowResourceNotFound() {
-        // Arrange
-        when(produitRepository.findById(8L)).thenReturn(Optional.empty());
+    void ajusterStock_avecNouveauPrix_shouldRecordArrivage() {
+        // Act
+        produitService.ajusterStock(4L, 5, BigDecimal.valueOf(2.5));
 
-        // Act & Assert
-       assertThatThrownBy(() -> produitService.ajusterStock(8L, 3, null))
-                .isInstanceOf(ResourceNotFoundException.class);
-        verify(produitRepository).findById(8L);
-        verifyNoMoreInteractions(produitRepository);
+        // Assert
+        verify(mouvementStockService).enregistrerArrivage(4L, 5, BigDecimal.valueOf(2.5));
+        verifyNoMoreInteractions(mouvementStockService);
+        verifyNoInteractions(produitRepository, produitMapper, cacheReferentielService);
     }
 
     @Test
-    void ajusterStock_whenResultingStockNegative_shouldThrowBusinessException() {
+    void ajusterStock_whenResultingStockNegative_shouldPropagateBusinessException() {
         // Arrange
-        Produit produit = buildProduit(9L, 2, BigDecimal.ONE);
-        when(produitRepository.findById(9L)).thenReturn(Optional.of(produit));
+        when(mouvementStockService.enregistrerAjustement(9L, -5))
+                .thenThrow(new BusinessException("Le stock ne peut pas devenir négatif"));
 
         // Act & Assert
-   assertThatThrownBy(() -> produitService.ajusterStock(9L, -5, null))
+        assertThatThrownBy(() -> produitService.ajusterStock(9L, -5, null))
                 .isInstanceOf(BusinessException.class)
                 .hasMessage("Le stock ne peut pas devenir négatif");
-        verify(produitRepository).findById(9L);
-        verifyNoMoreInteractions(produitRepository);
+        verifyNoInteractions(produitRepository);
     }
 
     @Test
@@ -337,6 +338,7 @@ class ProduitServiceTest {
         assertThat(produit.getCoutMoyenPondere()).isEqualByComparingTo("7.5");
         verify(produitRepository).findById(12L);
         verify(produitRepository).save(produit);
+        verify(cacheReferentielService).invaliderProduit(12L);
         verifyNoMoreInteractions(produitRepository);
         verifyNoInteractions(produitMapper);
     }
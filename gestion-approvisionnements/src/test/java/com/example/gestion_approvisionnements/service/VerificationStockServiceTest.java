@@ -0,0 +1,238 @@
+package com.example.gestion_approvisionnements.service;
+
+import com.example.gestion_approvisionnements.dto.MouvementJournalDTO;
+import com.example.gestion_approvisionnements.dto.VerificationStockDTO;
+import com.example.gestion_approvisionnements.entity.Produit;
+import com.example.gestion_approvisionnements.entity.SoldeArchiveMouvement;
+import com.example.gestion_approvisionnements.enums.EtatVerification;
+import com.example.gestion_approvisionnements.enums.TypeMouvement;
+import com.example.gestion_approvisionnements.exception.ResourceNotFoundException;
+import com.example.gestion_approvisionnements.repository.MouvementStockRepository;
+import com.example.gestion_approvisionnements.repository.ProduitRepository;
+import com.example.gestion_approvisionnements.repository.SoldeArchiveMouvementRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VerificationStockServiceTest {
+
+    @Mock
+    private ProduitRepository produitRepository;
+    @Mock
+    private MouvementStockRepository mouvementStockRepository;
+    @Mock
+    private SoldeArchiveMouvementRepository soldeArchiveMouvementRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private CacheReferentielService cacheReferentielService;
+
+    @InjectMocks
+    private VerificationStockService verificationStockService;
+
+    private Produit produit1;
+    private Produit produit2;
+    private Produit produit3;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(verificationStockService, "parallelisme", 2);
+        ReflectionTestUtils.setField(verificationStockService, "taillePlage", 2);
+        ReflectionTestUtils.setField(verificationStockService, "ecartsMax", 10);
+
+        // Produit 1 cohérent, produit 2 en dérive de stock, produit 3 sans mouvement mais avec du stock
+        produit1 = buildProduit(1L, 15, BigDecimal.valueOf(3.00));
+        produit2 = buildProduit(2L, 12, BigDecimal.valueOf(2.00));
+        produit3 = buildProduit(3L, 4, BigDecimal.valueOf(1.00));
+    }
+
+    @Test
+    void verifier_shouldRejouerChaquePlageEtSignalerLesEcartsSansCorriger() {
+        // Arrange
+        preparerCatalogue();
+        when(produitRepository.findByIdBetweenOrderById(1L, 2L)).thenReturn(List.of(produit1, produit2));
+        when(produitRepository.findByIdBetweenOrderById(3L, 3L)).thenReturn(List.of(produit3));
+        when(mouvementStockRepository.streamJournalPlage(1L, 2L)).thenReturn(Stream.of(
+                buildMouvement(produit1, TypeMouvement.ENTREE, 10, BigDecimal.valueOf(2.00)),
+                buildMouvement(produit2, TypeMouvement.ENTREE, 10, BigDecimal.valueOf(2.00)),
+                buildMouvement(produit1, TypeMouvement.ENTREE, 10, BigDecimal.valueOf(4.00)),
+                buildMouvement(produit1, TypeMouvement.SORTIE, 5, null)));
+        when(mouvementStockRepository.streamJournalPlage(3L, 3L)).thenReturn(Stream.empty());
+
+        // Act
+        VerificationStockDTO result = verificationStockService.verifier(false);
+
+        // Assert
+        assertThat(result.getEtat()).isEqualTo(EtatVerification.TERMINEE);
+        assertThat(result.getProduitsVerifies()).isEqualTo(3);
+        assertThat(result.getMouvementsRejoues()).isEqualTo(4);
+        assertThat(result.getEcarts()).extracting(e -> e.getProduitId()).containsExactly(2L, 3L);
+        assertThat(result.getEcarts().get(0).getStockJournal()).isEqualTo(10);
+        assertThat(result.getEcarts().get(1).getStockJournal()).isZero();
+        assertThat(produit2.getStockActuel()).isEqualTo(12);
+        verify(transactionManager, times(2)).getTransaction(argThat(definition -> definition.isReadOnly()
+                && definition.getIsolationLevel() == TransactionDefinition.ISOLATION_REPEATABLE_READ));
+        verify(produitRepository, never()).findByIdBetweenForUpdate(any(), any());
+        verifyNoInteractions(cacheReferentielService);
+    }
+
+    @Test
+    void verifier_enReparation_shouldVerrouillerEtReecrireLesValeurs() {
+        // Arrange
+        preparerCatalogue();
+        when(produitRepository.findByIdBetweenForUpdate(1L, 2L)).thenReturn(List.of(produit1, produit2));
+        when(produitRepository.findByIdBetweenForUpdate(3L, 3L)).thenReturn(List.of(produit3));
+        when(mouvementStockRepository.streamJournalPlage(1L, 2L)).thenReturn(Stream.of(
+                buildMouvement(produit2, TypeMouvement.ENTREE, 10, BigDecimal.valueOf(2.00))));
+        when(mouvementStockRepository.streamJournalPlage(3L, 3L)).thenReturn(Stream.empty());
+
+        // Act
+        VerificationStockDTO result = verificationStockService.verifier(true);
+
+        // Assert : produit 1 sans mouvement est lui aussi remis à zéro
+        assertThat(result.getNombreEcarts()).isEqualTo(3);
+        assertThat(produit1.getStockActuel()).isZero();
+        assertThat(produit2.getStockActuel()).isEqualTo(10);
+        assertThat(produit2.getCoutMoyenPondere()).isEqualByComparingTo("2.00");
+        assertThat(produit3.getStockActuel()).isZero();
+        verify(cacheReferentielService).invaliderStock(produit1.getId());
+        verify(cacheReferentielService).invaliderStock(produit2.getId());
+        verify(cacheReferentielService).invaliderStock(produit3.getId());
+        verify(produitRepository, never()).findByIdBetweenOrderById(any(), any());
+    }
+
+    @Test
+    void verifier_avecMouvementsArchives_shouldRejouerDepuisLeSolde() {
+        // Arrange : le stock du produit 3 vient entièrement de mouvements archivés
+        preparerCatalogue();
+        when(produitRepository.findByIdBetweenOrderById(1L, 2L)).thenReturn(List.of(produit1, produit2));
+        when(produitRepository.findByIdBetweenOrderById(3L, 3L)).thenReturn(List.of(produit3));
+        when(soldeArchiveMouvementRepository.findByProduitIdBetween(1L, 2L)).thenReturn(List.of());
+        when(soldeArchiveMouvementRepository.findByProduitIdBetween(3L, 3L)).thenReturn(List.of(
+                new SoldeArchiveMouvement(3L, 4, BigDecimal.valueOf(1.00), LocalDateTime.of(2023, 1, 31, 9, 0),
+                        LocalDate.of(2023, 1, 1), 12L)));
+        when(mouvementStockRepository.streamJournalPlage(1L, 2L)).thenReturn(Stream.of(
+                buildMouvement(produit1, TypeMouvement.ENTREE, 10, BigDecimal.valueOf(2.00)),
+                buildMouvement(produit1, TypeMouvement.ENTREE, 10, BigDecimal.valueOf(4.00)),
+                buildMouvement(produit1, TypeMouvement.SORTIE, 5, null)));
+        when(mouvementStockRepository.streamJournalPlage(3L, 3L)).thenReturn(Stream.empty());
+
+        // Act
+        VerificationStockDTO result = verificationStockService.verifier(false);
+
+        // Assert
+        assertThat(result.getEtat()).isEqualTo(EtatVerification.TERMINEE);
+        assertThat(result.getEcarts()).extracting(e -> e.getProduitId()).containsExactly(2L);
+    }
+
+    @Test
+    void verifier_produitCreeAvecDuStock_shouldRejouerDepuisSonOuverture() {
+        // Arrange : produit 3 créé avec 4 unités à 1.00, sans mouvement depuis
+        produit3.setStockOuverture(4);
+        produit3.setCoutMoyenPondereOuverture(BigDecimal.valueOf(1.00));
+        preparerCatalogue();
+        when(produitRepository.findByIdBetweenOrderById(1L, 2L)).thenReturn(List.of(produit1, produit2));
+        when(produitRepository.findByIdBetweenOrderById(3L, 3L)).thenReturn(List.of(produit3));
+        when(mouvementStockRepository.streamJournalPlage(1L, 2L)).thenReturn(Stream.of(
+                buildMouvement(produit1, TypeMouvement.ENTREE, 10, BigDecimal.valueOf(2.00)),
+                buildMouvement(produit1, TypeMouvement.ENTREE, 10, BigDecimal.valueOf(4.00)),
+                buildMouvement(produit1, TypeMouvement.SORTIE, 5, null)));
+        when(mouvementStockRepository.streamJournalPlage(3L, 3L)).thenReturn(Stream.empty());
+
+        // Act
+        VerificationStockDTO result = verificationStockService.verifier(false);
+
+        // Assert
+        assertThat(result.getEcarts()).extracting(e -> e.getProduitId()).containsExactly(2L);
+    }
+
+    @Test
+    void verifier_enReparation_ouvertureInconnue_shouldSignalerSansReecrire() {
+        // Arrange : produit 2 mouvementé avant l'enregistrement des soldes d'ouverture
+        produit2.setStockOuverture(null);
+        produit2.setCoutMoyenPondereOuverture(null);
+        preparerCatalogue();
+        when(produitRepository.findByIdBetweenForUpdate(1L, 2L)).thenReturn(List.of(produit1, produit2));
+        when(produitRepository.findByIdBetweenForUpdate(3L, 3L)).thenReturn(List.of(produit3));
+        when(mouvementStockRepository.streamJournalPlage(1L, 2L)).thenReturn(Stream.of(
+                buildMouvement(produit2, TypeMouvement.ENTREE, 10, BigDecimal.valueOf(2.00))));
+        when(mouvementStockRepository.streamJournalPlage(3L, 3L)).thenReturn(Stream.empty());
+
+        // Act
+        VerificationStockDTO result = verificationStockService.verifier(true);
+
+        // Assert
+        assertThat(result.getEcarts()).extracting(e -> e.getProduitId()).containsExactly(1L, 2L, 3L);
+        assertThat(result.getEcarts().get(1).isOuvertureConnue()).isFalse();
+        assertThat(result.getEcarts().get(1).getStockJournal()).isEqualTo(10);
+        assertThat(produit2.getStockActuel()).isEqualTo(12);
+        assertThat(produit2.getCoutMoyenPondere()).isEqualByComparingTo("2.00");
+        verify(cacheReferentielService, never()).invaliderStock(produit2.getId());
+        verify(cacheReferentielService).invaliderStock(produit1.getId());
+    }
+
+    @Test
+    void verifier_quandUnePlageEchoue_shouldTerminerEnEchec() {
+        // Arrange
+        preparerCatalogue();
+        when(produitRepository.findByIdBetweenOrderById(any(), any())).thenThrow(new QueryTimeoutException("délai dépassé"));
+
+        // Act
+        VerificationStockDTO result = verificationStockService.verifier(false);
+
+        // Assert
+        assertThat(result.getEtat()).isEqualTo(EtatVerification.ECHOUEE);
+        assertThat(result.getErreur()).isEqualTo("délai dépassé");
+        assertThat(verificationStockService.getVerification(result.getId()).getEtat()).isEqualTo(EtatVerification.ECHOUEE);
+    }
+
+    @Test
+    void getVerification_whenMissing_shouldThrowNotFound() {
+        // Act & Assert
+        assertThatThrownBy(() -> verificationStockService.getVerification(42L))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessage("Vérification introuvable avec l'id 42");
+    }
+
+    private void preparerCatalogue() {
+        when(produitRepository.findAllIds()).thenReturn(List.of(1L, 2L, 3L));
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    }
+
+    private Produit buildProduit(Long id, int stock, BigDecimal cump) {
+        Produit p = new Produit();
+        p.setId(id);
+        p.setNom("Produit " + id);
+        p.setPrixUnitaire(BigDecimal.valueOf(4.00));
+        p.setStockActuel(stock);
+        p.setCoutMoyenPondere(cump);
+        p.setStockOuverture(0);
+        p.setCoutMoyenPondereOuverture(BigDecimal.ZERO);
+        return p;
+    }
+
+    private MouvementJournalDTO buildMouvement(Produit produit, TypeMouvement type, int quantite, BigDecimal prix) {
+        return new MouvementJournalDTO(produit.getId(), type, quantite, prix);
+    }
+}